@@ -0,0 +1,48 @@
+package com.study.benchmark.common;
+
+import com.study.common.entity.User;
+import com.study.common.result.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result对象的构造开销
+ *
+ * 每个接口返回前都会构造一次，序列化的开销见 {@link com.study.benchmark.json.ResultJsonBenchmark}
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultBenchmark {
+
+    private final User user = new User();
+
+    @Benchmark
+    public Result<User> success() {
+        return Result.success(user);
+    }
+
+    @Benchmark
+    public Result<String> successWithMessage() {
+        return Result.success("操作成功", "ok");
+    }
+
+    @Benchmark
+    public Result<Void> error() {
+        return Result.error("用户不存在");
+    }
+}
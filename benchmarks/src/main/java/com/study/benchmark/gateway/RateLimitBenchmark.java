@@ -0,0 +1,235 @@
+package com.study.benchmark.gateway;
+
+import com.study.gateway.filter.RateLimitFilter;
+import com.study.gateway.ratelimit.RateLimitProperties;
+import com.study.gateway.ratelimit.TokenBucket;
+import com.study.gateway.ratelimit.TokenBucketRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 网关限流热路径在多线程竞争下的开销
+ *
+ * 令牌桶（GCRA，一个AtomicLong + CAS）和分片注册表（64个ConcurrentHashMap）：
+ * - sharedBucket：所有线程对同一个 {@link TokenBucket} 做CAS，相当于路由级总限制，竞争最激烈
+ * - registrySameKey：经过注册表访问同一个key，多了一次分片定位和ConcurrentHashMap读取
+ * - registrySpreadKeys：每个线程轮流访问一万个客户端key，分散在各个分片上
+ *
+ * limit=admit时桶容量足够大，每次都放行（每次都要CAS）；limit=reject时桶已经耗尽，每次都拒绝（只读，不写）
+ *
+ * 完整的 {@link RateLimitFilter}：一万个客户端，每个线程预先构造好的请求轮流经过过滤器，
+ * 包括取路由、换算好的速率参数、按client-key提取客户端标识（IP / Authorization / X-Forwarded-For）、
+ * 拼接key、查找令牌桶和设置X-RateLimit-Remaining响应头，后续过滤器链为空
+ *
+ * 默认4个线程，单核环境下线程交替执行，CAS失败重试很少，多核机器上可以用 -Dbenchmarks.args="-t 8" 加大竞争
+ *
+ * @author SpringCloud学习项目
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@Threads(4)
+public class RateLimitBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private static final String ROUTE_ID = "user-service-direct";
+
+    /**
+     * 所有线程共享的令牌桶和注册表
+     */
+    @State(Scope.Benchmark)
+    public static class Buckets {
+
+        @Param({"admit", "reject"})
+        public String limit;
+
+        TokenBucket.Rate rate;
+
+        TokenBucket bucket;
+
+        TokenBucketRegistry registry;
+
+        String[] clientKeys;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RateLimitProperties.Limit config = new RateLimitProperties.Limit();
+            if ("admit".equals(limit)) {
+                // 每纳秒补充一个令牌，桶容量相当于1秒，吞吐远低于这个速率，始终放行
+                config.setCapacity(1_000_000_000);
+                config.setRefillPerSecond(1_000_000_000);
+            } else {
+                config.setCapacity(1);
+                config.setRefillPerSecond(0.001);
+            }
+            rate = TokenBucket.Rate.of(config);
+            long now = System.nanoTime();
+            bucket = new TokenBucket(rate, now);
+            bucket.tryAcquire(now);
+            registry = new TokenBucketRegistry(new RateLimitProperties());
+            clientKeys = new String[CLIENTS];
+            for (int i = 0; i < CLIENTS; i++) {
+                clientKeys[i] = "c|" + ROUTE_ID + "|10." + (i >> 16 & 0xff) + "." + (i >> 8 & 0xff) + "." + (i & 0xff);
+                registry.tryAcquire(clientKeys[i], rate, now);
+            }
+            registry.tryAcquire("r|" + ROUTE_ID, rate, now);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            registry.shutdown();
+        }
+    }
+
+    /**
+     * 每个线程从不同的位置开始轮流访问客户端key
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams threadParams) {
+            next = threadParams.getThreadIndex() * (CLIENTS / Math.max(1, threadParams.getThreadCount()));
+        }
+
+        int next() {
+            int index = next;
+            next = index + 1 == CLIENTS ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    /**
+     * 限流过滤器和它使用的注册表，客户端限制足够大，只测量放行路径
+     */
+    @State(Scope.Benchmark)
+    public static class Filter {
+
+        /**
+         * ip：取连接的远端地址；token：Authorization请求头；forwarded：X-Forwarded-For中的第一个IP
+         */
+        @Param({"ip", "token", "forwarded"})
+        public String clientKey;
+
+        RateLimitFilter filter;
+
+        TokenBucketRegistry registry;
+
+        Route route;
+
+        final GatewayFilterChain chain = exchange -> Mono.empty();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            RateLimitProperties properties = new RateLimitProperties();
+            properties.setClientKey("token".equals(clientKey) ? "token" : "ip");
+            properties.setTrustForwardedFor("forwarded".equals(clientKey));
+            RateLimitProperties.Limit client = new RateLimitProperties.Limit();
+            client.setCapacity(1_000_000_000);
+            client.setRefillPerSecond(1_000_000_000);
+            RateLimitProperties.RouteLimit defaults = new RateLimitProperties.RouteLimit();
+            defaults.setClient(client);
+            properties.setDefaults(defaults);
+            registry = new TokenBucketRegistry(properties);
+            filter = new RateLimitFilter(properties, registry);
+            route = Route.async()
+                    .id(ROUTE_ID)
+                    .uri("lb://user-service")
+                    .predicate(exchange -> true)
+                    .build();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            registry.shutdown();
+        }
+    }
+
+    /**
+     * 每个线程自己的请求（响应头不能被多个线程同时修改），一万个客户端随机排列
+     */
+    @State(Scope.Thread)
+    public static class Exchanges {
+
+        ServerWebExchange[] exchanges;
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Filter filter, ThreadParams threadParams) {
+            Random random = new Random(threadParams.getThreadIndex());
+            exchanges = new ServerWebExchange[CLIENTS];
+            for (int i = 0; i < CLIENTS; i++) {
+                int client = random.nextInt(CLIENTS);
+                String ip = "10." + (client >> 16 & 0xff) + "." + (client >> 8 & 0xff) + "." + (client & 0xff);
+                MockServerHttpRequest.BaseBuilder<?> request = MockServerHttpRequest.get("/user/" + client);
+                switch (filter.clientKey) {
+                    case "token" -> request.remoteAddress(new InetSocketAddress("127.0.0.1", 40000))
+                            .header(HttpHeaders.AUTHORIZATION, "Bearer token-" + client);
+                    case "forwarded" -> request.remoteAddress(new InetSocketAddress("127.0.0.1", 40000))
+                            .header("X-Forwarded-For", ip + ", 192.168.0.10");
+                    default -> request.remoteAddress(new InetSocketAddress(ip, 40000));
+                }
+                MockServerWebExchange exchange = MockServerWebExchange.from(request);
+                exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, filter.route);
+                exchanges[i] = exchange;
+            }
+        }
+
+        ServerWebExchange next() {
+            ServerWebExchange exchange = exchanges[next];
+            next = next + 1 == CLIENTS ? 0 : next + 1;
+            return exchange;
+        }
+    }
+
+    @Benchmark
+    public long sharedBucket(Buckets buckets) {
+        return buckets.bucket.tryAcquire(System.nanoTime());
+    }
+
+    @Benchmark
+    public long registrySameKey(Buckets buckets) {
+        return buckets.registry.tryAcquire("r|" + ROUTE_ID, buckets.rate, System.nanoTime());
+    }
+
+    @Benchmark
+    public long registrySpreadKeys(Buckets buckets, Cursor cursor) {
+        return buckets.registry.tryAcquire(buckets.clientKeys[cursor.next()], buckets.rate, System.nanoTime());
+    }
+
+    @Benchmark
+    public Mono<Void> filter(Filter filter, Exchanges exchanges) {
+        return filter.filter.filter(exchanges.next(), filter.chain);
+    }
+}
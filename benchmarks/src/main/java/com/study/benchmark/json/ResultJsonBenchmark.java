@@ -0,0 +1,141 @@
+package com.study.benchmark.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.study.common.entity.Order;
+import com.study.common.entity.User;
+import com.study.common.json.ResultJsonWriter;
+import com.study.common.result.Result;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result JSON序列化：Jackson反射序列化 vs {@link ResultJsonWriter}
+ *
+ * 两种方式都写入同一个可复用的输出流，只比较序列化本身的开销，
+ * ObjectMapper的配置与Spring Boot默认一致（日期不输出为时间戳）。
+ * 加上 -Dbenchmarks.args="-prof gc" 可以同时对比每次操作分配的内存
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private Result<User> user;
+
+    private Result<List<Order>> orders;
+
+    private Result<Void> error;
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+
+        User u = new User();
+        u.setId(10086L);
+        u.setUsername("zhangsan");
+        u.setEmail("zhangsan@example.com");
+        u.setPhone("13800138000");
+        u.setStatus(1);
+        u.setCreateTime(LocalDateTime.of(2024, 3, 1, 9, 30, 15));
+        u.setUpdateTime(LocalDateTime.of(2024, 5, 20, 18, 2, 44, 123_000_000));
+        user = Result.success(u);
+
+        List<Order> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Order order = new Order();
+            order.setId(1000L + i);
+            order.setOrderNo("ORD20240520" + (100000 + i));
+            order.setUserId(10086L);
+            order.setProductName("商品-" + i);
+            order.setQuantity(i % 5 + 1);
+            order.setPrice(new BigDecimal("99.90"));
+            order.setTotalAmount(new BigDecimal("99.90").multiply(BigDecimal.valueOf(i % 5 + 1)));
+            order.setStatus(i % 5 + 1);
+            order.setCreateTime(LocalDateTime.of(2024, 5, 20, 10, i, 0));
+            order.setUpdateTime(LocalDateTime.of(2024, 5, 20, 11, i, 30));
+            list.add(order);
+        }
+        orders = Result.success(list);
+        error = Result.error("用户不存在");
+
+        // 两种方式的输出必须完全相同，否则比较没有意义
+        for (Result<?> result : List.of(user, orders, error)) {
+            if (!Arrays.equals(ResultJsonWriter.toBytes(result), objectMapper.writeValueAsBytes(result))) {
+                throw new IllegalStateException("输出不一致: " + objectMapper.writeValueAsString(result));
+            }
+        }
+    }
+
+    @Benchmark
+    public int jacksonUser() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, user);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writerUser() throws IOException {
+        out.reset();
+        ResultJsonWriter.write(user, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int jacksonOrderList() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, orders);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writerOrderList() throws IOException {
+        out.reset();
+        ResultJsonWriter.write(orders, out);
+        return out.size();
+    }
+
+    @Benchmark
+    public int jacksonError() throws IOException {
+        out.reset();
+        objectMapper.writeValue(out, error);
+        return out.size();
+    }
+
+    @Benchmark
+    public int writerError() throws IOException {
+        out.reset();
+        ResultJsonWriter.write(error, out);
+        return out.size();
+    }
+}
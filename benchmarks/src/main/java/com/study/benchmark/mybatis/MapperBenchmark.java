@@ -0,0 +1,106 @@
+package com.study.benchmark.mybatis;
+
+import com.study.benchmark.support.EmbeddedDatabase;
+import com.study.common.entity.Order;
+import com.study.common.entity.User;
+import com.study.order.mapper.OrderMapper;
+import com.study.user.mapper.UserMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MyBatis行映射：用户服务和订单服务的Mapper在内存数据库上的查询开销
+ *
+ * 数据库是H2（MySQL兼容模式），查询本身很快，结果主要反映MyBatis-Plus的SQL执行、
+ * ResultSet到User/Order的映射（下划线转驼峰、LocalDateTime、BigDecimal）和SqlSession的开销，
+ * 不包含网络往返。每次随机选择一个存在的ID，避免总是命中同一行
+ *
+ * 这条链路上需要JIT编译的代码很多（H2解析执行、MyBatis反射映射），预热时间比其他基准测试长
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private static final int ORDERS_PER_USER = 20;
+
+    private EmbeddedDatabase database;
+
+    private UserMapper userMapper;
+
+    private OrderMapper orderMapper;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        database = EmbeddedDatabase.create(USERS, ORDERS_PER_USER, UserMapper.class, OrderMapper.class);
+        userMapper = database.mapper(UserMapper.class);
+        orderMapper = database.mapper(OrderMapper.class);
+        if (userMapper.selectById(1L) == null || orderMapper.selectByUserId(1L).size() != ORDERS_PER_USER) {
+            throw new IllegalStateException("测试数据不完整");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    /**
+     * BaseMapper.selectById，映射全部字段
+     */
+    @Benchmark
+    public User userById() {
+        return userMapper.selectById(randomUserId());
+    }
+
+    @Benchmark
+    public User userByUsername() {
+        return userMapper.selectByUsername("user" + randomUserId());
+    }
+
+    /**
+     * 键集分页读取100个用户（搜索索引加载时使用）
+     */
+    @Benchmark
+    public List<User> userPage() {
+        return userMapper.selectPageAfterId(randomUserId() % (USERS - 100), 100);
+    }
+
+    @Benchmark
+    public Order orderById() {
+        return orderMapper.selectById(ThreadLocalRandom.current().nextLong(1, (long) USERS * ORDERS_PER_USER + 1));
+    }
+
+    /**
+     * 用户的全部订单（20行）
+     */
+    @Benchmark
+    public List<Order> ordersByUserId() {
+        return orderMapper.selectByUserId(randomUserId());
+    }
+
+    private static long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(1, USERS + 1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.study.benchmark.order;
+
+import com.study.order.service.OrderNoGenerator;
+import com.study.order.service.OrderService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 下单时的纯计算部分：订单编号生成、订单总金额计算
+ *
+ * legacy开头的方法是改造前的写法（每次新建DateTimeFormatter和Random、new BigDecimal(int)），
+ * 保留下来作为对照
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderHotPathBenchmark {
+
+    private final BigDecimal price = new BigDecimal("5999.00");
+
+    private int quantity = 3;
+
+    @Benchmark
+    public String generateOrderNo() {
+        return OrderNoGenerator.generate();
+    }
+
+    @Benchmark
+    public String legacyGenerateOrderNo() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+        String timestamp = LocalDateTime.now().format(formatter);
+        Random random = new Random();
+        int randomNum = random.nextInt(9999) + 1000;
+        return timestamp + randomNum;
+    }
+
+    @Benchmark
+    public BigDecimal totalAmount() {
+        return OrderService.calculateTotalAmount(price, quantity);
+    }
+
+    @Benchmark
+    public BigDecimal legacyTotalAmount() {
+        return price.multiply(new BigDecimal(quantity));
+    }
+}
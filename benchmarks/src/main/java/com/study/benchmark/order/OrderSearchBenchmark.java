@@ -0,0 +1,110 @@
+package com.study.benchmark.order;
+
+import com.study.order.search.OrderSearchIndex;
+import com.study.order.search.ProductNameTokenizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 商品名称倒排索引：一年内的orders个订单，查询并取第一页（20个订单ID），不含读取数据库
+ *
+ * 商品名称由品牌、型号、规格随机组合，约两千种；状态按待支付5%、已支付20%、已发货15%、已完成55%、已取消5%分布。
+ * 几个查询分别是：常见的单个词、两个词、两个词加状态和一个月的时间范围、词的前缀、汉字
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class OrderSearchBenchmark {
+
+    private static final String[] BRANDS = {"Apple", "华为", "小米", "Sony", "Samsung", "Lenovo", "Dell", "Nike",
+            "Adidas", "罗技"};
+    private static final String[] MODELS = {"iPhone", "AirPods", "MacBook", "iPad", "Watch", "蓝牙耳机", "手机",
+            "笔记本电脑", "显示器", "键盘", "鼠标", "运动鞋", "跑步鞋", "平板", "充电器", "数据线", "音箱",
+            "路由器", "相机", "游戏手柄"};
+    private static final String[] SPECS = {"Pro", "Max", "Air", "Mini", "Plus", "Ultra", "Lite", "SE",
+            "14", "15", "16", "128GB", "256GB", "512GB", "黑色", "白色", "蓝色"};
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    @Param({"10000000"})
+    private int orders;
+
+    private OrderSearchIndex index;
+
+    private final Set<String> airpods = ProductNameTokenizer.queryTerms("airpods");
+    private final Set<String> iphonePro = ProductNameTokenizer.queryTerms("iPhone Pro");
+    private final Set<String> mac = ProductNameTokenizer.queryTerms("mac");
+    private final Set<String> headphones = ProductNameTokenizer.queryTerms("蓝牙耳机");
+    private final LocalDateTime monthFrom = LocalDateTime.of(2024, 6, 1, 0, 0);
+    private final LocalDateTime monthTo = LocalDateTime.of(2024, 7, 1, 0, 0);
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        index = new OrderSearchIndex();
+        for (int id = 1; id <= orders; id++) {
+            String product = BRANDS[random.nextInt(BRANDS.length)] + " " + MODELS[random.nextInt(MODELS.length)]
+                    + " " + SPECS[random.nextInt(SPECS.length)];
+            int p = random.nextInt(100);
+            int status = p < 5 ? 1 : p < 25 ? 2 : p < 40 ? 3 : p < 95 ? 4 : 5;
+            // 订单在一年内均匀创建，ID随创建时间递增
+            index.upsert(id, product, status, START.plusSeconds((long) id * 365 * 86400 / orders));
+        }
+        index.optimize();
+        System.out.printf("%n[索引] %d个订单，%d个词，%dMB%n", index.size(), index.termCount(), index.memoryBytes() >> 20);
+    }
+
+    @Benchmark
+    public long[] singleTerm() {
+        return firstPage(index.search(airpods, null, null, null));
+    }
+
+    @Benchmark
+    public long[] twoTerms() {
+        return firstPage(index.search(iphonePro, null, null, null));
+    }
+
+    @Benchmark
+    public long[] twoTermsStatusMonth() {
+        return firstPage(index.search(iphonePro, 2, monthFrom, monthTo));
+    }
+
+    @Benchmark
+    public long[] statusPartialMonth() {
+        return firstPage(index.search(airpods, 4, monthFrom.plusHours(13), monthTo.minusHours(5)));
+    }
+
+    @Benchmark
+    public long[] prefix() {
+        return firstPage(index.search(mac, null, null, null));
+    }
+
+    @Benchmark
+    public long[] chinese() {
+        return firstPage(index.search(headphones, null, null, null));
+    }
+
+    private static long[] firstPage(RoaringBitmap result) {
+        return OrderSearchIndex.newestFirst(result, 0, 20);
+    }
+}
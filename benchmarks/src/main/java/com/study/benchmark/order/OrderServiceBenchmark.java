@@ -0,0 +1,200 @@
+package com.study.benchmark.order;
+
+import com.study.benchmark.support.EmbeddedDatabase;
+import com.study.common.entity.OrderView;
+import com.study.common.entity.User;
+import com.study.common.result.Result;
+import com.study.order.changes.OrderChangeTailer;
+import com.study.order.feign.UserServiceFeign;
+import com.study.order.mapper.OrderMapper;
+import com.study.order.mapper.OrderViewMapper;
+import com.study.order.search.OrderSearchEngine;
+import com.study.order.service.OrderService;
+import com.study.order.timeout.OrderPaymentTimeoutScheduler;
+import com.study.order.view.OrderViewProjector;
+import com.study.tracing.hotkey.HotKeyDetector;
+import com.study.tracing.hotkey.HotKeyProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单服务的查询链路：OrderService + 内存数据库 + 替身UserServiceFeign
+ *
+ * UserServiceFeign用固定返回的替身代替，不发起HTTP调用，
+ * 结果只包含订单服务自身的开销（参数校验、热点Key统计、Mapper查询和映射、处理用户信息）。
+ * 默认查询订单读模型（order_view，启动时同步一次）；fallback开头的方法关闭读模型，按原来的方式查询订单再调用用户服务。
+ * 下单（createOrder）没有放在这里：订单编号每秒只有9000个取值，高频插入会触发唯一键冲突
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final int USERS = 10_000;
+
+    private static final int ORDERS_PER_USER = 20;
+
+    private EmbeddedDatabase database;
+
+    private AnnotationConfigApplicationContext context;
+
+    private AnnotationConfigApplicationContext fallbackContext;
+
+    private OrderService orderService;
+
+    private OrderService fallbackOrderService;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        database = EmbeddedDatabase.create(USERS, ORDERS_PER_USER, OrderMapper.class, OrderViewMapper.class);
+
+        context = newContext(true);
+        context.getBean(OrderChangeTailer.class).catchUp();
+        // 每次同步最多补齐MAX_BUYER_BATCHES批买家信息，补到所有订单都有买家信息为止，否则大部分查询会走兜底
+        OrderViewProjector projector = context.getBean(OrderViewProjector.class);
+        OrderViewMapper orderViewMapper = context.getBean(OrderViewMapper.class);
+        do {
+            projector.syncBuyers();
+        } while (orderViewMapper.countWithoutBuyer() > 0);
+        orderService = context.getBean(OrderService.class);
+        fallbackContext = newContext(false);
+        fallbackOrderService = fallbackContext.getBean(OrderService.class);
+
+        OrderView view = orderService.getOrderWithUserInfo(1L);
+        if (view == null || view.getUserSyncedAt() == null || fallbackOrderService.getOrderWithUserInfo(1L) == null) {
+            throw new IllegalStateException("测试数据不完整");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        fallbackContext.close();
+        database.close();
+    }
+
+    /**
+     * 订单详情：查询订单读模型
+     */
+    @Benchmark
+    public OrderView orderWithUserInfo() {
+        return orderService.getOrderWithUserInfo(
+                ThreadLocalRandom.current().nextLong(1, (long) USERS * ORDERS_PER_USER + 1));
+    }
+
+    /**
+     * 用户的订单列表（20行，含买家信息）
+     */
+    @Benchmark
+    public List<OrderView> ordersByUserId() {
+        return orderService.getOrdersByUserId(ThreadLocalRandom.current().nextLong(1, USERS + 1));
+    }
+
+    /**
+     * 订单详情：查询订单 + 调用用户服务
+     */
+    @Benchmark
+    public OrderView fallbackOrderWithUserInfo() {
+        return fallbackOrderService.getOrderWithUserInfo(
+                ThreadLocalRandom.current().nextLong(1, (long) USERS * ORDERS_PER_USER + 1));
+    }
+
+    /**
+     * 用户的订单列表：查询订单 + 调用用户服务
+     */
+    @Benchmark
+    public List<OrderView> fallbackOrdersByUserId() {
+        return fallbackOrderService.getOrdersByUserId(ThreadLocalRandom.current().nextLong(1, USERS + 1));
+    }
+
+    /**
+     * 只包含订单查询链路的Spring容器：Mapper来自内存数据库，UserServiceFeign用替身，
+     * 其余组件与服务中相同，通过@Resource和@Value注入，配置项未指定的取默认值。
+     * 容器不发布ApplicationReadyEvent，后台线程都不会启动，由setup同步一次订单和买家信息
+     *
+     * @param viewEnabled 是否启用订单读模型
+     */
+    private AnnotationConfigApplicationContext newContext(boolean viewEnabled) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", Map.of(
+                "order.view.enabled", viewEnabled,
+                "order.search.enabled", false,
+                "order.payment-timeout.enabled", false)));
+        // 与Spring Boot一样支持 "5s"、"24h" 这类时长配置
+        context.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        context.registerBean(OrderMapper.class, () -> database.mapper(OrderMapper.class));
+        context.registerBean(OrderViewMapper.class, () -> database.mapper(OrderViewMapper.class));
+        context.registerBean(UserServiceFeign.class, StubUserServiceFeign::new);
+        context.registerBean(HotKeyDetector.class, () -> new HotKeyDetector(new HotKeyProperties()));
+        context.register(OrderService.class, OrderViewProjector.class, OrderChangeTailer.class,
+                OrderSearchEngine.class, OrderPaymentTimeoutScheduler.class);
+        context.refresh();
+        return context;
+    }
+
+    /**
+     * 用户服务替身：总是返回同一个用户
+     */
+    private static class StubUserServiceFeign implements UserServiceFeign {
+
+        private final Result<User> user;
+
+        StubUserServiceFeign() {
+            User u = new User();
+            u.setId(1L);
+            u.setUsername("user1");
+            u.setEmail("user1@example.com");
+            u.setStatus(1);
+            this.user = Result.success(u);
+        }
+
+        @Override
+        public Result<User> getUserById(Long id) {
+            return user;
+        }
+
+        @Override
+        public Result<List<User>> getUsersByIds(Collection<Long> ids) {
+            List<User> users = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                User u = new User();
+                u.setId(id);
+                u.setUsername("user" + id);
+                u.setEmail("user" + id + "@example.com");
+                u.setStatus(1);
+                users.add(u);
+            }
+            return Result.success(users);
+        }
+
+        @Override
+        public Result<String> testUserService() {
+            return Result.success("ok");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.study.benchmark.order;
+
+import com.study.order.timeout.TimingWheel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 未支付订单超时：一百万个待支付订单在30分钟内均匀到期，登记全部订单再推进到全部到期
+ *
+ * delayQueue是用JDK的DelayQueue实现同样的事情，作为对照：每个订单一个对象，
+ * 堆上的添加和取出都是O(log n)。内存对比见README
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class PaymentTimeoutBenchmark {
+
+    private static final int ORDERS = 1_000_000;
+
+    /**
+     * 30分钟，以秒为刻度
+     */
+    private static final int TIMEOUT_TICKS = 1800;
+
+    private static final long START_TICK = 1_700_000_000L;
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public void timingWheel(Blackhole blackhole) {
+        TimingWheel wheel = new TimingWheel(START_TICK);
+        for (int i = 0; i < ORDERS; i++) {
+            wheel.add(i, START_TICK + TIMEOUT_TICKS + (long) i * TIMEOUT_TICKS / ORDERS);
+        }
+        wheel.advanceTo(START_TICK + 2 * TIMEOUT_TICKS, blackhole::consume);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ORDERS)
+    public void delayQueue(Blackhole blackhole) {
+        DelayQueue<Timer> queue = new DelayQueue<>();
+        for (int i = 0; i < ORDERS; i++) {
+            queue.add(new Timer(i, START_TICK + TIMEOUT_TICKS + (long) i * TIMEOUT_TICKS / ORDERS));
+        }
+        Timer timer;
+        while ((timer = queue.poll()) != null) {
+            blackhole.consume(timer.orderId);
+        }
+    }
+
+    private record Timer(long orderId, long deadlineTick) implements Delayed {
+
+        /**
+         * 视为全部已经到期，按到期顺序取出，只比较数据结构本身的开销，不等待系统时间
+         */
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return 0;
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(deadlineTick, ((Timer) other).deadlineTick);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.study.benchmark.support;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * 基准测试用的内存数据库
+ *
+ * H2以MySQL兼容模式运行，表结构见 benchmark-schema.sql（与 sql/init.sql 一致），
+ * 在其上用MyBatis-Plus注册各服务真实的Mapper接口，映射规则与服务中的配置相同（下划线转驼峰）
+ *
+ * Mapper通过 {@link SqlSessionManager} 获取：每次调用单独打开、关闭SqlSession，
+ * 和Spring中SqlSessionTemplate的行为一致；连接来自H2自带的连接池，不计入建立连接的开销
+ *
+ * @author SpringCloud学习项目
+ */
+public final class EmbeddedDatabase implements AutoCloseable {
+
+    private final JdbcConnectionPool pool;
+
+    private final SqlSessionManager sessions;
+
+    private EmbeddedDatabase(JdbcConnectionPool pool, SqlSessionManager sessions) {
+        this.pool = pool;
+        this.sessions = sessions;
+    }
+
+    /**
+     * 创建数据库并写入测试数据
+     *
+     * @param users 用户数
+     * @param ordersPerUser 每个用户的订单数
+     * @param mappers 要注册的Mapper接口
+     * @return 数据库
+     */
+    public static EmbeddedDatabase create(int users, int ordersPerUser, Class<?>... mappers) {
+        // 每次创建独立的库，同一个JVM中的多个基准测试互不影响
+        String url = "jdbc:h2:mem:benchmark-" + UUID.randomUUID()
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+        JdbcConnectionPool pool = JdbcConnectionPool.create(url, "sa", "");
+        pool.setMaxConnections(64);
+        try {
+            try (Connection connection = pool.getConnection()) {
+                runScript(connection, "benchmark-schema.sql");
+                seed(connection, users, ordersPerUser);
+            }
+        } catch (SQLException | IOException e) {
+            pool.dispose();
+            throw new IllegalStateException("初始化内存数据库失败", e);
+        }
+
+        MybatisConfiguration configuration = new MybatisConfiguration(
+                new Environment("benchmark", new JdbcTransactionFactory(), pool));
+        configuration.setMapUnderscoreToCamelCase(true);
+        // 每个Mapper调用都是新的SqlSession，一级缓存本来就不会命中，这里显式关闭
+        configuration.setLocalCacheScope(LocalCacheScope.STATEMENT);
+        for (Class<?> mapper : mappers) {
+            configuration.addMapper(mapper);
+        }
+        SqlSessionFactory factory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+        return new EmbeddedDatabase(pool, SqlSessionManager.newInstance(factory));
+    }
+
+    /**
+     * 获取Mapper代理，线程安全
+     */
+    public <T> T mapper(Class<T> type) {
+        return sessions.getMapper(type);
+    }
+
+    @Override
+    public void close() {
+        pool.dispose();
+    }
+
+    private static void runScript(Connection connection, String resource) throws IOException, SQLException {
+        String script;
+        try (InputStream in = EmbeddedDatabase.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("找不到 " + resource);
+            }
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : script.split(";")) {
+                String trimmed = sql.replaceAll("(?m)^--.*$", "").trim();
+                if (!trimmed.isEmpty()) {
+                    statement.execute(trimmed);
+                }
+            }
+        }
+    }
+
+    /**
+     * 用户ID为1~users，第u个用户的订单ID为 (u-1)*ordersPerUser+1 起连续的ordersPerUser个
+     */
+    private static void seed(Connection connection, int users, int ordersPerUser) throws SQLException {
+        connection.setAutoCommit(false);
+        LocalDateTime base = LocalDateTime.of(2024, 5, 20, 10, 0, 0);
+        try (PreparedStatement user = connection.prepareStatement(
+                "INSERT INTO `user` (username, password, email, phone, status, create_time, update_time) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement order = connection.prepareStatement(
+                     "INSERT INTO orders (order_no, user_id, product_name, quantity, price, total_amount, status, "
+                             + "create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int u = 1; u <= users; u++) {
+                Timestamp created = Timestamp.valueOf(base.plusMinutes(u));
+                user.setString(1, "user" + u);
+                user.setString(2, "123456");
+                user.setString(3, "user" + u + "@example.com");
+                user.setString(4, String.valueOf(13800000000L + u));
+                user.setInt(5, 1);
+                user.setTimestamp(6, created);
+                user.setTimestamp(7, created);
+                user.addBatch();
+                for (int i = 0; i < ordersPerUser; i++) {
+                    int quantity = i % 5 + 1;
+                    BigDecimal price = new BigDecimal("99.90");
+                    order.setString(1, "2024052010" + String.format("%06d%04d", u, i));
+                    order.setLong(2, u);
+                    order.setString(3, "商品-" + (i % 50));
+                    order.setInt(4, quantity);
+                    order.setBigDecimal(5, price);
+                    order.setBigDecimal(6, price.multiply(BigDecimal.valueOf(quantity)));
+                    order.setInt(7, i % 5 + 1);
+                    order.setTimestamp(8, created);
+                    order.setTimestamp(9, created);
+                    order.addBatch();
+                }
+                if (u % 1000 == 0) {
+                    user.executeBatch();
+                    order.executeBatch();
+                }
+            }
+            user.executeBatch();
+            order.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+}
@@ -0,0 +1,82 @@
+package com.study.benchmark.tracing;
+
+import com.study.tracing.hotkey.HotKeySketch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点Key统计每次访问的开销：一百万个用户ID，访问量按Zipf分布（少数用户占大部分访问）
+ *
+ * - sketch：{@link HotKeySketch}，默认配置（60秒窗口6段、2048×4、Top 100），内存固定约224KB
+ * - exactMap：ConcurrentHashMap按Key精确计数，作为对照，没有窗口，内存随Key的数量增长
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class HotKeyBenchmark {
+
+    private static final int USERS = 1_000_000;
+
+    private static final int SAMPLES = 1 << 20;
+
+    private String[] keys;
+
+    private HotKeySketch sketch;
+
+    private Map<String, LongAdder> exact;
+
+    @Setup
+    public void setup() {
+        // 按 1/rank 的Zipf分布预先生成访问序列
+        double[] cdf = new double[USERS];
+        double sum = 0;
+        for (int rank = 1; rank <= USERS; rank++) {
+            sum += 1.0 / rank;
+            cdf[rank - 1] = sum;
+        }
+        Random random = new Random(42);
+        keys = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            int index = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+            keys[i] = String.valueOf(index < 0 ? -index - 1 : index);
+        }
+        sketch = new HotKeySketch(Duration.ofSeconds(60), 6, 2048, 4, 100, 600);
+        exact = new ConcurrentHashMap<>();
+    }
+
+    @Benchmark
+    public long sketch() {
+        String key = keys[ThreadLocalRandom.current().nextInt(SAMPLES)];
+        return sketch.add(key, System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public long exactMap() {
+        String key = keys[ThreadLocalRandom.current().nextInt(SAMPLES)];
+        LongAdder counter = exact.computeIfAbsent(key, k -> new LongAdder());
+        counter.increment();
+        return counter.sum();
+    }
+}
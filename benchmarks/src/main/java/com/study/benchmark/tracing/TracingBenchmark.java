@@ -0,0 +1,187 @@
+package com.study.benchmark.tracing;
+
+import com.study.tracing.MybatisObservationInterceptor;
+import com.study.tracing.TailSamplingSpanProcessor;
+import com.study.tracing.TracingProperties;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.micrometer.tracing.propagation.Propagator;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 链路追踪在一次请求中增加的开销
+ *
+ * 模拟订单服务处理 /order/create 时产生的Span：入口Span、Feign调用Span（含注入traceparent请求头）、
+ * 经过 {@link MybatisObservationInterceptor} 的两条语句，业务本身不做任何事，结果就是追踪的全部开销
+ *
+ * - off：不追踪（ObservationRegistry.NOOP），作为对照
+ * - dropped：全部记录，请求结束后丢弃（尾部采样中占绝大多数的情况）
+ * - kept：全部记录并导出（导出器直接丢弃数据，只计入转换和排队的开销）
+ *
+ * 只包含追踪本身，不包含Spring Boot同时注册的指标（Timer）处理器。
+ * 单核环境下JIT编译慢，预热时间与访问数据库的基准测试一样加长
+ *
+ * @author SpringCloud学习项目
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TracingBenchmark {
+
+    @Param({"off", "dropped", "kept"})
+    public String mode;
+
+    private SdkTracerProvider provider;
+
+    private ObservationRegistry registry;
+
+    private OtelTracer tracer;
+
+    private Propagator propagator;
+
+    private MybatisObservationInterceptor interceptor;
+
+    private Invocation selectUser;
+
+    private Invocation insertOrder;
+
+    private final Map<String, String> headers = new HashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        if ("off".equals(mode)) {
+            registry = ObservationRegistry.NOOP;
+        } else {
+            TracingProperties properties = new TracingProperties();
+            properties.setSampleRatio("kept".equals(mode) ? 1.0 : 0.0);
+            properties.setSlowThreshold(Duration.ofMinutes(1));
+            BatchSpanProcessor batch = BatchSpanProcessor.builder(new DiscardingExporter()).build();
+            provider = SdkTracerProvider.builder()
+                    .setSampler(Sampler.alwaysOn())
+                    .addSpanProcessor(new TailSamplingSpanProcessor(properties, batch))
+                    .build();
+            io.opentelemetry.api.trace.Tracer otelTracer = provider.get("benchmark");
+            tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> { });
+            propagator = new OtelPropagator(ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+            registry = ObservationRegistry.create();
+            registry.observationConfig().observationHandler(new DefaultTracingObservationHandler(tracer));
+        }
+        interceptor = new MybatisObservationInterceptor(registry);
+
+        Configuration configuration = new Configuration();
+        Executor executor = noopExecutor();
+        Method query = Executor.class.getMethod("query",
+                MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class);
+        Method update = Executor.class.getMethod("update", MappedStatement.class, Object.class);
+        selectUser = new Invocation(executor, query, new Object[]{
+                statement(configuration, "com.study.user.mapper.UserMapper.selectById", SqlCommandType.SELECT),
+                1L, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER});
+        insertOrder = new Invocation(executor, update, new Object[]{
+                statement(configuration, "com.study.order.mapper.OrderMapper.insert", SqlCommandType.INSERT), 1L});
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (provider != null) {
+            provider.shutdown().join(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public Object createOrderRequest() throws Throwable {
+        Observation server = Observation.createNotStarted("http.server.requests", registry)
+                .contextualName("http post /order/create")
+                .start();
+        try (Observation.Scope ignored = server.openScope()) {
+            Observation feign = Observation.createNotStarted("http.client.requests", registry)
+                    .contextualName("http get")
+                    .start();
+            try (Observation.Scope ignoredFeign = feign.openScope()) {
+                if (tracer != null) {
+                    propagator.inject(tracer.currentTraceContext().context(), headers, Map::put);
+                }
+            } finally {
+                feign.stop();
+            }
+            interceptor.intercept(selectUser);
+            return interceptor.intercept(insertOrder);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static MappedStatement statement(Configuration configuration, String id, SqlCommandType type) {
+        return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "SELECT 1"), type)
+                .build();
+    }
+
+    /**
+     * 语句本身不做任何事的Executor
+     */
+    private static Executor noopExecutor() {
+        return (Executor) Proxy.newProxyInstance(Executor.class.getClassLoader(), new Class<?>[]{Executor.class},
+                (proxy, method, args) -> "update".equals(method.getName()) ? 1 : List.of());
+    }
+
+    private static final class DiscardingExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
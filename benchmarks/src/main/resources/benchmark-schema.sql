@@ -0,0 +1,61 @@
+-- 基准测试使用的H2（MySQL兼容模式）表结构，与 sql/init.sql 保持一致
+-- H2中索引名在整个schema内唯一，orders、order_view表的索引加了表名前缀
+
+CREATE TABLE IF NOT EXISTS `user` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '用户ID',
+  `username` varchar(50) NOT NULL COMMENT '用户名',
+  `password` varchar(100) NOT NULL COMMENT '密码',
+  `email` varchar(100) DEFAULT NULL COMMENT '邮箱',
+  `phone` varchar(20) DEFAULT NULL COMMENT '手机号',
+  `status` int(11) NOT NULL DEFAULT '1' COMMENT '用户状态：1-正常，0-禁用',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_username` (`username`),
+  UNIQUE KEY `uk_email` (`email`),
+  KEY `idx_phone` (`phone`),
+  KEY `idx_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='用户表';
+
+-- 创建订单表
+CREATE TABLE IF NOT EXISTS `orders` (
+  `id` bigint(20) NOT NULL AUTO_INCREMENT COMMENT '订单ID',
+  `order_no` varchar(32) NOT NULL COMMENT '订单编号',
+  `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+  `product_name` varchar(200) NOT NULL COMMENT '商品名称',
+  `quantity` int(11) NOT NULL COMMENT '商品数量',
+  `price` decimal(10,2) NOT NULL COMMENT '单价',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '总金额',
+  `status` int(11) NOT NULL DEFAULT '1' COMMENT '订单状态：1-待支付，2-已支付，3-已发货，4-已完成，5-已取消',
+  `create_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
+  `update_time` datetime NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `uk_order_no` (`order_no`),
+  KEY `idx_orders_user_id` (`user_id`),
+  KEY `idx_orders_status` (`status`),
+  KEY `idx_orders_create_time` (`create_time`),
+  KEY `idx_orders_update_time` (`update_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
+
+-- 创建订单读模型表
+CREATE TABLE IF NOT EXISTS `order_view` (
+  `id` bigint(20) NOT NULL COMMENT '订单ID，与orders.id相同',
+  `order_no` varchar(32) NOT NULL COMMENT '订单编号',
+  `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+  `product_name` varchar(200) NOT NULL COMMENT '商品名称',
+  `quantity` int(11) NOT NULL COMMENT '商品数量',
+  `price` decimal(10,2) NOT NULL COMMENT '单价',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '总金额',
+  `status` int(11) NOT NULL COMMENT '订单状态',
+  `create_time` datetime NOT NULL COMMENT '创建时间',
+  `update_time` datetime NOT NULL COMMENT '订单的更新时间，与orders.update_time相同',
+  `username` varchar(50) DEFAULT NULL COMMENT '买家用户名',
+  `email` varchar(100) DEFAULT NULL COMMENT '买家邮箱',
+  `phone` varchar(20) DEFAULT NULL COMMENT '买家手机号',
+  `user_update_time` datetime DEFAULT NULL COMMENT '买家信息对应的用户更新时间，较旧的用户信息不覆盖较新的',
+  `user_synced_at` datetime DEFAULT NULL COMMENT '买家信息同步时间，NULL表示还没有买家信息',
+  PRIMARY KEY (`id`),
+  KEY `idx_order_view_user_id` (`user_id`),
+  KEY `idx_order_view_update_time` (`update_time`),
+  KEY `idx_order_view_user_synced_at` (`user_synced_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单读模型表（订单 + 买家信息）';
@@ -0,0 +1,37 @@
+package com.study.common.aot;
+
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.support.MergedBeanDefinitionPostProcessor;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.ResolvableType;
+
+/**
+ * 补全Mapper的Bean定义，让AOT生成的代码能直接创建MapperFactoryBean
+ *
+ * Mapper扫描器注册的定义中，构造参数是Mapper接口的类名字符串，Bean类型也没有泛型。
+ * 正常启动时由BeanWrapper转换成Class，但AOT生成的实例化代码按参数类型Class&lt;?&gt;匹配，
+ * 字符串匹配不上就改为按类型注入，启动失败。这里在构建时把构造参数换成Class，
+ * 同时把类型补全为 MapperFactoryBean&lt;XxxMapper&gt;，按类型注入Mapper时不用先创建FactoryBean
+ *
+ * @author SpringCloud学习项目
+ */
+class MapperFactoryBeanAotPostProcessor implements MergedBeanDefinitionPostProcessor {
+
+    @Override
+    public void postProcessMergedBeanDefinition(RootBeanDefinition beanDefinition, Class<?> beanType, String beanName) {
+        if (!beanDefinition.hasBeanClass() || !MapperFactoryBean.class.isAssignableFrom(beanDefinition.getBeanClass())
+                || !beanDefinition.getResolvableType().hasUnresolvableGenerics()) {
+            return;
+        }
+        PropertyValue property = beanDefinition.getPropertyValues().getPropertyValue("mapperInterface");
+        if (property == null || !(property.getValue() instanceof Class<?> mapperInterface)) {
+            return;
+        }
+        ConstructorArgumentValues arguments = new ConstructorArgumentValues();
+        arguments.addGenericArgumentValue(mapperInterface);
+        beanDefinition.setConstructorArgumentValues(arguments);
+        beanDefinition.setTargetType(ResolvableType.forClassWithGenerics(beanDefinition.getBeanClass(), mapperInterface));
+    }
+}
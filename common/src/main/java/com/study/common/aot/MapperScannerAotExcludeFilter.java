@@ -0,0 +1,22 @@
+package com.study.common.aot;
+
+import org.mybatis.spring.mapper.MapperScannerConfigurer;
+import org.springframework.beans.factory.aot.BeanRegistrationExcludeFilter;
+import org.springframework.beans.factory.support.RegisteredBean;
+
+/**
+ * AOT处理时排除MyBatis的Mapper扫描器
+ *
+ * 构建时扫描器已经把各Mapper的Bean定义（MapperFactoryBean）注册好并写进了生成的代码，
+ * 如果扫描器本身也被保留，运行时会再扫描一遍，同名的Mapper定义冲突导致启动失败。
+ * 只在 -Pfast-startup 构建（spring-boot:process-aot）时生效，正常启动不受影响
+ *
+ * @author SpringCloud学习项目
+ */
+class MapperScannerAotExcludeFilter implements BeanRegistrationExcludeFilter {
+
+    @Override
+    public boolean isExcludedFromAotProcessing(RegisteredBean registeredBean) {
+        return MapperScannerConfigurer.class.isAssignableFrom(registeredBean.getBeanClass());
+    }
+}
@@ -0,0 +1,27 @@
+package com.study.common.aot;
+
+import org.mybatis.spring.mapper.MapperFactoryBean;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * MyBatis Mapper的AOT支持
+ *
+ * 与 META-INF/spring/aot.factories 中的 {@link MapperScannerAotExcludeFilter} 一起，
+ * 让使用MyBatis的服务可以用 -Pfast-startup 构建AOT版本。不做AOT处理时没有任何作用
+ *
+ * @author SpringCloud学习项目
+ */
+@AutoConfiguration
+@ConditionalOnClass(MapperFactoryBean.class)
+public class MybatisAotAutoConfiguration {
+
+    /**
+     * 后处理器需要在其它Bean之前创建，声明为static
+     */
+    @Bean
+    static MapperFactoryBeanAotPostProcessor mapperFactoryBeanAotPostProcessor() {
+        return new MapperFactoryBeanAotPostProcessor();
+    }
+}
@@ -0,0 +1,138 @@
+package com.study.common.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单读模型：订单字段 + 买家信息
+ * 对应数据库中的order_view表，由订单服务的OrderViewProjector异步维护，
+ * 订单详情和用户订单列表直接返回它，不再调用用户服务；响应式订单服务查询订单后调用用户服务填入买家信息，返回同样的格式
+ *
+ * 两个同步用的时间字段不返回给调用方；返回的字段由 {@link com.study.common.json.ResultJsonWriter} 直接写出，
+ * 增加字段时需要同步修改
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@TableName("order_view")
+public class OrderView {
+
+    /**
+     * 订单ID，与orders.id相同
+     */
+    @TableId(type = IdType.INPUT)
+    private Long id;
+
+    /**
+     * 订单编号
+     */
+    private String orderNo;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品名称
+     */
+    private String productName;
+
+    /**
+     * 商品数量
+     */
+    private Integer quantity;
+
+    /**
+     * 单价
+     */
+    private BigDecimal price;
+
+    /**
+     * 总金额
+     */
+    private BigDecimal totalAmount;
+
+    /**
+     * 订单状态：1-待支付，2-已支付，3-已发货，4-已完成，5-已取消
+     */
+    private Integer status;
+
+    /**
+     * 创建时间
+     */
+    private LocalDateTime createTime;
+
+    /**
+     * 订单的更新时间
+     */
+    private LocalDateTime updateTime;
+
+    /**
+     * 买家用户名
+     */
+    private String username;
+
+    /**
+     * 买家邮箱
+     */
+    private String email;
+
+    /**
+     * 买家手机号
+     */
+    private String phone;
+
+    /**
+     * 买家信息对应的用户更新时间，用于丢弃较旧的用户信息，不返回给调用方
+     */
+    @JsonIgnore
+    private LocalDateTime userUpdateTime;
+
+    /**
+     * 买家信息同步时间，null表示还没有买家信息，不返回给调用方
+     */
+    @JsonIgnore
+    private LocalDateTime userSyncedAt;
+
+    /**
+     * 由订单构造，买家信息为空
+     *
+     * @param order 订单
+     * @return 读模型
+     */
+    public static OrderView of(Order order) {
+        OrderView view = new OrderView();
+        view.setId(order.getId());
+        view.setOrderNo(order.getOrderNo());
+        view.setUserId(order.getUserId());
+        view.setProductName(order.getProductName());
+        view.setQuantity(order.getQuantity());
+        view.setPrice(order.getPrice());
+        view.setTotalAmount(order.getTotalAmount());
+        view.setStatus(order.getStatus());
+        view.setCreateTime(order.getCreateTime());
+        view.setUpdateTime(order.getUpdateTime());
+        return view;
+    }
+
+    /**
+     * 填入买家信息
+     *
+     * @param user 用户服务返回的用户
+     * @param syncedAt 获取用户信息的时间
+     */
+    public void applyBuyer(User user, LocalDateTime syncedAt) {
+        this.username = user.getUsername();
+        this.email = user.getEmail();
+        this.phone = user.getPhone();
+        this.userUpdateTime = user.getUpdateTime();
+        this.userSyncedAt = syncedAt;
+    }
+}
@@ -0,0 +1,253 @@
+package com.study.common.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 直接输出UTF-8字节的JSON写入器
+ *
+ * 先写入线程复用的字节数组，满了再一次性写到输出流，
+ * 数字和时间直接写成ASCII字节，不生成中间String
+ *
+ * 输出格式与Spring Boot默认的ObjectMapper一致：
+ * 字符串转义双引号、反斜杠、控制字符和代理字符（与Jackson相同，十六进制大写），其余非ASCII字符直接输出UTF-8；
+ * LocalDateTime按ISO_LOCAL_DATE_TIME输出，秒总是输出，纳秒去掉末尾的0
+ *
+ * @author SpringCloud学习项目
+ */
+final class JsonOutput {
+
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+
+    private static final byte[] HEX = "0123456789ABCDEF".getBytes();
+
+    private static final byte[] MIN_LONG = Long.toString(Long.MIN_VALUE).getBytes();
+
+    /**
+     * ASCII字符的转义方式：0不转义，-1按\\u00XX转义，其余为反斜杠后面的字符
+     */
+    private static final int[] ESCAPES = new int[128];
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = -1;
+        }
+        ESCAPES['"'] = '"';
+        ESCAPES['\\'] = '\\';
+        ESCAPES['\b'] = 'b';
+        ESCAPES['\t'] = 't';
+        ESCAPES['\f'] = 'f';
+        ESCAPES['\n'] = 'n';
+        ESCAPES['\r'] = 'r';
+    }
+
+    private final OutputStream out;
+
+    private final byte[] buffer;
+
+    private int position;
+
+    JsonOutput(OutputStream out, byte[] buffer) {
+        this.out = out;
+        this.buffer = buffer;
+    }
+
+    void raw(byte b) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = b;
+    }
+
+    void raw(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    void nullValue() throws IOException {
+        raw(NULL);
+    }
+
+    void number(Long value) throws IOException {
+        if (value == null) {
+            raw(NULL);
+        } else {
+            number(value.longValue());
+        }
+    }
+
+    void number(Integer value) throws IOException {
+        if (value == null) {
+            raw(NULL);
+        } else {
+            number(value.longValue());
+        }
+    }
+
+    void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            raw(MIN_LONG);
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int start = position;
+        do {
+            buffer[position++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        // 低位先写入，再原地反转
+        for (int i = start, j = position - 1; i < j; i++, j--) {
+            byte tmp = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = tmp;
+        }
+    }
+
+    /**
+     * 只包含ASCII字符的数字文本，例如BigDecimal.toString()
+     */
+    void asciiNumber(String text) throws IOException {
+        int length = text.length();
+        ensure(length);
+        if (length > buffer.length) {
+            for (int i = 0; i < length; i++) {
+                raw((byte) text.charAt(i));
+            }
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    void bool(boolean value) throws IOException {
+        raw(value ? TRUE : FALSE);
+    }
+
+    void string(String value) throws IOException {
+        if (value == null) {
+            raw(NULL);
+            return;
+        }
+        raw((byte) '"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            // 最长的一个字符是\\u00XX（6字节）
+            if (buffer.length - position < 6) {
+                flushBuffer();
+            }
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                int escape = ESCAPES[c];
+                if (escape == 0) {
+                    buffer[position++] = (byte) c;
+                } else if (escape > 0) {
+                    buffer[position++] = '\\';
+                    buffer[position++] = (byte) escape;
+                } else {
+                    buffer[position++] = '\\';
+                    buffer[position++] = 'u';
+                    buffer[position++] = '0';
+                    buffer[position++] = '0';
+                    buffer[position++] = HEX[c >> 4];
+                    buffer[position++] = HEX[c & 0xF];
+                }
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // 与Jackson 2.15的UTF8JsonGenerator一致：代理字符（emoji等）逐个按\\uXXXX转义
+                buffer[position++] = '\\';
+                buffer[position++] = 'u';
+                buffer[position++] = HEX[c >> 12];
+                buffer[position++] = HEX[(c >> 8) & 0xF];
+                buffer[position++] = HEX[(c >> 4) & 0xF];
+                buffer[position++] = HEX[c & 0xF];
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        raw((byte) '"');
+    }
+
+    void dateTime(LocalDateTime value) throws IOException {
+        if (value == null) {
+            raw(NULL);
+            return;
+        }
+        int year = value.getYear();
+        if (year < 0 || year > 9999) {
+            string(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+            return;
+        }
+        // "yyyy-MM-ddTHH:mm:ss.nnnnnnnnn"
+        ensure(31);
+        buffer[position++] = '"';
+        digits(year, 4);
+        buffer[position++] = '-';
+        digits(value.getMonthValue(), 2);
+        buffer[position++] = '-';
+        digits(value.getDayOfMonth(), 2);
+        buffer[position++] = 'T';
+        digits(value.getHour(), 2);
+        buffer[position++] = ':';
+        digits(value.getMinute(), 2);
+        buffer[position++] = ':';
+        digits(value.getSecond(), 2);
+        int nano = value.getNano();
+        if (nano > 0) {
+            int width = 9;
+            while (nano % 10 == 0) {
+                nano /= 10;
+                width--;
+            }
+            buffer[position++] = '.';
+            digits(nano, width);
+        }
+        buffer[position++] = '"';
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+    }
+
+    private void digits(int value, int width) {
+        for (int i = position + width - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.study.common.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Result专用JSON转换器的自动配置
+ *
+ * 引入common模块的Web服务自动生效。Spring Boot会把HttpMessageConverter类型的Bean
+ * 放在默认转换器之前，返回Result时先于MappingJackson2HttpMessageConverter被选中。
+ * 响应式服务注册 {@link ResultJsonEncoder}，作为指定类型的编码器排在Jackson2JsonEncoder之前。
+ * 设置 common.json.fast-writer=false 可以关闭
+ *
+ * @author SpringCloud学习项目
+ */
+@AutoConfiguration(after = JacksonAutoConfiguration.class)
+@ConditionalOnBean(ObjectMapper.class)
+@ConditionalOnProperty(prefix = "common.json", name = "fast-writer", matchIfMissing = true)
+public class ResultJsonAutoConfiguration {
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    static class ServletResultJsonConfiguration {
+
+        @Bean
+        public ResultJsonHttpMessageConverter resultJsonHttpMessageConverter(ObjectMapper objectMapper) {
+            return new ResultJsonHttpMessageConverter(objectMapper);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    static class ReactiveResultJsonConfiguration {
+
+        @Bean
+        public CodecCustomizer resultJsonCodecCustomizer(ObjectMapper objectMapper) {
+            ResultJsonEncoder encoder = new ResultJsonEncoder(objectMapper);
+            return configurer -> configurer.customCodecs().registerWithDefaultConfig(encoder);
+        }
+    }
+}
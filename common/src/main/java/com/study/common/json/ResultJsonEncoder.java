@@ -0,0 +1,90 @@
+package com.study.common.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.study.common.result.Result;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result专用的WebFlux编码器，{@link ResultJsonHttpMessageConverter} 在响应式服务中的对应实现
+ *
+ * 每个Result用 {@link ResultJsonWriter} 编码成一个完整的字节数组再包装成DataBuffer，
+ * 控制器返回Mono时WebFlux据此设置Content-Length。data的类型不支持、或启动时一致性校验未通过时退回到ObjectMapper，
+ * 输出与Jackson2JsonEncoder相同。只处理UTF-8（或不指定字符集）的JSON，其他情况交给默认的编码器
+ *
+ * @author SpringCloud学习项目
+ */
+public class ResultJsonEncoder implements Encoder<Result<?>> {
+
+    private static final List<MimeType> MIME_TYPES = List.of(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean fastPathEnabled;
+
+    public ResultJsonEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.fastPathEnabled = ResultJsonHttpMessageConverter.verify(objectMapper);
+    }
+
+    public boolean isFastPathEnabled() {
+        return fastPathEnabled;
+    }
+
+    @Override
+    public boolean canEncode(@NonNull ResolvableType elementType, @Nullable MimeType mimeType) {
+        if (!Result.class.isAssignableFrom(elementType.toClass())) {
+            return false;
+        }
+        if (mimeType == null) {
+            return true;
+        }
+        if (mimeType.getCharset() != null && !StandardCharsets.UTF_8.equals(mimeType.getCharset())) {
+            return false;
+        }
+        return MIME_TYPES.stream().anyMatch(supported -> supported.isCompatibleWith(mimeType));
+    }
+
+    @Override
+    @NonNull
+    public Flux<DataBuffer> encode(@NonNull Publisher<? extends Result<?>> inputStream,
+                                   @NonNull DataBufferFactory bufferFactory, @NonNull ResolvableType elementType,
+                                   @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.from(inputStream).map(result -> encodeValue(result, bufferFactory, elementType, mimeType, hints));
+    }
+
+    @Override
+    @NonNull
+    public DataBuffer encodeValue(@NonNull Result<?> result, @NonNull DataBufferFactory bufferFactory,
+                                  @NonNull ResolvableType valueType, @Nullable MimeType mimeType,
+                                  @Nullable Map<String, Object> hints) {
+        if (fastPathEnabled && ResultJsonWriter.supports(result)) {
+            return bufferFactory.wrap(ResultJsonWriter.toBytes(result));
+        }
+        try {
+            return bufferFactory.wrap(objectMapper.writeValueAsBytes(result));
+        } catch (JsonProcessingException e) {
+            throw new EncodingException("Result编码失败: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    @Override
+    @NonNull
+    public List<MimeType> getEncodableMimeTypes() {
+        return MIME_TYPES;
+    }
+}
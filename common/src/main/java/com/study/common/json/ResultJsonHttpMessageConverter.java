@@ -0,0 +1,152 @@
+package com.study.common.json;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.study.common.entity.Order;
+import com.study.common.entity.OrderView;
+import com.study.common.entity.User;
+import com.study.common.result.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+import org.springframework.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Result专用的HttpMessageConverter
+ *
+ * 控制器返回Result时优先使用 {@link ResultJsonWriter} 写入线程复用的缓冲区，再一次性写给响应输出流，
+ * data的类型不支持时退回到应用的ObjectMapper，输出与原来完全相同。只负责写，不负责读请求体
+ *
+ * 启动时用示例数据对比两种写法的输出，如果不一致（例如修改了spring.jackson.*配置、实体增加了字段），
+ * 记录警告并全部交给ObjectMapper，保证不会因为优化改变接口的返回格式
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+public class ResultJsonHttpMessageConverter extends AbstractHttpMessageConverter<Result<?>> {
+
+    /**
+     * 超过该大小的响应写完后不再保留缓冲区，避免每个请求线程长期占用大块内存
+     */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    /**
+     * 每个请求线程复用的响应缓冲区：先完整写入，得到长度后一次性写给Tomcat，响应带Content-Length而不是分块传输
+     */
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFERS =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(1024));
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean fastPathEnabled;
+
+    public ResultJsonHttpMessageConverter(ObjectMapper objectMapper) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"));
+        this.objectMapper = objectMapper;
+        this.fastPathEnabled = verify(objectMapper);
+    }
+
+    public boolean isFastPathEnabled() {
+        return fastPathEnabled;
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz) {
+        return Result.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(@NonNull Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected Result<?> readInternal(@NonNull Class<? extends Result<?>> clazz, @NonNull HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支持读取Result", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull Result<?> result, @NonNull HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        Charset charset = contentType != null ? contentType.getCharset() : null;
+        if (fastPathEnabled && (charset == null || StandardCharsets.UTF_8.equals(charset)) && ResultJsonWriter.supports(result)) {
+            ByteArrayOutputStream buffer = BUFFERS.get();
+            buffer.reset();
+            ResultJsonWriter.write(result, buffer);
+            // 在获取输出流（写出响应头）之前设置Content-Length
+            outputMessage.getHeaders().setContentLength(buffer.size());
+            buffer.writeTo(outputMessage.getBody());
+            if (buffer.size() > MAX_RETAINED_BUFFER) {
+                BUFFERS.remove();
+            }
+        } else {
+            // 与MappingJackson2HttpMessageConverter一样不关闭输出流
+            objectMapper.writeValue(StreamUtils.nonClosing(outputMessage.getBody()), result);
+        }
+    }
+
+    /**
+     * 用覆盖各种取值情况的示例数据对比两种写法的输出，{@link ResultJsonEncoder} 也使用同样的校验
+     */
+    static boolean verify(ObjectMapper objectMapper) {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("张三\"\\\t\u0001/😀");
+        user.setEmail("zhangsan@example.com");
+        user.setStatus(1);
+        user.setCreateTime(LocalDateTime.of(2024, 1, 2, 3, 4));
+        user.setUpdateTime(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 120_000_000));
+
+        Order order = new Order();
+        order.setId(-42L);
+        order.setOrderNo("ORD202401020304");
+        order.setUserId(1L);
+        order.setProductName("商品");
+        order.setQuantity(3);
+        order.setPrice(new BigDecimal("19.90"));
+        order.setTotalAmount(new BigDecimal("59.70"));
+        order.setStatus(2);
+        order.setCreateTime(LocalDateTime.of(2024, 1, 2, 3, 4, 5, 1));
+
+        OrderView view = OrderView.of(order);
+        view.applyBuyer(user, LocalDateTime.of(2024, 1, 2, 3, 4, 6));
+
+        List<Result<?>> samples = List.of(
+                Result.success(),
+                Result.success(user),
+                Result.success(List.of(order, new Order())),
+                Result.success(view),
+                Result.success(List.of(view, OrderView.of(order), new OrderView())),
+                Result.success("自定义消息", List.of(user, new User())),
+                Result.success(Long.MAX_VALUE),
+                Result.error("用户不存在"),
+                Result.error(404, null));
+        try {
+            for (Result<?> sample : samples) {
+                if (!Arrays.equals(ResultJsonWriter.toBytes(sample), objectMapper.writeValueAsBytes(sample))) {
+                    log.warn("Result专用JSON写入器与ObjectMapper的输出不一致，改用ObjectMapper: {}",
+                            objectMapper.writeValueAsString(sample));
+                    return false;
+                }
+            }
+            return true;
+        } catch (JsonProcessingException e) {
+            log.warn("Result专用JSON写入器校验失败，改用ObjectMapper", e);
+            return false;
+        }
+    }
+}
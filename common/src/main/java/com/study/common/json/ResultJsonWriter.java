@@ -0,0 +1,277 @@
+package com.study.common.json;
+
+import com.study.common.entity.Order;
+import com.study.common.entity.OrderView;
+import com.study.common.entity.User;
+import com.study.common.result.Result;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Result、User、Order、OrderView的专用JSON写入器
+ *
+ * 与Jackson的反射序列化相比：
+ * 1. 字段按固定顺序直接读取getter，没有反射、没有BeanSerializer查找
+ * 2. 字段名连同引号、冒号、逗号预先编码成字节数组，例如 ,"orderNo":
+ * 3. 常用的信封（success()、success(data)、error(message)）前缀是共享常量，
+ *    success()整个响应就是一个常量
+ * 4. 数字、时间直接写成字节，不生成中间String
+ *
+ * 只处理data为null、User、Order、OrderView、String、整数、Boolean，以及这些类型组成的集合，
+ * 其他类型由 {@link #supports} 返回false，调用方退回到Jackson。
+ * 字段顺序、null的输出方式与Spring Boot默认的ObjectMapper一致，
+ * User、Order、OrderView增加字段时需要同步修改这里（启动时的一致性校验会发现遗漏，见 {@link ResultJsonHttpMessageConverter}）
+ *
+ * @author SpringCloud学习项目
+ */
+public final class ResultJsonWriter {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private static final int SUCCESS_CODE = 200;
+
+    private static final String SUCCESS_MESSAGE = "操作成功";
+
+    /**
+     * Result.success() 的完整响应
+     */
+    private static final byte[] SUCCESS_EMPTY = bytes("{\"code\":200,\"message\":\"" + SUCCESS_MESSAGE + "\",\"data\":null,\"success\":true}");
+
+    /**
+     * Result.success(data) 在data之前的部分
+     */
+    private static final byte[] SUCCESS_PREFIX = bytes("{\"code\":200,\"message\":\"" + SUCCESS_MESSAGE + "\",\"data\":");
+
+    /**
+     * Result.error(message) 在message之前的部分
+     */
+    private static final byte[] ERROR_PREFIX = bytes("{\"code\":500,\"message\":");
+
+    private static final byte[] CODE = bytes("{\"code\":");
+    private static final byte[] MESSAGE = bytes(",\"message\":");
+    private static final byte[] DATA = bytes(",\"data\":");
+    private static final byte[] SUCCESS_TRUE = bytes(",\"success\":true}");
+    private static final byte[] SUCCESS_FALSE = bytes(",\"success\":false}");
+
+    private static final byte[] ID = bytes("{\"id\":");
+    private static final byte[] USERNAME = bytes(",\"username\":");
+    private static final byte[] PASSWORD = bytes(",\"password\":");
+    private static final byte[] EMAIL = bytes(",\"email\":");
+    private static final byte[] PHONE = bytes(",\"phone\":");
+    private static final byte[] ORDER_NO = bytes(",\"orderNo\":");
+    private static final byte[] USER_ID = bytes(",\"userId\":");
+    private static final byte[] PRODUCT_NAME = bytes(",\"productName\":");
+    private static final byte[] QUANTITY = bytes(",\"quantity\":");
+    private static final byte[] PRICE = bytes(",\"price\":");
+    private static final byte[] TOTAL_AMOUNT = bytes(",\"totalAmount\":");
+    private static final byte[] STATUS = bytes(",\"status\":");
+    private static final byte[] CREATE_TIME = bytes(",\"createTime\":");
+    private static final byte[] UPDATE_TIME = bytes(",\"updateTime\":");
+
+    private ResultJsonWriter() {}
+
+    /**
+     * 是否可以由本写入器输出
+     */
+    public static boolean supports(Result<?> result) {
+        Object data = result.getData();
+        if (data instanceof Collection<?> collection) {
+            for (Object element : collection) {
+                if (!supportsValue(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return supportsValue(data);
+    }
+
+    /**
+     * 写出Result，调用前需要先用 {@link #supports} 检查
+     */
+    public static void write(Result<?> result, OutputStream out) throws IOException {
+        JsonOutput json = new JsonOutput(out, BUFFERS.get());
+        Integer code = result.getCode();
+        String message = result.getMessage();
+        Object data = result.getData();
+
+        if (code != null && code == SUCCESS_CODE && SUCCESS_MESSAGE.equals(message)) {
+            if (data == null) {
+                json.raw(SUCCESS_EMPTY);
+                json.flush();
+                return;
+            }
+            json.raw(SUCCESS_PREFIX);
+        } else if (code != null && code == 500 && message != null) {
+            json.raw(ERROR_PREFIX);
+            json.string(message);
+            json.raw(DATA);
+        } else {
+            json.raw(CODE);
+            json.number(code);
+            json.raw(MESSAGE);
+            json.string(message);
+            json.raw(DATA);
+        }
+        writeData(json, data);
+        json.raw(result.isSuccess() ? SUCCESS_TRUE : SUCCESS_FALSE);
+        json.flush();
+    }
+
+    /**
+     * 写成字节数组，用于启动校验和基准测试
+     */
+    public static byte[] toBytes(Result<?> result) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try {
+            write(result, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean supportsValue(Object value) {
+        if (value == null) {
+            return true;
+        }
+        Class<?> type = value.getClass();
+        // 只接受精确类型，子类可能有额外的字段
+        return type == User.class || type == Order.class || type == OrderView.class
+                || type == String.class || type == Boolean.class
+                || type == Integer.class || type == Long.class || type == Short.class || type == Byte.class;
+    }
+
+    private static void writeData(JsonOutput json, Object data) throws IOException {
+        if (data instanceof Collection<?> collection) {
+            json.raw((byte) '[');
+            boolean first = true;
+            for (Object element : collection) {
+                if (!first) {
+                    json.raw((byte) ',');
+                }
+                first = false;
+                writeValue(json, element);
+            }
+            json.raw((byte) ']');
+        } else {
+            writeValue(json, data);
+        }
+    }
+
+    private static void writeValue(JsonOutput json, Object value) throws IOException {
+        if (value == null) {
+            json.nullValue();
+        } else if (value instanceof User user) {
+            writeUser(json, user);
+        } else if (value instanceof Order order) {
+            writeOrder(json, order);
+        } else if (value instanceof OrderView view) {
+            writeOrderView(json, view);
+        } else if (value instanceof String text) {
+            json.string(text);
+        } else if (value instanceof Boolean bool) {
+            json.bool(bool);
+        } else {
+            json.number(((Number) value).longValue());
+        }
+    }
+
+    private static void writeUser(JsonOutput json, User user) throws IOException {
+        json.raw(ID);
+        json.number(user.getId());
+        json.raw(USERNAME);
+        json.string(user.getUsername());
+        json.raw(PASSWORD);
+        json.string(user.getPassword());
+        json.raw(EMAIL);
+        json.string(user.getEmail());
+        json.raw(PHONE);
+        json.string(user.getPhone());
+        json.raw(STATUS);
+        json.number(user.getStatus());
+        json.raw(CREATE_TIME);
+        json.dateTime(user.getCreateTime());
+        json.raw(UPDATE_TIME);
+        json.dateTime(user.getUpdateTime());
+        json.raw((byte) '}');
+    }
+
+    private static void writeOrder(JsonOutput json, Order order) throws IOException {
+        json.raw(ID);
+        json.number(order.getId());
+        json.raw(ORDER_NO);
+        json.string(order.getOrderNo());
+        json.raw(USER_ID);
+        json.number(order.getUserId());
+        json.raw(PRODUCT_NAME);
+        json.string(order.getProductName());
+        json.raw(QUANTITY);
+        json.number(order.getQuantity());
+        json.raw(PRICE);
+        writeDecimal(json, order.getPrice());
+        json.raw(TOTAL_AMOUNT);
+        writeDecimal(json, order.getTotalAmount());
+        json.raw(STATUS);
+        json.number(order.getStatus());
+        json.raw(CREATE_TIME);
+        json.dateTime(order.getCreateTime());
+        json.raw(UPDATE_TIME);
+        json.dateTime(order.getUpdateTime());
+        json.raw((byte) '}');
+    }
+
+    /**
+     * 订单字段与writeOrder相同，之后是买家信息；两个同步时间字段带@JsonIgnore，不输出
+     */
+    private static void writeOrderView(JsonOutput json, OrderView view) throws IOException {
+        json.raw(ID);
+        json.number(view.getId());
+        json.raw(ORDER_NO);
+        json.string(view.getOrderNo());
+        json.raw(USER_ID);
+        json.number(view.getUserId());
+        json.raw(PRODUCT_NAME);
+        json.string(view.getProductName());
+        json.raw(QUANTITY);
+        json.number(view.getQuantity());
+        json.raw(PRICE);
+        writeDecimal(json, view.getPrice());
+        json.raw(TOTAL_AMOUNT);
+        writeDecimal(json, view.getTotalAmount());
+        json.raw(STATUS);
+        json.number(view.getStatus());
+        json.raw(CREATE_TIME);
+        json.dateTime(view.getCreateTime());
+        json.raw(UPDATE_TIME);
+        json.dateTime(view.getUpdateTime());
+        json.raw(USERNAME);
+        json.string(view.getUsername());
+        json.raw(EMAIL);
+        json.string(view.getEmail());
+        json.raw(PHONE);
+        json.string(view.getPhone());
+        json.raw((byte) '}');
+    }
+
+    private static void writeDecimal(JsonOutput json, BigDecimal value) throws IOException {
+        if (value == null) {
+            json.nullValue();
+        } else {
+            // 与Jackson默认行为一致（未开启WRITE_BIGDECIMAL_AS_PLAIN）
+            json.asciiNumber(value.toString());
+        }
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,20 @@
+package com.study.discovery.snapshot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 快照文件内容
+ *
+ * @param savedAt 保存时间（毫秒时间戳）
+ * @param services 服务名（小写） -> 实例列表
+ * @author SpringCloud学习项目
+ */
+public record RegistrySnapshot(long savedAt, Map<String, List<Instance>> services) {
+
+    /**
+     * 路由需要的实例信息，与 {@link org.springframework.cloud.client.ServiceInstance} 对应
+     */
+    public record Instance(String instanceId, String host, int port, boolean secure, Map<String, String> metadata) {
+    }
+}
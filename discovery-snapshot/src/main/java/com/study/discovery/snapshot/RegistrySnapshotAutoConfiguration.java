@@ -0,0 +1,61 @@
+package com.study.discovery.snapshot;
+
+import com.netflix.discovery.EurekaClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.ConditionalOnBlockingDiscoveryEnabled;
+import org.springframework.cloud.client.ConditionalOnDiscoveryEnabled;
+import org.springframework.cloud.client.ConditionalOnReactiveDiscoveryEnabled;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 注册表快照自动配置
+ *
+ * 引入discovery-snapshot模块即生效，discovery.snapshot.enabled=false可以关闭。
+ * 同时提供阻塞式和响应式两种DiscoveryClient，分别加入Spring Cloud的组合DiscoveryClient
+ *
+ * @author SpringCloud学习项目
+ */
+@AutoConfiguration
+@ConditionalOnDiscoveryEnabled
+@ConditionalOnClass(EurekaClient.class)
+@ConditionalOnProperty(prefix = "discovery.snapshot", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(RegistrySnapshotProperties.class)
+public class RegistrySnapshotAutoConfiguration {
+
+    @Bean
+    public RegistrySnapshotStore registrySnapshotStore(RegistrySnapshotProperties properties,
+                                                       ObjectProvider<EurekaClient> eurekaClient) {
+        return new RegistrySnapshotStore(properties, eurekaClient);
+    }
+
+    @Bean
+    public RegistrySnapshotWriter registrySnapshotWriter(RegistrySnapshotStore store,
+                                                         ObjectProvider<EurekaClient> eurekaClient) {
+        return new RegistrySnapshotWriter(store, eurekaClient);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnBlockingDiscoveryEnabled
+    static class BlockingSnapshotConfiguration {
+
+        @Bean
+        public SnapshotDiscoveryClient snapshotDiscoveryClient(RegistrySnapshotStore store) {
+            return new SnapshotDiscoveryClient(store);
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnReactiveDiscoveryEnabled
+    static class ReactiveSnapshotConfiguration {
+
+        @Bean
+        public SnapshotReactiveDiscoveryClient snapshotReactiveDiscoveryClient(RegistrySnapshotStore store) {
+            return new SnapshotReactiveDiscoveryClient(store);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.study.discovery.snapshot;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 注册表快照配置
+ *
+ * 对应application.yml中的discovery.snapshot配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@ConfigurationProperties(prefix = "discovery.snapshot")
+public class RegistrySnapshotProperties {
+
+    /**
+     * 是否启用注册表快照
+     */
+    private boolean enabled = true;
+
+    /**
+     * 快照文件路径
+     * 同一台机器上部署多个实例时，每个实例需要使用不同的文件
+     */
+    private String file = "./data/registry-snapshot.json";
+
+    /**
+     * 快照最长有效期，超过该时间的快照在启动时直接丢弃
+     * 太旧的快照里的实例大多已经不存在，用它路由只会得到连接失败
+     */
+    private Duration maxAge = Duration.ofHours(24);
+
+    /**
+     * 第一次从注册中心拉取成功后，快照继续兜底的时间
+     * 注册中心刚重启时注册表是空的，要等各实例心跳返回404、重新注册之后才完整，
+     * 默认值覆盖一次心跳（30秒）、一次客户端拉取（30秒）和注册中心响应缓存（30秒）
+     */
+    private Duration reconcileGrace = Duration.ofSeconds(90);
+}
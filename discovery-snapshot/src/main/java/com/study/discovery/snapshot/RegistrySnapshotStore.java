@@ -0,0 +1,217 @@
+package com.study.discovery.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 注册表快照的加载、保存和兜底查询
+ *
+ * 启动时读取上一次保存的快照，注册中心还没有某个服务的实例时用快照里的实例代替。
+ * 以下情况不再使用快照，以注册中心为准：
+ * 1. 注册中心的注册表里已经有这个服务
+ * 2. 启动以来注册中心曾经返回过这个服务（之后没有了说明实例确实都下线了，不能用快照"复活"）
+ * 3. 第一次从注册中心拉取成功后超过reconcile-grace，快照整体退役
+ *
+ * 注册中心一直不可用时快照一直有效，客户端照常路由到快照里的实例
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+public class RegistrySnapshotStore {
+
+    private final RegistrySnapshotProperties properties;
+
+    private final ObjectProvider<EurekaClient> eurekaClient;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+
+    /**
+     * 启动时加载的快照，退役后为空
+     */
+    private volatile Map<String, List<ServiceInstance>> fallback;
+
+    /**
+     * 启动以来注册中心返回过的服务
+     */
+    private final Set<String> observed = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 第一次从注册中心拉取成功的时间（nanoTime），0表示还没有成功过
+     */
+    private volatile long reconciledAt;
+
+    /**
+     * 最近一次写入文件的内容，没有变化时不重复写
+     */
+    private volatile Map<String, List<RegistrySnapshot.Instance>> lastSaved;
+
+    public RegistrySnapshotStore(RegistrySnapshotProperties properties, ObjectProvider<EurekaClient> eurekaClient) {
+        this.properties = properties;
+        this.eurekaClient = eurekaClient;
+        this.file = Paths.get(properties.getFile()).toAbsolutePath();
+        this.fallback = load();
+    }
+
+    /**
+     * 兜底查询某个服务的实例
+     *
+     * @return 快照中的实例，不需要兜底时返回空列表
+     */
+    public List<ServiceInstance> getInstances(String serviceId) {
+        String key = serviceId.toLowerCase(Locale.ROOT);
+        if (!isServing(key)) {
+            return List.of();
+        }
+        return fallback.getOrDefault(key, List.of());
+    }
+
+    /**
+     * 需要兜底的服务名，已经由注册中心提供的服务不包含在内（避免网关按服务名生成重复的路由）
+     */
+    public List<String> getServices() {
+        List<String> services = new ArrayList<>();
+        for (String serviceId : fallback.keySet()) {
+            if (isServing(serviceId)) {
+                services.add(serviceId);
+            }
+        }
+        return services;
+    }
+
+    /**
+     * 注册中心拉取成功后调用：记录对账状态，注册表有变化时保存快照
+     *
+     * @param registry 服务名（小写） -> 状态为UP的实例
+     */
+    public void update(Map<String, List<ServiceInstance>> registry) {
+        if (reconciledAt == 0) {
+            reconciledAt = System.nanoTime();
+            log.info("已从注册中心拉取到注册表，快照将在{}秒后停止兜底", properties.getReconcileGrace().toSeconds());
+        }
+        registry.forEach((serviceId, instances) -> {
+            if (!instances.isEmpty()) {
+                observed.add(serviceId);
+            }
+        });
+        // 刚重启的注册中心返回空注册表时保留原来的快照
+        if (registry.values().stream().allMatch(List::isEmpty)) {
+            return;
+        }
+        Map<String, List<RegistrySnapshot.Instance>> services = toSnapshot(registry);
+        if (services.equals(lastSaved)) {
+            return;
+        }
+        try {
+            save(new RegistrySnapshot(System.currentTimeMillis(), services));
+            lastSaved = services;
+        } catch (IOException e) {
+            log.warn("保存注册表快照失败: {}", file, e);
+        }
+    }
+
+    private boolean isServing(String serviceId) {
+        if (fallback.isEmpty()) {
+            return false;
+        }
+        long reconciled = reconciledAt;
+        if (reconciled != 0 && System.nanoTime() - reconciled > properties.getReconcileGrace().toNanos()) {
+            fallback = Map.of();
+            log.info("注册表快照停止兜底，之后只使用注册中心的数据");
+            return false;
+        }
+        if (observed.contains(serviceId)) {
+            return false;
+        }
+        EurekaClient client = eurekaClient.getIfAvailable();
+        if (client != null) {
+            Application application = client.getApplication(serviceId.toUpperCase(Locale.ROOT));
+            if (application != null && !application.getInstances().isEmpty()) {
+                observed.add(serviceId);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Map<String, List<ServiceInstance>> load() {
+        if (!Files.exists(file)) {
+            log.info("注册表快照不存在: {}", file);
+            return Map.of();
+        }
+        try {
+            RegistrySnapshot snapshot = objectMapper.readValue(file.toFile(), RegistrySnapshot.class);
+            Duration age = Duration.ofMillis(System.currentTimeMillis() - snapshot.savedAt());
+            if (age.compareTo(properties.getMaxAge()) > 0) {
+                log.info("注册表快照已过期（保存于{}分钟前），不使用", age.toMinutes());
+                return Map.of();
+            }
+            Map<String, List<ServiceInstance>> services = new ConcurrentHashMap<>();
+            int count = 0;
+            for (Map.Entry<String, List<RegistrySnapshot.Instance>> entry : snapshot.services().entrySet()) {
+                List<ServiceInstance> instances = new ArrayList<>();
+                for (RegistrySnapshot.Instance instance : entry.getValue()) {
+                    instances.add(new DefaultServiceInstance(instance.instanceId(), entry.getKey(), instance.host(),
+                            instance.port(), instance.secure(), instance.metadata()));
+                }
+                services.put(entry.getKey(), List.copyOf(instances));
+                count += instances.size();
+            }
+            lastSaved = snapshot.services();
+            log.info("已加载注册表快照: {}个服务，{}个实例，保存于{}秒前", services.size(), count, age.toSeconds());
+            return services;
+        } catch (IOException | RuntimeException e) {
+            // 文件损坏不影响启动，等注册中心的数据即可
+            log.warn("读取注册表快照失败，忽略: {}", file, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，进程在写入过程中退出不会留下半个文件
+     */
+    private void save(RegistrySnapshot snapshot) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), snapshot);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("已保存注册表快照: {}个服务", snapshot.services().size());
+    }
+
+    private static Map<String, List<RegistrySnapshot.Instance>> toSnapshot(Map<String, List<ServiceInstance>> registry) {
+        Map<String, List<RegistrySnapshot.Instance>> services = new ConcurrentHashMap<>();
+        registry.forEach((serviceId, instances) -> {
+            if (instances.isEmpty()) {
+                return;
+            }
+            List<RegistrySnapshot.Instance> converted = new ArrayList<>(instances.size());
+            for (ServiceInstance instance : instances) {
+                converted.add(new RegistrySnapshot.Instance(instance.getInstanceId(), instance.getHost(),
+                        instance.getPort(), instance.isSecure(), Map.copyOf(instance.getMetadata())));
+            }
+            // 注册中心每次返回的实例顺序不固定，排序后再比较是否有变化
+            converted.sort((a, b) -> a.instanceId().compareTo(b.instanceId()));
+            services.put(serviceId, converted);
+        });
+        return services;
+    }
+}
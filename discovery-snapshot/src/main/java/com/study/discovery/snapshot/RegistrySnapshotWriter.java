@@ -0,0 +1,88 @@
+package com.study.discovery.snapshot;
+
+import com.netflix.appinfo.InstanceInfo;
+import com.netflix.discovery.DiscoveryClient;
+import com.netflix.discovery.EurekaClient;
+import com.netflix.discovery.shared.Application;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.event.HeartbeatEvent;
+import org.springframework.cloud.netflix.eureka.EurekaServiceInstance;
+import org.springframework.context.event.EventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 注册中心拉取成功后把注册表交给 {@link RegistrySnapshotStore}
+ *
+ * Eureka客户端每次拉取成功都会发布HeartbeatEvent（默认30秒一次）；
+ * 启动时的第一次拉取在客户端构造过程中完成，不发布事件，所以在应用启动完成时再检查一次
+ *
+ * @author SpringCloud学习项目
+ */
+public class RegistrySnapshotWriter {
+
+    private final RegistrySnapshotStore store;
+
+    private final ObjectProvider<EurekaClient> eurekaClient;
+
+    public RegistrySnapshotWriter(RegistrySnapshotStore store, ObjectProvider<EurekaClient> eurekaClient) {
+        this.store = store;
+        this.eurekaClient = eurekaClient;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        refresh();
+    }
+
+    @EventListener(HeartbeatEvent.class)
+    public void onHeartbeat() {
+        refresh();
+    }
+
+    private void refresh() {
+        EurekaClient client = eurekaClient.getIfAvailable();
+        if (client == null) {
+            return;
+        }
+        // 从来没有拉取成功过时，本地注册表是空的，不能当作注册中心的结果
+        if (lastSuccessfulFetchAge(client) < 0) {
+            return;
+        }
+        Map<String, List<ServiceInstance>> registry = new HashMap<>();
+        for (Application application : client.getApplications().getRegisteredApplications()) {
+            List<ServiceInstance> instances = new ArrayList<>();
+            for (InstanceInfo info : application.getInstances()) {
+                if (info.getStatus() == InstanceInfo.InstanceStatus.UP) {
+                    instances.add(new EurekaServiceInstance(info));
+                }
+            }
+            registry.put(application.getName().toLowerCase(Locale.ROOT), instances);
+        }
+        store.update(registry);
+    }
+
+    /**
+     * 距离上次拉取成功的毫秒数，从未成功时返回-1
+     * EurekaClient是@RefreshScope的代理，需要先取出真正的DiscoveryClient
+     */
+    private static long lastSuccessfulFetchAge(EurekaClient client) {
+        Object target = client;
+        if (client instanceof Advised advised) {
+            try {
+                target = advised.getTargetSource().getTarget();
+            } catch (Exception e) {
+                return -1;
+            }
+        }
+        return target instanceof DiscoveryClient discoveryClient
+                ? discoveryClient.getLastSuccessfulRegistryFetchTimePeriod() : 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.study.discovery.snapshot;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.util.List;
+
+/**
+ * 基于注册表快照的DiscoveryClient（阻塞式，Feign、RestTemplate等使用）
+ *
+ * 排在Eureka之后：CompositeDiscoveryClient按顺序取第一个非空的结果，
+ * 只有Eureka还没有某个服务的实例时才会用到快照
+ *
+ * @author SpringCloud学习项目
+ */
+public class SnapshotDiscoveryClient implements DiscoveryClient {
+
+    private final RegistrySnapshotStore store;
+
+    public SnapshotDiscoveryClient(RegistrySnapshotStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String description() {
+        return "Registry Snapshot Discovery Client";
+    }
+
+    @Override
+    public List<ServiceInstance> getInstances(String serviceId) {
+        return store.getInstances(serviceId);
+    }
+
+    @Override
+    public List<String> getServices() {
+        return store.getServices();
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,41 @@
+package com.study.discovery.snapshot;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.ReactiveDiscoveryClient;
+import reactor.core.publisher.Flux;
+
+/**
+ * 基于注册表快照的ReactiveDiscoveryClient（网关、LoadBalancer使用）
+ *
+ * 与 {@link SnapshotDiscoveryClient} 相同，排在Eureka之后，数据都在内存中，不会阻塞事件循环
+ *
+ * @author SpringCloud学习项目
+ */
+public class SnapshotReactiveDiscoveryClient implements ReactiveDiscoveryClient {
+
+    private final RegistrySnapshotStore store;
+
+    public SnapshotReactiveDiscoveryClient(RegistrySnapshotStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public String description() {
+        return "Registry Snapshot Reactive Discovery Client";
+    }
+
+    @Override
+    public Flux<ServiceInstance> getInstances(String serviceId) {
+        return Flux.defer(() -> Flux.fromIterable(store.getInstances(serviceId)));
+    }
+
+    @Override
+    public Flux<String> getServices() {
+        return Flux.defer(() -> Flux.fromIterable(store.getServices()));
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+}
@@ -0,0 +1,145 @@
+package com.study.benchmark.eureka;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数
+ *
+ * 参数格式为 --name=value，未识别的 --eureka.*、--server.*、--spring.*、--logging.* 参数
+ * 原样传给进程内启动的eureka-server，例如 --eureka.server.eviction-interval-timer-in-ms=1000
+ *
+ * @author SpringCloud学习项目
+ */
+public class BenchmarkOptions {
+
+    private static final String[] SERVER_PREFIXES = {"--eureka.", "--server.", "--spring.", "--logging."};
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private final List<String> serverArgs = new ArrayList<>();
+
+    public BenchmarkOptions(String[] args) {
+        for (String arg : args) {
+            if (isServerArg(arg)) {
+                serverArgs.add(arg);
+                continue;
+            }
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg + "，格式应为 --name=value");
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+    }
+
+    /**
+     * 模拟的实例总数
+     */
+    public int instances() {
+        return intValue("instances", 2000);
+    }
+
+    /**
+     * 实例分布在多少个应用（服务名）下
+     */
+    public int apps() {
+        return intValue("apps", 50);
+    }
+
+    /**
+     * 注册阶段同时进行的注册请求数
+     */
+    public int concurrency() {
+        return intValue("concurrency", 64);
+    }
+
+    /**
+     * 心跳间隔（秒），对应客户端的 lease-renewal-interval-in-seconds
+     */
+    public int renewalIntervalSeconds() {
+        return intValue("renewal-interval", 10);
+    }
+
+    /**
+     * 租约时长（秒），对应客户端的 lease-expiration-duration-in-seconds
+     */
+    public int leaseDurationSeconds() {
+        return intValue("lease-duration", 30);
+    }
+
+    /**
+     * 只有心跳的阶段持续多久（秒）
+     */
+    public int heartbeatSeconds() {
+        return intValue("heartbeat-seconds", 30);
+    }
+
+    /**
+     * 混合阶段（心跳 + 增量拉取 + 全量拉取 + 实例上下线）持续多久（秒）
+     */
+    public int mixedSeconds() {
+        return intValue("mixed-seconds", 60);
+    }
+
+    /**
+     * 每个实例增量拉取注册表的间隔（秒），对应客户端的 registry-fetch-interval-seconds
+     */
+    public int fetchIntervalSeconds() {
+        return intValue("fetch-interval", 30);
+    }
+
+    /**
+     * 混合阶段每秒全量拉取次数（新实例启动、网关刷新路由等）
+     */
+    public double fullFetchPerSecond() {
+        return doubleValue("full-fetch-rate", 1.0);
+    }
+
+    /**
+     * 混合阶段每秒下线并重新注册的实例数（滚动发布）
+     */
+    public double churnPerSecond() {
+        return doubleValue("churn-rate", 5.0);
+    }
+
+    /**
+     * 剔除阶段停止心跳的实例比例
+     */
+    public double expireFraction() {
+        return doubleValue("expire-fraction", 0.1);
+    }
+
+    /**
+     * 结果文件
+     */
+    public Path output() {
+        return Path.of(values.getOrDefault("output", "eureka-benchmark.json"));
+    }
+
+    public List<String> serverArgs() {
+        return serverArgs;
+    }
+
+    private int intValue(String name, int defaultValue) {
+        String value = values.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private double doubleValue(String name, double defaultValue) {
+        String value = values.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private static boolean isServerArg(String arg) {
+        for (String prefix : SERVER_PREFIXES) {
+            if (arg.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,439 @@
+package com.study.benchmark.eureka;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.discovery.shared.Application;
+import com.netflix.eureka.registry.PeerAwareInstanceRegistry;
+import com.study.eureka.EurekaServerApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Eureka注册中心规模压测
+ *
+ * 在进程内启动 {@link EurekaServerApplication}（随机端口），用 {@link EurekaRestClient} 模拟几千个客户端，依次执行：
+ * 1. 启动：记录注册中心启动耗时和空注册表时的堆内存
+ * 2. 注册：以固定并发注册全部实例，记录注册吞吐和延迟，之后再次测量堆内存，得到每个实例占用的内存
+ * 3. 心跳：所有实例按心跳间隔均匀地发送心跳（开环模型，不等上一个请求返回），
+ *    统计Tomcat请求线程消耗的CPU时间，得到每次心跳的CPU开销
+ * 4. 混合：心跳之外，每个实例按拉取间隔增量拉取注册表，另有少量全量拉取和实例下线/重新注册（滚动发布），
+ *    记录各类请求的延迟以及增量、全量响应的大小。注意增量队列保留最近3分钟的变更
+ *    （retention-time-in-ms-in-delta-queue），运行时间短于3分钟时注册阶段的变更也在增量里
+ * 5. 剔除：一部分实例停止心跳，记录从最后一次心跳到被剔除的时间
+ *
+ * 剔除结果需要结合Eureka本身的行为理解：
+ * - 心跳时Lease把最后更新时间设为 now + duration，所以实例要在停止心跳约2倍租约时长之后才算过期；
+ *   刚注册、还没有发过心跳的实例（混合阶段重新注册的）只需要1倍租约时长
+ * - 过期后要等下一次剔除任务（eviction-interval-timer-in-ms）才会被移除
+ * - 每次剔除最多移除注册表的15%（1 - renewal-percent-threshold），停止心跳的比例更高时要分多轮
+ *
+ * 结果输出到控制台，同时写入JSON文件，便于不同版本、不同配置之间对比。
+ * 运行方式见README中"注册中心压测"一节
+ *
+ * @author SpringCloud学习项目
+ */
+public class EurekaRegistryBenchmark {
+
+    private static final String TOMCAT_THREAD_PREFIX = "http-nio";
+
+    private final BenchmarkOptions options;
+
+    private final int instances;
+
+    private final ConfigurableApplicationContext context;
+
+    private final EurekaRestClient client;
+
+    private final EvictionTracker evictionTracker;
+
+    /**
+     * 每个槽位当前的实例ID，下线后重新注册期间为null
+     */
+    private final AtomicReferenceArray<String> instanceIds;
+
+    private final AtomicLongArray lastRenewNanos;
+
+    /**
+     * 剔除阶段停止心跳的槽位标记为1
+     */
+    private final AtomicIntegerArray paused;
+
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "benchmark-ticker");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 心跳统计，不同阶段切换成不同的对象
+     */
+    private volatile OperationStats renewStats;
+
+    private final Map<String, Object> result = new LinkedHashMap<>();
+
+    private EurekaRegistryBenchmark(BenchmarkOptions options, ConfigurableApplicationContext context,
+                                    EvictionTracker evictionTracker, long startupMillis) {
+        this.options = options;
+        this.instances = options.instances();
+        this.context = context;
+        this.evictionTracker = evictionTracker;
+        this.client = new EurekaRestClient(((WebServerApplicationContext) context).getWebServer().getPort());
+        this.instanceIds = new AtomicReferenceArray<>(instances);
+        this.lastRenewNanos = new AtomicLongArray(instances);
+        this.paused = new AtomicIntegerArray(instances);
+        result.put("options", optionsMap());
+        result.put("startupMillis", startupMillis);
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = new BenchmarkOptions(args);
+        EvictionTracker evictionTracker = new EvictionTracker();
+
+        long start = System.nanoTime();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(EurekaServerApplication.class)
+                .listeners(evictionTracker)
+                .run(serverArgs(options));
+        long startupMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.printf("注册中心启动耗时 %d ms%n", startupMillis);
+
+        EurekaRegistryBenchmark benchmark = new EurekaRegistryBenchmark(options, context, evictionTracker, startupMillis);
+        try {
+            benchmark.run();
+        } finally {
+            benchmark.scheduler.shutdownNow();
+            context.close();
+        }
+        // HttpClient的选择器线程不是守护线程
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        long baselineHeap = usedHeapAfterGc();
+        register();
+        long registeredHeap = usedHeapAfterGc();
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("baselineBytes", baselineHeap);
+        heap.put("registeredBytes", registeredHeap);
+        heap.put("bytesPerInstance", (registeredHeap - baselineHeap) / instances);
+        result.put("heap", heap);
+        System.out.printf("堆内存 空注册表 %,d B，注册后 %,d B，每个实例约 %,d B%n",
+                baselineHeap, registeredHeap, (registeredHeap - baselineHeap) / instances);
+
+        ScheduledFuture<?> renewTicker = startRenewTicker();
+        heartbeat();
+        mixed();
+        evict();
+        renewTicker.cancel(false);
+
+        Path output = options.output();
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), result);
+        System.out.println("结果已写入 " + output.toAbsolutePath());
+    }
+
+    /**
+     * 注册阶段：以固定并发尽快注册全部实例
+     */
+    private void register() throws InterruptedException {
+        OperationStats stats = new OperationStats("register");
+        Semaphore permits = new Semaphore(options.concurrency());
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>(instances);
+        stats.start();
+        for (int slot = 0; slot < instances; slot++) {
+            permits.acquire();
+            int current = slot;
+            String instanceId = instanceId(current);
+            futures.add(client.register(appName(current), instanceId, current, options.renewalIntervalSeconds(),
+                            options.leaseDurationSeconds(), stats)
+                    .whenComplete((ok, error) -> {
+                        permits.release();
+                        if (Boolean.TRUE.equals(ok)) {
+                            instanceIds.set(current, instanceId);
+                            lastRenewNanos.set(current, System.nanoTime());
+                        }
+                    }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        stats.stop();
+
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("register", stats.toMap());
+        phase.put("instancesInRegistry", instancesInRegistry());
+        result.put("registration", phase);
+        System.out.println("[注册] " + stats.summary());
+        System.out.printf("[注册] 注册表中的实例数 %d%n", instancesInRegistry());
+    }
+
+    /**
+     * 心跳阶段：只有心跳，统计每次心跳消耗的服务端CPU
+     */
+    private void heartbeat() throws InterruptedException {
+        OperationStats stats = new OperationStats("renew");
+        long cpuBefore = requestThreadCpuNanos();
+        renewStats = stats;
+        stats.start();
+        TimeUnit.SECONDS.sleep(options.heartbeatSeconds());
+        stats.stop();
+        long cpuNanos = requestThreadCpuNanos() - cpuBefore;
+
+        double cpuMicrosPerRenew = stats.getSucceeded() > 0 ? cpuNanos / 1000d / stats.getSucceeded() : 0;
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("renew", stats.toMap());
+        phase.put("requestThreadCpuMillis", TimeUnit.NANOSECONDS.toMillis(cpuNanos));
+        phase.put("cpuMicrosPerRenew", OperationStats.round(cpuMicrosPerRenew));
+        result.put("heartbeat", phase);
+        System.out.println("[心跳] " + stats.summary());
+        System.out.printf("[心跳] 每次心跳的请求线程CPU %.1f µs%n", cpuMicrosPerRenew);
+    }
+
+    /**
+     * 混合阶段：心跳 + 增量拉取 + 全量拉取 + 实例下线/重新注册
+     */
+    private void mixed() throws InterruptedException {
+        OperationStats renew = new OperationStats("renew");
+        OperationStats delta = new OperationStats("fetch-delta");
+        OperationStats full = new OperationStats("fetch-full");
+        OperationStats cancel = new OperationStats("churn-cancel");
+        OperationStats reregister = new OperationStats("churn-register");
+        List<OperationStats> all = List.of(renew, delta, full, cancel, reregister);
+        all.forEach(OperationStats::start);
+        renewStats = renew;
+
+        List<ScheduledFuture<?>> tickers = new ArrayList<>();
+        tickers.add(atRate((double) instances / options.fetchIntervalSeconds(), () -> client.fetch(true, delta)));
+        tickers.add(atRate(options.fullFetchPerSecond(), () -> client.fetch(false, full)));
+        tickers.add(atRate(options.churnPerSecond(), () -> churn(cancel, reregister)));
+        TimeUnit.SECONDS.sleep(options.mixedSeconds());
+        tickers.forEach(ticker -> ticker.cancel(false));
+        all.forEach(OperationStats::stop);
+
+        Map<String, Object> phase = new LinkedHashMap<>();
+        for (OperationStats stats : all) {
+            phase.put(stats.getName(), stats.toMap());
+            System.out.println("[混合] " + stats.summary());
+        }
+        result.put("mixed", phase);
+    }
+
+    /**
+     * 剔除阶段：一部分实例停止心跳，等待注册中心剔除
+     */
+    private void evict() throws InterruptedException {
+        OperationStats stats = new OperationStats("renew");
+        renewStats = stats;
+        stats.start();
+
+        int expiring = (int) Math.round(instances * options.expireFraction());
+        int step = Math.max(1, instances / Math.max(1, expiring));
+        List<Integer> slots = new ArrayList<>(expiring);
+        for (int slot = 0; slot < instances && slots.size() < expiring; slot += step) {
+            paused.set(slot, 1);
+            slots.add(slot);
+        }
+        // 等已经发出的心跳返回，最后一次心跳时间不再变化
+        TimeUnit.SECONDS.sleep(1);
+        for (int slot : slots) {
+            String instanceId = instanceIds.get(slot);
+            if (instanceId != null) {
+                evictionTracker.watch(instanceId, lastRenewNanos.get(slot));
+            }
+        }
+        int watched = evictionTracker.pending();
+
+        long evictionIntervalMs = context.getEnvironment()
+                .getProperty("eureka.server.eviction-interval-timer-in-ms", Long.class, 60_000L);
+        long expectedMillis = 2_000L * options.leaseDurationSeconds();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(
+                expectedMillis + evictionIntervalMs * Math.max(2, (watched * 100L) / (instances * 15L) + 2) + 10_000);
+        System.out.printf("[剔除] %d 个实例停止心跳，预计约 %d ms 后开始被剔除（剔除间隔 %d ms）%n",
+                watched, expectedMillis, evictionIntervalMs);
+        while (evictionTracker.pending() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        stats.stop();
+
+        Histogram lag = evictionTracker.getLagMillis();
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("watched", watched);
+        phase.put("evicted", lag.getTotalCount());
+        phase.put("notEvicted", evictionTracker.pending());
+        phase.put("evictionIntervalMillis", evictionIntervalMs);
+        phase.put("expectedMinLagMillis", expectedMillis);
+        Map<String, Object> lagMillis = new LinkedHashMap<>();
+        lagMillis.put("min", lag.getMinValue());
+        lagMillis.put("p50", lag.getValueAtPercentile(50));
+        lagMillis.put("p99", lag.getValueAtPercentile(99));
+        lagMillis.put("max", lag.getMaxValue());
+        phase.put("lagMillis", lagMillis);
+        phase.put("renew", stats.toMap());
+        result.put("eviction", phase);
+        System.out.printf("[剔除] 已剔除 %d/%d，停止心跳到剔除 min=%d ms p50=%d ms p99=%d ms max=%d ms%n",
+                lag.getTotalCount(), watched, lag.getMinValue(), lag.getValueAtPercentile(50),
+                lag.getValueAtPercentile(99), lag.getMaxValue());
+    }
+
+    /**
+     * 心跳按槽位轮流发送，所有实例在一个心跳间隔内均匀分布
+     */
+    private ScheduledFuture<?> startRenewTicker() {
+        AtomicInteger cursor = new AtomicInteger();
+        return atRate((double) instances / options.renewalIntervalSeconds(), () -> {
+            int slot = Math.floorMod(cursor.getAndIncrement(), instances);
+            String instanceId = instanceIds.get(slot);
+            if (instanceId == null || paused.get(slot) == 1 || renewStats == null) {
+                return;
+            }
+            client.renew(appName(slot), instanceId, renewStats).thenAccept(ok -> {
+                if (ok) {
+                    lastRenewNanos.set(slot, System.nanoTime());
+                }
+            });
+        });
+    }
+
+    /**
+     * 模拟滚动发布：随机下线一个实例，然后以新的实例ID重新注册
+     */
+    private void churn(OperationStats cancel, OperationStats reregister) {
+        int slot = ThreadLocalRandom.current().nextInt(instances);
+        String instanceId = instanceIds.get(slot);
+        if (instanceId == null || !instanceIds.compareAndSet(slot, instanceId, null)) {
+            return;
+        }
+        String appName = appName(slot);
+        String replacement = instanceId(slot);
+        client.cancel(appName, instanceId, cancel)
+                .thenCompose(ignored -> client.register(appName, replacement, slot,
+                        options.renewalIntervalSeconds(), options.leaseDurationSeconds(), reregister))
+                .thenAccept(ok -> {
+                    if (ok) {
+                        lastRenewNanos.set(slot, System.nanoTime());
+                        instanceIds.set(slot, replacement);
+                    }
+                });
+    }
+
+    /**
+     * 按固定速率执行（开环模型）。速率超过每毫秒一次时，每个周期执行多次
+     */
+    private ScheduledFuture<?> atRate(double perSecond, Runnable operation) {
+        if (perSecond <= 0) {
+            return scheduler.schedule(() -> { }, 0, TimeUnit.NANOSECONDS);
+        }
+        long periodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (1e9 / perSecond));
+        double perTick = perSecond * periodNanos / 1e9;
+        double[] credit = {0};
+        return scheduler.scheduleAtFixedRate(() -> {
+            credit[0] += perTick;
+            while (credit[0] >= 1) {
+                credit[0] -= 1;
+                operation.run();
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private String appName(int slot) {
+        return String.format("BENCH-APP-%03d", slot % options.apps());
+    }
+
+    private String instanceId(int slot) {
+        return "bench-" + slot + "-" + generation.incrementAndGet();
+    }
+
+    private int instancesInRegistry() {
+        PeerAwareInstanceRegistry registry = context.getBean(PeerAwareInstanceRegistry.class);
+        int count = 0;
+        for (Application application : registry.getSortedApplications()) {
+            count += application.getInstances().size();
+        }
+        return count;
+    }
+
+    /**
+     * Tomcat请求线程累计消耗的CPU时间
+     */
+    private static long requestThreadCpuNanos() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (ThreadInfo info : threads.getThreadInfo(threads.getAllThreadIds())) {
+            if (info != null && info.getThreadName().startsWith(TOMCAT_THREAD_PREFIX)) {
+                long cpu = threads.getThreadCpuTime(info.getThreadId());
+                if (cpu > 0) {
+                    total += cpu;
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            TimeUnit.MILLISECONDS.sleep(200);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * 随机端口、关闭启动横幅、降低日志级别，用户传入的同名参数优先
+     */
+    private static String[] serverArgs(BenchmarkOptions options) {
+        List<String> args = new ArrayList<>(options.serverArgs());
+        addDefault(args, "--server.port", "0");
+        addDefault(args, "--spring.main.banner-mode", "off");
+        addDefault(args, "--logging.level.root", "WARN");
+        // 剔除时每个实例都会打印一行WARN，压测时关闭
+        addDefault(args, "--logging.level.com.netflix.eureka", "ERROR");
+        addDefault(args, "--logging.level.com.netflix.discovery", "WARN");
+        return args.toArray(String[]::new);
+    }
+
+    private static void addDefault(List<String> args, String name, String value) {
+        if (args.stream().noneMatch(arg -> arg.startsWith(name + "="))) {
+            args.add(name + "=" + value);
+        }
+    }
+
+    private Map<String, Object> optionsMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("instances", instances);
+        map.put("apps", options.apps());
+        map.put("renewalIntervalSeconds", options.renewalIntervalSeconds());
+        map.put("leaseDurationSeconds", options.leaseDurationSeconds());
+        map.put("fetchIntervalSeconds", options.fetchIntervalSeconds());
+        map.put("fullFetchPerSecond", options.fullFetchPerSecond());
+        map.put("churnPerSecond", options.churnPerSecond());
+        map.put("expireFraction", options.expireFraction());
+        map.put("serverArgs", options.serverArgs());
+        return map;
+    }
+}
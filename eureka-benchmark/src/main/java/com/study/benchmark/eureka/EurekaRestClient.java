@@ -0,0 +1,164 @@
+package com.study.benchmark.eureka;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 模拟Eureka客户端，直接调用注册中心的REST接口
+ *
+ * 没有使用DiscoveryClient：每个DiscoveryClient都自带调度线程和本地注册表缓存，几千个实例会把压测进程压垮，
+ * 而注册中心看到的只是HTTP请求，用一个HttpClient发出同样的请求即可
+ *
+ * 所有方法都是异步的，返回的Future在请求完成时结束，结果已经记录到传入的 {@link OperationStats}
+ *
+ * @author SpringCloud学习项目
+ */
+public class EurekaRestClient {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final String baseUrl;
+
+    public EurekaRestClient(int port) {
+        this.baseUrl = "http://127.0.0.1:" + port + "/eureka/apps/";
+    }
+
+    /**
+     * 注册实例：POST /eureka/apps/{app}，成功返回204
+     */
+    public CompletableFuture<Boolean> register(String app, String instanceId, int slot, int renewalInterval,
+                                               int leaseDuration, OperationStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + app))
+                .timeout(TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(
+                        instanceJson(app, instanceId, slot, renewalInterval, leaseDuration)))
+                .build();
+        return send(request, stats, 204);
+    }
+
+    /**
+     * 心跳：PUT /eureka/apps/{app}/{id}，实例不存在时返回404
+     */
+    public CompletableFuture<Boolean> renew(String app, String instanceId, OperationStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + app + "/" + instanceId + "?status=UP"))
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json")
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build();
+        return send(request, stats, 200);
+    }
+
+    /**
+     * 下线：DELETE /eureka/apps/{app}/{id}
+     */
+    public CompletableFuture<Boolean> cancel(String app, String instanceId, OperationStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + app + "/" + instanceId))
+                .timeout(TIMEOUT)
+                .DELETE()
+                .build();
+        return send(request, stats, 200);
+    }
+
+    /**
+     * 拉取注册表：GET /eureka/apps/ 或 /eureka/apps/delta，和真实客户端一样请求gzip
+     *
+     * @param delta 是否增量拉取
+     */
+    public CompletableFuture<Boolean> fetch(boolean delta, OperationStats stats) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(delta ? baseUrl + "delta" : baseUrl))
+                .timeout(TIMEOUT)
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .build();
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .handle((response, error) -> {
+                    if (error != null || response.statusCode() != 200) {
+                        stats.failure();
+                        return false;
+                    }
+                    stats.success(System.nanoTime() - start);
+                    byte[] body = response.body();
+                    boolean gzip = response.headers().firstValue("Content-Encoding")
+                            .filter("gzip"::equalsIgnoreCase).isPresent();
+                    stats.size(body.length, gzip ? gunzippedLength(body) : body.length);
+                    return true;
+                });
+    }
+
+    private CompletableFuture<Boolean> send(HttpRequest request, OperationStats stats, int expectedStatus) {
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    if (error != null || response.statusCode() != expectedStatus) {
+                        stats.failure();
+                        return false;
+                    }
+                    stats.success(System.nanoTime() - start);
+                    return true;
+                });
+    }
+
+    private static long gunzippedLength(byte[] body) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            byte[] buffer = new byte[8192];
+            long total = 0;
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                total += read;
+            }
+            return total;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 与eureka-client注册时发送的JSON结构一致，IP地址按序号生成，保证每个实例不同
+     */
+    private static String instanceJson(String app, String instanceId, int slot, int renewalInterval,
+                                       int leaseDuration) {
+        String ip = "10." + ((slot >> 16) & 0xFF) + "." + ((slot >> 8) & 0xFF) + "." + (slot & 0xFF);
+        String vip = app.toLowerCase();
+        String baseUrl = "http://" + ip + ":8080";
+        long now = System.currentTimeMillis();
+        return "{\"instance\":{"
+                + "\"instanceId\":\"" + instanceId + "\","
+                + "\"hostName\":\"" + ip + "\","
+                + "\"app\":\"" + app + "\","
+                + "\"ipAddr\":\"" + ip + "\","
+                + "\"status\":\"UP\","
+                + "\"overriddenStatus\":\"UNKNOWN\","
+                + "\"port\":{\"$\":8080,\"@enabled\":\"true\"},"
+                + "\"securePort\":{\"$\":443,\"@enabled\":\"false\"},"
+                + "\"countryId\":1,"
+                + "\"dataCenterInfo\":{\"@class\":\"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo\",\"name\":\"MyOwn\"},"
+                + "\"leaseInfo\":{\"renewalIntervalInSecs\":" + renewalInterval + ",\"durationInSecs\":" + leaseDuration + "},"
+                + "\"metadata\":{\"management.port\":\"8080\"},"
+                + "\"homePageUrl\":\"" + baseUrl + "/\","
+                + "\"statusPageUrl\":\"" + baseUrl + "/actuator/info\","
+                + "\"healthCheckUrl\":\"" + baseUrl + "/actuator/health\","
+                + "\"vipAddress\":\"" + vip + "\","
+                + "\"secureVipAddress\":\"" + vip + "\","
+                + "\"isCoordinatingDiscoveryServer\":\"false\","
+                + "\"lastUpdatedTimestamp\":\"" + now + "\","
+                + "\"lastDirtyTimestamp\":\"" + now + "\""
+                + "}}";
+    }
+}
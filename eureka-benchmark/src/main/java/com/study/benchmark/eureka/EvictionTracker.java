@@ -0,0 +1,48 @@
+package com.study.benchmark.eureka;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.context.ApplicationListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录停止心跳的实例从最后一次心跳到被注册中心剔除的时间
+ *
+ * 注册中心剔除实例时会发布 {@link EurekaInstanceCanceledEvent}（主动下线也会发布，
+ * 只统计被观察的实例），在事件里计算延迟，不需要轮询注册表
+ *
+ * @author SpringCloud学习项目
+ */
+public class EvictionTracker implements ApplicationListener<EurekaInstanceCanceledEvent> {
+
+    /**
+     * 被观察的实例ID -> 最后一次心跳成功的时间（nanoTime）
+     */
+    private final Map<String, Long> watching = new ConcurrentHashMap<>();
+
+    private final Histogram lagMillis = new ConcurrentHistogram(TimeUnit.HOURS.toMillis(1), 3);
+
+    public void watch(String instanceId, long lastRenewNanos) {
+        watching.put(instanceId, lastRenewNanos);
+    }
+
+    public int pending() {
+        return watching.size();
+    }
+
+    public Histogram getLagMillis() {
+        return lagMillis;
+    }
+
+    @Override
+    public void onApplicationEvent(EurekaInstanceCanceledEvent event) {
+        Long lastRenew = watching.remove(event.getServerId());
+        if (lastRenew != null) {
+            lagMillis.recordValue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastRenew));
+        }
+    }
+}
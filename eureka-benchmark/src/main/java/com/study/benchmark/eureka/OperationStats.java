@@ -0,0 +1,135 @@
+package com.study.benchmark.eureka;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单类操作（注册、心跳、拉取等）的统计：延迟直方图、成功/失败次数，以及可选的响应大小分布
+ *
+ * 延迟以微秒记录，最大可记录60秒，3位有效数字
+ *
+ * @author SpringCloud学习项目
+ */
+public class OperationStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final String name;
+
+    private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+    /**
+     * 响应体大小（压缩后字节数），只有拉取注册表的操作使用
+     */
+    private final Histogram wireBytes = new ConcurrentHistogram(3);
+
+    /**
+     * 响应体大小（解压后字节数）
+     */
+    private final Histogram rawBytes = new ConcurrentHistogram(3);
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private volatile long startNanos;
+
+    private volatile long endNanos;
+
+    public OperationStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void start() {
+        startNanos = System.nanoTime();
+    }
+
+    public void stop() {
+        endNanos = System.nanoTime();
+    }
+
+    public void success(long latencyNanos) {
+        latency.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        succeeded.increment();
+    }
+
+    public void failure() {
+        failed.increment();
+    }
+
+    public void size(long wire, long raw) {
+        wireBytes.recordValue(wire);
+        rawBytes.recordValue(raw);
+    }
+
+    public long getSucceeded() {
+        return succeeded.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    public double throughput() {
+        double seconds = (endNanos - startNanos) / 1e9;
+        return seconds > 0 ? succeeded.sum() / seconds : 0;
+    }
+
+    /**
+     * 控制台输出的一行摘要
+     */
+    public String summary() {
+        StringBuilder line = new StringBuilder(String.format("%-16s ok=%-8d err=%-6d %9.1f/s  p50=%7.2fms p99=%7.2fms p999=%7.2fms max=%7.2fms",
+                name, succeeded.sum(), failed.sum(), throughput(),
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue())));
+        if (wireBytes.getTotalCount() > 0) {
+            line.append(String.format("  size p50=%,dB (raw %,dB) max=%,dB (raw %,dB)",
+                    wireBytes.getValueAtPercentile(50), rawBytes.getValueAtPercentile(50),
+                    wireBytes.getMaxValue(), rawBytes.getMaxValue()));
+        }
+        return line.toString();
+    }
+
+    /**
+     * 写入结果文件的内容
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("succeeded", succeeded.sum());
+        map.put("failed", failed.sum());
+        map.put("throughputPerSecond", round(throughput()));
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("p50", millis(latency.getValueAtPercentile(50)));
+        latencyMillis.put("p99", millis(latency.getValueAtPercentile(99)));
+        latencyMillis.put("p999", millis(latency.getValueAtPercentile(99.9)));
+        latencyMillis.put("max", millis(latency.getMaxValue()));
+        map.put("latencyMillis", latencyMillis);
+        if (wireBytes.getTotalCount() > 0) {
+            Map<String, Object> sizes = new LinkedHashMap<>();
+            sizes.put("wireP50", wireBytes.getValueAtPercentile(50));
+            sizes.put("wireMax", wireBytes.getMaxValue());
+            sizes.put("rawP50", rawBytes.getValueAtPercentile(50));
+            sizes.put("rawMax", rawBytes.getMaxValue());
+            map.put("responseBytes", sizes);
+        }
+        return map;
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000d);
+    }
+
+    static double round(double value) {
+        return Math.round(value * 100) / 100d;
+    }
+}
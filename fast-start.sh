@@ -0,0 +1,36 @@
+#!/bin/bash
+
+# 快速启动脚本
+# 使用 -Pfast-startup 构建的AOT代码和AppCDS归档启动单个服务，扩容时新实例更快开始处理请求
+#
+# 构建: mvn -Pfast-startup -pl user-service,order-service -am package -DskipTests
+# 用法: ./fast-start.sh user-service|order-service [--server.port=8091 ...]
+# 通过JAVA_OPTS追加JVM参数，例如 JAVA_OPTS="-Xmx512m"
+#
+# 注意：AOT在构建时已经按application.yml确定了有哪些Bean，
+# 运行时修改开关类配置（例如 tracing.enabled、sql-profiler.enabled）不生效，需要重新构建
+
+service=$1
+if [ "$service" != "user-service" ] && [ "$service" != "order-service" ]; then
+    echo "用法: $0 user-service|order-service [--name=value ...]"
+    exit 1
+fi
+shift
+
+# AppCDS按生成归档时的路径校验jar，这里使用与构建时相同的绝对路径
+target="$(cd "$(dirname "$0")" && pwd)/$service/target"
+jar=$(ls "$target/$service"-*.jar 2>/dev/null | head -1)
+if [ -z "$jar" ] || [ ! -d "$target/lib" ]; then
+    echo "错误: 未找到 $target 下的jar和lib目录，请先执行 mvn -Pfast-startup -pl $service -am package -DskipTests"
+    exit 1
+fi
+
+cds=""
+if [ -f "$target/$service.jsa" ]; then
+    cds="-XX:SharedArchiveFile=$target/$service.jsa"
+else
+    echo "警告: 未找到AppCDS归档 $target/$service.jsa，只使用AOT启动"
+fi
+
+# spring.cloud.refresh.enabled=false 与构建时AOT处理的参数一致
+exec java $cds -Dspring.aot.enabled=true -Dspring.cloud.refresh.enabled=false $JAVA_OPTS -jar "$jar" "$@"
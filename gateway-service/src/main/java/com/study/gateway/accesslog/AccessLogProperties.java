@@ -0,0 +1,28 @@
+package com.study.gateway.accesslog;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 网关访问日志配置
+ *
+ * 对应application.yml中的gateway.access-log配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.access-log")
+public class AccessLogProperties {
+
+    /**
+     * 是否输出访问日志
+     */
+    private boolean enabled = true;
+
+    /**
+     * 环形缓冲区大小（会向上取整为2的幂），写满时丢弃新日志并计数
+     */
+    private int bufferSize = 8192;
+}
@@ -0,0 +1,197 @@
+package com.study.gateway.accesslog;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.net.InetSocketAddress;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步访问日志
+ *
+ * Netty事件循环线程只负责把几个字段写进预先分配好的槽位（多生产者，CAS抢占序号），
+ * 由一个后台线程（单消费者）取出、格式化并交给日志框架输出。
+ * 事件循环线程上不格式化字符串、不做IO、不加锁，也不为每条日志创建对象
+ *
+ * 消费者跟不上时新日志直接丢弃并计数（gateway.access-log.dropped），不会阻塞请求
+ *
+ * 日志输出到名为ACCESS_LOG的logger，可以在logback配置中单独指定输出文件
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class AccessLogRingBuffer {
+
+    private static final Logger ACCESS_LOG = LoggerFactory.getLogger("ACCESS_LOG");
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private final boolean enabled;
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    /**
+     * 下一个可以写入的序号
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 下一个要消费的序号，只有消费者线程写入
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread consumer;
+
+    private volatile boolean running = true;
+
+    public AccessLogRingBuffer(AccessLogProperties properties, MeterRegistry registry) {
+        this.enabled = properties.isEnabled();
+        int capacity = Integer.highestOneBit(Math.max(16, properties.getBufferSize()) - 1) << 1;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i - capacity;
+        }
+        this.mask = capacity - 1;
+
+        Gauge.builder("gateway.access-log.dropped", dropped, AtomicLong::get)
+                .description("访问日志缓冲区写满而丢弃的条数")
+                .register(registry);
+        Gauge.builder("gateway.access-log.pending", this, AccessLogRingBuffer::pending)
+                .description("访问日志缓冲区中等待输出的条数")
+                .register(registry);
+
+        this.consumer = new Thread(this::drainLoop, "access-log-writer");
+        this.consumer.setDaemon(true);
+        if (enabled) {
+            this.consumer.start();
+        }
+    }
+
+    /**
+     * 发布一条访问日志（在Netty事件循环线程上调用）
+     *
+     * @return 是否写入成功，缓冲区已满时返回false
+     */
+    public boolean publish(long epochMillis, InetSocketAddress client, String method, String path, int status,
+                           long durationNanos, String routeId, String instance, String cache) {
+        if (!enabled) {
+            return false;
+        }
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= slots.length) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.epochMillis = epochMillis;
+        slot.client = client;
+        slot.method = method;
+        slot.path = path;
+        slot.status = status;
+        slot.durationNanos = durationNanos;
+        slot.routeId = routeId;
+        slot.instance = instance;
+        slot.cache = cache;
+        // volatile写，保证消费者看到序号时上面的字段都已写入
+        slot.sequence = sequence;
+        return true;
+    }
+
+    /**
+     * 等待输出的条数
+     *
+     * @return 条数
+     */
+    public long pending() {
+        return head.get() - tail.get();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        consumer.interrupt();
+        consumer.join(1000);
+    }
+
+    private void drainLoop() {
+        StringBuilder line = new StringBuilder(256);
+        long next = tail.get();
+        while (running || next < head.get()) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.sequence != next) {
+                // 没有新日志（或生产者还没写完），稍等一下再看
+                LockSupport.parkNanos(1_000_000L);
+                continue;
+            }
+            line.setLength(0);
+            format(slot, line);
+            // 先把引用清掉再推进tail，避免槽位一直持有请求路径等对象
+            slot.client = null;
+            slot.path = null;
+            tail.lazySet(++next);
+            if (ACCESS_LOG.isInfoEnabled()) {
+                ACCESS_LOG.info(line.toString());
+            }
+        }
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(slot.epochMillis), line);
+        line.append(' ');
+        InetSocketAddress client = slot.client;
+        line.append(client == null || client.getAddress() == null ? "-" : client.getAddress().getHostAddress());
+        line.append(" \"").append(slot.method).append(' ').append(slot.path).append("\" ")
+                .append(slot.status)
+                .append(' ').append(slot.durationNanos / 1_000_000L).append('.')
+                .append((slot.durationNanos / 100_000L) % 10).append("ms")
+                .append(" route=").append(slot.routeId)
+                .append(" upstream=").append(slot.instance);
+        if (slot.cache != null) {
+            line.append(" cache=").append(slot.cache);
+        }
+    }
+
+    /**
+     * 预先分配的日志槽位，字段由生产者写入、消费者读取
+     */
+    private static final class Slot {
+
+        volatile long sequence;
+
+        long epochMillis;
+
+        InetSocketAddress client;
+
+        String method;
+
+        String path;
+
+        int status;
+
+        long durationNanos;
+
+        String routeId;
+
+        String instance;
+
+        String cache;
+    }
+}
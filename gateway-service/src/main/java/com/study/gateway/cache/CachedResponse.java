@@ -0,0 +1,131 @@
+package com.study.gateway.cache;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 在网关内存中保存的一份完整响应
+ *
+ * @param status 状态码
+ * @param headers 响应头（已去掉逐跳头和按客户端变化的头）
+ * @param body 响应体
+ * @param etag 强ETag
+ * @param storedAtNanos 保存时间（System.nanoTime）
+ * @param ttlNanos 有效期
+ * @author SpringCloud学习项目
+ */
+public record CachedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, String etag,
+                             long storedAtNanos, long ttlNanos) {
+
+    /**
+     * 不随缓存一起保存的响应头
+     */
+    private static final Set<String> EXCLUDED_HEADERS = Set.of(
+            HttpHeaders.CONTENT_LENGTH.toLowerCase(),
+            HttpHeaders.TRANSFER_ENCODING.toLowerCase(),
+            HttpHeaders.CONNECTION.toLowerCase(),
+            HttpHeaders.DATE.toLowerCase(),
+            "keep-alive",
+            "x-ratelimit-remaining");
+
+    /**
+     * 从上游响应头中复制需要保存的部分
+     *
+     * @param source 上游响应头
+     * @return 只读的响应头副本
+     */
+    public static HttpHeaders copyHeaders(HttpHeaders source) {
+        HttpHeaders copy = new HttpHeaders();
+        source.forEach((name, values) -> {
+            if (!EXCLUDED_HEADERS.contains(name.toLowerCase())) {
+                copy.put(name, List.copyOf(values));
+            }
+        });
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+
+    /**
+     * 根据响应体计算强ETag
+     *
+     * @param body 响应体
+     * @return 带双引号的ETag
+     */
+    public static String computeEtag(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 判断If-None-Match请求头是否与ETag匹配
+     *
+     * If-None-Match按弱比较，忽略W/前缀（压缩后的响应使用弱ETag）
+     *
+     * @param ifNoneMatch 请求头的值
+     * @param etag 当前ETag
+     * @return 是否匹配
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.equals("*") || stripWeak(value).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * 已经缓存了多少秒
+     *
+     * @param nowNanos 当前时间
+     * @return 秒数
+     */
+    public long ageSeconds(long nowNanos) {
+        return (nowNanos - storedAtNanos) / 1_000_000_000L;
+    }
+
+    /**
+     * 把缓存的响应写给客户端
+     *
+     * @param response 当前响应
+     * @return 写入完成信号
+     */
+    public Mono<Void> writeTo(ServerHttpResponse response) {
+        response.setStatusCode(status);
+        HttpHeaders target = response.getHeaders();
+        headers.forEach((name, values) -> {
+            if (!target.containsKey(name)) {
+                target.put(name, values);
+            }
+        });
+        target.setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    @Override
+    public String toString() {
+        return "CachedResponse[status=" + status + ", bytes=" + body.length + ", etag=" + etag
+                + ", body=" + new String(body, 0, Math.min(body.length, 64), StandardCharsets.UTF_8) + "]";
+    }
+}
@@ -0,0 +1,158 @@
+package com.study.gateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 网关响应缓存
+ *
+ * 基于Caffeine，按字节数限制总大小（W-TinyLFU淘汰），每个条目有自己的TTL。
+ * key的格式为：路由ID|路径?查询参数
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class ResponseCache {
+
+    /**
+     * 每个条目除响应体之外的估算开销（key、响应头、对象头）
+     */
+    private static final int ENTRY_OVERHEAD = 512;
+
+    private final Cache<String, CachedResponse> cache;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 以304响应的次数
+     */
+    private final LongAdder notModified = new LongAdder();
+
+    /**
+     * 因为响应不可缓存（过大、Set-Cookie、no-store等）而透传的次数
+     */
+    private final LongAdder bypassed = new LongAdder();
+
+    public ResponseCache(ResponseCacheProperties properties) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxBytes())
+                .weigher((String key, CachedResponse value) -> key.length() * 2 + value.body().length + ENTRY_OVERHEAD)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse value, long currentTime) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return value.ttlNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * 构造缓存key
+     *
+     * @param routeId 路由ID
+     * @param pathAndQuery 路径和查询参数
+     * @return 缓存key
+     */
+    public static String key(String routeId, String pathAndQuery) {
+        return routeId + "|" + pathAndQuery;
+    }
+
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public void put(String key, CachedResponse response) {
+        cache.put(key, response);
+    }
+
+    public void recordNotModified() {
+        notModified.increment();
+    }
+
+    public void recordBypass() {
+        bypassed.increment();
+    }
+
+    /**
+     * 删除一个缓存条目
+     *
+     * @param key 缓存key
+     * @return 条目是否存在
+     */
+    public boolean invalidate(String key) {
+        return cache.asMap().remove(key) != null;
+    }
+
+    /**
+     * 按路径模式删除缓存
+     *
+     * @param pattern Ant风格的路径模式，匹配key中的路径部分（不含查询参数），例如 /user/** 或 /order/no/*
+     * @param routeId 只删除该路由的条目，为null时不限制
+     * @return 删除的条目数
+     */
+    public int invalidate(String pattern, String routeId) {
+        String routePrefix = routeId == null ? null : routeId + "|";
+        int[] removed = {0};
+        cache.asMap().keySet().removeIf(key -> {
+            if (routePrefix != null && !key.startsWith(routePrefix)) {
+                return false;
+            }
+            String path = key.substring(key.indexOf('|') + 1);
+            int query = path.indexOf('?');
+            if (query >= 0) {
+                path = path.substring(0, query);
+            }
+            if (pathMatcher.match(pattern, path)) {
+                removed[0]++;
+                return true;
+            }
+            return false;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 清空全部缓存
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 缓存统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("weightedBytes", cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("notModified", notModified.sum());
+        result.put("bypassed", bypassed.sum());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+}
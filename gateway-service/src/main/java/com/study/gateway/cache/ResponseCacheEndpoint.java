@@ -0,0 +1,55 @@
+package com.study.gateway.cache;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 响应缓存管理端点
+ *
+ * GET    /actuator/responsecache                          查看缓存统计和用户变更流订阅状态
+ * DELETE /actuator/responsecache?pattern=/user/**          按路径模式删除
+ * DELETE /actuator/responsecache?pattern=/order/*&route=x  只删除某个路由下的条目
+ * DELETE /actuator/responsecache                          清空全部缓存
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+@Endpoint(id = "responsecache")
+public class ResponseCacheEndpoint {
+
+    private final ResponseCache responseCache;
+
+    private final UserChangeInvalidator userChangeInvalidator;
+
+    public ResponseCacheEndpoint(ResponseCache responseCache, UserChangeInvalidator userChangeInvalidator) {
+        this.responseCache = responseCache;
+        this.userChangeInvalidator = userChangeInvalidator;
+    }
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = responseCache.stats();
+        stats.put("userChanges", userChangeInvalidator.stats());
+        return stats;
+    }
+
+    @DeleteOperation
+    public Map<String, Object> invalidate(@Nullable String pattern, @Nullable String route) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (pattern == null || pattern.isBlank()) {
+            responseCache.invalidateAll();
+            result.put("pattern", "*");
+            result.put("removed", "all");
+            return result;
+        }
+        result.put("pattern", pattern);
+        result.put("removed", responseCache.invalidate(pattern, route));
+        return result;
+    }
+}
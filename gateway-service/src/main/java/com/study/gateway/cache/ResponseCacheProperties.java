@@ -0,0 +1,99 @@
+package com.study.gateway.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 网关响应缓存配置
+ *
+ * 对应application.yml中的gateway.response-cache配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * 是否启用响应缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存占用的最大字节数
+     */
+    private long maxBytes = 64L * 1024 * 1024;
+
+    /**
+     * 单个响应体的最大字节数，超过的响应直接透传不缓存
+     */
+    private int maxBodyBytes = 256 * 1024;
+
+    /**
+     * 按路由ID配置需要缓存的GET接口，未配置的路由不缓存
+     */
+    private Map<String, RouteCache> routes = new LinkedHashMap<>();
+
+    /**
+     * 订阅用户服务的变更流，用户被修改、禁用后立即删除对应的缓存
+     */
+    private UserChanges userChanges = new UserChanges();
+
+    /**
+     * 某个路由的缓存规则
+     */
+    @Data
+    public static class RouteCache {
+
+        /**
+         * 缓存有效期
+         */
+        private Duration ttl = Duration.ofSeconds(5);
+
+        /**
+         * 需要缓存的路径（Ant风格，支持正则变量，例如 /user/{id:\d+}）
+         */
+        private List<String> paths = new ArrayList<>();
+    }
+
+    /**
+     * 用户变更流订阅配置
+     */
+    @Data
+    public static class UserChanges {
+
+        /**
+         * 是否订阅用户变更流，关闭后用户数据只能等缓存过期
+         */
+        private boolean enabled = true;
+
+        /**
+         * 用户服务在注册中心的服务名
+         */
+        private String serviceId = "user-service";
+
+        /**
+         * 用户变更后要删除的缓存：路由ID -> 路径模板，{id}替换为用户ID，例如 /user/{id}
+         * 只删除不带查询参数的条目
+         */
+        private Map<String, String> paths = new LinkedHashMap<>();
+
+        /**
+         * 长轮询单次最长挂起时间
+         */
+        private Duration pollTimeout = Duration.ofSeconds(30);
+
+        /**
+         * 重新读取用户服务实例列表的间隔
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+    }
+}
@@ -0,0 +1,278 @@
+package com.study.gateway.cache;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订阅用户服务的变更流，删除被修改用户的响应缓存
+ *
+ * 为什么需要它：
+ * 通过网关修改、禁用用户（PUT /user/update、PUT /user/disable/{id}）时，
+ * 网关缓存的GET /user/{id}不会变化，在有效期内会一直返回旧数据（包括已经禁用的用户）
+ *
+ * 实现方式（与订单服务、用户服务实例之间订阅变更流的方式相同）：
+ * 1. 每隔refresh-interval从注册中心读取用户服务的实例列表，每个实例一个长轮询线程，
+ *    各自保存该实例的纪元和版本号；实例下线后停止对应的线程
+ * 2. 收到的每条变更按user-changes.paths换算出缓存key直接删除，不需要扫描整个缓存
+ * 3. 用户服务实例重启（纪元变化）时，重启前后的变更可能没有收到，删除配置路由下的全部缓存
+ *
+ * 长轮询在独立的线程上阻塞等待，不占用Netty工作线程
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class UserChangeInvalidator {
+
+    private static final Logger log = LoggerFactory.getLogger(UserChangeInvalidator.class);
+
+    /**
+     * 变更流每次最多拉取的条数
+     */
+    private static final int CHANGE_BATCH_SIZE = 1000;
+
+    /**
+     * 拉取变更失败后的重试间隔
+     */
+    private static final long CHANGE_RETRY_MILLIS = 5000;
+
+    /**
+     * 一批变更响应体的最大字节数
+     */
+    private static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "response-cache-user-instances");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger pollerCount = new AtomicInteger();
+
+    private final ExecutorService pollers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "response-cache-user-changes-" + pollerCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 实例地址 -> 订阅
+     */
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private final ResponseCache responseCache;
+
+    private final ResponseCacheProperties.UserChanges properties;
+
+    private final boolean cacheEnabled;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final WebClient webClient;
+
+    public UserChangeInvalidator(ResponseCache responseCache, ResponseCacheProperties properties,
+                                 DiscoveryClient discoveryClient, WebClient.Builder webClientBuilder) {
+        this.responseCache = responseCache;
+        this.properties = properties.getUserChanges();
+        this.cacheEnabled = properties.isEnabled();
+        this.discoveryClient = discoveryClient;
+        // 直接访问具体实例，不经过负载均衡；一批变更带完整的用户数据，放宽响应体的内存上限
+        this.webClient = webClientBuilder.clone()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(MAX_BATCH_BYTES))
+                .build();
+    }
+
+    /**
+     * 应用启动完成后开始订阅，之后定期核对实例列表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!cacheEnabled || !properties.isEnabled() || properties.getPaths().isEmpty()) {
+            return;
+        }
+        long interval = properties.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::safeReconcile, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅状态：每个实例的地址、纪元、版本号，以及删除的缓存条目数
+     *
+     * @return 订阅状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("invalidations", invalidations.sum());
+        Map<String, Object> instances = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions.values()) {
+            Map<String, Object> instance = new LinkedHashMap<>();
+            instance.put("connected", subscription.connected);
+            instance.put("epoch", subscription.epoch);
+            instance.put("version", subscription.version);
+            instances.put(subscription.uri, instance);
+        }
+        stats.put("instances", instances);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pollers.shutdownNow();
+    }
+
+    private void safeReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("读取用户服务实例列表失败，{}后重试: {}", properties.getRefreshInterval(), e.getMessage());
+        }
+    }
+
+    /**
+     * 新出现的实例开始订阅，已经下线的实例停止订阅
+     */
+    private void reconcile() {
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(properties.getServiceId())) {
+            String uri = instance.getUri().toString();
+            current.add(uri);
+            subscriptions.computeIfAbsent(uri, this::subscribe);
+        }
+        subscriptions.values().removeIf(subscription -> {
+            if (current.contains(subscription.uri)) {
+                return false;
+            }
+            subscription.future.cancel(true);
+            log.info("用户服务实例已下线，停止订阅变更流：{}", subscription.uri);
+            return true;
+        });
+    }
+
+    private Subscription subscribe(String uri) {
+        Subscription subscription = new Subscription(uri);
+        subscription.future = pollers.submit(subscription);
+        return subscription;
+    }
+
+    /**
+     * 删除某个用户在各个路由下的缓存
+     */
+    private void invalidateUser(long userId) {
+        String id = Long.toString(userId);
+        for (Map.Entry<String, String> entry : properties.getPaths().entrySet()) {
+            String path = entry.getValue().replace("{id}", id);
+            if (responseCache.invalidate(ResponseCache.key(entry.getKey(), path))) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * 删除配置路由下的全部缓存
+     */
+    private void invalidateRoutes() {
+        for (String routeId : properties.getPaths().keySet()) {
+            invalidations.add(responseCache.invalidate("/**", routeId));
+        }
+    }
+
+    /**
+     * 一个用户服务实例的订阅：长轮询该实例的变更流
+     */
+    private class Subscription implements Runnable {
+
+        private final String uri;
+
+        private volatile Future<?> future;
+
+        private volatile Long epoch;
+        private volatile long version;
+        private volatile boolean connected;
+
+        Subscription(String uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public void run() {
+            long timeoutMillis = properties.getPollTimeout().toMillis();
+            // 长轮询最多挂起poll-timeout，读超时再留出5秒
+            Duration readTimeout = properties.getPollTimeout().plusSeconds(5);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    String query = "since=" + version + "&timeout=" + timeoutMillis + "&limit=" + CHANGE_BATCH_SIZE
+                            + (epoch != null ? "&epoch=" + epoch : "");
+                    JsonNode result = webClient.get()
+                            .uri(uri + "/user/changes?" + query)
+                            .accept(MediaType.APPLICATION_JSON)
+                            .retrieve()
+                            .bodyToMono(JsonNode.class)
+                            .block(readTimeout);
+                    JsonNode batch = result == null ? null : result.path("data");
+                    if (result == null || !result.path("success").asBoolean(false) || !batch.isObject()) {
+                        failed(result != null ? result.path("message").asText(null) : null);
+                        continue;
+                    }
+                    long batchEpoch = batch.path("epoch").asLong();
+                    if (epoch != null && epoch != batchEpoch) {
+                        log.info("用户服务实例已重启，删除用户相关的响应缓存：实例={}", uri);
+                        invalidateRoutes();
+                    }
+                    for (JsonNode change : batch.path("changes")) {
+                        invalidateUser(change.path("userId").asLong());
+                    }
+                    epoch = batchEpoch;
+                    version = batch.path("version").asLong();
+                    if (!connected) {
+                        connected = true;
+                        log.info("已订阅用户服务实例的变更流：实例={}，纪元={}，版本={}", uri, epoch, version);
+                    }
+                } catch (Exception e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    failed(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 拉取失败时稍等再从同一个版本号继续，只在第一次失败时输出日志
+         */
+        private void failed(String message) {
+            if (connected || epoch == null) {
+                log.warn("拉取用户变更失败，{}ms后重试：实例={}，{}", CHANGE_RETRY_MILLIS, uri, message);
+            }
+            connected = false;
+            try {
+                Thread.sleep(CHANGE_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
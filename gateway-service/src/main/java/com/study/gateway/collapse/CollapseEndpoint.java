@@ -0,0 +1,30 @@
+package com.study.gateway.collapse;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 请求合并统计端点
+ *
+ * GET /actuator/collapse  按路由查看合并率
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+@Endpoint(id = "collapse")
+public class CollapseEndpoint {
+
+    private final CollapseMetrics metrics;
+
+    public CollapseEndpoint(CollapseMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> summary() {
+        return metrics.summary();
+    }
+}
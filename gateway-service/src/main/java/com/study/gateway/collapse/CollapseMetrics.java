@@ -0,0 +1,76 @@
+package com.study.gateway.collapse;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 请求合并的统计指标
+ *
+ * 按路由统计：
+ * gateway.collapse.leaders    真正转发到后端的请求数
+ * gateway.collapse.followers  复用了其他请求响应的请求数
+ * gateway.collapse.fallbacks  等待后发现响应无法分享（过大、Set-Cookie、出错、超时）而自己转发的请求数
+ *
+ * 合并率 = followers / (leaders + followers)
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class CollapseMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, RouteCounters> counters = new ConcurrentHashMap<>();
+
+    public CollapseMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void leader(String routeId) {
+        route(routeId).leaders().increment();
+    }
+
+    public void follower(String routeId) {
+        route(routeId).followers().increment();
+    }
+
+    public void fallback(String routeId) {
+        route(routeId).fallbacks().increment();
+    }
+
+    /**
+     * 按路由汇总的合并效果
+     *
+     * @return 路由ID -> 统计信息
+     */
+    public Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        counters.forEach((routeId, route) -> {
+            long leaders = (long) route.leaders().count();
+            long followers = (long) route.followers().count();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("leaders", leaders);
+            stats.put("followers", followers);
+            stats.put("fallbacks", (long) route.fallbacks().count());
+            stats.put("collapseRatio", leaders + followers == 0 ? 0 : (double) followers / (leaders + followers));
+            result.put(routeId, stats);
+        });
+        return result;
+    }
+
+    private RouteCounters route(String routeId) {
+        RouteCounters route = counters.get(routeId);
+        return route != null ? route : counters.computeIfAbsent(routeId, id -> new RouteCounters(
+                Counter.builder("gateway.collapse.leaders").tag("route", id).register(registry),
+                Counter.builder("gateway.collapse.followers").tag("route", id).register(registry),
+                Counter.builder("gateway.collapse.fallbacks").tag("route", id).register(registry)));
+    }
+
+    private record RouteCounters(Counter leaders, Counter followers, Counter fallbacks) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.study.gateway.collapse;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 相同GET请求合并配置
+ *
+ * 对应application.yml中的gateway.request-collapsing配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.request-collapsing")
+public class CollapseProperties {
+
+    /**
+     * 是否启用请求合并
+     */
+    private boolean enabled = true;
+
+    /**
+     * 允许合并的路由ID，未列出的路由不合并
+     */
+    private List<String> routes = new ArrayList<>();
+
+    /**
+     * 参与计算合并key的请求头，这些请求头不同的请求不会合并（例如不同用户的Authorization）
+     */
+    private List<String> keyHeaders = new ArrayList<>(List.of("Authorization", "Accept"));
+
+    /**
+     * 可以分享给等待者的最大响应体字节数，超过时等待者各自转发
+     */
+    private int maxBodyBytes = 4 * 1024 * 1024;
+
+    /**
+     * 等待者最多等待的时间，超时后各自转发
+     */
+    private Duration maxWait = Duration.ofSeconds(10);
+}
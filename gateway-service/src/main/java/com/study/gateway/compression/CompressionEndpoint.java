@@ -0,0 +1,30 @@
+package com.study.gateway.compression;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 响应压缩统计端点
+ *
+ * GET /actuator/compression  按路由查看节省的字节数、压缩率和CPU开销
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+@Endpoint(id = "compression")
+public class CompressionEndpoint {
+
+    private final CompressionMetrics metrics;
+
+    public CompressionEndpoint(CompressionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> summary() {
+        return metrics.summary();
+    }
+}
@@ -0,0 +1,91 @@
+package com.study.gateway.compression;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 响应压缩的统计指标
+ *
+ * 按路由统计：
+ * gateway.compression.bytes.in   压缩前字节数
+ * gateway.compression.bytes.out  压缩后字节数（两者之差就是节省的出口带宽）
+ * gateway.compression.time       每个响应花在压缩上的时间（事件循环线程上的CPU开销）
+ * gateway.compression.skipped    协商成功但因为体积太小等原因没有压缩的响应数
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class CompressionMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, RouteMeters> meters = new ConcurrentHashMap<>();
+
+    public CompressionMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 记录一个压缩完成的响应
+     *
+     * @param routeId 路由ID
+     * @param encoder 已经结束的编码器
+     */
+    public void recordCompressed(String routeId, GzipStreamEncoder encoder) {
+        RouteMeters route = meters.computeIfAbsent(routeId, this::register);
+        route.bytesIn().increment(encoder.getBytesIn());
+        route.bytesOut().increment(encoder.getBytesOut());
+        route.time().record(encoder.getEncodeNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一个没有压缩的响应
+     *
+     * @param routeId 路由ID
+     */
+    public void recordSkipped(String routeId) {
+        meters.computeIfAbsent(routeId, this::register).skipped().increment();
+    }
+
+    /**
+     * 按路由汇总的压缩效果
+     *
+     * @return 路由ID -> 统计信息
+     */
+    public Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        meters.forEach((routeId, route) -> {
+            double in = route.bytesIn().count();
+            double out = route.bytesOut().count();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("responses", route.time().count());
+            stats.put("skipped", (long) route.skipped().count());
+            stats.put("bytesIn", (long) in);
+            stats.put("bytesOut", (long) out);
+            stats.put("bytesSaved", (long) (in - out));
+            stats.put("ratio", in == 0 ? 0 : out / in);
+            stats.put("cpuMillis", route.time().totalTime(TimeUnit.MILLISECONDS));
+            stats.put("cpuNanosPerKb", in == 0 ? 0 : route.time().totalTime(TimeUnit.NANOSECONDS) / (in / 1024));
+            result.put(routeId, stats);
+        });
+        return result;
+    }
+
+    private RouteMeters register(String routeId) {
+        return new RouteMeters(
+                Counter.builder("gateway.compression.bytes.in").baseUnit("bytes").tag("route", routeId).register(registry),
+                Counter.builder("gateway.compression.bytes.out").baseUnit("bytes").tag("route", routeId).register(registry),
+                Timer.builder("gateway.compression.time").tag("route", routeId).register(registry),
+                Counter.builder("gateway.compression.skipped").tag("route", routeId).register(registry));
+    }
+
+    private record RouteMeters(Counter bytesIn, Counter bytesOut, Timer time, Counter skipped) {
+    }
+}
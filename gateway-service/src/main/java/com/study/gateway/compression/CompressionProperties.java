@@ -0,0 +1,42 @@
+package com.study.gateway.compression;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 网关响应压缩配置
+ *
+ * 对应application.yml中的gateway.compression配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.compression")
+public class CompressionProperties {
+
+    /**
+     * 是否启用响应压缩
+     */
+    private boolean enabled = true;
+
+    /**
+     * 响应体小于该字节数时不压缩（Content-Length未知的流式响应总是压缩）
+     */
+    private int minSize = 1024;
+
+    /**
+     * 压缩级别，1最快、9压缩率最高，默认6
+     */
+    private int level = 6;
+
+    /**
+     * 需要压缩的Content-Type前缀
+     */
+    private List<String> mimeTypes = new ArrayList<>(List.of(
+            "application/json", "application/xml", "application/javascript", "text/"));
+}
@@ -0,0 +1,136 @@
+package com.study.gateway.compression;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 流式gzip编码器
+ *
+ * 每个响应一个实例，逐块压缩：上游来一块数据就压缩一块，输出多少转发多少，
+ * 整个响应体不会在内存中聚合，内存占用只有Deflater的滑动窗口和一个输出缓冲区
+ *
+ * 使用Deflater的raw模式（nowrap），gzip头和尾（CRC32 + 原始长度）自己写，
+ * 不经过GZIPOutputStream，避免额外的流包装和同步
+ *
+ * 非线程安全；用完必须调用 {@link #close()} 释放Deflater占用的堆外内存
+ *
+ * @author SpringCloud学习项目
+ */
+public class GzipStreamEncoder implements AutoCloseable {
+
+    /**
+     * gzip固定头：魔数、CM=deflate、无标志位、MTIME=0、XFL=0、OS=unknown
+     */
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final Deflater deflater;
+
+    private final CRC32 crc = new CRC32();
+
+    private final DataBufferFactory bufferFactory;
+
+    private final byte[] scratch = new byte[8192];
+
+    private boolean headerWritten;
+
+    private long bytesIn;
+
+    private long bytesOut;
+
+    /**
+     * 累计花在压缩上的时间（纳秒），在Netty事件循环线程上执行，近似等于CPU时间
+     */
+    private long encodeNanos;
+
+    public GzipStreamEncoder(DataBufferFactory bufferFactory, int level) {
+        this.bufferFactory = bufferFactory;
+        this.deflater = new Deflater(level, true);
+    }
+
+    /**
+     * 压缩一块数据，输入缓冲区由调用方释放
+     *
+     * @param input 原始数据
+     * @return 压缩后的数据，可能为空（数据还在Deflater内部）
+     */
+    public DataBuffer encode(DataBuffer input) {
+        long start = System.nanoTime();
+        DataBuffer output = bufferFactory.allocateBuffer(Math.max(64, input.readableByteCount() / 2));
+        writeHeaderIfNeeded(output);
+        try (DataBuffer.ByteBufferIterator iterator = input.readableByteBuffers()) {
+            while (iterator.hasNext()) {
+                ByteBuffer chunk = iterator.next();
+                bytesIn += chunk.remaining();
+                crc.update(chunk.duplicate());
+                deflater.setInput(chunk);
+                while (!deflater.needsInput()) {
+                    drain(output);
+                }
+            }
+        }
+        encodeNanos += System.nanoTime() - start;
+        return output;
+    }
+
+    /**
+     * 结束压缩，输出剩余数据和gzip尾
+     *
+     * @return 最后一块数据
+     */
+    public DataBuffer finish() {
+        long start = System.nanoTime();
+        DataBuffer output = bufferFactory.allocateBuffer(64);
+        writeHeaderIfNeeded(output);
+        deflater.finish();
+        while (!deflater.finished()) {
+            drain(output);
+        }
+        long crcValue = crc.getValue();
+        long size = bytesIn;
+        byte[] trailer = {
+                (byte) crcValue, (byte) (crcValue >> 8), (byte) (crcValue >> 16), (byte) (crcValue >> 24),
+                (byte) size, (byte) (size >> 8), (byte) (size >> 16), (byte) (size >> 24)};
+        output.write(trailer);
+        bytesOut += trailer.length;
+        encodeNanos += System.nanoTime() - start;
+        return output;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    public long getEncodeNanos() {
+        return encodeNanos;
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    private void writeHeaderIfNeeded(DataBuffer output) {
+        if (!headerWritten) {
+            output.write(HEADER);
+            bytesOut += HEADER.length;
+            headerWritten = true;
+        }
+    }
+
+    private void drain(DataBuffer output) {
+        int length = deflater.deflate(scratch, 0, scratch.length, Deflater.NO_FLUSH);
+        if (length > 0) {
+            output.ensureWritable(length);
+            output.write(scratch, 0, length);
+            bytesOut += length;
+        }
+    }
+}
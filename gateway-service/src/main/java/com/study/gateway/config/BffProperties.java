@@ -0,0 +1,30 @@
+package com.study.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 网关聚合接口配置
+ *
+ * 对应application.yml中的gateway.bff配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.bff")
+public class BffProperties {
+
+    /**
+     * 调用订单服务的超时时间，订单是主数据，超时直接返回错误
+     */
+    private Duration orderTimeout = Duration.ofSeconds(3);
+
+    /**
+     * 调用用户服务的超时时间，超时后返回不含用户信息的部分数据
+     */
+    private Duration userTimeout = Duration.ofSeconds(1);
+}
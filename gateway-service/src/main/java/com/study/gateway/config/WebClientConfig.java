@@ -0,0 +1,37 @@
+package com.study.gateway.config;
+
+import org.springframework.cloud.client.loadbalancer.reactive.ReactorLoadBalancerExchangeFilterFunction;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * WebClient配置
+ *
+ * 网关自身需要调用后端服务时（例如聚合接口）使用，
+ * 请求地址写服务名（http://user-service/...），由LoadBalancer从注册中心选择实例
+ *
+ * @author SpringCloud学习项目
+ */
+@Configuration
+public class WebClientConfig {
+
+    /**
+     * 带负载均衡的非阻塞HTTP客户端
+     *
+     * 在Spring Boot自动配置的Builder基础上clone，保留统一的编解码配置，
+     * 不覆盖全局的WebClient.Builder
+     *
+     * @param builder 自动配置的WebClient.Builder
+     * @param loadBalancerFunction 负载均衡过滤函数
+     * @return WebClient
+     */
+    @Bean
+    public WebClient loadBalancedWebClient(WebClient.Builder builder,
+                                           ReactorLoadBalancerExchangeFilterFunction loadBalancerFunction) {
+        return builder.clone()
+                .filter(loadBalancerFunction)
+                .defaultHeader("X-Request-Source", "Gateway")
+                .build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.study.gateway.filter;
+
+import com.study.gateway.accesslog.AccessLogRingBuffer;
+import com.study.gateway.metrics.RouteLatencyMetrics;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+
+/**
+ * 延迟统计与访问日志全局过滤器
+ *
+ * 在所有全局过滤器之前执行，请求结束（成功、异常或客户端断开）时：
+ * 1. 按 路由 / 后端实例 / 状态码 记录耗时，见 {@link RouteLatencyMetrics}
+ * 2. 把一条访问日志放进环形缓冲区，由后台线程输出，见 {@link AccessLogRingBuffer}
+ *
+ * 被限流拒绝、由缓存直接返回的请求也会统计，后端实例记为gateway
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class AccessMetricsFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 最先执行，统计的耗时包含限流、缓存等网关自身的处理
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE;
+
+    /**
+     * 请求未转发到后端（限流拒绝、缓存命中等）时的实例标签
+     */
+    private static final String LOCAL_INSTANCE = "gateway";
+
+    /**
+     * 客户端在响应完成前断开连接（沿用Nginx的约定）
+     */
+    private static final int CLIENT_CLOSED = 499;
+
+    private final RouteLatencyMetrics metrics;
+
+    private final AccessLogRingBuffer accessLog;
+
+    public AccessMetricsFilter(RouteLatencyMetrics metrics, AccessLogRingBuffer accessLog) {
+        this.metrics = metrics;
+        this.accessLog = accessLog;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> record(exchange, signal, start));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private void record(ServerWebExchange exchange, SignalType signal, long start) {
+        long duration = System.nanoTime() - start;
+        ServerHttpRequest request = exchange.getRequest();
+        ServerHttpResponse response = exchange.getResponse();
+
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        // 负载均衡之后这里是具体实例的地址；还是lb://开头说明没有选到实例，no://开头是网关本地处理的路由
+        URI upstream = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR);
+        String instance = upstream != null && upstream.getRawAuthority() != null
+                && !"lb".equals(upstream.getScheme()) && !"no".equals(upstream.getScheme())
+                ? upstream.getRawAuthority() : LOCAL_INSTANCE;
+
+        HttpStatusCode statusCode = response.getStatusCode();
+        int status;
+        if (signal == SignalType.CANCEL) {
+            status = CLIENT_CLOSED;
+        } else if (statusCode != null) {
+            status = statusCode.value();
+        } else {
+            status = signal == SignalType.ON_ERROR ? 500 : 200;
+        }
+
+        metrics.record(routeId, instance, status, duration);
+        accessLog.publish(System.currentTimeMillis(), request.getRemoteAddress(), request.getMethod().name(),
+                request.getPath().value(), status, duration, routeId, instance,
+                response.getHeaders().getFirst("X-Cache"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.study.gateway.filter;
+
+import com.study.gateway.loadshed.AdaptiveConcurrencyLimiter;
+import com.study.gateway.loadshed.AdaptiveLimitProperties;
+import com.study.gateway.loadshed.AdaptiveLimiterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 自适应负载卸除全局过滤器
+ *
+ * 按后端服务限制同时转发的请求数，上限由 {@link AdaptiveConcurrencyLimiter} 根据延迟变化自动学习：
+ * 后端变慢时上限下降，多出来的请求立即返回503，而不是在网关、后端线程池、数据库连接池里层层排队，
+ * 最后所有请求一起超时。这样后端在过载时仍然按自己的最大处理能力完成请求，有效吞吐保持平稳
+ *
+ * 请求头X-Request-Priority（可配置）决定请求能使用上限的比例，
+ * 例如支付回调标记为critical，浏览类请求标记为low，饱和时先拒绝low
+ *
+ * 在响应缓存之后执行，缓存命中的请求不会占用后端的并发名额
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class AdaptiveLimitFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 位于响应缓存（+200）之后，只有真正要转发到后端的请求才参与限制
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 250;
+
+    private static final byte[] SERVICE_UNAVAILABLE_BODY =
+            "{\"code\":503,\"message\":\"服务繁忙，请稍后重试\",\"data\":null,\"success\":false}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * 在网关内处理、不转发的路由使用的uri（例如 no://op）
+     */
+    private static final String NO_UPSTREAM_SCHEME = "no";
+
+    private final AdaptiveLimitProperties properties;
+
+    private final AdaptiveLimiterRegistry registry;
+
+    public AdaptiveLimitFilter(AdaptiveLimitProperties properties, AdaptiveLimiterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        // 聚合接口等网关本地处理的路由没有后端，由它们自己按调用的后端服务申请名额
+        if (route == null || NO_UPSTREAM_SCHEME.equals(route.getUri().getScheme())) {
+            return chain.filter(exchange);
+        }
+        AdaptiveConcurrencyLimiter limiter = registry.get(upstreamOf(route.getUri()));
+        if (!limiter.tryAcquire(registry.shareOf(exchange.getRequest()))) {
+            return reject(exchange.getResponse());
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean dropped = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            limiter.release(System.nanoTime() - start, dropped, signal != SignalType.CANCEL);
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * lb://order-service 取服务名，直连地址取host:port
+     */
+    private static String upstreamOf(URI uri) {
+        if ("lb".equals(uri.getScheme()) && uri.getHost() != null) {
+            return uri.getHost();
+        }
+        return uri.getRawAuthority() != null ? uri.getRawAuthority() : uri.toString();
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        HttpHeaders headers = response.getHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(SERVICE_UNAVAILABLE_BODY)));
+    }
+}
@@ -0,0 +1,195 @@
+package com.study.gateway.filter;
+
+import com.study.gateway.compression.CompressionMetrics;
+import com.study.gateway.compression.CompressionProperties;
+import com.study.gateway.compression.GzipStreamEncoder;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 响应压缩全局过滤器
+ *
+ * 客户端在Accept-Encoding中声明支持gzip时，由网关压缩响应体：
+ * 1. 逐块流式压缩，大响应不会在网关内存中聚合
+ * 2. Content-Length已知且小于min-size的响应不压缩，压缩收益抵不上CPU开销
+ * 3. 已经编码过的响应、非文本类型直接透传；SSE等逐条刷新的响应走writeAndFlushWith，不压缩
+ *
+ * 压缩统一由网关负责，转发给后端时去掉Accept-Encoding，后端总是返回未压缩的数据，
+ * 这样响应缓存里保存的也是原始内容，可以按客户端的能力分别处理
+ *
+ * 在响应缓存过滤器之前执行（装饰器在外层），缓存命中的响应同样会被压缩
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class CompressionFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 位于限流（+100）和响应缓存（+200）之间
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 150;
+
+    private static final String GZIP = "gzip";
+
+    private final CompressionProperties properties;
+
+    private final CompressionMetrics metrics;
+
+    public CompressionFilter(CompressionProperties properties, CompressionMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        ServerHttpRequest request = exchange.getRequest();
+        boolean acceptsGzip = request.getMethod() != HttpMethod.HEAD
+                && acceptsGzip(request.getHeaders().get(HttpHeaders.ACCEPT_ENCODING));
+
+        ServerHttpRequest upstreamRequest = request.mutate()
+                .headers(headers -> headers.remove(HttpHeaders.ACCEPT_ENCODING))
+                .build();
+        ServerWebExchange.Builder mutated = exchange.mutate().request(upstreamRequest);
+        if (acceptsGzip) {
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            mutated.response(new CompressingResponse(exchange.getResponse(), route != null ? route.getId() : "unknown"));
+        }
+        return chain.filter(mutated.build());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * 解析Accept-Encoding，支持gzip且q值不为0时返回true
+     */
+    static boolean acceptsGzip(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String header : acceptEncoding) {
+            for (String token : header.split(",")) {
+                String[] parts = token.trim().split(";");
+                String coding = parts[0].trim();
+                if (!coding.equalsIgnoreCase(GZIP) && !coding.equals("*")) {
+                    continue;
+                }
+                boolean disabled = false;
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            disabled = Double.parseDouble(param.substring(2)) <= 0;
+                        } catch (NumberFormatException e) {
+                            disabled = true;
+                        }
+                    }
+                }
+                if (!disabled) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isCompressible(ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        if (response.getStatusCode() == null || !response.getStatusCode().is2xxSuccessful()
+                || response.getStatusCode() == HttpStatus.NO_CONTENT
+                || headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        long contentLength = headers.getContentLength();
+        if (contentLength >= 0 && contentLength < properties.getMinSize()) {
+            return false;
+        }
+        MediaType contentType = headers.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        String mimeType = contentType.getType() + "/" + contentType.getSubtype();
+        for (String prefix : properties.getMimeTypes()) {
+            if (mimeType.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在写出响应时决定是否压缩，并把响应体替换成压缩后的流
+     */
+    private class CompressingResponse extends ServerHttpResponseDecorator {
+
+        private final String routeId;
+
+        CompressingResponse(ServerHttpResponse delegate, String routeId) {
+            super(delegate);
+            this.routeId = routeId;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (!isCompressible(getDelegate())) {
+                metrics.recordSkipped(routeId);
+                return super.writeWith(body);
+            }
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+            // 压缩后字节不同，强ETag改为弱ETag（If-None-Match按弱比较，仍然可以得到304）
+            String etag = headers.getETag();
+            if (etag != null && !etag.startsWith("W/")) {
+                headers.setETag("W/" + etag);
+            }
+
+            Flux<DataBuffer> compressed = Flux.using(
+                    () -> new GzipStreamEncoder(bufferFactory(), properties.getLevel()),
+                    encoder -> Flux.from(body)
+                            .map(buffer -> {
+                                try {
+                                    return encoder.encode(buffer);
+                                } finally {
+                                    DataBufferUtils.release(buffer);
+                                }
+                            })
+                            .filter(buffer -> {
+                                if (buffer.readableByteCount() > 0) {
+                                    return true;
+                                }
+                                DataBufferUtils.release(buffer);
+                                return false;
+                            })
+                            .concatWith(Mono.fromSupplier(encoder::finish))
+                            .doOnComplete(() -> metrics.recordCompressed(routeId, encoder)),
+                    GzipStreamEncoder::close);
+            return super.writeWith(compressed);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.study.gateway.filter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.study.gateway.config.BffProperties;
+import com.study.gateway.loadshed.AdaptiveConcurrencyLimiter;
+import com.study.gateway.loadshed.AdaptiveLimitProperties;
+import com.study.gateway.loadshed.AdaptiveLimiterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 网关聚合接口（BFF）：订单详情
+ *
+ * 订单详情页需要订单和下单用户两部分数据，原来客户端要经过网关调用两次：
+ * 先GET /order/{id}，再GET /user/{userId}。
+ * 这里由网关在内网完成这两次调用并合并成一个JSON返回，客户端只需要一次往返
+ *
+ * 作为路由过滤器挂在 /bff/order/{id} 路由上（uri为no://op，不转发），
+ * 与普通路由一样经过所有全局过滤器：限流、访问日志和指标、压缩、请求合并等。
+ * 聚合结果在其余过滤器执行完之后写出，与转发路由写出后端响应的时机（NettyWriteResponseFilter）相同，
+ * AddResponseHeader等在后置阶段修改响应头的过滤器仍然生效；
+ * 内部对订单服务、用户服务的调用分别占用这两个服务的自适应并发名额，后端饱和时同样快速失败
+ *
+ * 全程非阻塞（WebClient + Reactor），不占用Netty工作线程
+ * 用户服务失败、超时或繁忙不影响订单数据返回，data.user为null，并通过data.userError说明原因
+ *
+ * 路由配置示例：
+ * <pre>
+ * - id: order-detail-bff
+ *   uri: no://op
+ *   predicates:
+ *     - Path=/bff/order/{id}
+ *     - Method=GET
+ *   filters:
+ *     - OrderDetail
+ * </pre>
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class OrderDetailGatewayFilterFactory extends AbstractGatewayFilterFactory<OrderDetailGatewayFilterFactory.Config> {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderDetailGatewayFilterFactory.class);
+
+    private static final String ORDER_SERVICE = "order-service";
+
+    private static final String USER_SERVICE = "user-service";
+
+    private static final String BUSY_MESSAGE = "服务繁忙，请稍后重试";
+
+    private final WebClient webClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final BffProperties properties;
+
+    private final AdaptiveLimitProperties limitProperties;
+
+    private final AdaptiveLimiterRegistry limiterRegistry;
+
+    public OrderDetailGatewayFilterFactory(WebClient loadBalancedWebClient, ObjectMapper objectMapper,
+                                           BffProperties properties, AdaptiveLimitProperties limitProperties,
+                                           AdaptiveLimiterRegistry limiterRegistry) {
+        super(Config.class);
+        this.webClient = loadBalancedWebClient;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.limitProperties = limitProperties;
+        this.limiterRegistry = limiterRegistry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            String id = ServerWebExchangeUtils.getUriTemplateVariables(exchange).get("id");
+            Mono<ResponseEntity<JsonNode>> result;
+            if (id == null || id.isEmpty() || id.length() > 18 || !id.chars().allMatch(Character::isDigit)) {
+                result = Mono.just(ResponseEntity.badRequest().body(error(HttpStatus.BAD_REQUEST.value(), "订单ID格式不正确")));
+            } else {
+                result = getOrderDetail(exchange, Long.parseLong(id));
+            }
+            return result.flatMap(entity -> chain.filter(exchange)
+                    .then(Mono.defer(() -> write(exchange.getResponse(), entity))));
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER);
+    }
+
+    /**
+     * 查询订单详情（订单 + 下单用户）
+     *
+     * 返回格式与后端服务的Result一致：
+     * {"code":200,"message":"查询成功","data":{"order":{...},"user":{...}},"success":true}
+     */
+    private Mono<ResponseEntity<JsonNode>> getOrderDetail(ServerWebExchange exchange, long id) {
+        double share = limiterRegistry.shareOf(exchange.getRequest());
+        return admitted(ORDER_SERVICE, share, fetch("http://order-service/order/" + id)
+                .timeout(properties.getOrderTimeout()))
+                .flatMap(orderResult -> {
+                    JsonNode order = orderResult.path("data");
+                    if (!orderResult.path("success").asBoolean(false) || !order.isObject()) {
+                        // 订单不存在等业务错误，原样返回订单服务的结果
+                        return Mono.just(ResponseEntity.ok(orderResult));
+                    }
+                    JsonNode userId = order.path("userId");
+                    if (!userId.canConvertToLong()) {
+                        return Mono.just(ResponseEntity.ok(merge(order, null, "订单缺少用户ID")));
+                    }
+                    return fetchUser(userId.asLong(), share)
+                            .map(user -> ResponseEntity.ok(merge(order, user, null)))
+                            .onErrorResume(e -> {
+                                log.warn("聚合订单详情时获取用户信息失败, orderId={}, userId={}: {}", id, userId.asLong(), e.toString());
+                                return Mono.just(ResponseEntity.ok(merge(order, null, describe(e))));
+                            });
+                })
+                .onErrorResume(e -> {
+                    if (e instanceof BusyException) {
+                        return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .body(error(HttpStatus.SERVICE_UNAVAILABLE.value(), BUSY_MESSAGE)));
+                    }
+                    log.warn("聚合订单详情时获取订单失败, orderId={}: {}", id, e.toString());
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+                            .body(error(HttpStatus.BAD_GATEWAY.value(), "订单服务暂不可用：" + describe(e))));
+                });
+    }
+
+    /**
+     * 查询用户，业务失败（用户不存在等）也视为获取失败
+     */
+    private Mono<JsonNode> fetchUser(long userId, double share) {
+        return admitted(USER_SERVICE, share, fetch("http://user-service/user/" + userId)
+                .timeout(properties.getUserTimeout()))
+                .flatMap(userResult -> {
+                    JsonNode user = userResult.path("data");
+                    if (userResult.path("success").asBoolean(false) && user.isObject()) {
+                        return Mono.just(user);
+                    }
+                    return Mono.error(new IllegalStateException(userResult.path("message").asText("用户不存在")));
+                });
+    }
+
+    /**
+     * 调用后端前申请该服务的自适应并发名额，没有名额时以BusyException失败，调用结束后按延迟归还
+     */
+    private Mono<JsonNode> admitted(String upstream, double share, Mono<JsonNode> call) {
+        if (!limitProperties.isEnabled()) {
+            return call;
+        }
+        return Mono.defer(() -> {
+            AdaptiveConcurrencyLimiter limiter = limiterRegistry.get(upstream);
+            if (!limiter.tryAcquire(share)) {
+                return Mono.error(new BusyException());
+            }
+            long start = System.nanoTime();
+            return call.doFinally(signal -> limiter.release(System.nanoTime() - start,
+                    signal == SignalType.ON_ERROR, signal != SignalType.CANCEL));
+        });
+    }
+
+    private Mono<JsonNode> fetch(String uri) {
+        return webClient.get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToMono(JsonNode.class);
+    }
+
+    /**
+     * 写出JSON响应，带Content-Length，响应缓存、请求合并可以按已知长度处理
+     */
+    private Mono<Void> write(ServerHttpResponse response, ResponseEntity<JsonNode> result) {
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(result.getBody());
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(result.getStatusCode());
+        HttpHeaders headers = response.getHeaders();
+        headers.addAll(result.getHeaders());
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentLength(bytes.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+    }
+
+    private JsonNode merge(JsonNode order, JsonNode user, String userError) {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("code", 200);
+        result.put("message", userError == null ? "查询成功" : "查询成功，用户信息暂不可用");
+        ObjectNode data = result.putObject("data");
+        data.set("order", order);
+        data.set("user", user);
+        if (userError != null) {
+            data.put("userError", userError);
+        }
+        result.put("success", true);
+        return result;
+    }
+
+    private JsonNode error(int code, String message) {
+        ObjectNode result = objectMapper.createObjectNode();
+        result.put("code", code);
+        result.put("message", message);
+        result.putNull("data");
+        result.put("success", false);
+        return result;
+    }
+
+    private static String describe(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "调用超时";
+        }
+        if (e instanceof BusyException) {
+            return BUSY_MESSAGE;
+        }
+        return e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+    }
+
+    /**
+     * 过滤器没有参数，超时时间等配置在gateway.bff中
+     */
+    public static class Config {
+    }
+
+    /**
+     * 后端服务没有可用的并发名额
+     */
+    private static class BusyException extends RuntimeException {
+
+        BusyException() {
+            super(BUSY_MESSAGE, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.study.gateway.filter;
+
+import com.study.gateway.ratelimit.RateLimitProperties;
+import com.study.gateway.ratelimit.TokenBucket;
+import com.study.gateway.ratelimit.TokenBucketRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 限流全局过滤器
+ *
+ * 在请求转发到后端之前做准入控制，两层令牌桶：
+ * 1. 客户端级：同一个客户端（IP / Token / 指定请求头）在某个路由上的速率
+ * 2. 路由级：整个路由的总速率，保护后端服务不被压垮
+ *
+ * 超过限制时直接返回429，并通过Retry-After告诉客户端多久之后重试
+ * 热路径上只有一次哈希查找和一次CAS，不加锁、不访问Redis
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 限流尽量靠前执行，被拒绝的请求不再经过后续过滤器
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 100;
+
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+            "{\"code\":429,\"message\":\"请求过于频繁，请稍后重试\",\"data\":null,\"success\":false}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    private final RateLimitProperties properties;
+
+    private final TokenBucketRegistry registry;
+
+    /**
+     * 路由ID -> 换算好的速率参数
+     */
+    private final Map<String, RouteRates> routeRates = new ConcurrentHashMap<>();
+
+    /**
+     * 读取客户端标识的请求头，为null时使用IP
+     */
+    private final String clientHeader;
+
+    public RateLimitFilter(RateLimitProperties properties, TokenBucketRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+        String clientKey = properties.getClientKey();
+        if ("token".equalsIgnoreCase(clientKey)) {
+            this.clientHeader = HttpHeaders.AUTHORIZATION;
+        } else if (clientKey != null && clientKey.startsWith("header:")) {
+            this.clientHeader = clientKey.substring("header:".length()).trim();
+        } else {
+            this.clientHeader = null;
+        }
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String routeId = route != null ? route.getId() : "unknown";
+        RouteRates rates = routeRates.computeIfAbsent(routeId, this::resolveRates);
+        long now = System.nanoTime();
+
+        // 1. 先检查客户端级限制，异常客户端不会消耗路由的总额度
+        if (rates.client() != null) {
+            String key = rates.clientKeyPrefix() + resolveClient(exchange.getRequest());
+            long result = registry.tryAcquire(key, rates.client(), now);
+            if (result < 0) {
+                return reject(exchange, -result);
+            }
+            exchange.getResponse().getHeaders().set("X-RateLimit-Remaining", Long.toString(result));
+        }
+
+        // 2. 再检查路由级总限制
+        if (rates.route() != null) {
+            long result = registry.tryAcquire(rates.routeKey(), rates.route(), now);
+            if (result < 0) {
+                return reject(exchange, -result);
+            }
+        }
+        return chain.filter(exchange);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private RouteRates resolveRates(String routeId) {
+        RateLimitProperties.RouteLimit limit = properties.getRoutes().getOrDefault(routeId, properties.getDefaults());
+        return new RouteRates(
+                limit.getRoute() == null ? null : TokenBucket.Rate.of(limit.getRoute()),
+                limit.getClient() == null ? null : TokenBucket.Rate.of(limit.getClient()),
+                "r|" + routeId,
+                "c|" + routeId + "|");
+    }
+
+    private String resolveClient(ServerHttpRequest request) {
+        if (clientHeader != null) {
+            String value = request.getHeaders().getFirst(clientHeader);
+            if (StringUtils.hasText(value)) {
+                return value;
+            }
+        }
+        if (properties.isTrustForwardedFor()) {
+            String forwarded = request.getHeaders().getFirst("X-Forwarded-For");
+            if (StringUtils.hasText(forwarded)) {
+                int comma = forwarded.indexOf(',');
+                return (comma < 0 ? forwarded : forwarded.substring(0, comma)).trim();
+            }
+        }
+        InetSocketAddress address = request.getRemoteAddress();
+        if (address == null || address.getAddress() == null) {
+            return "unknown";
+        }
+        return address.getAddress().getHostAddress();
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, long waitNanos) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        HttpHeaders headers = response.getHeaders();
+        long waitMillis = Math.max(1, (waitNanos + 999_999) / 1_000_000);
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString((waitMillis + 999) / 1000));
+        headers.set("X-RateLimit-Retry-After-Ms", Long.toString(waitMillis));
+        headers.set("X-RateLimit-Remaining", "0");
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(TOO_MANY_REQUESTS_BODY)));
+    }
+
+    /**
+     * 某个路由换算好的限流参数
+     *
+     * @param route 路由级速率，null表示不限制
+     * @param client 客户端级速率，null表示不限制
+     * @param routeKey 路由级令牌桶的key
+     * @param clientKeyPrefix 客户端级令牌桶key的前缀
+     */
+    private record RouteRates(TokenBucket.Rate route, TokenBucket.Rate client, String routeKey, String clientKeyPrefix) {
+    }
+}
@@ -0,0 +1,216 @@
+package com.study.gateway.filter;
+
+import com.study.gateway.cache.CachedResponse;
+import com.study.gateway.collapse.CollapseMetrics;
+import com.study.gateway.collapse.CollapseProperties;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 相同GET请求合并全局过滤器
+ *
+ * 同一时刻到达的相同请求（路由、路径、查询参数、指定请求头都相同）只转发一个到后端：
+ * 1. 第一个请求成为leader，正常转发，响应一边写给自己的客户端，一边复制一份
+ * 2. 之后到达的相同请求成为follower，不转发，等leader的响应完成后直接写出同一份内容
+ * 3. leader的响应无法分享（超过max-body-bytes、带Set-Cookie、出错或客户端断开）时，
+ *    follower退回到各自转发，不会因为合并而失败
+ *
+ * 只合并允许列表中的路由。与响应缓存不同，合并不保存任何已完成的响应，
+ * 对实时性要求高、不能缓存的接口（例如/user/active）也可以使用
+ *
+ * 位于响应缓存（+200）之后、自适应并发限制（+250）之前：follower不占用后端并发名额
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class RequestCollapsingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 225;
+
+    private static final String X_COLLAPSED = "X-Collapsed";
+
+    private final CollapseProperties properties;
+
+    private final CollapseMetrics metrics;
+
+    private final Set<String> routes;
+
+    /**
+     * 合并key -> 正在进行的leader请求，完成时先移除再发布结果
+     */
+    private final Map<String, Sinks.One<CachedResponse>> inflight = new ConcurrentHashMap<>();
+
+    public RequestCollapsingFilter(CollapseProperties properties, CollapseMetrics metrics) {
+        this.properties = properties;
+        this.metrics = metrics;
+        this.routes = Set.copyOf(properties.getRoutes());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null || !routes.contains(route.getId())) {
+            return chain.filter(exchange);
+        }
+        String routeId = route.getId();
+        String key = collapseKey(routeId, request);
+
+        Sinks.One<CachedResponse> sink = Sinks.one();
+        Sinks.One<CachedResponse> existing = inflight.putIfAbsent(key, sink);
+        if (existing != null) {
+            return follow(exchange, chain, routeId, existing);
+        }
+
+        metrics.leader(routeId);
+        LeaderResponse response = new LeaderResponse(exchange.getResponse(), key, sink);
+        return chain.filter(exchange.mutate().response(response).build())
+                // 出错、客户端断开或没有写响应体时，通知follower各自转发
+                .doFinally(signal -> response.publish(null));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private Mono<Void> follow(ServerWebExchange exchange, GatewayFilterChain chain, String routeId,
+                              Sinks.One<CachedResponse> leader) {
+        return leader.asMono()
+                .timeout(properties.getMaxWait(), Mono.empty())
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(shared -> {
+                    if (shared.isEmpty()) {
+                        metrics.fallback(routeId);
+                        return chain.filter(exchange);
+                    }
+                    metrics.follower(routeId);
+                    exchange.getResponse().getHeaders().set(X_COLLAPSED, "true");
+                    return shared.get().writeTo(exchange.getResponse());
+                });
+    }
+
+    private String collapseKey(String routeId, ServerHttpRequest request) {
+        StringBuilder key = new StringBuilder(128)
+                .append(routeId).append('|').append(request.getPath().value());
+        String rawQuery = request.getURI().getRawQuery();
+        if (rawQuery != null) {
+            key.append('?').append(rawQuery);
+        }
+        HttpHeaders headers = request.getHeaders();
+        for (String name : properties.getKeyHeaders()) {
+            key.append('|');
+            String value = headers.getFirst(name);
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * leader的响应：原样写给客户端，同时复制一份响应体，完成后发布给follower
+     */
+    private class LeaderResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final Sinks.One<CachedResponse> sink;
+
+        LeaderResponse(ServerHttpResponse delegate, String key, Sinks.One<CachedResponse> sink) {
+            super(delegate);
+            this.key = key;
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            long contentLength = headers.getContentLength();
+            if (headers.containsKey(HttpHeaders.SET_COOKIE) || contentLength > properties.getMaxBodyBytes()) {
+                publish(null);
+                return super.writeWith(body);
+            }
+            // 在外层装饰器（缓存、压缩）修改响应头之前保存一份，follower拿到的是后端的原始响应
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders snapshot = CachedResponse.copyHeaders(headers);
+            ByteArrayOutputStream copy = new ByteArrayOutputStream(contentLength > 0 ? (int) contentLength : 1024);
+            boolean[] overflow = {false};
+            Runnable share = () -> publish(new CachedResponse(status, snapshot, copy.toByteArray(),
+                    snapshot.getETag(), System.nanoTime(), 0));
+
+            Flux<? extends DataBuffer> tee = Flux.from(body)
+                    .doOnNext(buffer -> {
+                        if (overflow[0]) {
+                            return;
+                        }
+                        if (copy.size() + buffer.readableByteCount() > properties.getMaxBodyBytes()) {
+                            overflow[0] = true;
+                            publish(null);
+                            return;
+                        }
+                        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                            while (iterator.hasNext()) {
+                                ByteBuffer chunk = iterator.next();
+                                byte[] bytes = new byte[chunk.remaining()];
+                                chunk.get(bytes);
+                                copy.write(bytes, 0, bytes.length);
+                            }
+                        }
+                        // 长度已知时收齐就发布：客户端收到完整响应后可能立即断开，
+                        // 这时写出被取消，收不到完成信号，follower会全部退回各自转发
+                        if (copy.size() == contentLength) {
+                            share.run();
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (!overflow[0]) {
+                            share.run();
+                        }
+                    });
+            return super.writeWith(tee);
+        }
+
+        /**
+         * 发布leader的结果，只有第一次调用生效
+         *
+         * @param shared 可分享的响应，null表示follower需要各自转发
+         */
+        void publish(CachedResponse shared) {
+            // 先移除，之后到达的相同请求成为新的leader，不会拿到已经完成的旧响应
+            inflight.remove(key, sink);
+            if (shared != null) {
+                sink.tryEmitValue(shared);
+            } else {
+                sink.tryEmitEmpty();
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.study.gateway.filter;
+
+import com.study.gateway.cache.CachedResponse;
+import com.study.gateway.cache.ResponseCache;
+import com.study.gateway.cache.ResponseCacheProperties;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 响应缓存全局过滤器
+ *
+ * 对配置了缓存规则的GET接口：
+ * 1. 命中缓存时直接由网关返回，不再调用后端
+ * 2. 请求带If-None-Match且与缓存的ETag一致时返回空响应体的304
+ * 3. 未命中时转发到后端，把200响应保存下来，并补上强ETag（后端有ETag则沿用）
+ *
+ * 只缓存不超过max-body-bytes的响应，带Set-Cookie、Content-Encoding或Cache-Control为no-store/private的响应直接透传。
+ * 后端的业务错误（用户不存在等）也是HTTP 200，响应体以"success":false结尾的Result不缓存，
+ * 否则数据补录之后在有效期内仍会返回旧的错误结果。
+ * 没有Content-Length的响应（chunked）边转发边复制，超过max-body-bytes时放弃复制；
+ * 这种响应的响应头在复制完成前已经发出，ETag只保存在缓存中，从下一次命中开始返回
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    /**
+     * 在限流之后执行，被限流的请求不会读取缓存
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 200;
+
+    private static final String X_CACHE = "X-Cache";
+
+    /**
+     * 业务失败的Result结尾，两种序列化方式都把success放在最后
+     */
+    private static final byte[] ERROR_TAIL = ",\"success\":false}".getBytes(StandardCharsets.UTF_8);
+
+    private final ResponseCacheProperties properties;
+
+    private final ResponseCache responseCache;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 路由ID -> 换算好的缓存规则，未配置的路由为NONE
+     */
+    private final Map<String, RouteRule> rules = new ConcurrentHashMap<>();
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, ResponseCache responseCache) {
+        this.properties = properties;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        RouteRule rule = rules.computeIfAbsent(route.getId(), this::resolveRule);
+        String path = request.getPath().value();
+        if (!rule.matches(pathMatcher, path)) {
+            return chain.filter(exchange);
+        }
+
+        String rawQuery = request.getURI().getRawQuery();
+        String key = ResponseCache.key(route.getId(), rawQuery == null ? path : path + "?" + rawQuery);
+        HttpHeaders requestHeaders = request.getHeaders();
+        boolean noCache = requestHeaders.getCacheControl() != null && requestHeaders.getCacheControl().contains("no-cache");
+        long now = System.nanoTime();
+
+        String ifNoneMatch = requestHeaders.getFirst(HttpHeaders.IF_NONE_MATCH);
+        CachedResponse cached = noCache ? null : responseCache.get(key);
+        if (cached != null) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.getHeaders().set(X_CACHE, "HIT");
+            response.getHeaders().set(HttpHeaders.AGE, Long.toString(cached.ageSeconds(now)));
+            if (CachedResponse.matches(ifNoneMatch, cached.etag())) {
+                responseCache.recordNotModified();
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(cached.etag());
+                return response.setComplete();
+            }
+            return cached.writeTo(response);
+        }
+
+        // 后端不需要知道客户端的条件请求，由网关统一判断，保证能拿到完整响应体写入缓存
+        // 注意mutate后的请求头与原请求共享底层Map，所以If-None-Match要在这之前取出
+        ServerWebExchange mutated = exchange.mutate()
+                .request(request.mutate().headers(headers -> {
+                    headers.remove(HttpHeaders.IF_NONE_MATCH);
+                    headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+                }).build())
+                .response(new CachingResponse(exchange.getResponse(), key, rule.ttlNanos(), ifNoneMatch))
+                .build();
+        return chain.filter(mutated);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private RouteRule resolveRule(String routeId) {
+        ResponseCacheProperties.RouteCache config = properties.getRoutes().get(routeId);
+        if (config == null || config.getPaths().isEmpty()) {
+            return RouteRule.NONE;
+        }
+        return new RouteRule(List.copyOf(config.getPaths()), config.getTtl().toNanos());
+    }
+
+    /**
+     * 判断上游响应是否可以缓存
+     */
+    private boolean isCacheable(ServerHttpResponse response) {
+        HttpHeaders headers = response.getHeaders();
+        if (response.getStatusCode() != HttpStatus.OK || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        // 压缩过的响应体无法判断是否为业务错误
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING)) {
+            return false;
+        }
+        if (headers.getContentLength() > properties.getMaxBodyBytes()) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        return cacheControl == null
+                || !(cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    /**
+     * 判断响应体是否为业务失败的Result（忽略结尾的空白）
+     */
+    private static boolean isErrorResult(byte[] body) {
+        int end = body.length;
+        while (end > 0 && Character.isWhitespace(body[end - 1])) {
+            end--;
+        }
+        if (end < ERROR_TAIL.length) {
+            return false;
+        }
+        return Arrays.equals(body, end - ERROR_TAIL.length, end, ERROR_TAIL, 0, ERROR_TAIL.length);
+    }
+
+    /**
+     * 拦截上游响应：可缓存时把响应体聚合起来保存一份，再原样写给客户端
+     */
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final long ttlNanos;
+
+        /**
+         * 客户端原始的If-None-Match，新响应的ETag没有变化时仍然可以返回304
+         */
+        private final String ifNoneMatch;
+
+        CachingResponse(ServerHttpResponse delegate, String key, long ttlNanos, String ifNoneMatch) {
+            super(delegate);
+            this.key = key;
+            this.ttlNanos = ttlNanos;
+            this.ifNoneMatch = ifNoneMatch;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (!isCacheable(getDelegate())) {
+                responseCache.recordBypass();
+                headers.set(X_CACHE, "BYPASS");
+                return super.writeWith(body);
+            }
+            if (headers.getContentLength() < 0) {
+                return writeUnknownLength(body);
+            }
+            return DataBufferUtils.join(Flux.from(body)).defaultIfEmpty(bufferFactory().wrap(new byte[0])).flatMap(joined -> {
+                byte[] bytes = new byte[joined.readableByteCount()];
+                joined.read(bytes);
+                DataBufferUtils.release(joined);
+                if (isErrorResult(bytes)) {
+                    responseCache.recordBypass();
+                    headers.set(X_CACHE, "BYPASS");
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                }
+
+                String etag = headers.getETag();
+                if (etag == null || etag.startsWith("W/")) {
+                    etag = CachedResponse.computeEtag(bytes);
+                    headers.setETag(etag);
+                }
+                if (headers.getCacheControl() == null) {
+                    headers.setCacheControl(CacheControl.noCache());
+                }
+                responseCache.put(key, new CachedResponse(getStatusCode(), CachedResponse.copyHeaders(headers),
+                        bytes, etag, System.nanoTime(), ttlNanos));
+                headers.set(X_CACHE, "MISS");
+                if (CachedResponse.matches(ifNoneMatch, etag)) {
+                    responseCache.recordNotModified();
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                    return setComplete();
+                }
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        /**
+         * 长度未知的响应：原样转发，同时复制不超过max-body-bytes的响应体，完整结束后写入缓存
+         */
+        private Mono<Void> writeUnknownLength(Publisher<? extends DataBuffer> body) {
+            HttpHeaders headers = getHeaders();
+            if (headers.getCacheControl() == null) {
+                headers.setCacheControl(CacheControl.noCache());
+            }
+            headers.set(X_CACHE, "MISS");
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders snapshot = new HttpHeaders();
+            snapshot.addAll(headers);
+            ByteArrayOutputStream copy = new ByteArrayOutputStream(1024);
+            boolean[] overflow = {false};
+
+            Flux<? extends DataBuffer> tee = Flux.from(body)
+                    .doOnNext(buffer -> {
+                        if (overflow[0]) {
+                            return;
+                        }
+                        if (copy.size() + buffer.readableByteCount() > properties.getMaxBodyBytes()) {
+                            overflow[0] = true;
+                            responseCache.recordBypass();
+                            return;
+                        }
+                        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                            while (iterator.hasNext()) {
+                                ByteBuffer chunk = iterator.next();
+                                byte[] bytes = new byte[chunk.remaining()];
+                                chunk.get(bytes);
+                                copy.write(bytes, 0, bytes.length);
+                            }
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (overflow[0]) {
+                            return;
+                        }
+                        byte[] bytes = copy.toByteArray();
+                        if (isErrorResult(bytes)) {
+                            responseCache.recordBypass();
+                            return;
+                        }
+                        String etag = snapshot.getETag();
+                        if (etag == null || etag.startsWith("W/")) {
+                            etag = CachedResponse.computeEtag(bytes);
+                            snapshot.setETag(etag);
+                        }
+                        responseCache.put(key, new CachedResponse(status, CachedResponse.copyHeaders(snapshot),
+                                bytes, etag, System.nanoTime(), ttlNanos));
+                    });
+            return super.writeWith(tee);
+        }
+    }
+
+    /**
+     * 某个路由换算好的缓存规则
+     *
+     * @param paths 需要缓存的路径模式
+     * @param ttlNanos 缓存有效期
+     */
+    private record RouteRule(List<String> paths, long ttlNanos) {
+
+        static final RouteRule NONE = new RouteRule(List.of(), 0);
+
+        boolean matches(AntPathMatcher matcher, String path) {
+            for (String pattern : paths) {
+                if (matcher.match(pattern, path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.study.gateway.loadshed;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单个后端服务的自适应并发限制器
+ *
+ * 思路来自TCP拥塞控制（Vegas）和Netflix concurrency-limits的Gradient算法：
+ * 后端没有排队时，延迟应该接近无负载延迟（观察到的最小延迟）；延迟明显升高说明请求开始在后端排队，
+ * 此时继续放更多请求进去只会让所有请求一起超时。
+ *
+ * 基线用最小延迟而不是平均延迟的移动平均：过载时平均延迟会随排队一起缓慢上涨，
+ * 用它做基线会"习惯"排队，上限一路涨到最大值。最小延迟只允许非常缓慢地上浮（约每秒1%），
+ * 以适应后端本身变慢（例如数据量增长）的情况
+ *
+ * 每个采样窗口调整一次并发上限：
+ *   gradient = clamp(tolerance × 无负载延迟 / 窗口平均延迟, 0.5, 1)
+ *   新上限 = 上限 × gradient + sqrt(上限)      （sqrt项是留给探测的排队余量）
+ *   上限 = 上限 × (1 - smoothing) + 新上限 × smoothing
+ * 窗口内出现超时或5xx时再乘以backoff-ratio；实际并发不到上限一半时不再增长（应用本身请求不多）
+ *
+ * 热路径上只有一次CAS（占用并发）、两次LongAdder累加和一次最小值比较（记录延迟），
+ * 调整上限时用tryLock，拿不到锁的线程直接跳过，不会阻塞Netty事件循环
+ *
+ * @author SpringCloud学习项目
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private final AdaptiveLimitProperties properties;
+
+    private final long windowNanos;
+
+    private final AtomicInteger inflight = new AtomicInteger();
+
+    private volatile double limit;
+
+    /**
+     * 无负载延迟基线（纳秒），取观察到的最小延迟
+     */
+    private volatile double noLoadRttNanos;
+
+    /**
+     * 最近一个窗口的平均延迟（纳秒）
+     */
+    private volatile double shortRttNanos;
+
+    private final LongAdder windowRttSum = new LongAdder();
+
+    /**
+     * 当前窗口内的最小延迟
+     */
+    private final AtomicLong windowMinRtt = new AtomicLong(Long.MAX_VALUE);
+
+    private final LongAdder windowSamples = new LongAdder();
+
+    private final LongAdder windowDrops = new LongAdder();
+
+    private volatile long windowStart = System.nanoTime();
+
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private final LongAdder rejected = new LongAdder();
+
+    public AdaptiveConcurrencyLimiter(AdaptiveLimitProperties properties) {
+        this.properties = properties;
+        this.windowNanos = properties.getWindow().toNanos();
+        this.limit = properties.getInitialLimit();
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     *
+     * @param share 该优先级可以使用的上限比例（0~1）
+     * @return 是否占用成功，成功后必须调用 {@link #release}
+     */
+    public boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                rejected.increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 释放并发名额并记录一次样本
+     *
+     * @param rttNanos 请求耗时
+     * @param dropped 是否超时或后端返回5xx（视为过载信号）
+     * @param sample 是否计入延迟样本，客户端主动断开的请求不计入
+     */
+    public void release(long rttNanos, boolean dropped, boolean sample) {
+        int inflightBefore = inflight.getAndDecrement();
+        if (!sample) {
+            return;
+        }
+        if (dropped) {
+            windowDrops.increment();
+        } else {
+            windowRttSum.add(rttNanos);
+            windowSamples.increment();
+            long min = windowMinRtt.get();
+            while (rttNanos < min && !windowMinRtt.compareAndSet(min, rttNanos)) {
+                min = windowMinRtt.get();
+            }
+        }
+        long now = System.nanoTime();
+        if (now - windowStart >= windowNanos
+                && windowSamples.sum() + windowDrops.sum() >= properties.getMinWindowSamples()
+                && updateLock.tryLock()) {
+            try {
+                if (now - windowStart >= windowNanos) {
+                    adjust(inflightBefore);
+                    windowStart = now;
+                }
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInflight() {
+        return inflight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public double getNoLoadRttMillis() {
+        return noLoadRttNanos / 1_000_000d;
+    }
+
+    public double getShortRttMillis() {
+        return shortRttNanos / 1_000_000d;
+    }
+
+    /**
+     * 根据上一个窗口的样本调整上限，只在持有updateLock时调用
+     */
+    private void adjust(int inflightNow) {
+        long samples = windowSamples.sumThenReset();
+        long rttSum = windowRttSum.sumThenReset();
+        long drops = windowDrops.sumThenReset();
+        long minRtt = windowMinRtt.getAndSet(Long.MAX_VALUE);
+
+        double current = limit;
+        double next = current;
+        if (samples > 0) {
+            double shortRtt = (double) rttSum / samples;
+            shortRttNanos = shortRtt;
+            if (noLoadRttNanos == 0 || minRtt < noLoadRttNanos) {
+                noLoadRttNanos = minRtt;
+            } else {
+                // 缓慢上浮，后端本身永久变慢后基线可以跟上
+                noLoadRttNanos = noLoadRttNanos * 0.999 + minRtt * 0.001;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, properties.getTolerance() * noLoadRttNanos / shortRtt));
+            double candidate = current * gradient + Math.sqrt(current);
+            if (inflightNow < current / 2) {
+                // 请求量本身不大，延迟样本说明不了后端能承受多少，不增长上限
+                candidate = Math.min(current, candidate);
+            }
+            next = current * (1 - properties.getSmoothing()) + candidate * properties.getSmoothing();
+        }
+        if (drops > 0) {
+            next = Math.min(next, current * properties.getBackoffRatio());
+        }
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), next));
+    }
+}
@@ -0,0 +1,30 @@
+package com.study.gateway.loadshed;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 自适应并发限制状态端点
+ *
+ * GET /actuator/adaptivelimit  查看每个后端服务当前的并发上限、并发数、延迟基线和拒绝数
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+@Endpoint(id = "adaptivelimit")
+public class AdaptiveLimitEndpoint {
+
+    private final AdaptiveLimiterRegistry registry;
+
+    public AdaptiveLimitEndpoint(AdaptiveLimiterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> limits() {
+        return registry.snapshot();
+    }
+}
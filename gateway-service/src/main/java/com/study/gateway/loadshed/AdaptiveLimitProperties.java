@@ -0,0 +1,83 @@
+package com.study.gateway.loadshed;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 自适应并发限制配置
+ *
+ * 对应application.yml中的gateway.adaptive-limit配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.adaptive-limit")
+public class AdaptiveLimitProperties {
+
+    /**
+     * 是否启用自适应并发限制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 20;
+
+    /**
+     * 并发上限的下界，保证后端很慢时仍然有少量请求可以探测恢复情况
+     */
+    private int minLimit = 4;
+
+    /**
+     * 并发上限的上界
+     */
+    private int maxLimit = 500;
+
+    /**
+     * 允许的延迟膨胀倍数：窗口平均延迟不超过 无负载延迟 × tolerance 时认为后端没有明显排队
+     */
+    private double tolerance = 1.5;
+
+    /**
+     * 每次调整的平滑系数，越小调整越平缓
+     */
+    private double smoothing = 0.2;
+
+    /**
+     * 出现超时或5xx时上限乘以该系数
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 采样窗口：至少经过这么长时间、并且至少有min-window-samples个样本才调整一次上限
+     */
+    private Duration window = Duration.ofMillis(100);
+
+    private int minWindowSamples = 10;
+
+    /**
+     * 表示请求优先级的请求头
+     */
+    private String priorityHeader = "X-Request-Priority";
+
+    /**
+     * 没有优先级请求头时使用的优先级
+     */
+    private String defaultPriority = "normal";
+
+    /**
+     * 优先级 -> 可以使用的并发上限比例
+     * 后端饱和时比例小的优先级先被拒绝，比例为1的请求只有在上限全部用完时才会被拒绝
+     */
+    private Map<String, Double> priorities = new LinkedHashMap<>(Map.of(
+            "critical", 1.0,
+            "normal", 0.9,
+            "low", 0.5));
+}
@@ -0,0 +1,96 @@
+package com.study.gateway.loadshed;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按后端服务管理自适应并发限制器
+ *
+ * 每个后端服务（lb://后面的服务名）一个限制器，同一个服务的多条路由共用，
+ * 因为排队发生在后端服务上，和请求从哪条路由进来无关
+ *
+ * 指标：gateway.adaptive-limit.limit / inflight / rejected，标签upstream
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class AdaptiveLimiterRegistry {
+
+    private final AdaptiveLimitProperties properties;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new ConcurrentHashMap<>();
+
+    private final double defaultShare;
+
+    public AdaptiveLimiterRegistry(AdaptiveLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.defaultShare = properties.getPriorities().getOrDefault(properties.getDefaultPriority(), 1.0);
+    }
+
+    /**
+     * 获取某个后端服务的限制器
+     *
+     * @param upstream 后端服务名
+     * @return 限制器
+     */
+    public AdaptiveConcurrencyLimiter get(String upstream) {
+        AdaptiveConcurrencyLimiter limiter = limiters.get(upstream);
+        return limiter != null ? limiter : limiters.computeIfAbsent(upstream, this::create);
+    }
+
+    /**
+     * 按请求头中的优先级取该请求可以使用的并发上限比例，未标记或无法识别时使用默认优先级
+     *
+     * @param request 请求
+     * @return 并发上限比例
+     */
+    public double shareOf(ServerHttpRequest request) {
+        String priority = request.getHeaders().getFirst(properties.getPriorityHeader());
+        if (priority == null) {
+            return defaultShare;
+        }
+        Double share = properties.getPriorities().get(priority.trim().toLowerCase(Locale.ROOT));
+        return share != null ? share : defaultShare;
+    }
+
+    /**
+     * 各后端服务当前的限制状态
+     *
+     * @return 服务名 -> 状态
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        limiters.forEach((upstream, limiter) -> {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("limit", limiter.getLimit());
+            stats.put("inflight", limiter.getInflight());
+            stats.put("rejected", limiter.getRejected());
+            stats.put("noLoadRttMillis", limiter.getNoLoadRttMillis());
+            stats.put("shortRttMillis", limiter.getShortRttMillis());
+            result.put(upstream, stats);
+        });
+        return result;
+    }
+
+    private AdaptiveConcurrencyLimiter create(String upstream) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(properties);
+        Gauge.builder("gateway.adaptive-limit.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .description("自适应并发上限").tag("upstream", upstream).register(meterRegistry);
+        Gauge.builder("gateway.adaptive-limit.inflight", limiter, AdaptiveConcurrencyLimiter::getInflight)
+                .description("正在处理的请求数").tag("upstream", upstream).register(meterRegistry);
+        FunctionCounter.builder("gateway.adaptive-limit.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .description("超过并发上限被拒绝的请求数").tag("upstream", upstream).register(meterRegistry);
+        return limiter;
+    }
+}
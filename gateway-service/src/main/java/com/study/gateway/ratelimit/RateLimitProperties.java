@@ -0,0 +1,89 @@
+package com.study.gateway.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 网关限流配置
+ *
+ * 对应application.yml中的gateway.rate-limit配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 客户端标识来源：
+     * - ip: 客户端IP
+     * - token: Authorization请求头
+     * - header:请求头名称，例如 header:X-User-Id
+     * 取不到时退化为客户端IP
+     */
+    private String clientKey = "ip";
+
+    /**
+     * 是否信任X-Forwarded-For（网关前面还有负载均衡时开启）
+     */
+    private boolean trustForwardedFor = false;
+
+    /**
+     * 每个分片最多保存的令牌桶数量，超过后清理空闲的桶
+     */
+    private int maxBucketsPerShard = 10000;
+
+    /**
+     * 没有单独配置的路由使用的默认限制
+     */
+    private RouteLimit defaults = new RouteLimit();
+
+    /**
+     * 按路由ID单独配置的限制
+     */
+    private Map<String, RouteLimit> routes = new LinkedHashMap<>();
+
+    /**
+     * 某个路由的限流规则
+     */
+    @Data
+    public static class RouteLimit {
+
+        /**
+         * 整个路由的总限制（保护后端服务），不配置表示不限制
+         */
+        private Limit route;
+
+        /**
+         * 单个客户端在该路由上的限制，不配置表示不限制
+         */
+        private Limit client;
+    }
+
+    /**
+     * 令牌桶参数
+     */
+    @Data
+    public static class Limit {
+
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity = 100;
+
+        /**
+         * 每秒补充的令牌数，即长期平均速率
+         */
+        private double refillPerSecond = 50;
+    }
+}
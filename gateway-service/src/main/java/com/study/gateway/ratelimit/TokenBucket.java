@@ -0,0 +1,74 @@
+package com.study.gateway.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶
+ *
+ * 使用GCRA（通用信元速率算法）实现，与令牌桶完全等价，但只需要一个long状态：
+ * TAT（理论到达时间）。每个请求把TAT向后推一个发放间隔，
+ * 只要推进后的TAT不超过"当前时间 + 桶容量 × 发放间隔"就放行
+ *
+ * 状态只有一个AtomicLong，用CAS更新，不需要加锁，也不需要定时补充令牌的线程
+ *
+ * @author SpringCloud学习项目
+ */
+public final class TokenBucket {
+
+    private final AtomicLong theoreticalArrivalTime;
+
+    private final Rate rate;
+
+    public TokenBucket(Rate rate, long nowNanos) {
+        this.rate = rate;
+        this.theoreticalArrivalTime = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param nowNanos 当前时间（System.nanoTime）
+     * @return 大于等于0表示放行，值为剩余令牌数；小于0表示拒绝，绝对值为需要等待的纳秒数
+     */
+    public long tryAcquire(long nowNanos) {
+        long interval = rate.intervalNanos();
+        long burst = rate.burstNanos();
+        while (true) {
+            long tat = theoreticalArrivalTime.get();
+            long next = Math.max(tat, nowNanos) + interval;
+            long ahead = next - nowNanos;
+            if (ahead > burst) {
+                return -(ahead - burst);
+            }
+            if (theoreticalArrivalTime.compareAndSet(tat, next)) {
+                return (burst - ahead) / interval;
+            }
+        }
+    }
+
+    /**
+     * 桶是否已经补满（空闲），补满的桶可以安全删除，重新创建的桶与之等价
+     *
+     * @param nowNanos 当前时间
+     * @return 是否空闲
+     */
+    public boolean isIdle(long nowNanos) {
+        return theoreticalArrivalTime.get() <= nowNanos;
+    }
+
+    /**
+     * 预先换算好的速率参数
+     *
+     * @param capacity 桶容量
+     * @param intervalNanos 每个令牌的发放间隔
+     * @param burstNanos 桶容量对应的时间窗口
+     */
+    public record Rate(int capacity, long intervalNanos, long burstNanos) {
+
+        public static Rate of(RateLimitProperties.Limit limit) {
+            int capacity = Math.max(1, limit.getCapacity());
+            long interval = Math.max(1L, (long) (1_000_000_000L / Math.max(0.001, limit.getRefillPerSecond())));
+            return new Rate(capacity, interval, interval * capacity);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.study.gateway.ratelimit;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分片的令牌桶注册表
+ *
+ * 按key的哈希分成多个分片，每个分片是一个独立的ConcurrentHashMap：
+ * 1. 查找只有一次哈希定位 + 一次ConcurrentHashMap读取，热路径上没有锁
+ * 2. 每个分片有数量上限，超过后只清理这个分片的空闲桶，不会扫描全部客户端
+ * 3. 后台线程定期清理已经补满的桶，防止客户端数量无限增长占用内存
+ *
+ * 所有状态都在本地内存中，不依赖Redis；多个网关实例各自限流
+ *
+ * @author SpringCloud学习项目
+ */
+@Component
+public class TokenBucketRegistry {
+
+    private static final int SHARDS = 64;
+
+    private final ConcurrentHashMap<String, TokenBucket>[] shards;
+
+    private final int maxBucketsPerShard;
+
+    private final ScheduledExecutorService cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rate-limit-cleaner");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketRegistry(RateLimitProperties properties) {
+        this.maxBucketsPerShard = Math.max(16, properties.getMaxBucketsPerShard());
+        this.shards = new ConcurrentHashMap[SHARDS];
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new ConcurrentHashMap<>();
+        }
+        cleaner.scheduleWithFixedDelay(this::cleanup, 10, 10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 对指定key尝试获取一个令牌
+     *
+     * @param key 桶的标识，例如 路由ID + 客户端标识
+     * @param rate 速率参数
+     * @param nowNanos 当前时间
+     * @return 含义同 {@link TokenBucket#tryAcquire(long)}
+     */
+    public long tryAcquire(String key, TokenBucket.Rate rate, long nowNanos) {
+        ConcurrentHashMap<String, TokenBucket> shard = shards[(key.hashCode() & 0x7fffffff) % SHARDS];
+        TokenBucket bucket = shard.get(key);
+        if (bucket == null) {
+            if (shard.size() >= maxBucketsPerShard) {
+                cleanup(shard, nowNanos);
+            }
+            TokenBucket created = new TokenBucket(rate, nowNanos);
+            TokenBucket existing = shard.putIfAbsent(key, created);
+            bucket = existing != null ? existing : created;
+        }
+        return bucket.tryAcquire(nowNanos);
+    }
+
+    /**
+     * 当前桶的总数
+     *
+     * @return 桶数量
+     */
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, TokenBucket> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        cleaner.shutdownNow();
+    }
+
+    private void cleanup() {
+        long now = System.nanoTime();
+        for (ConcurrentHashMap<String, TokenBucket> shard : shards) {
+            cleanup(shard, now);
+        }
+    }
+
+    private static void cleanup(ConcurrentHashMap<String, TokenBucket> shard, long nowNanos) {
+        shard.values().removeIf(bucket -> bucket.isIdle(nowNanos));
+    }
+}
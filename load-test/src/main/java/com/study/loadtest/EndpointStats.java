@@ -0,0 +1,153 @@
+package com.study.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个接口的统计：延迟直方图，以及按类别区分的结果数
+ *
+ * 结果类别：
+ * - ok：HTTP 2xx 且 Result.success 为true
+ * - businessError：HTTP 2xx 但 Result.success 为false（例如"订单编号重复"）
+ * - httpError：非2xx，按状态码分别计数（429限流、503负载卸除等）
+ * - transportError：连接失败、超时
+ * - dropped：到达时在途请求已达上限，没有发出
+ *
+ * 延迟从请求计划发出的时间算起（开环模型下客户端不会因为服务端变慢而少发请求），
+ * 所有收到响应的请求都计入，以微秒记录，最大60秒
+ *
+ * @author SpringCloud学习项目
+ */
+public class EndpointStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final String name;
+
+    private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+
+    private final LongAdder ok = new LongAdder();
+
+    private final LongAdder businessErrors = new LongAdder();
+
+    private final Map<Integer, LongAdder> httpErrors = new ConcurrentHashMap<>();
+
+    private final LongAdder transportErrors = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void response(int status, boolean success, long latencyNanos) {
+        latency.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if (status / 100 != 2) {
+            httpErrors.computeIfAbsent(status, key -> new LongAdder()).increment();
+        } else if (success) {
+            ok.increment();
+        } else {
+            businessErrors.increment();
+        }
+    }
+
+    public void transportError() {
+        transportErrors.increment();
+    }
+
+    public void dropped() {
+        dropped.increment();
+    }
+
+    public long attempted() {
+        return ok.sum() + businessErrors.sum() + httpErrorCount() + transportErrors.sum() + dropped.sum();
+    }
+
+    public double errorRate() {
+        long attempted = attempted();
+        return attempted > 0 ? (double) (attempted - ok.sum()) / attempted : 0;
+    }
+
+    /**
+     * 控制台输出的一行摘要
+     *
+     * @param seconds 统计时长
+     */
+    public String summary(double seconds) {
+        return String.format("%-14s %9.1f/s ok=%-8d err=%6.2f%%  p50=%8.2fms p90=%8.2fms p99=%8.2fms p999=%8.2fms max=%8.2fms%s",
+                name, ok.sum() / seconds, ok.sum(), errorRate() * 100,
+                millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(90)),
+                millis(latency.getValueAtPercentile(99)), millis(latency.getValueAtPercentile(99.9)),
+                millis(latency.getMaxValue()), errorDetail());
+    }
+
+    /**
+     * 写入结果文件的内容
+     *
+     * @param seconds 统计时长
+     */
+    public Map<String, Object> toMap(double seconds) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("attempted", attempted());
+        map.put("ok", ok.sum());
+        map.put("throughputPerSecond", round(ok.sum() / seconds));
+        map.put("errorRate", round(errorRate() * 100) / 100);
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("business", businessErrors.sum());
+        Map<String, Long> http = new LinkedHashMap<>();
+        httpErrors.forEach((status, count) -> http.put(String.valueOf(status), count.sum()));
+        errors.put("http", http);
+        errors.put("transport", transportErrors.sum());
+        errors.put("dropped", dropped.sum());
+        map.put("errors", errors);
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("p50", millis(latency.getValueAtPercentile(50)));
+        latencyMillis.put("p90", millis(latency.getValueAtPercentile(90)));
+        latencyMillis.put("p99", millis(latency.getValueAtPercentile(99)));
+        latencyMillis.put("p999", millis(latency.getValueAtPercentile(99.9)));
+        latencyMillis.put("max", millis(latency.getMaxValue()));
+        map.put("latencyMillis", latencyMillis);
+        return map;
+    }
+
+    private long httpErrorCount() {
+        long count = 0;
+        for (LongAdder adder : httpErrors.values()) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    private String errorDetail() {
+        StringBuilder detail = new StringBuilder();
+        if (businessErrors.sum() > 0) {
+            detail.append(" business=").append(businessErrors.sum());
+        }
+        httpErrors.forEach((status, count) -> detail.append(" http").append(status).append('=').append(count.sum()));
+        if (transportErrors.sum() > 0) {
+            detail.append(" transport=").append(transportErrors.sum());
+        }
+        if (dropped.sum() > 0) {
+            detail.append(" dropped=").append(dropped.sum());
+        }
+        return detail.toString();
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000d);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100d;
+    }
+}
@@ -0,0 +1,255 @@
+package com.study.loadtest;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 压测参数，全链路压测和启动时间基准测试共用
+ *
+ * 参数格式为 --name=value。以服务名开头的参数（--eureka-server.、--gateway-service.、--user-service.、
+ * --order-service.、--order-service-reactive.）去掉服务名后传给对应的服务进程，例如
+ * --gateway-service.gateway.response-cache.enabled=false 会以 --gateway.response-cache.enabled=false 启动网关
+ *
+ * @author SpringCloud学习项目
+ */
+public class LoadTestOptions {
+
+    /**
+     * 默认流量组成：接口名:权重
+     */
+    private static final String DEFAULT_MIX = "user:35,order:25,user-orders:15,order-detail:15,create-order:10";
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private final Map<String, List<String>> serviceArgs = new HashMap<>();
+
+    public LoadTestOptions(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg + "，格式应为 --name=value");
+            }
+            String service = serviceOf(arg);
+            if (service != null) {
+                serviceArgs.computeIfAbsent(service, key -> new ArrayList<>())
+                        .add("--" + arg.substring(service.length() + 3));
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+    }
+
+    /**
+     * 每秒到达的请求数（所有接口合计）
+     */
+    public double rate() {
+        return doubleValue("rate", 100);
+    }
+
+    /**
+     * 流量组成，接口名 -> 权重
+     */
+    public Map<String, Integer> mix() {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String item : values.getOrDefault("mix", DEFAULT_MIX).split(",")) {
+            String[] parts = item.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("流量组成格式应为 接口名:权重，例如 " + DEFAULT_MIX);
+            }
+            mix.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    /**
+     * 订单服务的实现：servlet（order-service，默认）或 reactive（order-service-reactive，只有查询接口）。
+     * reactive时响应式订单服务以order-service的名字注册，网关的订单路由转发到它
+     */
+    public String orderImpl() {
+        String orderImpl = values.getOrDefault("order-impl", "servlet");
+        if (!orderImpl.equals("servlet") && !orderImpl.equals("reactive")) {
+            throw new IllegalArgumentException("未知的订单服务实现: " + orderImpl + "，可选 servlet、reactive");
+        }
+        return orderImpl;
+    }
+
+    /**
+     * 请求的入口：gateway（默认，经过网关）或 order-service（直接压测订单服务，只支持order、user-orders接口，
+     * 不启动网关，用于单独比较订单服务两种实现的开销）
+     */
+    public String entry() {
+        String entry = values.getOrDefault("entry", "gateway");
+        if (!entry.equals("gateway") && !entry.equals("order-service")) {
+            throw new IllegalArgumentException("未知的请求入口: " + entry + "，可选 gateway、order-service");
+        }
+        return entry;
+    }
+
+    /**
+     * 预热时长（秒），预热期间的结果不计入统计
+     */
+    public int warmupSeconds() {
+        return intValue("warmup", 15);
+    }
+
+    /**
+     * 正式压测时长（秒）
+     */
+    public int durationSeconds() {
+        return intValue("duration", 60);
+    }
+
+    /**
+     * 单个请求的超时时间（秒）
+     */
+    public int timeoutSeconds() {
+        return intValue("timeout", 10);
+    }
+
+    /**
+     * 同时在途的请求上限，超过后新到达的请求直接记为丢弃，不排队等待（保持开环模型）
+     */
+    public int maxInflight() {
+        return intValue("max-inflight", 2000);
+    }
+
+    /**
+     * 模拟的客户端数量，每个请求带上其中一个客户端的X-Forwarded-For，网关按客户端限流
+     */
+    public int clients() {
+        return intValue("clients", 1000);
+    }
+
+    /**
+     * 启动时间基准测试：每种启动方式、每个服务冷启动的次数
+     */
+    public int rounds() {
+        return intValue("rounds", 5);
+    }
+
+    /**
+     * 启动时间基准测试：参与比较的启动方式，见 {@link StartupBenchmark.Mode}
+     */
+    public List<String> modes() {
+        return List.of(values.getOrDefault("modes", "baseline,cds,aot,aot-cds").split(","));
+    }
+
+    /**
+     * 启动时间基准测试：所有启动方式都加上的JVM参数，逗号分隔，例如 -XX:TieredStopAtLevel=1,-XX:+UseSerialGC
+     */
+    public List<String> jvmArgs() {
+        String jvmArgs = values.getOrDefault("jvm-args", "");
+        return jvmArgs.isBlank() ? List.of() : List.of(jvmArgs.split(","));
+    }
+
+    /**
+     * 在init.sql之外额外写入的用户数
+     */
+    public int users() {
+        return intValue("users", 1000);
+    }
+
+    /**
+     * 额外写入的每个用户的订单数
+     */
+    public int ordersPerUser() {
+        return intValue("orders-per-user", 5);
+    }
+
+    /**
+     * 端口基数：注册中心 +761、网关 +80、用户服务 +81、订单服务 +82、响应式订单服务 +83、数据库 +92
+     */
+    public int basePort() {
+        return intValue("base-port", 18000);
+    }
+
+    /**
+     * 每个服务进程的最大堆
+     */
+    public String heap() {
+        return values.getOrDefault("heap", "384m");
+    }
+
+    /**
+     * 等待全部服务就绪的最长时间（秒）
+     */
+    public int startupTimeoutSeconds() {
+        return intValue("startup-timeout", 300);
+    }
+
+    /**
+     * 项目根目录，各服务模块的构建结果从这里读取
+     */
+    public Path projectDir() {
+        return Path.of(values.getOrDefault("project-dir", "."));
+    }
+
+    /**
+     * 数据库初始化脚本，默认为项目根目录下的 sql/init.sql
+     */
+    public Path initSql() {
+        String initSql = values.get("init-sql");
+        return initSql != null ? Path.of(initSql) : projectDir().resolve("sql").resolve("init.sql");
+    }
+
+    /**
+     * 结果文件
+     */
+    public Path output() {
+        return Path.of(values.getOrDefault("output", "load-test.json"));
+    }
+
+    /**
+     * 服务进程的日志和数据目录
+     */
+    public Path workDir() {
+        return Path.of(values.getOrDefault("work-dir", "load-test"));
+    }
+
+    /**
+     * 传给指定服务的额外参数
+     */
+    public List<String> serviceArgs(String service) {
+        return serviceArgs.getOrDefault(service, List.of());
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rate", rate());
+        map.put("mix", mix());
+        map.put("orderImpl", orderImpl());
+        map.put("entry", entry());
+        map.put("warmupSeconds", warmupSeconds());
+        map.put("durationSeconds", durationSeconds());
+        map.put("timeoutSeconds", timeoutSeconds());
+        map.put("maxInflight", maxInflight());
+        map.put("clients", clients());
+        map.put("users", users());
+        map.put("ordersPerUser", ordersPerUser());
+        map.put("serviceArgs", serviceArgs);
+        return map;
+    }
+
+    private int intValue(String name, int defaultValue) {
+        String value = values.get(name);
+        return value != null ? Integer.parseInt(value) : defaultValue;
+    }
+
+    private double doubleValue(String name, double defaultValue) {
+        String value = values.get(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+
+    private static String serviceOf(String arg) {
+        for (ServiceProcess.Service service : ServiceProcess.Service.values()) {
+            if (arg.startsWith("--" + service.artifactId() + ".")) {
+                return service.artifactId();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,387 @@
+package com.study.loadtest;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全链路压测
+ *
+ * 在本机启动整套系统，用开环模型（按固定到达速率发请求，不等上一个请求返回）压测网关：
+ * 1. 内存数据库代替MySQL，表结构和初始数据来自 sql/init.sql，见 {@link LocalDatabase}
+ * 2. 注册中心、用户服务、订单服务、网关各自以子进程启动，服务之间和生产环境一样通过注册中心发现、经网关转发
+ * 3. 预热一段时间后开始统计，按接口输出吞吐量、延迟分位数和各类错误数，结果写入JSON文件
+ *
+ * 比较订单查询的两种实现时，用 --order-impl=reactive 换成响应式订单服务，
+ * 加上 --entry=order-service 可以绕过网关直接压测订单服务，两次运行使用相同的机器、堆大小和流量
+ *
+ * 运行方式（在项目根目录）：
+ * mvn -Pbenchmark -pl load-test -am verify -Dload-test.skip=false -Dload-test.args="--rate=200 --duration=60"
+ *
+ * @author SpringCloud学习项目
+ */
+public class LoadTestRunner {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final LoadTestOptions options;
+
+    private final HttpClient client;
+
+    private final ExecutorService httpExecutor = Executors.newFixedThreadPool(4, daemon("load-test-http"));
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(daemon("load-test-ticker"));
+
+    /**
+     * 已启动的服务进程，按启动顺序
+     */
+    private final List<ServiceProcess> processes = Collections.synchronizedList(new ArrayList<>());
+
+    private final Map<String, Object> result = new LinkedHashMap<>();
+
+    public LoadTestRunner(LoadTestOptions options) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(httpExecutor)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestRunner runner = new LoadTestRunner(new LoadTestOptions(args));
+        // Ctrl+C时也要停掉子进程
+        Thread shutdown = new Thread(runner::stopServices, "load-test-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdown);
+        try {
+            runner.run();
+        } finally {
+            runner.stopServices();
+            Runtime.getRuntime().removeShutdownHook(shutdown);
+            runner.scheduler.shutdownNow();
+            runner.httpExecutor.shutdownNow();
+        }
+    }
+
+    private void run() throws Exception {
+        checkMix();
+        int basePort = options.basePort();
+        Path workDir = options.workDir().toAbsolutePath();
+        result.put("startedAt", LocalDateTime.now().toString());
+        result.put("options", options.toMap());
+
+        long startNanos = System.nanoTime();
+        System.out.println("[准备] 启动内存数据库，写入 " + options.users() + " 个用户、"
+                + (long) options.users() * options.ordersPerUser() + " 个订单");
+        try (LocalDatabase database = LocalDatabase.start(basePort + 92, options.initSql(),
+                options.users(), options.ordersPerUser())) {
+            long maxUserId = database.maxUserId();
+            long maxOrderId = database.maxOrderId();
+            result.put("data", Map.of("users", maxUserId, "orders", maxOrderId));
+
+            ServiceProcess entry = startServices(database, workDir);
+            result.put("startupSeconds", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos));
+            System.out.println("[准备] 全部服务已就绪，日志目录：" + workDir);
+
+            TrafficMix mix = new TrafficMix(options.mix(), entry.baseUrl(),
+                    Duration.ofSeconds(options.timeoutSeconds()), options.clients(), maxUserId, maxOrderId);
+            drive(mix, options.warmupSeconds(), "预热");
+            Map<String, Duration> cpuBefore = cpuTimes();
+            List<EndpointStats> stats = drive(mix, options.durationSeconds(), "压测");
+            report(stats, cpuBefore, cpuTimes());
+        }
+    }
+
+    /**
+     * 响应式订单服务只有查询接口；直接压测订单服务时只能发订单服务自己的接口
+     */
+    private void checkMix() {
+        Map<String, Integer> mix = options.mix();
+        if ("reactive".equals(options.orderImpl()) && mix.getOrDefault("create-order", 0) > 0) {
+            throw new IllegalArgumentException("响应式订单服务只提供查询接口，请在 --mix 中去掉create-order");
+        }
+        if ("order-service".equals(options.entry())) {
+            mix.forEach((name, weight) -> {
+                if (weight > 0 && !name.equals("order") && !name.equals("user-orders")) {
+                    throw new IllegalArgumentException("直接压测订单服务时 --mix 只能包含order、user-orders，不支持: " + name);
+                }
+            });
+        }
+    }
+
+    /**
+     * 按依赖顺序启动服务：注册中心 -> 用户服务、订单服务 -> 网关
+     *
+     * --order-impl=reactive 时用响应式订单服务代替订单服务，以order-service的名字注册；
+     * --entry=order-service 时不启动网关
+     *
+     * @return 接收压测请求的进程：网关或订单服务
+     */
+    private ServiceProcess startServices(LocalDatabase database, Path workDir) throws Exception {
+        int basePort = options.basePort();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.startupTimeoutSeconds());
+        int eurekaPort = ServiceProcess.Service.EUREKA_SERVER.port(basePort);
+
+        Map<String, String> eureka = new LinkedHashMap<>();
+        // 注册表变化尽快对客户端可见，缩短启动时间
+        eureka.put("eureka.server.response-cache-update-interval-ms", "1000");
+        ServiceProcess eurekaServer = start(ServiceProcess.Service.EUREKA_SERVER, eureka, workDir);
+        eurekaServer.awaitReady(client, deadline);
+
+        Map<String, String> discovery = new LinkedHashMap<>();
+        discovery.put("eureka.client.service-url.defaultZone", "http://localhost:" + eurekaPort + "/eureka/");
+        discovery.put("eureka.client.registry-fetch-interval-seconds", "5");
+        discovery.put("eureka.client.initial-instance-info-replication-interval-seconds", "5");
+        discovery.put("spring.cloud.loadbalancer.cache.ttl", "5s");
+
+        Map<String, String> backend = new LinkedHashMap<>(discovery);
+        backend.put("spring.datasource.url", database.jdbcUrl());
+        backend.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        backend.put("spring.datasource.username", "sa");
+        backend.put("spring.datasource.password", "");
+        // 按生产环境的日志级别运行，开发配置中的DEBUG日志会成为瓶颈
+        backend.put("logging.level.com.study", "INFO");
+        ServiceProcess userService = start(ServiceProcess.Service.USER_SERVICE, backend, workDir);
+        ServiceProcess orderService;
+        if ("reactive".equals(options.orderImpl())) {
+            Map<String, String> reactive = new LinkedHashMap<>(discovery);
+            reactive.put("spring.application.name", "order-service");
+            reactive.put("spring.r2dbc.url", database.r2dbcUrl());
+            reactive.put("spring.r2dbc.username", "sa");
+            reactive.put("spring.r2dbc.password", "");
+            // r2dbc-h2通过TCP访问H2是阻塞I/O，不能在Netty事件循环上执行
+            reactive.put("order.r2dbc.blocking-driver", "true");
+            reactive.put("logging.level.com.study", "INFO");
+            orderService = start(ServiceProcess.Service.ORDER_SERVICE_REACTIVE, reactive, workDir);
+        } else {
+            orderService = start(ServiceProcess.Service.ORDER_SERVICE, backend, workDir);
+        }
+        userService.awaitReady(client, deadline);
+        orderService.awaitReady(client, deadline);
+        if ("order-service".equals(options.entry())) {
+            return orderService;
+        }
+
+        Map<String, String> edge = new LinkedHashMap<>(discovery);
+        // 压测请求都来自本机，按X-Forwarded-For区分模拟的客户端
+        edge.put("gateway.rate-limit.trust-forwarded-for", "true");
+        ServiceProcess gateway = start(ServiceProcess.Service.GATEWAY_SERVICE, edge, workDir);
+        // 两条路由都能转发成功，说明网关已经拿到两个服务的实例列表
+        gateway.awaitReady(client, "/user/test", deadline);
+        gateway.awaitReady(client, "/order/test", deadline);
+        return gateway;
+    }
+
+    private ServiceProcess start(ServiceProcess.Service service, Map<String, String> defaults, Path workDir)
+            throws IOException {
+        Map<String, String> properties = new LinkedHashMap<>(defaults);
+        // 命令行中同一个属性出现多次时Spring会把值拼接起来，所以用户指定的参数在这里覆盖默认值
+        for (String arg : options.serviceArgs(service.artifactId())) {
+            int eq = arg.indexOf('=');
+            properties.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        List<String> args = new ArrayList<>();
+        properties.forEach((name, value) -> args.add("--" + name + "=" + value));
+
+        int port = service.port(options.basePort());
+        System.out.println("[准备] 启动 " + service.artifactId() + "，端口 " + port);
+        ServiceProcess process = ServiceProcess.start(service, port, args, options.heap(), workDir,
+                options.projectDir().toAbsolutePath());
+        processes.add(process);
+        return process;
+    }
+
+    /**
+     * 按固定速率发请求
+     *
+     * 每个请求的延迟从它按计划应该发出的时间算起，发送线程被耽误时，排队的时间也计入延迟，
+     * 避免协调遗漏（coordinated omission）让结果偏乐观。
+     * 在途请求达到上限时新请求记为丢弃，不阻塞发送节奏
+     *
+     * @param seconds 持续时间
+     * @param phase 阶段名称
+     * @return 各接口的统计
+     */
+    private List<EndpointStats> drive(TrafficMix mix, int seconds, String phase) throws InterruptedException {
+        List<EndpointStats> stats = new ArrayList<>();
+        for (TrafficMix.Endpoint endpoint : mix.endpoints()) {
+            stats.add(new EndpointStats(endpoint.name()));
+        }
+        if (seconds <= 0) {
+            return stats;
+        }
+        System.out.println("[" + phase + "] " + seconds + "秒，" + options.rate() + "请求/秒");
+
+        Semaphore inflight = new Semaphore(options.maxInflight());
+        double rate = options.rate();
+        long periodNanos = Math.max(TimeUnit.MILLISECONDS.toNanos(1), (long) (1e9 / rate));
+        long startNanos = System.nanoTime();
+        long[] sent = {0};
+        ScheduledFuture<?> ticker = scheduler.scheduleAtFixedRate(() -> {
+            // 到当前时刻为止按计划应该发出的请求数，调度线程被耽误时一次补发
+            long due = (long) ((System.nanoTime() - startNanos) * rate / 1e9);
+            while (sent[0] < due) {
+                long intendedNanos = startNanos + (long) (sent[0] * 1e9 / rate);
+                sent[0]++;
+                TrafficMix.Endpoint endpoint = mix.next();
+                EndpointStats endpointStats = stats.get(endpoint.index());
+                if (!inflight.tryAcquire()) {
+                    endpointStats.dropped();
+                    continue;
+                }
+                client.sendAsync(mix.request(endpoint), HttpResponse.BodyHandlers.ofByteArray())
+                        .whenComplete((response, error) -> {
+                            inflight.release();
+                            if (error != null) {
+                                endpointStats.transportError();
+                            } else {
+                                endpointStats.response(response.statusCode(), isSuccess(response.body()),
+                                        System.nanoTime() - intendedNanos);
+                            }
+                        });
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        TimeUnit.SECONDS.sleep(seconds);
+        ticker.cancel(false);
+        // 等在途请求返回或超时，计入本阶段
+        if (inflight.tryAcquire(options.maxInflight(), options.timeoutSeconds() + 5L, TimeUnit.SECONDS)) {
+            inflight.release(options.maxInflight());
+        }
+        for (EndpointStats endpointStats : stats) {
+            System.out.println("[" + phase + "] " + endpointStats.summary(seconds));
+        }
+        return stats;
+    }
+
+    /**
+     * @param cpuBefore 压测开始时各服务进程累计的CPU时间
+     * @param cpuAfter 压测结束时各服务进程累计的CPU时间
+     */
+    private void report(List<EndpointStats> stats, Map<String, Duration> cpuBefore, Map<String, Duration> cpuAfter)
+            throws IOException {
+        int seconds = options.durationSeconds();
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long attempted = 0;
+        long failed = 0;
+        double throughput = 0;
+        for (EndpointStats endpointStats : stats) {
+            Map<String, Object> map = endpointStats.toMap(seconds);
+            endpoints.put(endpointStats.getName(), map);
+            attempted += endpointStats.attempted();
+            failed += Math.round(endpointStats.attempted() * endpointStats.errorRate());
+            throughput += (double) map.get("throughputPerSecond");
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("attempted", attempted);
+        summary.put("throughputPerSecond", Math.round(throughput * 100) / 100d);
+        summary.put("errorRate", attempted > 0 ? Math.round(failed * 10000d / attempted) / 10000d : 0);
+        result.put("summary", summary);
+        result.put("endpoints", endpoints);
+        result.put("cpu", cpu(cpuBefore, cpuAfter, attempted));
+
+        Path output = options.output().toAbsolutePath();
+        Files.createDirectories(output.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+        System.out.println("[结果] 合计 " + summary + "，详细结果：" + output);
+    }
+
+    /**
+     * 压测期间各服务进程占用的CPU时间，以及平均每个请求的CPU时间。
+     * 比较同一服务的两种实现（如 --order-impl）时，在相同速率下每个请求的CPU时间越少，同样的CPU能承受的流量越大
+     */
+    private static Map<String, Object> cpu(Map<String, Duration> before, Map<String, Duration> after, long attempted) {
+        Map<String, Object> cpu = new LinkedHashMap<>();
+        after.forEach((service, end) -> {
+            Duration start = before.get(service);
+            if (start == null) {
+                return;
+            }
+            double seconds = end.minus(start).toNanos() / 1e9;
+            double perRequest = attempted > 0 ? seconds * 1000 / attempted : 0;
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("seconds", Math.round(seconds * 100) / 100d);
+            map.put("millisPerRequest", Math.round(perRequest * 1000) / 1000d);
+            cpu.put(service, map);
+            System.out.printf("[结果] CPU %-22s %8.2fs  每个请求 %.3fms%n", service, seconds, perRequest);
+        });
+        return cpu;
+    }
+
+    private Map<String, Duration> cpuTimes() {
+        Map<String, Duration> times = new LinkedHashMap<>();
+        synchronized (processes) {
+            for (ServiceProcess process : processes) {
+                Duration cpuTime = process.cpuTime();
+                if (cpuTime != null) {
+                    times.put(process.service().artifactId(), cpuTime);
+                }
+            }
+        }
+        return times;
+    }
+
+    /**
+     * 读取响应体顶层的success字段，遇到其他字段的对象、数组直接跳过，不解析data
+     */
+    private static boolean isSuccess(byte[] body) {
+        try (JsonParser parser = JSON.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("success".equals(name)) {
+                    return value == JsonToken.VALUE_TRUE;
+                }
+                parser.skipChildren();
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void stopServices() {
+        List<ServiceProcess> running;
+        synchronized (processes) {
+            running = new ArrayList<>(processes);
+            processes.clear();
+        }
+        Collections.reverse(running);
+        for (ServiceProcess process : running) {
+            process.close();
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,215 @@
+package com.study.loadtest;
+
+import org.h2.tools.Server;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 代替MySQL的内存数据库
+ *
+ * H2以MySQL兼容模式运行在压测进程内，并开启TCP端口，用户服务和订单服务通过TCP连接同一个库
+ * （响应式订单服务通过R2DBC驱动）。
+ * 表结构和初始数据直接执行 sql/init.sql，只做以下转换：
+ * 1. 跳过CREATE DATABASE、USE，以及末尾用于人工核对的SELECT、SHOW语句
+ * 2. H2中索引名在整个库内唯一，CREATE TABLE中的索引名前面加上表名（两张表都有idx_status）
+ *
+ * 之后再按参数批量写入用户和订单，让查询命中的数据量接近真实情况
+ *
+ * @author SpringCloud学习项目
+ */
+public class LocalDatabase implements AutoCloseable {
+
+    private static final String DATABASE = "springcloud_study";
+
+    private static final String MODE = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER";
+
+    private static final Pattern CREATE_TABLE = Pattern.compile(
+            "CREATE TABLE (?:IF NOT EXISTS )?`?(\\w+)`?", Pattern.CASE_INSENSITIVE);
+
+    private final Server server;
+
+    /**
+     * 一直保持打开，库在压测结束前不会被销毁
+     */
+    private final Connection connection;
+
+    private final int port;
+
+    private LocalDatabase(Server server, Connection connection, int port) {
+        this.server = server;
+        this.connection = connection;
+        this.port = port;
+    }
+
+    /**
+     * 启动数据库，执行初始化脚本并写入压测数据
+     *
+     * @param port TCP端口
+     * @param initSql 初始化脚本
+     * @param users 额外写入的用户数
+     * @param ordersPerUser 每个额外用户的订单数
+     * @return 数据库
+     */
+    public static LocalDatabase start(int port, Path initSql, int users, int ordersPerUser)
+            throws SQLException, IOException {
+        Connection connection = DriverManager.getConnection("jdbc:h2:mem:" + DATABASE + MODE + ";DB_CLOSE_DELAY=-1", "sa", "");
+        Server server = Server.createTcpServer("-tcpPort", String.valueOf(port)).start();
+        LocalDatabase database = new LocalDatabase(server, connection, port);
+        try {
+            database.runInitScript(initSql);
+            database.seed(users, ordersPerUser);
+        } catch (SQLException | IOException | RuntimeException e) {
+            database.close();
+            throw e;
+        }
+        return database;
+    }
+
+    /**
+     * 服务进程使用的JDBC地址
+     */
+    public String jdbcUrl() {
+        return "jdbc:h2:tcp://localhost:" + port + "/mem:" + DATABASE + MODE;
+    }
+
+    /**
+     * 响应式订单服务使用的R2DBC地址，连接选项与JDBC地址相同。
+     * r2dbc-h2的地址只支持mem、file两种协议，TCP连接通过url参数传入完整的H2地址
+     */
+    public String r2dbcUrl() {
+        String url = "tcp://localhost:" + port + "/mem:" + DATABASE + MODE;
+        return "r2dbc:h2:///" + DATABASE + "?url=" + URLEncoder.encode(url, StandardCharsets.UTF_8);
+    }
+
+    public long maxUserId() throws SQLException {
+        return maxId("`user`");
+    }
+
+    public long maxOrderId() throws SQLException {
+        return maxId("orders");
+    }
+
+    @Override
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // 关闭时忽略
+        }
+        server.stop();
+    }
+
+    private void runInitScript(Path initSql) throws IOException, SQLException {
+        String script = Files.readString(initSql, StandardCharsets.UTF_8);
+        try (Statement statement = connection.createStatement()) {
+            for (String sql : split(script)) {
+                String upper = sql.toUpperCase(Locale.ROOT);
+                if (upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")
+                        || upper.startsWith("SELECT") || upper.startsWith("SHOW")) {
+                    continue;
+                }
+                Matcher table = CREATE_TABLE.matcher(sql);
+                if (table.lookingAt()) {
+                    sql = sql.replace("KEY `", "KEY `" + table.group(1) + "_");
+                }
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * 按行尾的分号拆分语句，去掉 -- 注释行
+     */
+    private static List<String> split(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private void seed(int users, int ordersPerUser) throws SQLException {
+        long firstUserId = maxUserId() + 1;
+        LocalDateTime base = LocalDateTime.now().minusDays(30);
+        connection.setAutoCommit(false);
+        try (PreparedStatement user = connection.prepareStatement(
+                "INSERT INTO `user` (username, password, email, phone, status, create_time, update_time) "
+                        + "VALUES (?, ?, ?, ?, 1, ?, ?)");
+             PreparedStatement order = connection.prepareStatement(
+                     "INSERT INTO orders (order_no, user_id, product_name, quantity, price, total_amount, status, "
+                             + "create_time, update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int u = 0; u < users; u++) {
+                Timestamp created = Timestamp.valueOf(base.plusMinutes(u));
+                user.setString(1, "load" + u);
+                user.setString(2, "123456");
+                user.setString(3, "load" + u + "@example.com");
+                user.setString(4, String.valueOf(13900000000L + u));
+                user.setTimestamp(5, created);
+                user.setTimestamp(6, created);
+                user.addBatch();
+                for (int i = 0; i < ordersPerUser; i++) {
+                    int quantity = i % 3 + 1;
+                    BigDecimal price = BigDecimal.valueOf(1999 + (i % 10) * 1000L, 2);
+                    order.setString(1, String.format("LT%08d%04d", u, i));
+                    order.setLong(2, firstUserId + u);
+                    order.setString(3, "压测商品-" + (i % 20));
+                    order.setInt(4, quantity);
+                    order.setBigDecimal(5, price);
+                    order.setBigDecimal(6, price.multiply(BigDecimal.valueOf(quantity)));
+                    order.setInt(7, i % 5 + 1);
+                    order.setTimestamp(8, created);
+                    order.setTimestamp(9, created);
+                    order.addBatch();
+                }
+                if (u % 1000 == 999) {
+                    user.executeBatch();
+                    order.executeBatch();
+                }
+            }
+            user.executeBatch();
+            order.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private long maxId(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.study.loadtest;
+
+import io.r2dbc.h2.H2ConnectionFactoryProvider;
+import org.h2.Driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在本机子进程中运行的一个服务
+ *
+ * 每个服务使用自己的类路径：模块的 target/classes 加上构建时写出的 target/runtime-classpath.txt
+ * （根pom的benchmark profile生成），和单独启动时看到的依赖、application.yml完全一致。
+ * 不能直接用压测程序自己的类路径，那里是各服务依赖的并集，
+ * 网关会因为看到Spring MVC而启动失败，注册中心也会多出数据源等自动配置
+ *
+ * 启动时间基准测试使用 -Pfast-startup 构建的jar（Class-Path指向target/lib），见 {@link #startJar}
+ *
+ * 每个服务的工作目录是 work-dir/服务名，控制台输出写入其中的console.log，
+ * 各服务运行时生成的数据文件（注册表快照、用户缓存等）也都在这个目录下
+ *
+ * @author SpringCloud学习项目
+ */
+public class ServiceProcess implements AutoCloseable {
+
+    /**
+     * 参与压测的服务
+     */
+    public enum Service {
+        EUREKA_SERVER("eureka-server", "com.study.eureka.EurekaServerApplication", 761, "/"),
+        USER_SERVICE("user-service", "com.study.user.UserServiceApplication", 81, "/user/test", Driver.class),
+        ORDER_SERVICE("order-service", "com.study.order.OrderServiceApplication", 82, "/order/test", Driver.class),
+        /**
+         * 订单查询的WebFlux + R2DBC实现，通过R2DBC驱动访问同一个H2库
+         */
+        ORDER_SERVICE_REACTIVE("order-service-reactive", "com.study.order.reactive.ReactiveOrderServiceApplication",
+                83, "/order/test", Driver.class, H2ConnectionFactoryProvider.class),
+        /**
+         * 网关通过路由转发到用户服务成功，说明已经从注册中心拿到了服务列表
+         */
+        GATEWAY_SERVICE("gateway-service", "com.study.gateway.GatewayServiceApplication", 80, "/user/test");
+
+        private final String artifactId;
+        private final String mainClass;
+        private final int portOffset;
+        private final String readyPath;
+        /**
+         * 访问数据库的服务在类路径中追加的H2驱动，每个元素是驱动jar中的一个类
+         */
+        private final List<Class<?>> drivers;
+
+        Service(String artifactId, String mainClass, int portOffset, String readyPath, Class<?>... drivers) {
+            this.artifactId = artifactId;
+            this.mainClass = mainClass;
+            this.portOffset = portOffset;
+            this.readyPath = readyPath;
+            this.drivers = List.of(drivers);
+        }
+
+        public String artifactId() {
+            return artifactId;
+        }
+
+        public int port(int basePort) {
+            return basePort + portOffset;
+        }
+    }
+
+    private final Service service;
+
+    private final int port;
+
+    private final Process process;
+
+    private final Path log;
+
+    private ServiceProcess(Service service, int port, Process process, Path log) {
+        this.service = service;
+        this.port = port;
+        this.process = process;
+        this.log = log;
+    }
+
+    /**
+     * 启动服务进程，不等待就绪
+     *
+     * @param service 服务
+     * @param port 服务端口
+     * @param args 传给服务的参数（--name=value）
+     * @param heap 最大堆
+     * @param workDir 压测工作目录
+     * @param projectDir 项目根目录
+     * @return 服务进程
+     */
+    public static ServiceProcess start(Service service, int port, List<String> args, String heap, Path workDir,
+                                       Path projectDir) throws IOException {
+        return launch(service, port, List.of(), args, heap, workDir, classpathOf(service, projectDir));
+    }
+
+    /**
+     * 以 -Pfast-startup 构建的jar启动服务，不等待就绪
+     *
+     * @param service 服务
+     * @param port 服务端口
+     * @param jvmArgs 额外的JVM参数，例如AppCDS归档、AOT开关
+     * @param args 传给服务的参数（--name=value）
+     * @param heap 最大堆
+     * @param workDir 压测工作目录
+     * @param projectDir 项目根目录
+     * @return 服务进程
+     */
+    public static ServiceProcess startJar(Service service, int port, List<String> jvmArgs, List<String> args,
+                                          String heap, Path workDir, Path projectDir) throws IOException {
+        return launch(service, port, jvmArgs, args, heap, workDir, jarClasspathOf(service, projectDir));
+    }
+
+    private static ServiceProcess launch(Service service, int port, List<String> jvmArgs, List<String> args,
+                                         String heap, Path workDir, String classpath) throws IOException {
+        Path dir = workDir.resolve(service.artifactId);
+        Files.createDirectories(dir);
+        Path log = dir.resolve("console.log");
+
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx" + heap);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-Dstdout.encoding=UTF-8");
+        command.addAll(jvmArgs);
+        command.add(service.mainClass);
+        command.add("--server.port=" + port);
+        command.addAll(args);
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(dir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        // 类路径很长，通过环境变量传递，避免超过命令行长度限制
+        builder.environment().put("CLASSPATH", classpath);
+        return new ServiceProcess(service, port, builder.start(), log);
+    }
+
+    /**
+     * 轮询服务的就绪地址，直到返回2xx
+     *
+     * @param client HTTP客户端
+     * @param deadlineNanos 截止时间（System.nanoTime）
+     */
+    public void awaitReady(HttpClient client, long deadlineNanos) throws IOException, InterruptedException {
+        awaitReady(client, service.readyPath, deadlineNanos);
+    }
+
+    /**
+     * 轮询服务的指定地址，直到返回2xx
+     *
+     * @param client HTTP客户端
+     * @param path 请求路径
+     * @param deadlineNanos 截止时间（System.nanoTime）
+     */
+    public void awaitReady(HttpClient client, String path, long deadlineNanos)
+            throws IOException, InterruptedException {
+        awaitReady(client, path, deadlineNanos, 500);
+    }
+
+    /**
+     * 轮询服务的指定地址，直到返回2xx
+     *
+     * @param client HTTP客户端
+     * @param path 请求路径
+     * @param deadlineNanos 截止时间（System.nanoTime）
+     * @param intervalMillis 轮询间隔，测量启动时间时用较小的值
+     */
+    public void awaitReady(HttpClient client, String path, long deadlineNanos, long intervalMillis)
+            throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl() + path))
+                .timeout(Duration.ofSeconds(5))
+                .GET()
+                .build();
+        while (true) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(service.artifactId + " 进程已退出，日志：" + log.toAbsolutePath()
+                        + System.lineSeparator() + tail(log, 30));
+            }
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() / 100 == 2) {
+                    return;
+                }
+            } catch (IOException e) {
+                // 还没开始监听，继续等待
+            }
+            if (System.nanoTime() > deadlineNanos) {
+                throw new IllegalStateException(service.artifactId + " 启动超时（" + path + "），日志：" + log.toAbsolutePath());
+            }
+            TimeUnit.MILLISECONDS.sleep(intervalMillis);
+        }
+    }
+
+    /**
+     * 进程累计占用的CPU时间（所有线程合计），无法获取时为null
+     */
+    public Duration cpuTime() {
+        return process.info().totalCpuDuration().orElse(null);
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    public Service service() {
+        return service;
+    }
+
+    public Path log() {
+        return log;
+    }
+
+    /**
+     * 先正常停止（SIGTERM，Spring会优雅关闭），超时后强制结束
+     */
+    @Override
+    public void close() {
+        process.destroy();
+        try {
+            if (!process.waitFor(20, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor(10, TimeUnit.SECONDS);
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 服务的运行时类路径：模块自己的classes目录在前，依赖在后；
+     * 访问数据库的服务再加上压测程序自己使用的H2驱动（服务本身只依赖MySQL驱动）
+     */
+    static String classpathOf(Service service, Path projectDir) throws IOException {
+        Path target = projectDir.resolve(service.artifactId).resolve("target");
+        Path dependencies = target.resolve("runtime-classpath.txt");
+        if (!Files.isRegularFile(dependencies)) {
+            throw new IllegalStateException("找不到 " + dependencies.toAbsolutePath()
+                    + "，请先在项目根目录执行 mvn -Pbenchmark -pl load-test -am package");
+        }
+        String classpath = target.resolve("classes").toAbsolutePath() + File.pathSeparator
+                + Files.readString(dependencies, StandardCharsets.UTF_8).trim();
+        for (Class<?> driver : service.drivers) {
+            classpath += File.pathSeparator + jarOf(driver);
+        }
+        return classpath;
+    }
+
+    /**
+     * -Pfast-startup构建的类路径：target/服务名-版本.jar，依赖由jar中的Class-Path指向target/lib。
+     * 运行时的类路径必须以生成AppCDS归档时的类路径开头，所以H2驱动只能追加在最后
+     */
+    static String jarClasspathOf(Service service, Path projectDir) throws IOException {
+        Path target = projectDir.resolve(service.artifactId).resolve("target");
+        Path jar = null;
+        if (Files.isDirectory(target.resolve("lib"))) {
+            try (DirectoryStream<Path> jars = Files.newDirectoryStream(target, service.artifactId + "-*.jar")) {
+                for (Path candidate : jars) {
+                    jar = candidate;
+                }
+            }
+        }
+        if (jar == null) {
+            throw new IllegalStateException("找不到 " + target.toAbsolutePath() + " 下的jar和lib目录"
+                    + "，请先在项目根目录执行 mvn -Pbenchmark,fast-startup -pl load-test -am package");
+        }
+        String classpath = jar.toAbsolutePath().toString();
+        for (Class<?> driver : service.drivers) {
+            classpath += File.pathSeparator + jarOf(driver);
+        }
+        return classpath;
+    }
+
+    private static String jarOf(Class<?> driver) {
+        try {
+            return Path.of(driver.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("无法定位驱动 " + driver.getName(), e);
+        }
+    }
+
+    private static String tail(Path file, int lines) {
+        try {
+            List<String> all = Files.readAllLines(file, StandardCharsets.UTF_8);
+            return String.join(System.lineSeparator(), all.subList(Math.max(0, all.size() - lines), all.size()));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+}
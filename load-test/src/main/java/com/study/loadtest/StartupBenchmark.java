@@ -0,0 +1,242 @@
+package com.study.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 启动时间基准测试
+ *
+ * 比较用户服务、订单服务在几种启动方式下，从启动进程到第一个请求成功返回的时间：
+ * - baseline：-Pfast-startup构建的同一个jar，不开AOT和AppCDS，与平时的启动方式相同
+ * - cds：加载构建时生成的AppCDS归档 target/服务名.jsa
+ * - aot：-Dspring.aot.enabled=true，使用构建时生成的Bean定义代码
+ * - aot-cds：两者都开，即 fast-start.sh 的启动方式
+ *
+ * 注册中心和内存数据库只启动一次。第一个请求会访问数据库（用户服务 /user/1，订单服务 /order/user/1），
+ * 计时包含JVM启动、Spring上下文刷新、注册中心客户端初始化、连接池建立和第一次SQL。
+ * 每一轮中各方式、各服务依次冷启动一个进程，轮流进行，避免机器状态的变化集中影响某一种方式
+ *
+ * 运行方式（在项目根目录）：
+ * mvn -Pbenchmark,fast-startup -pl load-test -am verify -Dstartup-benchmark.skip=false -Dstartup-benchmark.args="--rounds=5"
+ *
+ * @author SpringCloud学习项目
+ */
+public class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    /**
+     * 启动方式
+     */
+    enum Mode {
+        BASELINE("baseline", false, false),
+        CDS("cds", false, true),
+        AOT("aot", true, false),
+        AOT_CDS("aot-cds", true, true);
+
+        private final String name;
+        private final boolean aot;
+        private final boolean cds;
+
+        Mode(String name, boolean aot, boolean cds) {
+            this.name = name;
+            this.aot = aot;
+            this.cds = cds;
+        }
+
+        static Mode of(String name) {
+            for (Mode mode : values()) {
+                if (mode.name.equals(name.trim())) {
+                    return mode;
+                }
+            }
+            throw new IllegalArgumentException("未知的启动方式: " + name + "，可选 baseline、cds、aot、aot-cds");
+        }
+
+        List<String> jvmArgs(ServiceProcess.Service service, Path projectDir) {
+            List<String> args = new ArrayList<>();
+            if (cds) {
+                Path archive = projectDir.resolve(service.artifactId()).resolve("target")
+                        .resolve(service.artifactId() + ".jsa");
+                if (!Files.isRegularFile(archive)) {
+                    throw new IllegalStateException("找不到AppCDS归档 " + archive.toAbsolutePath()
+                            + "，请先在项目根目录执行 mvn -Pbenchmark,fast-startup -pl load-test -am package");
+                }
+                args.add("-XX:SharedArchiveFile=" + archive.toAbsolutePath());
+            }
+            if (aot) {
+                args.add("-Dspring.aot.enabled=true");
+                // 与构建时AOT处理使用的参数一致
+                args.add("-Dspring.cloud.refresh.enabled=false");
+            }
+            return args;
+        }
+    }
+
+    /**
+     * 被测服务和用来判断启动完成的第一个请求
+     */
+    private record Target(ServiceProcess.Service service, String firstRequest) {
+    }
+
+    private static final List<Target> TARGETS = List.of(
+            new Target(ServiceProcess.Service.USER_SERVICE, "/user/1"),
+            new Target(ServiceProcess.Service.ORDER_SERVICE, "/order/user/1"));
+
+    private final LoadTestOptions options;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    /**
+     * 服务 -> 启动方式 -> 每次的结果
+     */
+    private final Map<String, Map<String, List<Run>>> runs = new LinkedHashMap<>();
+
+    private record Run(long firstRequestMillis, Double springSeconds) {
+    }
+
+    public StartupBenchmark(LoadTestOptions options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new StartupBenchmark(new LoadTestOptions(args)).run();
+    }
+
+    private void run() throws Exception {
+        List<Mode> modes = options.modes().stream().map(Mode::of).toList();
+        Path projectDir = options.projectDir().toAbsolutePath();
+        Path workDir = options.workDir().toAbsolutePath();
+        int basePort = options.basePort();
+
+        System.out.println("[准备] 启动内存数据库和注册中心");
+        try (LocalDatabase database = LocalDatabase.start(basePort + 92, options.initSql(),
+                options.users(), options.ordersPerUser())) {
+            int eurekaPort = ServiceProcess.Service.EUREKA_SERVER.port(basePort);
+            try (ServiceProcess eureka = ServiceProcess.start(ServiceProcess.Service.EUREKA_SERVER, eurekaPort,
+                    List.of(), options.heap(), workDir, projectDir)) {
+                eureka.awaitReady(client, deadline());
+
+                List<String> serviceArgs = new ArrayList<>();
+                serviceArgs.add("--eureka.client.service-url.defaultZone=http://localhost:" + eurekaPort + "/eureka/");
+                serviceArgs.add("--spring.datasource.url=" + database.jdbcUrl());
+                serviceArgs.add("--spring.datasource.driver-class-name=org.h2.Driver");
+                serviceArgs.add("--spring.datasource.username=sa");
+                serviceArgs.add("--spring.datasource.password=");
+                serviceArgs.add("--logging.level.com.study=INFO");
+
+                for (int round = 1; round <= options.rounds(); round++) {
+                    for (Mode mode : modes) {
+                        for (Target target : TARGETS) {
+                            Run run = measure(target, mode, serviceArgs, workDir, projectDir);
+                            runs.computeIfAbsent(target.service().artifactId(), key -> new LinkedHashMap<>())
+                                    .computeIfAbsent(mode.name, key -> new ArrayList<>())
+                                    .add(run);
+                            System.out.printf("[第%d轮] %-14s %-9s 首个请求 %6dms  Spring报告 %ss%n", round,
+                                    target.service().artifactId(), mode.name, run.firstRequestMillis(),
+                                    run.springSeconds() != null ? run.springSeconds() : "-");
+                        }
+                    }
+                }
+            }
+        }
+        report(modes);
+    }
+
+    private Run measure(Target target, Mode mode, List<String> serviceArgs, Path workDir, Path projectDir)
+            throws IOException, InterruptedException {
+        ServiceProcess.Service service = target.service();
+        List<String> args = new ArrayList<>(serviceArgs);
+        args.addAll(options.serviceArgs(service.artifactId()));
+
+        List<String> jvmArgs = new ArrayList<>(options.jvmArgs());
+        jvmArgs.addAll(mode.jvmArgs(service, projectDir));
+
+        long start = System.nanoTime();
+        try (ServiceProcess process = ServiceProcess.startJar(service, service.port(options.basePort()),
+                jvmArgs, args, options.heap(), workDir, projectDir)) {
+            process.awaitReady(client, target.firstRequest(), deadline(), 10);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Run(millis, springSeconds(process.log()));
+        }
+    }
+
+    private void report(List<Mode> modes) throws IOException {
+        Map<String, Object> results = new LinkedHashMap<>();
+        runs.forEach((service, byMode) -> {
+            Map<String, Object> serviceResult = new LinkedHashMap<>();
+            Long baseline = byMode.containsKey(Mode.BASELINE.name) ? median(byMode.get(Mode.BASELINE.name)) : null;
+            for (Mode mode : modes) {
+                List<Run> modeRuns = byMode.get(mode.name);
+                long median = median(modeRuns);
+                List<Long> millis = modeRuns.stream().map(Run::firstRequestMillis).sorted().toList();
+                Map<String, Object> map = new LinkedHashMap<>();
+                map.put("medianMillis", median);
+                map.put("minMillis", millis.get(0));
+                map.put("maxMillis", millis.get(millis.size() - 1));
+                map.put("firstRequestMillis", modeRuns.stream().map(Run::firstRequestMillis).toList());
+                map.put("springSeconds", modeRuns.stream().map(Run::springSeconds).toList());
+                String change = "";
+                if (baseline != null && mode != Mode.BASELINE) {
+                    double ratio = Math.round(median * 1000d / baseline) / 1000d;
+                    map.put("vsBaseline", ratio);
+                    change = String.format("  相对baseline %+d%%", Math.round((ratio - 1) * 100));
+                }
+                serviceResult.put(mode.name, map);
+                System.out.printf("[结果] %-14s %-9s 中位数 %6dms  最快 %6dms  最慢 %6dms%s%n", service, mode.name,
+                        median, millis.get(0), millis.get(millis.size() - 1), change);
+            }
+            results.put(service, serviceResult);
+        });
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("finishedAt", LocalDateTime.now().toString());
+        result.put("rounds", options.rounds());
+        result.put("heap", options.heap());
+        result.put("jvmArgs", options.jvmArgs());
+        result.put("results", results);
+        Path output = options.output().toAbsolutePath();
+        Files.createDirectories(output.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+        System.out.println("[结果] 详细结果：" + output);
+    }
+
+    private long deadline() {
+        return System.nanoTime() + TimeUnit.SECONDS.toNanos(options.startupTimeoutSeconds());
+    }
+
+    private static long median(List<Run> modeRuns) {
+        List<Long> millis = modeRuns.stream().map(Run::firstRequestMillis).sorted().toList();
+        return millis.get(millis.size() / 2);
+    }
+
+    /**
+     * Spring Boot日志中的 "Started XxxApplication in N seconds"，只到上下文就绪，不含第一个请求
+     */
+    private static Double springSeconds(Path log) {
+        try {
+            Matcher matcher = STARTED.matcher(Files.readString(log, StandardCharsets.UTF_8));
+            return matcher.find() ? Double.valueOf(matcher.group(1)) : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.study.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 流量组成：按权重随机选择接口，生成经过网关的请求
+ *
+ * 支持的接口：
+ * - user：GET /user/{id}
+ * - order：GET /order/{id}
+ * - user-orders：GET /order/user/{userId}
+ * - order-detail：GET /bff/order/{id}（网关聚合订单和用户）
+ * - create-order：POST /order/create
+ *
+ * 用户ID和订单ID在库中已有的范围内均匀随机，网关的响应缓存只对重复访问的少量热点生效。
+ * 每个请求带上随机一个模拟客户端的X-Forwarded-For，网关按客户端限流时不会把所有请求算到压测机一个IP上
+ *
+ * @author SpringCloud学习项目
+ */
+public class TrafficMix {
+
+    /**
+     * 一个接口
+     *
+     * @param name 接口名，统计结果按它分组
+     * @param index 在统计数组中的下标
+     */
+    public record Endpoint(String name, int index) {
+    }
+
+    private static final List<String> NAMES = List.of("user", "order", "user-orders", "order-detail", "create-order");
+
+    private final String baseUrl;
+
+    private final Duration timeout;
+
+    private final int clients;
+
+    private final long maxUserId;
+
+    private final long maxOrderId;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+
+    /**
+     * 累计权重，与endpoints一一对应
+     */
+    private final int[] cumulative;
+
+    public TrafficMix(Map<String, Integer> weights, String baseUrl, Duration timeout, int clients,
+                      long maxUserId, long maxOrderId) {
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.clients = clients;
+        this.maxUserId = maxUserId;
+        this.maxOrderId = maxOrderId;
+        this.cumulative = new int[weights.size()];
+        int total = 0;
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            if (!NAMES.contains(entry.getKey())) {
+                throw new IllegalArgumentException("未知的接口: " + entry.getKey() + "，可选: " + NAMES);
+            }
+            if (entry.getValue() <= 0) {
+                continue;
+            }
+            total += entry.getValue();
+            cumulative[endpoints.size()] = total;
+            endpoints.add(new Endpoint(entry.getKey(), endpoints.size()));
+        }
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("流量组成中没有权重大于0的接口");
+        }
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 按权重随机选择一个接口
+     */
+    public Endpoint next() {
+        int total = cumulative[endpoints.size() - 1];
+        int value = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < endpoints.size(); i++) {
+            if (value < cumulative[i]) {
+                return endpoints.get(i);
+            }
+        }
+        return endpoints.get(endpoints.size() - 1);
+    }
+
+    /**
+     * 生成接口的一个请求
+     */
+    public HttpRequest request(Endpoint endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        HttpRequest.Builder builder = switch (endpoint.name()) {
+            case "user" -> get("/user/" + randomId(random, maxUserId));
+            case "order" -> get("/order/" + randomId(random, maxOrderId));
+            case "user-orders" -> get("/order/user/" + randomId(random, maxUserId));
+            case "order-detail" -> get("/bff/order/" + randomId(random, maxOrderId));
+            case "create-order" -> HttpRequest.newBuilder(URI.create(baseUrl + "/order/create"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(createOrderBody(random)));
+            default -> throw new IllegalStateException("未知的接口: " + endpoint.name());
+        };
+        return builder
+                .header("X-Forwarded-For", clientIp(random.nextInt(clients)))
+                .timeout(timeout)
+                .build();
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private String createOrderBody(ThreadLocalRandom random) {
+        int quantity = random.nextInt(1, 4);
+        return "{\"userId\":" + randomId(random, maxUserId)
+                + ",\"productName\":\"压测商品-" + random.nextInt(20) + "\""
+                + ",\"quantity\":" + quantity
+                + ",\"price\":" + (19 + random.nextInt(80)) + ".99}";
+    }
+
+    private static long randomId(ThreadLocalRandom random, long max) {
+        return random.nextLong(1, max + 1);
+    }
+
+    /**
+     * 模拟客户端的IP，10.x.y.z
+     */
+    private static String clientIp(int client) {
+        return "10." + (client >>> 16 & 0xFF) + "." + (client >>> 8 & 0xFF) + "." + (client & 0xFF);
+    }
+}
@@ -0,0 +1,44 @@
+package com.study.order.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+
+/**
+ * 响应式订单服务启动类
+ * 
+ * 订单服务查询接口（/order/{id}、/order/user/{userId}、/order/no/{orderNo}）的WebFlux实现：
+ * 1. Netty事件循环处理请求，不为每个请求占用一个线程
+ * 2. R2DBC非阻塞访问数据库，SQL与订单服务的OrderMapper相同
+ * 3. WebClient非阻塞调用用户服务
+ * 
+ * 返回格式与订单服务完全相同，网关可以把查询路由到这里；
+ * 创建订单、修改状态等写操作仍由订单服务处理
+ * 
+ * @author SpringCloud学习项目
+ */
+// SpringBoot应用启动注解
+@SpringBootApplication
+// 启用服务发现客户端，向注册中心注册
+@EnableDiscoveryClient
+public class ReactiveOrderServiceApplication {
+    
+    /**
+     * 应用程序入口点
+     * 
+     * @param args 命令行参数
+     */
+    public static void main(String[] args) {
+        // 启动SpringBoot应用
+        SpringApplication.run(ReactiveOrderServiceApplication.class, args);
+        
+        System.out.println("\n" +
+                "=================================================\n" +
+                "  响应式订单服务启动成功！\n" +
+                "  服务端口: 8083\n" +
+                "  API文档: http://localhost:8083/order/test\n" +
+                "  该服务已注册到Eureka注册中心\n" +
+                "  只提供订单查询接口（WebFlux + R2DBC）\n" +
+                "=================================================\n");
+    }
+}
@@ -0,0 +1,59 @@
+package com.study.order.reactive.client;
+
+import com.study.common.entity.User;
+import com.study.common.result.Result;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+
+/**
+ * 用户服务客户端（WebClient）
+ * 
+ * 对应订单服务中的UserServiceFeign，只包含查询订单时用到的接口。
+ * 超时时间与订单服务中Feign对user-service的配置相同
+ * 
+ * @author SpringCloud学习项目
+ */
+@Component
+public class UserServiceClient {
+    
+    private static final ParameterizedTypeReference<Result<User>> USER_RESULT = new ParameterizedTypeReference<>() {};
+    
+    private final WebClient webClient;
+    
+    private final Duration readTimeout;
+    
+    public UserServiceClient(WebClient.Builder loadBalancedWebClientBuilder,
+                             @Value("${order.user-service.connect-timeout:3000}") int connectTimeoutMillis,
+                             @Value("${order.user-service.read-timeout:5000}") long readTimeoutMillis) {
+        this.readTimeout = Duration.ofMillis(readTimeoutMillis);
+        HttpClient httpClient = HttpClient.create()
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .responseTimeout(readTimeout);
+        this.webClient = loadBalancedWebClientBuilder
+                .baseUrl("http://user-service")
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+    }
+    
+    /**
+     * 根据用户ID获取用户信息
+     * 
+     * @param id 用户ID
+     * @return 用户服务返回的结果；请求失败时为错误信号，由调用方决定如何降级
+     */
+    public Mono<Result<User>> getUserById(Long id) {
+        return webClient.get()
+                .uri("/user/{id}", id)
+                .retrieve()
+                .bodyToMono(USER_RESULT)
+                .timeout(readTimeout);
+    }
+}
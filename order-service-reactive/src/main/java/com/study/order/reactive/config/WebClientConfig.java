@@ -0,0 +1,29 @@
+package com.study.order.reactive.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * WebClient配置
+ * 
+ * 提供带负载均衡的WebClient.Builder，按服务名（http://user-service）调用，
+ * 实例列表来自注册中心，与订单服务中Feign的行为相同。
+ * 应用Spring Boot的WebClientCustomizer，保留Jackson编解码配置和链路追踪（请求头中传递traceId）
+ * 
+ * @author SpringCloud学习项目
+ */
+@Configuration
+public class WebClientConfig {
+    
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(ObjectProvider<WebClientCustomizer> customizers) {
+        WebClient.Builder builder = WebClient.builder();
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return builder;
+    }
+}
@@ -0,0 +1,93 @@
+package com.study.order.reactive.controller;
+
+import com.study.common.entity.Order;
+import com.study.common.entity.OrderView;
+import com.study.common.result.Result;
+import com.study.order.reactive.service.OrderQueryService;
+import jakarta.annotation.Resource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * 响应式订单查询控制器
+ * 
+ * 路径、参数和返回格式与订单服务的OrderController相同：
+ * 订单不存在返回 Result.error("订单不存在")，出现异常返回 Result.error(异常信息)，HTTP状态码都是200
+ * 
+ * @author SpringCloud学习项目
+ */
+// @Controller + @ResponseBody
+@RestController
+// 请求路径前缀
+@RequestMapping("/order")
+public class ReactiveOrderController {
+    
+    @Resource
+    private OrderQueryService orderQueryService;
+    
+    /**
+     * 测试接口
+     * 
+     * 访问地址：GET http://localhost:8083/order/test
+     * 
+     * @return 测试结果
+     */
+    @GetMapping("/test")
+    public Mono<Result<String>> test() {
+        return Mono.just(Result.success("响应式订单服务运行正常！"));
+    }
+    
+    /**
+     * 根据订单ID查询订单详情
+     * 
+     * 访问地址：GET http://localhost:8083/order/{id}
+     * 
+     * 这个接口会同时获取订单信息和关联的用户信息（用户名、邮箱、手机号）
+     * 
+     * @param id 订单ID
+     * @return 订单详情
+     */
+    @GetMapping("/{id}")
+    public Mono<Result<OrderView>> getOrderById(@PathVariable Long id) {
+        return orderQueryService.getOrderWithUserInfo(id)
+                .map(Result::success)
+                .defaultIfEmpty(Result.error("订单不存在"))
+                .onErrorResume(e -> Mono.just(Result.error(e.getMessage())));
+    }
+    
+    /**
+     * 根据用户ID查询订单列表（含买家信息）
+     * 
+     * 访问地址：GET http://localhost:8083/order/user/{userId}
+     * 
+     * @param userId 用户ID
+     * @return 订单列表
+     */
+    @GetMapping("/user/{userId}")
+    public Mono<Result<List<OrderView>>> getOrdersByUserId(@PathVariable Long userId) {
+        return orderQueryService.getOrdersByUserId(userId)
+                .map(Result::success)
+                .onErrorResume(e -> Mono.just(Result.error(e.getMessage())));
+    }
+    
+    /**
+     * 根据订单编号查询订单
+     * 
+     * 访问地址：GET http://localhost:8083/order/no/{orderNo}
+     * 
+     * @param orderNo 订单编号
+     * @return 订单信息
+     */
+    @GetMapping("/no/{orderNo}")
+    public Mono<Result<Order>> getOrderByOrderNo(@PathVariable String orderNo) {
+        return orderQueryService.getOrderByOrderNo(orderNo)
+                .map(Result::success)
+                .defaultIfEmpty(Result.error("订单不存在"))
+                .onErrorResume(e -> Mono.just(Result.error(e.getMessage())));
+    }
+}
@@ -0,0 +1,107 @@
+package com.study.order.reactive.repository;
+
+import com.study.common.entity.Order;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 订单查询（R2DBC）
+ * 
+ * 与订单服务的OrderMapper对应，查询条件和排序相同，
+ * 列名按下划线转驼峰映射到Order，与MyBatis Plus的map-underscore-to-camel-case一致
+ * 
+ * MySQL驱动（r2dbc-mysql）基于Netty，查询不占用线程，直接在事件循环上执行。
+ * 有的驱动只是把阻塞I/O包装成Publisher（例如压测使用的r2dbc-h2通过TCP访问H2时），
+ * 这时设置 order.r2dbc.blocking-driver=true，查询改到boundedElastic线程池执行，
+ * 避免一次慢查询卡住同一个事件循环上的所有连接
+ * 
+ * @author SpringCloud学习项目
+ */
+@Repository
+public class OrderRepository {
+    
+    /**
+     * orders表的全部列，与MyBatis Plus的selectById生成的列相同
+     */
+    private static final String COLUMNS = "id, order_no, user_id, product_name, quantity, price, total_amount, status, "
+            + "create_time, update_time";
+    
+    private final DatabaseClient databaseClient;
+    
+    /**
+     * 执行查询的线程：非阻塞驱动为当前线程，阻塞驱动为boundedElastic
+     */
+    private final Scheduler scheduler;
+    
+    public OrderRepository(DatabaseClient databaseClient,
+                           @Value("${order.r2dbc.blocking-driver:false}") boolean blockingDriver) {
+        this.databaseClient = databaseClient;
+        this.scheduler = blockingDriver ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+    
+    /**
+     * 根据ID查询订单，对应 OrderMapper.selectById
+     * 
+     * @param id 订单ID
+     * @return 订单，不存在时为空
+     */
+    public Mono<Order> findById(Long id) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM orders WHERE id = :id")
+                .bind("id", id)
+                .map(OrderRepository::toOrder)
+                .one()
+                .subscribeOn(scheduler);
+    }
+    
+    /**
+     * 根据用户ID查询订单列表，对应 OrderMapper.selectByUserId
+     * 
+     * @param userId 用户ID
+     * @return 订单列表，按创建时间倒序
+     */
+    public Flux<Order> findByUserId(Long userId) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM orders WHERE user_id = :userId ORDER BY create_time DESC")
+                .bind("userId", userId)
+                .map(OrderRepository::toOrder)
+                .all()
+                .subscribeOn(scheduler);
+    }
+    
+    /**
+     * 根据订单编号查询订单，对应 OrderMapper.selectByOrderNo
+     * 
+     * @param orderNo 订单编号
+     * @return 订单，不存在时为空
+     */
+    public Mono<Order> findByOrderNo(String orderNo) {
+        return databaseClient.sql("SELECT " + COLUMNS + " FROM orders WHERE order_no = :orderNo")
+                .bind("orderNo", orderNo)
+                .map(OrderRepository::toOrder)
+                .one()
+                .subscribeOn(scheduler);
+    }
+    
+    private static Order toOrder(Readable row) {
+        Order order = new Order();
+        order.setId(row.get("id", Long.class));
+        order.setOrderNo(row.get("order_no", String.class));
+        order.setUserId(row.get("user_id", Long.class));
+        order.setProductName(row.get("product_name", String.class));
+        order.setQuantity(row.get("quantity", Integer.class));
+        order.setPrice(row.get("price", BigDecimal.class));
+        order.setTotalAmount(row.get("total_amount", BigDecimal.class));
+        order.setStatus(row.get("status", Integer.class));
+        order.setCreateTime(row.get("create_time", LocalDateTime.class));
+        order.setUpdateTime(row.get("update_time", LocalDateTime.class));
+        return order;
+    }
+}
@@ -0,0 +1,94 @@
+package com.study.order.reactive.service;
+
+import com.study.common.entity.Order;
+import com.study.common.entity.OrderView;
+import com.study.order.reactive.client.UserServiceClient;
+import com.study.order.reactive.repository.OrderRepository;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单查询服务
+ * 
+ * 与订单服务中OrderService的查询方法逻辑相同，只是换成非阻塞实现：
+ * 数据库查询和调用用户服务都不占用线程等待，结果就绪后在事件循环上继续处理
+ * 
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Service
+public class OrderQueryService {
+    
+    @Resource
+    private OrderRepository orderRepository;
+    
+    @Resource
+    private UserServiceClient userServiceClient;
+    
+    /**
+     * 根据订单ID获取订单详情（包含用户信息）
+     * 
+     * 先查询订单，再调用用户服务获取买家信息，返回格式与订单服务相同（订单字段 + 买家信息）。
+     * 用户服务调用失败时只记录警告，仍然返回订单基本信息，与订单服务相同
+     * 
+     * @param orderId 订单ID
+     * @return 订单详情，不存在时为空
+     */
+    public Mono<OrderView> getOrderWithUserInfo(Long orderId) {
+        return orderRepository.findById(orderId)
+                .map(OrderView::of)
+                .flatMap(view -> fillBuyer(view.getUserId(), List.of(view)).thenReturn(view));
+    }
+    
+    /**
+     * 根据用户ID查询订单列表（包含用户信息）
+     * 
+     * 这些订单的买家是同一个用户，只调用一次用户服务
+     * 
+     * @param userId 用户ID
+     * @return 订单列表，按创建时间倒序
+     */
+    public Mono<List<OrderView>> getOrdersByUserId(Long userId) {
+        return orderRepository.findByUserId(userId)
+                .map(OrderView::of)
+                .collectList()
+                .flatMap(views -> views.isEmpty()
+                        ? Mono.just(views)
+                        : fillBuyer(userId, views).thenReturn(views));
+    }
+    
+    /**
+     * 根据订单编号查询订单
+     * 
+     * @param orderNo 订单编号
+     * @return 订单，不存在时为空
+     */
+    public Mono<Order> getOrderByOrderNo(String orderNo) {
+        return orderRepository.findByOrderNo(orderNo);
+    }
+    
+    /**
+     * 调用用户服务填入买家信息，失败时只返回订单信息，保证核心功能可用
+     */
+    private Mono<Void> fillBuyer(Long userId, List<OrderView> views) {
+        return userServiceClient.getUserById(userId)
+                .doOnNext(userResult -> {
+                    if (userResult.isSuccess() && userResult.getData() != null) {
+                        LocalDateTime now = LocalDateTime.now();
+                        for (OrderView view : views) {
+                            view.applyBuyer(userResult.getData(), now);
+                        }
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("获取用户信息失败：{}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+}
@@ -3,6 +3,7 @@ package com.study.order;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 
 /**
@@ -16,6 +17,8 @@ import org.springframework.cloud.openfeign.EnableFeignClients;
  * 关键注解说明：
  * @EnableDiscoveryClient: 启用服务发现客户端，向注册中心注册
  * @EnableFeignClients: 启用Feign客户端，用于服务间调用
+ * @LoadBalancerClient: 声明要调用的服务，-Pfast-startup构建时（Spring AOT）为它生成负载均衡的子容器，
+ *                      否则AOT方式启动后调用用户服务会失败
  * 
  * Feign是什么？
  * Feign是一个声明式的HTTP客户端，它使得编写HTTP客户端变得更简单
@@ -30,6 +33,8 @@ import org.springframework.cloud.openfeign.EnableFeignClients;
 @EnableDiscoveryClient
 // 启用Feign客户端，用于服务间调用
 @EnableFeignClients
+// 用户服务的负载均衡配置（使用默认配置，见 "快速启动"）
+@LoadBalancerClient(name = "user-service")
 public class OrderServiceApplication {
     
     /**
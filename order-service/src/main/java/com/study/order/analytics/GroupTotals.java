@@ -0,0 +1,158 @@
+package com.study.order.analytics;
+
+/**
+ * 分组汇总：每个分组的订单数、商品数量、金额（分）
+ *
+ * 两种存储方式：
+ * 1. 稠密：分组键本身就是数组下标（商品编号、订单状态），直接累加
+ * 2. 哈希：分组键取值范围大（用户ID、日期），用开放寻址的long哈希表，不装箱
+ *
+ * 每个扫描任务各用一个实例，不加锁，扫描结束后合并
+ *
+ * @author SpringCloud学习项目
+ */
+final class GroupTotals {
+
+    private final boolean dense;
+
+    private long[] keys;
+    private long[] counts;
+    private long[] quantities;
+    private long[] amounts;
+
+    /**
+     * 哈希方式下已使用的槽位数
+     */
+    private int groups;
+
+    private int mask;
+
+    private GroupTotals(boolean dense, int capacity) {
+        this.dense = dense;
+        this.counts = new long[capacity];
+        this.quantities = new long[capacity];
+        this.amounts = new long[capacity];
+        if (!dense) {
+            this.keys = new long[capacity];
+            this.mask = capacity - 1;
+        }
+    }
+
+    /**
+     * @param cardinality 分组键的取值范围 [0, cardinality)
+     */
+    static GroupTotals dense(int cardinality) {
+        return new GroupTotals(true, Math.max(1, cardinality));
+    }
+
+    static GroupTotals hashed() {
+        return new GroupTotals(false, 1024);
+    }
+
+    boolean isDense() {
+        return dense;
+    }
+
+    void addDense(int key, int quantity, long amountCents) {
+        counts[key]++;
+        quantities[key] += quantity;
+        amounts[key] += amountCents;
+    }
+
+    void addHashed(long key, int quantity, long amountCents) {
+        int slot = slotOf(key);
+        counts[slot]++;
+        quantities[slot] += quantity;
+        amounts[slot] += amountCents;
+    }
+
+    /**
+     * 合并另一个扫描任务的结果，两者的存储方式必须相同
+     */
+    void merge(GroupTotals other) {
+        for (int slot = 0; slot < other.counts.length; slot++) {
+            long count = other.counts[slot];
+            if (count == 0) {
+                continue;
+            }
+            int target = dense ? slot : slotOf(other.keys[slot]);
+            counts[target] += count;
+            quantities[target] += other.quantities[slot];
+            amounts[target] += other.amounts[slot];
+        }
+    }
+
+    /**
+     * 槽位数，配合 {@link #count} 等方法遍历，count为0的槽位没有数据
+     */
+    int slots() {
+        return counts.length;
+    }
+
+    long key(int slot) {
+        return dense ? slot : keys[slot];
+    }
+
+    long count(int slot) {
+        return counts[slot];
+    }
+
+    long quantity(int slot) {
+        return quantities[slot];
+    }
+
+    long amount(int slot) {
+        return amounts[slot];
+    }
+
+    /**
+     * 找到key所在的槽位，不存在时占用一个新槽位（count为0表示空槽）
+     */
+    private int slotOf(long key) {
+        int slot = hash(key) & mask;
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (groups + 1 > (mask + 1) * 3 / 4) {
+            grow();
+            return slotOf(key);
+        }
+        keys[slot] = key;
+        groups++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        long[] oldQuantities = quantities;
+        long[] oldAmounts = amounts;
+        int capacity = oldCounts.length * 2;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        quantities = new long[capacity];
+        amounts = new long[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldCounts.length; i++) {
+            if (oldCounts[i] == 0) {
+                continue;
+            }
+            int slot = hash(oldKeys[i]) & mask;
+            while (counts[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            counts[slot] = oldCounts[i];
+            quantities[slot] = oldQuantities[i];
+            amounts[slot] = oldAmounts[i];
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
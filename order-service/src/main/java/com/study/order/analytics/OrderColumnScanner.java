@@ -0,0 +1,215 @@
+package com.study.order.analytics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * 列式快照的并行扫描
+ *
+ * 快照按行号切成若干段，每段一个任务，在独立的ForkJoinPool中并行执行，最后合并各段的 {@link GroupTotals}
+ *
+ * 段内按批（1024行）向量化处理，每个条件一次只看一列：
+ * 1. 先用创建时间过滤整批行，把满足条件的行号写入选择向量
+ * 2. 再依次用状态、商品、用户过滤选择向量，没有指定的条件直接跳过
+ * 3. 最后只对选择向量中的行取分组键累加
+ * 每个循环只访问一两个基本类型数组，循环体没有分支（满足条件时下标+1），JIT容易展开和向量化
+ *
+ * @author SpringCloud学习项目
+ */
+class OrderColumnScanner {
+
+    /**
+     * 过滤条件，未指定的条件用-1表示（时间范围用Long.MIN_VALUE/Long.MAX_VALUE）
+     *
+     * @param fromSeconds 创建时间下限（含）
+     * @param toSeconds 创建时间上限（不含）
+     * @param status 订单状态
+     * @param userId 用户ID
+     * @param productCode 商品编号
+     */
+    record Filter(long fromSeconds, long toSeconds, int status, long userId, int productCode) {
+    }
+
+    private static final int BATCH = 1024;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    /**
+     * 每个任务至少扫描的行数，数据量小时不拆分
+     */
+    private static final int MIN_ROWS_PER_TASK = 64 * 1024;
+
+    private final ForkJoinPool pool;
+
+    OrderColumnScanner(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("order-analytics-scan-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    int parallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * 扫描快照并分组汇总
+     *
+     * @param columns 列数据
+     * @param filter 过滤条件
+     * @param groupBy 分组方式
+     * @return 合并后的分组汇总
+     */
+    GroupTotals scan(OrderColumnStore.Columns columns, Filter filter, OrderAnalyticsEngine.GroupBy groupBy) {
+        int size = columns.size();
+        int tasks = Math.max(1, Math.min(pool.getParallelism(), (size + MIN_ROWS_PER_TASK - 1) / MIN_ROWS_PER_TASK));
+        int rowsPerTask = (size + tasks - 1) / tasks;
+        List<Callable<GroupTotals>> partitions = new ArrayList<>(tasks);
+        for (int start = 0; start < size || partitions.isEmpty(); start += rowsPerTask) {
+            int from = start;
+            int to = Math.min(size, start + rowsPerTask);
+            partitions.add(() -> scanRange(columns, filter, groupBy, from, to));
+        }
+        try {
+            GroupTotals merged = null;
+            for (Future<GroupTotals> future : pool.invokeAll(partitions)) {
+                GroupTotals part = future.get();
+                if (merged == null) {
+                    merged = part;
+                } else {
+                    merged.merge(part);
+                }
+            }
+            return merged;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("订单分析查询被中断");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("订单分析查询失败：" + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static GroupTotals scanRange(OrderColumnStore.Columns columns, Filter filter,
+                                         OrderAnalyticsEngine.GroupBy groupBy, int start, int end) {
+        GroupTotals totals = switch (groupBy) {
+            case NONE -> GroupTotals.dense(1);
+            case PRODUCT -> GroupTotals.dense(columns.products().length);
+            case STATUS -> GroupTotals.dense(256);
+            case USER, DAY -> GroupTotals.hashed();
+        };
+        long[] createSeconds = columns.createSeconds();
+        byte[] statuses = columns.statuses();
+        int[] productCodes = columns.productCodes();
+        long[] userIds = columns.userIds();
+        int[] quantities = columns.quantities();
+        long[] amountCents = columns.amountCents();
+
+        long from = filter.fromSeconds();
+        long to = filter.toSeconds();
+        int status = filter.status();
+        int productCode = filter.productCode();
+        long userId = filter.userId();
+        int[] selection = new int[BATCH];
+
+        for (int batchStart = start; batchStart < end; batchStart += BATCH) {
+            int batchEnd = Math.min(end, batchStart + BATCH);
+            int selected = 0;
+            for (int row = batchStart; row < batchEnd; row++) {
+                long created = createSeconds[row];
+                selection[selected] = row;
+                selected += (created >= from & created < to) ? 1 : 0;
+            }
+            if (status >= 0) {
+                selected = selectEquals(selection, selected, statuses, (byte) status);
+            }
+            if (productCode >= 0) {
+                selected = selectEquals(selection, selected, productCodes, productCode);
+            }
+            if (userId >= 0) {
+                selected = selectEquals(selection, selected, userIds, userId);
+            }
+            if (selected == 0) {
+                continue;
+            }
+            switch (groupBy) {
+                case NONE -> {
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        totals.addDense(0, quantities[row], amountCents[row]);
+                    }
+                }
+                case PRODUCT -> {
+                    int known = columns.products().length;
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        int code = productCodes[row];
+                        // 刷新线程正在覆盖的行可能已经用上了尚未发布的新商品编号，本次查询先跳过
+                        if (code < known) {
+                            totals.addDense(code, quantities[row], amountCents[row]);
+                        }
+                    }
+                }
+                case STATUS -> {
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        totals.addDense(statuses[row] & 0xFF, quantities[row], amountCents[row]);
+                    }
+                }
+                case USER -> {
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        totals.addHashed(userIds[row], quantities[row], amountCents[row]);
+                    }
+                }
+                case DAY -> {
+                    for (int i = 0; i < selected; i++) {
+                        int row = selection[i];
+                        totals.addHashed(Math.floorDiv(createSeconds[row], SECONDS_PER_DAY),
+                                quantities[row], amountCents[row]);
+                    }
+                }
+            }
+        }
+        return totals;
+    }
+
+    private static int selectEquals(int[] selection, int selected, byte[] column, byte value) {
+        int kept = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            selection[kept] = row;
+            kept += column[row] == value ? 1 : 0;
+        }
+        return kept;
+    }
+
+    private static int selectEquals(int[] selection, int selected, int[] column, int value) {
+        int kept = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            selection[kept] = row;
+            kept += column[row] == value ? 1 : 0;
+        }
+        return kept;
+    }
+
+    private static int selectEquals(int[] selection, int selected, long[] column, long value) {
+        int kept = 0;
+        for (int i = 0; i < selected; i++) {
+            int row = selection[i];
+            selection[kept] = row;
+            kept += column[row] == value ? 1 : 0;
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,68 @@
+package com.study.order.changes;
+
+import com.study.common.entity.Order;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单变更的接收方，由 {@link OrderChangeTailer} 在同一个线程中依次调用
+ *
+ * 启动时先按ID分页全量加载（beginLoad → load → endLoad），之后按update_time增量同步（apply）。
+ * 同一个订单可能重复收到（增量同步会回退一段时间重新读取），接收方按订单ID覆盖即可
+ *
+ * @author SpringCloud学习项目
+ */
+public interface OrderChangeListener {
+
+    /**
+     * 名称，用于日志和统计
+     */
+    String name();
+
+    /**
+     * 是否接收订单变更，关闭的功能返回false
+     */
+    boolean isEnabled();
+
+    /**
+     * 已经同步到的update_time，从这里继续增量同步，不需要全量加载
+     *
+     * @return null表示需要全量加载（内存中的数据结构每次启动都需要）
+     */
+    default LocalDateTime resumeFrom() {
+        return null;
+    }
+
+    /**
+     * 开始全量加载。加载失败后会重新开始，接收方应丢弃上一次加载了一半的数据
+     */
+    void beginLoad();
+
+    /**
+     * 全量加载的一页订单，按ID升序
+     *
+     * @param orders 订单（全部字段）
+     */
+    void load(List<Order> orders);
+
+    /**
+     * 全量加载完成，之后只会收到增量变更
+     */
+    void endLoad();
+
+    /**
+     * 增量同步读到的一页变更过的订单，按(update_time, id)升序
+     *
+     * @param orders 订单（全部字段）
+     */
+    void apply(List<Order> orders);
+
+    /**
+     * 一轮增量同步结束，已经追上订单表
+     *
+     * @param watermark 已同步的最大update_time
+     */
+    default void caughtUp(LocalDateTime watermark) {
+    }
+}
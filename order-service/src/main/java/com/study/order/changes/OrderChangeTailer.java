@@ -0,0 +1,288 @@
+package com.study.order.changes;
+
+import com.study.common.entity.Order;
+import com.study.order.mapper.OrderMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 订单变更同步
+ *
+ * 为什么需要它：
+ * 订单分析快照、商品名称搜索索引、订单读模型都需要跟上orders表的变化（包括其他实例的写入和超时取消），
+ * 各自轮询时同样的订单被读取三遍，水位、游标、回退时间的逻辑也重复了三份
+ *
+ * 实现方式：
+ * 1. 启动完成后按ID分页读取一遍订单，分发给需要全量加载的接收方（内存中的快照和索引）；
+ *    读模型这类已经持久化的接收方从自己的update_time继续，不需要全量加载
+ * 2. 之后每隔refresh-interval按(update_time, id)游标读取变更过的订单，每页分发给所有接收方；
+ *    本实例写入订单后可以调用 {@link #requestSync()} 立即同步一次
+ * 3. 游标每次回退refresh-overlap，避免同一秒内更新或延迟提交的订单被漏掉；
+ *    上一次同步开始时已经比水位晚了refresh-overlap以上，说明不晚于水位的订单都已读到，直接从水位继续
+ *
+ * 所有接收方都在同一个线程中调用。某个接收方处理失败时整轮同步失败，水位不前进，下次重新读取
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class OrderChangeTailer {
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "order-change-tailer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final OrderMapper orderMapper;
+
+    private final List<OrderChangeListener> listeners;
+
+    /**
+     * 加载和增量同步时每页读取的订单数
+     */
+    @Value("${order.changes.page-size:10000}")
+    private int pageSize;
+
+    /**
+     * 增量同步间隔
+     */
+    @Value("${order.changes.refresh-interval:1s}")
+    private Duration refreshInterval;
+
+    /**
+     * 每次增量同步回退的时间
+     */
+    @Value("${order.changes.refresh-overlap:5s}")
+    private Duration refreshOverlap;
+
+    /**
+     * 已同步的最大(update_time, id)，只由同步线程更新
+     */
+    private volatile LocalDateTime watermark;
+    private long watermarkId;
+
+    /**
+     * 上一次增量同步开始的时间
+     */
+    private LocalDateTime lastRefreshStartedAt;
+
+    private volatile boolean loaded;
+
+    private final AtomicBoolean syncRequested = new AtomicBoolean();
+
+    private volatile long lastLoadMillis;
+    private volatile long lastLoadRows;
+    private volatile long lastRefreshMillis;
+    private volatile int lastRefreshRows;
+    private volatile long refreshes;
+
+    public OrderChangeTailer(OrderMapper orderMapper, List<OrderChangeListener> listeners) {
+        this.orderMapper = orderMapper;
+        this.listeners = listeners;
+    }
+
+    /**
+     * 应用启动完成后在后台加载并开始增量同步，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabledListeners().isEmpty()) {
+            return;
+        }
+        long interval = refreshInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::safeCatchUp, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 本实例写入了订单，尽快同步一次（异步，合并同时到达的多次请求）
+     */
+    public void requestSync() {
+        if (loaded && syncRequested.compareAndSet(false, true)) {
+            executor.execute(this::safeCatchUp);
+        }
+    }
+
+    /**
+     * 同步一次：第一次先全量加载，之后读取上次同步之后变更过的订单并分发
+     */
+    public void catchUp() {
+        syncRequested.set(false);
+        if (!loaded) {
+            load();
+        }
+        refresh();
+    }
+
+    /**
+     * 同步统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("listeners", enabledListeners().stream().map(OrderChangeListener::name).toList());
+        stats.put("loaded", loaded);
+        stats.put("watermark", watermark);
+        stats.put("lastLoadMillis", lastLoadMillis);
+        stats.put("lastLoadRows", lastLoadRows);
+        stats.put("lastRefreshMillis", lastRefreshMillis);
+        stats.put("lastRefreshRows", lastRefreshRows);
+        stats.put("refreshes", refreshes);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void safeCatchUp() {
+        try {
+            catchUp();
+        } catch (Exception e) {
+            log.error("同步订单变更失败，将在下次同步时重试", e);
+        }
+    }
+
+    private List<OrderChangeListener> enabledListeners() {
+        List<OrderChangeListener> enabled = new ArrayList<>(listeners.size());
+        for (OrderChangeListener listener : listeners) {
+            if (listener.isEnabled()) {
+                enabled.add(listener);
+            }
+        }
+        return enabled;
+    }
+
+    /**
+     * 需要全量加载的接收方按ID分页加载；增量同步从加载开始时的最大update_time
+     * 与其他接收方各自的进度中较早的一个开始
+     */
+    private void load() {
+        long start = System.nanoTime();
+        List<OrderChangeListener> loading = new ArrayList<>();
+        LocalDateTime from = null;
+        boolean fromEpoch = false;
+        for (OrderChangeListener listener : enabledListeners()) {
+            LocalDateTime resume = listener.resumeFrom();
+            if (resume == null) {
+                loading.add(listener);
+            } else {
+                from = earliest(from, resume);
+            }
+        }
+
+        long rows = 0;
+        if (!loading.isEmpty()) {
+            // 先记下当前最大的update_time，加载期间发生的变更由之后的增量同步补上
+            LocalDateTime maxUpdateTime = orderMapper.selectMaxUpdateTime();
+            if (maxUpdateTime == null) {
+                fromEpoch = true;
+            } else {
+                from = earliest(from, maxUpdateTime);
+            }
+            for (OrderChangeListener listener : loading) {
+                listener.beginLoad();
+            }
+            long afterId = 0;
+            List<Order> page;
+            do {
+                page = orderMapper.selectPageAfterId(afterId, pageSize);
+                if (!page.isEmpty()) {
+                    for (OrderChangeListener listener : loading) {
+                        listener.load(page);
+                    }
+                    afterId = page.get(page.size() - 1).getId();
+                }
+                rows += page.size();
+            } while (page.size() == pageSize);
+            for (OrderChangeListener listener : loading) {
+                listener.endLoad();
+            }
+        }
+
+        watermark = fromEpoch ? null : from;
+        watermarkId = 0;
+        lastRefreshStartedAt = null;
+        loaded = true;
+        lastLoadRows = rows;
+        lastLoadMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("订单变更同步已启动：全量加载{}个订单（{}），耗时{}ms，增量同步从{}开始",
+                rows, loading.stream().map(OrderChangeListener::name).toList(), lastLoadMillis, watermark);
+    }
+
+    /**
+     * 按(update_time, id)游标读取上次同步之后变更过的订单
+     */
+    private void refresh() {
+        long start = System.nanoTime();
+        LocalDateTime startedAt = LocalDateTime.now();
+        List<OrderChangeListener> targets = enabledListeners();
+        LocalDateTime since;
+        long afterId;
+        if (watermark == null) {
+            since = EPOCH;
+            afterId = 0;
+        } else if (lastRefreshStartedAt != null && lastRefreshStartedAt.minus(refreshOverlap).isAfter(watermark)) {
+            since = watermark;
+            afterId = watermarkId;
+        } else {
+            since = watermark.minus(refreshOverlap);
+            afterId = 0;
+        }
+        LocalDateTime maxUpdateTime = watermark;
+        long maxId = watermarkId;
+        int rows = 0;
+        List<Order> page;
+        do {
+            page = orderMapper.selectUpdatedSince(since, afterId, pageSize);
+            if (!page.isEmpty()) {
+                for (OrderChangeListener listener : targets) {
+                    listener.apply(page);
+                }
+                // 游标按(update_time, id)升序，每页最后一个订单就是目前读到的最大值
+                Order last = page.get(page.size() - 1);
+                since = last.getUpdateTime();
+                afterId = last.getId();
+                if (maxUpdateTime == null || since.isAfter(maxUpdateTime)
+                        || (since.isEqual(maxUpdateTime) && afterId > maxId)) {
+                    maxUpdateTime = since;
+                    maxId = afterId;
+                }
+            }
+            rows += page.size();
+        } while (page.size() == pageSize);
+
+        watermark = maxUpdateTime;
+        watermarkId = maxId;
+        lastRefreshStartedAt = startedAt;
+        lastRefreshRows = rows;
+        lastRefreshMillis = (System.nanoTime() - start) / 1_000_000;
+        refreshes++;
+        for (OrderChangeListener listener : targets) {
+            listener.caughtUp(maxUpdateTime);
+        }
+    }
+
+    private static LocalDateTime earliest(LocalDateTime a, LocalDateTime b) {
+        return a == null || b.isBefore(a) ? b : a;
+    }
+}
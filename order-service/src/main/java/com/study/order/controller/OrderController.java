@@ -2,11 +2,26 @@ package com.study.order.controller;
 
 import com.study.common.entity.Order;
 import com.study.common.result.Result;
+import com.study.order.analytics.OrderAnalyticsEngine;
+import com.study.order.changes.OrderChangeTailer;
+import com.study.order.dto.OrderAnalyticsQuery;
+import com.study.order.dto.OrderAnalyticsReport;
+import com.study.order.dto.OrderSearchQuery;
+import com.study.order.dto.OrderSearchResult;
+import com.study.order.search.OrderSearchEngine;
 import com.study.order.service.OrderService;
+import com.study.order.timeout.OrderPaymentTimeoutScheduler;
+import com.study.common.entity.OrderView;
+import com.study.order.view.OrderViewProjector;
+import com.study.order.view.UserChangeSubscriber;
 import jakarta.annotation.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * 订单控制器
@@ -25,6 +40,24 @@ public class OrderController {
     @Resource
     private OrderService orderService;
     
+    @Resource
+    private OrderAnalyticsEngine orderAnalyticsEngine;
+    
+    @Resource
+    private OrderPaymentTimeoutScheduler paymentTimeoutScheduler;
+    
+    @Resource
+    private OrderSearchEngine orderSearchEngine;
+    
+    @Resource
+    private OrderViewProjector orderViewProjector;
+    
+    @Resource
+    private OrderChangeTailer orderChangeTailer;
+    
+    @Resource
+    private UserChangeSubscriber userChangeSubscriber;
+    
     /**
      * 测试接口
      * 
@@ -98,15 +131,15 @@ public class OrderController {
      * 
      * 示例：GET http://localhost:8082/order/1
      * 
-     * 这个接口会同时获取订单信息和关联的用户信息
+     * 这个接口会同时返回订单信息和买家的用户名、邮箱、手机号（来自订单读模型）
      * 
      * @param id 订单ID
      * @return 订单详情
      */
     @GetMapping("/{id}")
-    public Result<Order> getOrderById(@PathVariable Long id) {
+    public Result<OrderView> getOrderById(@PathVariable Long id) {
         try {
-            Order order = orderService.getOrderWithUserInfo(id);
+            OrderView order = orderService.getOrderWithUserInfo(id);
             if (order != null) {
                 return Result.success(order);
             } else {
@@ -129,9 +162,9 @@ public class OrderController {
      * @return 订单列表
      */
     @GetMapping("/user/{userId}")
-    public Result<List<Order>> getOrdersByUserId(@PathVariable Long userId) {
+    public Result<List<OrderView>> getOrdersByUserId(@PathVariable Long userId) {
         try {
-            List<Order> orders = orderService.getOrdersByUserId(userId);
+            List<OrderView> orders = orderService.getOrdersByUserId(userId);
             return Result.success(orders);
         } catch (Exception e) {
             return Result.error(e.getMessage());
@@ -195,4 +228,152 @@ public class OrderController {
             return Result.error(e.getMessage());
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 订单分析查询（过滤 + 分组 + Top-K）
+     * 
+     * 访问地址：GET http://localhost:8082/order/analytics?groupBy=product&metric=quantity&status=2&from=2024-01-01T00:00:00&to=2024-01-08T00:00:00
+     * 请求参数：
+     * - groupBy: 分组方式，none / product / status / user / day，默认product
+     * - metric: 排序指标，orders / quantity / amount，默认orders
+     * - status、userId、product: 过滤条件，可选
+     * - from、to: 创建时间范围[from, to)，ISO格式，可选
+     * - limit: 返回的分组数，最大1000
+     * 
+     * 查询走内存列式快照，不访问数据库，数据有order.changes.refresh-interval左右的延迟
+     * 
+     * @return 分析结果
+     */
+    @GetMapping("/analytics")
+    public Result<OrderAnalyticsReport> analyze(@RequestParam(defaultValue = "product") String groupBy,
+                                                @RequestParam(defaultValue = "orders") String metric,
+                                                @RequestParam(required = false) Integer status,
+                                                @RequestParam(required = false) Long userId,
+                                                @RequestParam(required = false) String product,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                                @RequestParam(defaultValue = "10") int limit) {
+        try {
+            OrderAnalyticsEngine.GroupBy group;
+            OrderAnalyticsEngine.Metric sortBy;
+            try {
+                group = OrderAnalyticsEngine.GroupBy.valueOf(groupBy.toUpperCase(Locale.ROOT));
+                sortBy = OrderAnalyticsEngine.Metric.valueOf(metric.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return Result.error(400, "不支持的分组方式或排序指标：" + groupBy + "，" + metric);
+            }
+            OrderAnalyticsQuery query = new OrderAnalyticsQuery();
+            query.setStatus(status);
+            query.setUserId(userId);
+            query.setProduct(product);
+            query.setFrom(from);
+            query.setTo(to);
+            query.setLimit(Math.min(1000, Math.max(1, limit)));
+            return Result.success(orderAnalyticsEngine.query(query, group, sortBy));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询订单分析快照统计
+     * 
+     * 访问地址：GET http://localhost:8082/order/analytics/stats
+     * 
+     * @return 快照统计信息
+     */
+    @GetMapping("/analytics/stats")
+    public Result<Map<String, Object>> getAnalyticsStats() {
+        return Result.success(orderAnalyticsEngine.stats());
+    }
+    
+    /**
+     * 查询未支付订单超时取消的统计
+     * 
+     * 访问地址：GET http://localhost:8082/order/payment-timeout/stats
+     * 
+     * @return 时间轮统计信息
+     */
+    @GetMapping("/payment-timeout/stats")
+    public Result<Map<String, Object>> getPaymentTimeoutStats() {
+        return Result.success(paymentTimeoutScheduler.stats());
+    }
+    
+    /**
+     * 按商品名称搜索订单
+     * 
+     * 访问地址：GET http://localhost:8082/order/search?keyword=airpods&status=2&from=2024-01-01T00:00:00&to=2024-02-01T00:00:00&page=1&size=20
+     * 请求参数：
+     * - keyword: 商品名称关键词，必填，多个词之间是"并且"，每个词按前缀匹配，不区分大小写
+     * - status: 订单状态，可选
+     * - from、to: 创建时间范围[from, to)，ISO格式，可选
+     * - page、size: 页码（从1开始）和每页条数（最大100），按订单ID从新到旧排列
+     * 
+     * 条件在内存倒排索引中求交集，只有当前页的订单按主键读取数据库；
+     * 其他实例的写入和超时取消有order.changes.refresh-interval左右的延迟
+     * 
+     * @return 搜索结果
+     */
+    @GetMapping("/search")
+    public Result<OrderSearchResult> search(@RequestParam String keyword,
+                                            @RequestParam(required = false) Integer status,
+                                            @RequestParam(required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                            @RequestParam(required = false)
+                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+                                            @RequestParam(defaultValue = "1") int page,
+                                            @RequestParam(defaultValue = "20") int size) {
+        try {
+            OrderSearchQuery query = new OrderSearchQuery();
+            query.setKeyword(keyword);
+            query.setStatus(status);
+            query.setFrom(from);
+            query.setTo(to);
+            query.setPage(Math.max(1, page));
+            query.setSize(Math.min(100, Math.max(1, size)));
+            return Result.success(orderSearchEngine.search(query));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询商品名称搜索索引统计
+     * 
+     * 访问地址：GET http://localhost:8082/order/search/stats
+     * 
+     * @return 索引统计信息
+     */
+    @GetMapping("/search/stats")
+    public Result<Map<String, Object>> getSearchStats() {
+        return Result.success(orderSearchEngine.stats());
+    }
+    
+    /**
+     * 查询订单读模型同步状态（含每个用户服务实例的变更流订阅）
+     * 
+     * 访问地址：GET http://localhost:8082/order/view/stats
+     * 
+     * @return 同步状态
+     */
+    @GetMapping("/view/stats")
+    public Result<Map<String, Object>> getViewStats() {
+        Map<String, Object> stats = orderViewProjector.stats();
+        stats.put("userChangeFeeds", userChangeSubscriber.stats());
+        return Result.success(stats);
+    }
+    
+    /**
+     * 查询订单变更同步状态（订单分析快照、搜索索引、订单读模型共用）
+     * 
+     * 访问地址：GET http://localhost:8082/order/changes/stats
+     * 
+     * @return 同步状态
+     */
+    @GetMapping("/changes/stats")
+    public Result<Map<String, Object>> getChangesStats() {
+        return Result.success(orderChangeTailer.stats());
+    }
+}
@@ -0,0 +1,46 @@
+package com.study.order.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 订单分析查询条件
+ *
+ * 所有过滤条件都是可选的，未指定的条件不参与过滤
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class OrderAnalyticsQuery {
+
+    /**
+     * 订单状态：1-待支付，2-已支付，3-已发货，4-已完成，5-已取消
+     */
+    private Integer status;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 商品名称（精确匹配）
+     */
+    private String product;
+
+    /**
+     * 创建时间下限（含）
+     */
+    private LocalDateTime from;
+
+    /**
+     * 创建时间上限（不含）
+     */
+    private LocalDateTime to;
+
+    /**
+     * 返回的分组数
+     */
+    private int limit = 10;
+}
@@ -0,0 +1,66 @@
+package com.study.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单分析查询结果
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class OrderAnalyticsReport {
+
+    /**
+     * 分组方式：none、product、status、user 或 day
+     */
+    private String groupBy;
+
+    /**
+     * 排序指标：orders、quantity 或 amount
+     */
+    private String metric;
+
+    /**
+     * 快照中的订单总数（扫描的行数）
+     */
+    private long scanned;
+
+    /**
+     * 满足条件的订单数
+     */
+    private long matched;
+
+    /**
+     * 满足条件的商品数量合计
+     */
+    private long quantity;
+
+    /**
+     * 满足条件的订单金额合计
+     */
+    private BigDecimal amount;
+
+    /**
+     * 满足条件的分组数（items只返回前limit个）
+     */
+    private int groups;
+
+    /**
+     * 快照数据截止时间（已同步的最大update_time）
+     */
+    private LocalDateTime asOf;
+
+    /**
+     * 查询耗时（微秒）
+     */
+    private long tookMicros;
+
+    /**
+     * 按指标从大到小排列的前limit个分组
+     */
+    private List<OrderAnalyticsRow> items;
+}
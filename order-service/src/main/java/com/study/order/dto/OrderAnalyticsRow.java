@@ -0,0 +1,34 @@
+package com.study.order.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 订单分析结果中的一个分组
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class OrderAnalyticsRow {
+
+    /**
+     * 分组键：商品名称、订单状态、用户ID或日期（yyyy-MM-dd），不分组时为all
+     */
+    private String key;
+
+    /**
+     * 订单数
+     */
+    private long orders;
+
+    /**
+     * 商品数量合计
+     */
+    private long quantity;
+
+    /**
+     * 订单金额合计
+     */
+    private BigDecimal amount;
+}
@@ -0,0 +1,46 @@
+package com.study.order.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 按商品名称搜索订单的条件
+ *
+ * 关键词必填，其余条件可选，未指定的条件不参与过滤
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class OrderSearchQuery {
+
+    /**
+     * 商品名称关键词，多个词之间是"并且"，每个词按前缀匹配，不区分大小写
+     */
+    private String keyword;
+
+    /**
+     * 订单状态：1-待支付，2-已支付，3-已发货，4-已完成，5-已取消
+     */
+    private Integer status;
+
+    /**
+     * 创建时间下限（含）
+     */
+    private LocalDateTime from;
+
+    /**
+     * 创建时间上限（不含）
+     */
+    private LocalDateTime to;
+
+    /**
+     * 页码，从1开始
+     */
+    private int page = 1;
+
+    /**
+     * 每页条数
+     */
+    private int size = 20;
+}
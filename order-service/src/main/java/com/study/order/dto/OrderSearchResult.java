@@ -0,0 +1,46 @@
+package com.study.order.dto;
+
+import com.study.common.entity.Order;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 按商品名称搜索订单的结果
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class OrderSearchResult {
+
+    /**
+     * 满足条件的订单数
+     */
+    private long total;
+
+    /**
+     * 页码
+     */
+    private int page;
+
+    /**
+     * 每页条数
+     */
+    private int size;
+
+    /**
+     * 索引数据截止时间（已同步的最大update_time）
+     */
+    private LocalDateTime asOf;
+
+    /**
+     * 查询耗时（微秒），包括按ID读取本页订单
+     */
+    private long tookMicros;
+
+    /**
+     * 本页订单，按订单ID从新到旧排列
+     */
+    private List<Order> items;
+}
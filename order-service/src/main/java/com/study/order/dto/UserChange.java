@@ -0,0 +1,38 @@
+package com.study.order.dto;
+
+import com.study.common.entity.User;
+import lombok.Data;
+
+/**
+ * 用户变更事件，对应用户服务 GET /user/changes 返回的changes元素
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class UserChange {
+
+    /**
+     * 变更版本号，单调递增
+     */
+    private long version;
+
+    /**
+     * 变更类型：CREATE / UPDATE / DISABLE
+     */
+    private String type;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 变更后的用户信息（不含密码），可能为空
+     */
+    private User user;
+
+    /**
+     * 变更时间（毫秒时间戳）
+     */
+    private long timestamp;
+}
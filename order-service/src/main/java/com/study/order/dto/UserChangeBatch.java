@@ -0,0 +1,39 @@
+package com.study.order.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户变更拉取结果，对应用户服务 GET /user/changes 的返回值
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class UserChangeBatch {
+
+    /**
+     * 变更流纪元，变化说明用户服务重启过，版本号重新开始
+     */
+    private long epoch;
+
+    /**
+     * 是否为压缩快照（每个用户最新的一次变更）
+     */
+    private boolean snapshot;
+
+    /**
+     * 本批次包含的最大版本号，下次拉取时作为since参数
+     */
+    private long version;
+
+    /**
+     * 是否还有未返回的变更，应立即再次拉取
+     */
+    private boolean hasMore;
+
+    /**
+     * 按版本号升序排列的变更
+     */
+    private List<UserChange> changes;
+}
@@ -0,0 +1,39 @@
+package com.study.order.feign;
+
+import com.study.common.result.Result;
+import com.study.order.dto.UserChangeBatch;
+import feign.Request;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * 用户变更流客户端（指定实例）
+ *
+ * 变更流的纪元和版本号只在单个用户服务实例内有意义，不能像 {@link UserServiceFeign} 那样经过负载均衡，
+ * 每个实例单独订阅：由 {@link com.study.order.view.UserChangeSubscriber} 按实例地址
+ * 通过FeignClientBuilder创建，不加@FeignClient注解，不注册为Bean
+ *
+ * @author SpringCloud学习项目
+ */
+public interface UserChangeFeedClient {
+
+    /**
+     * 拉取用户变更（长轮询）
+     *
+     * 没有新变更时用户服务挂起请求，最长timeout毫秒；
+     * options单独指定这次调用的读取超时，需要比timeout长，不受user-service全局读取超时的限制
+     *
+     * @param epoch 上次拉取返回的纪元，首次拉取传null
+     * @param since 已处理到的版本号
+     * @param timeout 最长等待时间（毫秒）
+     * @param limit 最多返回多少条变更
+     * @param options 本次调用的超时设置
+     * @return 变更批次
+     */
+    @GetMapping("/user/changes")
+    Result<UserChangeBatch> getChanges(@RequestParam(value = "epoch", required = false) Long epoch,
+                                       @RequestParam("since") long since,
+                                       @RequestParam("timeout") long timeout,
+                                       @RequestParam("limit") int limit,
+                                       Request.Options options);
+}
@@ -5,6 +5,10 @@ import com.study.common.result.Result;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * 用户服务Feign客户端
@@ -51,6 +55,17 @@ public interface UserServiceFeign {
     @GetMapping("/user/{id}")
     Result<User> getUserById(@PathVariable("id") Long id);
     
+    /**
+     * 根据用户ID批量获取用户信息
+     * 
+     * 订单读模型补齐买家信息时使用，不存在的用户不出现在结果中
+     * 
+     * @param ids 用户ID，最多500个
+     * @return 用户信息列表
+     */
+    @GetMapping("/user/batch")
+    Result<List<User>> getUsersByIds(@RequestParam("ids") Collection<Long> ids);
+    
     /**
      * 测试用户服务连接
      * 
@@ -4,6 +4,9 @@ import com.study.common.entity.User;
 import com.study.common.result.Result;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * 用户服务Feign客户端降级处理类
  * 
@@ -45,6 +48,19 @@ public class UserServiceFeignFallback implements UserServiceFeign {
         return Result.error(500, "用户服务暂时不可用，请稍后重试");
     }
     
+    /**
+     * 批量获取用户信息的降级方法
+     * 
+     * 订单读模型的买家信息暂时补不上，下次同步时重试
+     * 
+     * @param ids 用户ID
+     * @return 降级结果
+     */
+    @Override
+    public Result<List<User>> getUsersByIds(Collection<Long> ids) {
+        return Result.error(500, "用户服务暂时不可用，请稍后重试");
+    }
+    
     /**
      * 测试用户服务的降级方法
      * 
@@ -3,8 +3,11 @@ package com.study.order.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.study.common.entity.Order;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -56,4 +59,71 @@ public interface OrderMapper extends BaseMapper<Order> {
      */
     @Select("SELECT COUNT(*) FROM orders WHERE user_id = #{userId}")
     Integer countByUserId(Long userId);
+    
+    /**
+     * 按ID顺序分页扫描订单（键集分页）
+     * 
+     * 用于订单变更同步的全量加载（分析快照、搜索索引、读模型），每次只读取一页，避免一次性加载全表
+     * 
+     * @param afterId 上一页最后一个订单ID，第一页传0
+     * @param limit 每页条数
+     * @return 订单列表（全部字段）
+     */
+    @Select("SELECT id, order_no, user_id, product_name, quantity, price, total_amount, status, create_time, update_time " +
+            "FROM orders WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Order> selectPageAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+    
+    /**
+     * 查询最近一次更新时间
+     * 
+     * @return 最大的update_time，没有订单时返回null
+     */
+    @Select("SELECT MAX(update_time) FROM orders")
+    LocalDateTime selectMaxUpdateTime();
+    
+    /**
+     * 按(update_time, id)顺序分页读取变更过的订单
+     * 
+     * 游标是上一页最后一条的(update_time, id)，走idx_update_time索引的范围扫描
+     * 
+     * @param since 上一页最后一条的更新时间
+     * @param afterId 上一页最后一条的订单ID，第一页传0
+     * @param limit 每页条数
+     * @return 订单列表（全部字段）
+     */
+    @Select("SELECT id, order_no, user_id, product_name, quantity, price, total_amount, status, create_time, update_time " +
+            "FROM orders WHERE update_time >= #{since} AND (update_time > #{since} OR id > #{afterId}) " +
+            "ORDER BY update_time, id LIMIT #{limit}")
+    List<Order> selectUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") long afterId,
+                                   @Param("limit") int limit);
+    
+    /**
+     * 按ID顺序分页读取指定状态的订单，只取ID和创建时间
+     * 
+     * 用于启动时重建未支付订单的超时时间轮，(status, id)正好是idx_status索引的顺序
+     * 
+     * @param status 订单状态
+     * @param afterId 上一页最后一个订单ID，第一页传0
+     * @param limit 每页条数
+     * @return 订单列表（只有id和createTime）
+     */
+    @Select("SELECT id, create_time FROM orders WHERE status = #{status} AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Order> selectIdsByStatusAfterId(@Param("status") int status, @Param("afterId") long afterId,
+                                         @Param("limit") int limit);
+    
+    /**
+     * 批量取消超时未支付的订单
+     * 
+     * 带上状态和创建时间条件，已支付、已取消或还没到期的订单不受影响，重复执行也没有副作用
+     * 
+     * @param ids 订单ID
+     * @param createdBefore 创建时间不晚于它的订单才取消
+     * @param updateTime 更新时间
+     * @return 实际取消的订单数
+     */
+    @Update("<script>UPDATE orders SET status = 5, update_time = #{updateTime} " +
+            "WHERE status = 1 AND create_time &lt;= #{createdBefore} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int cancelUnpaid(@Param("ids") long[] ids, @Param("createdBefore") LocalDateTime createdBefore,
+                     @Param("updateTime") LocalDateTime updateTime);
 }
\ No newline at end of file
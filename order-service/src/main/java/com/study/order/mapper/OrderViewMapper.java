@@ -0,0 +1,113 @@
+package com.study.order.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.study.common.entity.Order;
+import com.study.common.entity.OrderView;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 订单读模型数据访问层接口
+ *
+ * order_view表只由OrderViewProjector写入：订单字段和买家信息分别更新，互不覆盖。
+ * 多个订单服务实例同时写入，两类写入都带版本条件：订单字段按update_time，买家信息按用户的update_time，
+ * 较旧的数据不会覆盖较新的数据
+ *
+ * @author SpringCloud学习项目
+ */
+@Mapper
+public interface OrderViewMapper extends BaseMapper<OrderView> {
+
+    /**
+     * 根据用户ID查询订单列表（含买家信息），排序与OrderMapper.selectByUserId相同
+     *
+     * @param userId 用户ID
+     * @return 订单列表
+     */
+    @Select("SELECT * FROM order_view WHERE user_id = #{userId} ORDER BY create_time DESC")
+    List<OrderView> selectByUserId(Long userId);
+
+    /**
+     * 已同步的最大订单更新时间，服务重启后从这里继续增量同步
+     *
+     * @return 最大的update_time，表为空时返回null
+     */
+    @Select("SELECT MAX(update_time) FROM order_view")
+    LocalDateTime selectMaxUpdateTime();
+
+    /**
+     * 批量写入订单字段：新订单插入（买家信息为空），已有的订单只更新订单字段，不动买家信息；
+     * 已有的订单update_time更新时才覆盖（update_time放在最后赋值，前面的条件读到的是原来的值）
+     *
+     * @param orders 订单（需要全部字段）
+     * @return 影响行数
+     */
+    @Insert("<script>INSERT INTO order_view (id, order_no, user_id, product_name, quantity, price, total_amount, " +
+            "status, create_time, update_time) VALUES " +
+            "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.id}, #{o.orderNo}, #{o.userId}, #{o.productName}, #{o.quantity}, #{o.price}, #{o.totalAmount}, " +
+            "#{o.status}, #{o.createTime}, #{o.updateTime})</foreach> " +
+            "ON DUPLICATE KEY UPDATE " +
+            "order_no = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(order_no) ELSE order_no END, " +
+            "product_name = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(product_name) ELSE product_name END, " +
+            "quantity = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(quantity) ELSE quantity END, " +
+            "price = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(price) ELSE price END, " +
+            "total_amount = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(total_amount) ELSE total_amount END, " +
+            "status = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(status) ELSE status END, " +
+            "create_time = CASE WHEN VALUES(update_time) >= update_time THEN VALUES(create_time) ELSE create_time END, " +
+            "update_time = GREATEST(update_time, VALUES(update_time))</script>")
+    int upsertOrders(@Param("orders") List<Order> orders);
+
+    /**
+     * 需要补齐或重新核对买家信息的用户：还没有买家信息，或者同步时间早于staleBefore
+     *
+     * @param staleBefore 同步时间早于它的买家信息重新获取
+     * @param limit 最多返回的用户数
+     * @return 用户ID
+     */
+    @Select("SELECT DISTINCT user_id FROM order_view " +
+            "WHERE user_synced_at IS NULL OR user_synced_at < #{staleBefore} LIMIT #{limit}")
+    List<Long> selectUserIdsToSync(@Param("staleBefore") LocalDateTime staleBefore, @Param("limit") int limit);
+
+    /**
+     * 更新一个用户所有订单的买家信息，已经写入更新的用户信息的订单不受影响
+     *
+     * @param userId 用户ID
+     * @param username 用户名
+     * @param email 邮箱
+     * @param phone 手机号
+     * @param userUpdateTime 用户的更新时间，null表示未知（用户不存在），不做版本检查
+     * @param syncedAt 同步时间
+     * @return 影响行数
+     */
+    @Update("<script>UPDATE order_view SET username = #{username}, email = #{email}, phone = #{phone}, " +
+            "user_update_time = #{userUpdateTime}, user_synced_at = #{syncedAt} WHERE user_id = #{userId}" +
+            "<if test='userUpdateTime != null'> AND (user_update_time IS NULL OR user_update_time &lt;= #{userUpdateTime})" +
+            "</if></script>")
+    int updateBuyer(@Param("userId") Long userId, @Param("username") String username, @Param("email") String email,
+                    @Param("phone") String phone, @Param("userUpdateTime") LocalDateTime userUpdateTime,
+                    @Param("syncedAt") LocalDateTime syncedAt);
+
+    /**
+     * 标记一个用户的买家信息需要重新获取（变更事件中没有用户信息时）
+     *
+     * @param userId 用户ID
+     * @return 影响行数
+     */
+    @Update("UPDATE order_view SET user_synced_at = NULL WHERE user_id = #{userId}")
+    int markBuyerStale(Long userId);
+
+    /**
+     * 还没有买家信息的订单数
+     *
+     * @return 订单数
+     */
+    @Select("SELECT COUNT(*) FROM order_view WHERE user_synced_at IS NULL")
+    long countWithoutBuyer();
+}
@@ -0,0 +1,211 @@
+package com.study.order.search;
+
+import com.study.common.entity.Order;
+import com.study.order.changes.OrderChangeListener;
+import com.study.order.dto.OrderSearchQuery;
+import com.study.order.dto.OrderSearchResult;
+import com.study.order.mapper.OrderMapper;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 按商品名称搜索订单
+ *
+ * 为什么需要它：
+ * 客服经常按商品查订单（例如"这个月所有AirPods的订单"），product_name上没有索引，
+ * LIKE '%AirPods%' 只能全表扫描，订单越多越慢，还和下单请求争抢主库
+ *
+ * 实现方式：
+ * 1. 启动完成后由 {@link com.study.order.changes.OrderChangeTailer} 按ID分页把订单加载进内存的倒排索引 {@link OrderSearchIndex}
+ * 2. 下单、修改状态时同步更新索引；其他实例的写入和超时取消等直接修改数据库的变更，
+ *    由订单变更同步按update_time增量同步（与订单分析快照、订单读模型共用一次读取）
+ * 3. 查询在索引中对倒排列表、状态、时间范围求交集，得到满足条件的全部订单ID和总数，
+ *    只有当前页的订单按主键从数据库读取
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class OrderSearchEngine implements OrderChangeListener {
+
+    @Resource
+    private OrderMapper orderMapper;
+
+    /**
+     * 是否启用商品名称搜索
+     */
+    @Value("${order.search.enabled:true}")
+    private boolean enabled;
+
+    private volatile OrderSearchIndex index;
+
+    /**
+     * 正在全量加载的索引，只由同步线程访问
+     */
+    private OrderSearchIndex loading;
+    private long loadSkipped;
+    private long loadStartNanos;
+
+    /**
+     * 已同步的最大update_time
+     */
+    private volatile LocalDateTime watermark;
+
+    private volatile boolean ready;
+    private volatile long lastLoadMillis;
+
+    @Override
+    public String name() {
+        return "search";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void beginLoad() {
+        loadStartNanos = System.nanoTime();
+        loading = new OrderSearchIndex();
+        loadSkipped = 0;
+    }
+
+    @Override
+    public void load(List<Order> orders) {
+        for (Order order : orders) {
+            if (!upsert(loading, order)) {
+                loadSkipped++;
+            }
+        }
+    }
+
+    @Override
+    public void endLoad() {
+        loading.optimize();
+        index = loading;
+        ready = true;
+        lastLoadMillis = (System.nanoTime() - loadStartNanos) / 1_000_000;
+        if (loadSkipped > 0) {
+            log.warn("{}个订单的ID超出索引支持的范围，搜索不到", loadSkipped);
+        }
+        log.info("订单搜索索引加载完成：{}个订单，{}个词，约{}MB，耗时{}ms", loading.size(), loading.termCount(),
+                loading.memoryBytes() >> 20, lastLoadMillis);
+        loading = null;
+    }
+
+    @Override
+    public void apply(List<Order> orders) {
+        OrderSearchIndex current = index;
+        for (Order order : orders) {
+            upsert(current, order);
+        }
+    }
+
+    @Override
+    public void caughtUp(LocalDateTime watermark) {
+        this.watermark = watermark;
+    }
+
+    /**
+     * 新订单写入索引。索引还在加载时忽略，由加载之后的增量同步补上
+     *
+     * @param order 已保存的订单
+     */
+    public void onOrderCreated(Order order) {
+        OrderSearchIndex current = index;
+        if (current != null && order.getId() != null && order.getStatus() != null) {
+            current.upsert(order.getId(), order.getProductName(), order.getStatus(), order.getCreateTime());
+        }
+    }
+
+    /**
+     * 订单状态变化
+     *
+     * @param orderId 订单ID
+     * @param status 新状态
+     */
+    public void onStatusChanged(Long orderId, Integer status) {
+        OrderSearchIndex current = index;
+        if (current != null && orderId != null && status != null) {
+            current.updateStatus(orderId, status);
+        }
+    }
+
+    /**
+     * 按商品名称关键词搜索，结果按订单ID从新到旧分页
+     *
+     * @param query 搜索条件
+     * @return 搜索结果
+     */
+    public OrderSearchResult search(OrderSearchQuery query) {
+        if (!enabled) {
+            throw new RuntimeException("商品名称搜索未启用");
+        }
+        OrderSearchIndex current = index;
+        if (!ready || current == null) {
+            throw new RuntimeException("订单搜索索引正在加载中，请稍后重试");
+        }
+        Set<String> terms = ProductNameTokenizer.queryTerms(query.getKeyword());
+        if (terms.isEmpty()) {
+            throw new RuntimeException("请输入商品名称关键词");
+        }
+        long start = System.nanoTime();
+        RoaringBitmap matched = current.search(terms, query.getStatus(), query.getFrom(), query.getTo());
+        long[] ids = OrderSearchIndex.newestFirst(matched, (long) (query.getPage() - 1) * query.getSize(),
+                query.getSize());
+
+        List<Order> items = new ArrayList<>(ids.length);
+        if (ids.length > 0) {
+            List<Long> idList = new ArrayList<>(ids.length);
+            for (long id : ids) {
+                idList.add(id);
+            }
+            items.addAll(orderMapper.selectBatchIds(idList));
+            items.sort(Comparator.comparing(Order::getId).reversed());
+        }
+
+        OrderSearchResult result = new OrderSearchResult();
+        result.setTotal(matched.getLongCardinality());
+        result.setPage(query.getPage());
+        result.setSize(query.getSize());
+        result.setAsOf(watermark);
+        result.setItems(items);
+        result.setTookMicros((System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * 索引统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        OrderSearchIndex current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("orders", current != null ? current.size() : 0);
+        stats.put("terms", current != null ? current.termCount() : 0);
+        stats.put("memoryBytes", current != null ? current.memoryBytes() : 0);
+        stats.put("watermark", watermark);
+        stats.put("lastLoadMillis", lastLoadMillis);
+        return stats;
+    }
+
+    private static boolean upsert(OrderSearchIndex target, Order order) {
+        return order.getStatus() != null
+                && target.upsert(order.getId(), order.getProductName(), order.getStatus(), order.getCreateTime());
+    }
+}
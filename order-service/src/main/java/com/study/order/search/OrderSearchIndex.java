@@ -0,0 +1,338 @@
+package com.study.order.search;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 订单的商品名称倒排索引
+ *
+ * 倒排列表是订单ID的RoaringBitmap：
+ * 1. 词 -> 包含这个词的订单，词典按字典序排列，关键词按前缀匹配时取一段连续的词做并集
+ * 2. 状态 -> 这个状态的订单，状态变化时从原来的位图移到新的位图
+ * 3. 创建日期 -> 这一天创建的订单。订单ID随创建时间递增，同一天的订单基本是一段连续的ID，
+ *    压缩成游程后每天只有几十字节
+ * 查询先取时间范围涉及的日期位图，再与各个词的倒排列表、状态位图从小到大求交集，
+ * 时间范围首尾不足一天的部分再逐个检查订单的创建时间（按ID分块的int数组，每个订单4字节）
+ *
+ * 订单ID作为位图中的int值，只支持 1 ~ Integer.MAX_VALUE 的ID。
+ * 商品名称下单后不会修改，已经在索引中的订单再次写入时只更新状态
+ *
+ * 读多写少，用读写锁保护：查询持有读锁，下单、状态变化和增量同步持有写锁
+ *
+ * @author SpringCloud学习项目
+ */
+public final class OrderSearchIndex {
+
+    /**
+     * 创建时间保存为相对2000-01-01的秒数（按UTC换算LocalDateTime，与数据库中的datetime一一对应），int可以用到2068年
+     */
+    private static final long BASE_SECONDS = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * 不存在的词、状态返回的空位图，只读
+     */
+    private static final RoaringBitmap EMPTY = new RoaringBitmap();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final TreeMap<String, RoaringBitmap> postings = new TreeMap<>();
+    private final Map<Integer, RoaringBitmap> statuses = new HashMap<>();
+    private final TreeMap<Integer, RoaringBitmap> days = new TreeMap<>();
+    private final RoaringBitmap all = new RoaringBitmap();
+
+    /**
+     * 订单ID -> 创建时间，按ID高位分块，每块65536个订单，用到时才分配
+     */
+    private int[][] createSeconds = new int[16][];
+
+    /**
+     * 写入或更新一个订单
+     *
+     * @param id 订单ID
+     * @param productName 商品名称
+     * @param status 订单状态
+     * @param createTime 创建时间
+     * @return ID超出支持范围时返回false
+     */
+    public boolean upsert(long id, String productName, int status, LocalDateTime createTime) {
+        if (id <= 0 || id > Integer.MAX_VALUE || createTime == null) {
+            return false;
+        }
+        int docId = (int) id;
+        Set<String> terms = ProductNameTokenizer.indexTerms(productName);
+        int seconds = toSeconds(createTime);
+        lock.writeLock().lock();
+        try {
+            if (!all.contains(docId)) {
+                for (String term : terms) {
+                    postings.computeIfAbsent(term, key -> new RoaringBitmap()).add(docId);
+                }
+                days.computeIfAbsent(Math.floorDiv(seconds, SECONDS_PER_DAY), key -> new RoaringBitmap()).add(docId);
+                setCreateSeconds(docId, seconds);
+                all.add(docId);
+            }
+            setStatus(docId, status);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 更新已经在索引中的订单的状态
+     *
+     * @param id 订单ID
+     * @param status 新状态
+     */
+    public void updateStatus(long id, int status) {
+        if (id <= 0 || id > Integer.MAX_VALUE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (all.contains((int) id)) {
+                setStatus((int) id, status);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询满足条件的订单
+     *
+     * @param terms 查询词（{@link ProductNameTokenizer#queryTerms}），每个词按前缀匹配，各词之间求交集
+     * @param status 订单状态，null表示不限
+     * @param from 创建时间下限（含），null表示不限
+     * @param to 创建时间上限（不含），null表示不限
+     * @return 满足条件的订单ID，调用方独占，可以修改
+     */
+    public RoaringBitmap search(Set<String> terms, Integer status, LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            List<RoaringBitmap> filters = new ArrayList<>();
+            for (String term : terms) {
+                filters.add(prefixUnion(term));
+            }
+            if (status != null) {
+                filters.add(statuses.getOrDefault(status, EMPTY));
+            }
+            if (filters.isEmpty()) {
+                return new RoaringBitmap();
+            }
+            // 从基数最小的开始求交集，中间结果尽早变小
+            filters.sort(Comparator.comparingLong(RoaringBitmap::getLongCardinality));
+            long fromSeconds = from != null ? toSeconds(from) : Long.MIN_VALUE;
+            long toSeconds = to != null ? toSeconds(to) : Long.MAX_VALUE;
+            boolean timeRange = from != null || to != null;
+            if (timeRange) {
+                // 时间范围总是第一个：日期位图是一段段连续的ID（游程），与它求交集时范围外的块直接跳过，
+                // 即使它的基数比倒排列表大，代价也只和范围内的订单数有关
+                filters.add(0, daysBetween(fromSeconds, toSeconds));
+            }
+            RoaringBitmap result = filters.size() == 1
+                    ? filters.get(0).clone() : RoaringBitmap.and(filters.get(0), filters.get(1));
+            for (int i = 2; i < filters.size() && !result.isEmpty(); i++) {
+                result.and(filters.get(i));
+            }
+            if (timeRange && !result.isEmpty()) {
+                removeOutside(result, fromSeconds, toSeconds);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 按订单ID从大到小（从新到旧）取出一页
+     *
+     * @param result 查询结果
+     * @param offset 跳过的订单数
+     * @param limit 最多返回的订单数
+     * @return 订单ID
+     */
+    public static long[] newestFirst(RoaringBitmap result, long offset, int limit) {
+        long total = result.getLongCardinality();
+        if (offset >= total || limit <= 0) {
+            return new long[0];
+        }
+        long[] ids = new long[(int) Math.min(limit, total - offset)];
+        int id = result.select((int) (total - 1 - offset));
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = id;
+            if (i + 1 < ids.length) {
+                id = (int) result.previousValue(id - 1);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 压缩位图：连续的ID转为游程，数组按实际大小截断。全量加载完成后调用一次
+     */
+    public void optimize() {
+        lock.writeLock().lock();
+        try {
+            for (RoaringBitmap bitmap : postings.values()) {
+                bitmap.runOptimize();
+                bitmap.trim();
+            }
+            for (RoaringBitmap bitmap : statuses.values()) {
+                bitmap.runOptimize();
+            }
+            for (RoaringBitmap bitmap : days.values()) {
+                bitmap.runOptimize();
+            }
+            all.runOptimize();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 索引中的订单数
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return all.getLongCardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 词典中的词数
+     */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 位图和创建时间数组占用的内存（字节），不含词典本身
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = all.getLongSizeInBytes();
+            for (RoaringBitmap bitmap : postings.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : statuses.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            for (RoaringBitmap bitmap : days.values()) {
+                bytes += bitmap.getLongSizeInBytes();
+            }
+            for (int[] chunk : createSeconds) {
+                if (chunk != null) {
+                    bytes += 4L * chunk.length;
+                }
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 以term开头的所有词的倒排列表的并集，只有一个词时直接返回它的倒排列表（调用方不能修改）
+     */
+    private RoaringBitmap prefixUnion(String term) {
+        NavigableMap<String, RoaringBitmap> matches = postings.subMap(term, true, term + Character.MAX_VALUE, false);
+        if (matches.isEmpty()) {
+            return EMPTY;
+        }
+        if (matches.size() == 1) {
+            return matches.firstEntry().getValue();
+        }
+        return FastAggregation.or(matches.values().iterator());
+    }
+
+    /**
+     * [fromSeconds, toSeconds)涉及的所有日期的订单，首尾两天可能多出范围外的订单
+     */
+    private RoaringBitmap daysBetween(long fromSeconds, long toSeconds) {
+        if (fromSeconds >= toSeconds) {
+            return EMPTY;
+        }
+        int fromDay = (int) Math.max(Integer.MIN_VALUE, Math.floorDiv(fromSeconds, SECONDS_PER_DAY));
+        int lastDay = (int) Math.min(Integer.MAX_VALUE, Math.floorDiv(toSeconds - 1, SECONDS_PER_DAY));
+        Collection<RoaringBitmap> touched = days.subMap(fromDay, true, lastDay, true).values();
+        return touched.isEmpty() ? EMPTY : FastAggregation.or(touched.iterator());
+    }
+
+    /**
+     * 从result中去掉首尾两天里创建时间不在[fromSeconds, toSeconds)内的订单
+     */
+    private void removeOutside(RoaringBitmap result, long fromSeconds, long toSeconds) {
+        int fromDay = (int) Math.max(Integer.MIN_VALUE, Math.floorDiv(fromSeconds, SECONDS_PER_DAY));
+        int lastDay = (int) Math.min(Integer.MAX_VALUE, Math.floorDiv(toSeconds - 1, SECONDS_PER_DAY));
+        for (int day : fromDay == lastDay ? new int[]{fromDay} : new int[]{fromDay, lastDay}) {
+            RoaringBitmap dayBits = days.get(day);
+            if (dayBits == null) {
+                continue;
+            }
+            IntIterator iterator = RoaringBitmap.and(result, dayBits).getIntIterator();
+            while (iterator.hasNext()) {
+                int docId = iterator.next();
+                int seconds = createSeconds[docId >>> CHUNK_BITS][docId & CHUNK_MASK];
+                if (seconds < fromSeconds || seconds >= toSeconds) {
+                    result.remove(docId);
+                }
+            }
+        }
+    }
+
+    private void setStatus(int docId, int status) {
+        for (Map.Entry<Integer, RoaringBitmap> entry : statuses.entrySet()) {
+            if (entry.getKey() != status) {
+                entry.getValue().remove(docId);
+            }
+        }
+        statuses.computeIfAbsent(status, key -> new RoaringBitmap()).add(docId);
+    }
+
+    private void setCreateSeconds(int docId, int seconds) {
+        int chunk = docId >>> CHUNK_BITS;
+        if (chunk >= createSeconds.length) {
+            createSeconds = Arrays.copyOf(createSeconds, Math.max(chunk + 1, createSeconds.length * 2));
+        }
+        if (createSeconds[chunk] == null) {
+            createSeconds[chunk] = new int[CHUNK_SIZE];
+        }
+        createSeconds[chunk][docId & CHUNK_MASK] = seconds;
+    }
+
+    private static int toSeconds(LocalDateTime time) {
+        long seconds = time.toEpochSecond(ZoneOffset.UTC) - BASE_SECONDS;
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, seconds));
+    }
+}
@@ -0,0 +1,96 @@
+package com.study.order.search;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * 商品名称分词
+ *
+ * 转为小写后按字符类别切分，不依赖词典：
+ * 1. 连续的字母、连续的数字各是一个词，"iPhone15 Pro" 切成 iphone、15、pro
+ * 2. 连续的汉字建索引时取每个字和相邻两个字，"蓝牙耳机" 得到 蓝、牙、耳、机、蓝牙、牙耳、耳机；
+ *    查询时两个字以上的取相邻两个字（都要匹配），单个字就是这个字
+ * 3. 其他字符（空格、标点、符号）是分隔符
+ *
+ * @author SpringCloud学习项目
+ */
+public final class ProductNameTokenizer {
+
+    private static final int OTHER = 0;
+    private static final int LETTER = 1;
+    private static final int DIGIT = 2;
+    private static final int HAN = 3;
+
+    private ProductNameTokenizer() {
+    }
+
+    /**
+     * 建索引用的词
+     */
+    public static Set<String> indexTerms(String productName) {
+        return tokenize(productName, true);
+    }
+
+    /**
+     * 查询用的词，结果为空表示关键词里没有可以搜索的字符
+     */
+    public static Set<String> queryTerms(String keyword) {
+        return tokenize(keyword, false);
+    }
+
+    private static Set<String> tokenize(String text, boolean index) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = 0;
+        int runType = OTHER;
+        int i = 0;
+        while (i < lower.length()) {
+            int codePoint = lower.codePointAt(i);
+            int type = typeOf(codePoint);
+            if (type != runType) {
+                addRun(terms, lower, start, i, runType, index);
+                start = i;
+                runType = type;
+            }
+            i += Character.charCount(codePoint);
+        }
+        addRun(terms, lower, start, lower.length(), runType, index);
+        return terms;
+    }
+
+    private static void addRun(Set<String> terms, String text, int start, int end, int type, boolean index) {
+        if (type == OTHER || start == end) {
+            return;
+        }
+        if (type != HAN) {
+            terms.add(text.substring(start, end));
+            return;
+        }
+        int[] chars = text.substring(start, end).codePoints().toArray();
+        if (index || chars.length == 1) {
+            for (int c : chars) {
+                terms.add(new String(Character.toChars(c)));
+            }
+        }
+        for (int k = 0; k + 1 < chars.length; k++) {
+            terms.add(new String(chars, k, 2));
+        }
+    }
+
+    private static int typeOf(int codePoint) {
+        if (Character.UnicodeScript.of(codePoint) == Character.UnicodeScript.HAN) {
+            return HAN;
+        }
+        if (Character.isDigit(codePoint)) {
+            return DIGIT;
+        }
+        if (Character.isLetter(codePoint)) {
+            return LETTER;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,42 @@
+package com.study.order.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 订单编号生成器
+ *
+ * 格式：yyyyMMddHHmmss + 4位随机数（1000-9999）
+ *
+ * 每个请求都会调用，所以格式化器只创建一次（DateTimeFormatter线程安全），
+ * 随机数使用ThreadLocalRandom，不在每次调用时新建Random
+ *
+ * @author SpringCloud学习项目
+ */
+public final class OrderNoGenerator {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private OrderNoGenerator() {
+    }
+
+    /**
+     * 生成订单编号
+     *
+     * @return 订单编号
+     */
+    public static String generate() {
+        return generate(LocalDateTime.now());
+    }
+
+    /**
+     * 按指定时间生成订单编号
+     *
+     * @param time 下单时间
+     * @return 订单编号
+     */
+    public static String generate(LocalDateTime time) {
+        return FORMATTER.format(time) + ThreadLocalRandom.current().nextInt(1000, 10000);
+    }
+}
@@ -4,18 +4,26 @@ import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.study.common.entity.Order;
 import com.study.common.entity.User;
 import com.study.common.result.Result;
+import com.study.order.changes.OrderChangeTailer;
 import com.study.order.feign.UserServiceFeign;
 import com.study.order.mapper.OrderMapper;
+import com.study.order.mapper.OrderViewMapper;
+import com.study.order.search.OrderSearchEngine;
+import com.study.order.timeout.OrderPaymentTimeoutScheduler;
+import com.study.common.entity.OrderView;
+import com.study.order.view.OrderViewProjector;
+import com.study.tracing.hotkey.HotKeyDetector;
 import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
-import java.util.Random;
+import java.util.stream.Collectors;
 
 /**
  * 订单业务逻辑层
@@ -32,16 +40,48 @@ import java.util.Random;
  * @author SpringCloud学习项目
  */
 // Spring服务注解，标识这是一个业务服务类
+@Slf4j
 @Service
 public class OrderService extends ServiceImpl<OrderMapper, Order> {
+
+    /**
+     * 热点Key统计中的分类：订单ID、订单编号、买家用户ID
+     */
+    public static final String HOT_KEY_ORDER = "order";
+    public static final String HOT_KEY_ORDER_NO = "order-no";
+    public static final String HOT_KEY_USER = "user";
     
     // 注入OrderMapper
     @Resource
     private OrderMapper orderMapper;
 
-    // 注入Feign客户端
+    // 注入Feign客户端（第一次调用时才创建，不占用启动时间，见 "快速启动"）
+    @Lazy
     @Resource
     private UserServiceFeign userServiceFeign;
+
+    // 未支付订单超时自动取消
+    @Resource
+    private OrderPaymentTimeoutScheduler paymentTimeoutScheduler;
+
+    // 商品名称搜索索引
+    @Resource
+    private OrderSearchEngine orderSearchEngine;
+
+    // 热点Key统计（tracing模块）
+    @Resource
+    private HotKeyDetector hotKeyDetector;
+
+    // 订单读模型（订单 + 买家信息）
+    @Resource
+    private OrderViewMapper orderViewMapper;
+
+    @Resource
+    private OrderViewProjector orderViewProjector;
+
+    // 订单变更同步（订单分析快照、搜索索引、订单读模型）
+    @Resource
+    private OrderChangeTailer orderChangeTailer;
     
     /**
      * 创建订单
@@ -51,6 +91,9 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
      * 2. 生成订单编号
      * 3. 计算订单总金额
      * 4. 保存订单信息
+     * 5. 登记支付截止时间，超时未支付自动取消
+     * 6. 写入商品名称搜索索引
+     * 7. 写入订单读模型，通知订单变更同步（订单分析快照）
      * 
      * @param order 订单信息
      * @return 创建结果
@@ -73,20 +116,20 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
             }
             
             User user = userResult.getData();
-            System.out.println("获取到用户信息：" + user.getUsername());
+            log.debug("获取到用户信息：{}", user.getUsername());
             
         } catch (Exception e) {
             // 这里演示了微服务调用失败的处理
-            System.err.println("调用用户服务失败：" + e.getMessage());
+            log.warn("调用用户服务失败：{}", e.getMessage());
             throw new RuntimeException("验证用户信息失败：" + e.getMessage());
         }
         
         // 3. 生成订单编号
-        String orderNo = generateOrderNo();
+        String orderNo = OrderNoGenerator.generate();
         order.setOrderNo(orderNo);
         
         // 4. 计算总金额
-        BigDecimal totalAmount = order.getPrice().multiply(new BigDecimal(order.getQuantity()));
+        BigDecimal totalAmount = calculateTotalAmount(order.getPrice(), order.getQuantity());
         order.setTotalAmount(totalAmount);
         
         // 5. 设置默认值
@@ -97,55 +140,94 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
         
         // 6. 保存订单
         int result = orderMapper.insert(order);
+        if (result > 0) {
+            // 7. 登记支付超时
+            paymentTimeoutScheduler.register(order.getId(), order.getCreateTime());
+            // 8. 更新搜索索引
+            orderSearchEngine.onOrderCreated(order);
+            // 9. 写入订单读模型，返回后查询订单详情、订单列表就能看到新订单
+            orderViewProjector.onOrderWritten(order);
+            orderChangeTailer.requestSync();
+        }
         return result > 0;
     }
     
     /**
      * 根据订单ID查询订单详情（包含用户信息）
      * 
-     * 这个方法演示了如何在查询订单的同时获取关联的用户信息
+     * 优先查询订单读模型，一次本地查询拿到订单和买家信息，不依赖用户服务；
+     * 读模型还没有这个订单（刚下单、同步未完成）或还没有买家信息时，
+     * 按原来的方式查询订单并调用用户服务获取买家信息
      * 
      * @param orderId 订单ID
      * @return 订单详情
      */
-    public Order getOrderWithUserInfo(Long orderId) {
+    public OrderView getOrderWithUserInfo(Long orderId) {
         if (orderId == null) {
             return null;
         }
+        hotKeyDetector.record(HOT_KEY_ORDER, orderId);
         
-        // 1. 根据ID查询订单基本信息
+        // 1. 查询订单读模型
+        if (orderViewProjector.isReady()) {
+            OrderView view = orderViewMapper.selectById(orderId);
+            if (view != null && view.getUserSyncedAt() != null) {
+                return view;
+            }
+        }
+        
+        // 2. 根据ID查询订单基本信息
         Order order = orderMapper.selectById(orderId);
         if (order == null) {
             return null;
         }
         
-        // 2. 通过Feign客户端调用用户服务获取用户信息（微服务调用示例）
-        try {
-            Result<User> userResult = userServiceFeign.getUserById(order.getUserId());
-            if (userResult.isSuccess() && userResult.getData() != null) {
-                User user = userResult.getData();
-                System.out.println("订单关联用户：" + user.getUsername());
-                // 这里可以将用户信息设置到订单对象中，或者创建一个包含用户详情的订单DTO返回
-            }
-        } catch (Exception e) {
-            System.err.println("获取用户信息失败：" + e.getMessage());
-            // 即使获取用户信息失败，也返回订单基本信息，保证核心功能可用
-        }
-        
-        return order;
+        // 3. 通过Feign客户端调用用户服务获取用户信息（微服务调用示例）
+        OrderView view = OrderView.of(order);
+        fillBuyer(view.getUserId(), List.of(view));
+        return view;
     }
     
     /**
-     * 根据用户ID查询订单列表
+     * 根据用户ID查询订单列表（包含用户信息）
+     * 
+     * 读模型可用时只查order_view；有订单缺少买家信息时调用一次用户服务补齐
      * 
      * @param userId 用户ID
      * @return 订单列表
      */
-    public List<Order> getOrdersByUserId(Long userId) {
+    public List<OrderView> getOrdersByUserId(Long userId) {
         if (userId == null) {
             return null;
         }
-        return orderMapper.selectByUserId(userId);
+        hotKeyDetector.record(HOT_KEY_USER, userId);
+        List<OrderView> views = orderViewProjector.isReady()
+                ? orderViewMapper.selectByUserId(userId)
+                : orderMapper.selectByUserId(userId).stream().map(OrderView::of).collect(Collectors.toList());
+        List<OrderView> withoutBuyer = views.stream()
+                .filter(view -> view.getUserSyncedAt() == null)
+                .collect(Collectors.toList());
+        if (!withoutBuyer.isEmpty()) {
+            fillBuyer(userId, withoutBuyer);
+        }
+        return views;
+    }
+    
+    /**
+     * 调用用户服务填入买家信息，失败时只返回订单信息，保证核心功能可用
+     */
+    private void fillBuyer(Long userId, List<OrderView> views) {
+        try {
+            Result<User> userResult = userServiceFeign.getUserById(userId);
+            if (userResult.isSuccess() && userResult.getData() != null) {
+                LocalDateTime now = LocalDateTime.now();
+                for (OrderView view : views) {
+                    view.applyBuyer(userResult.getData(), now);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("获取用户信息失败：{}", e.getMessage());
+        }
     }
     
     /**
@@ -166,6 +248,14 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
         order.setUpdateTime(LocalDateTime.now());
         
         int result = orderMapper.updateById(order);
+        if (result > 0) {
+            orderSearchEngine.onStatusChanged(orderId, status);
+            // 读模型需要完整的订单字段，重新读取一次
+            if (orderViewProjector.isEnabled()) {
+                orderViewProjector.onOrderWritten(orderMapper.selectById(orderId));
+            }
+            orderChangeTailer.requestSync();
+        }
         return result > 0;
     }
     
@@ -179,6 +269,7 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
         if (!StringUtils.hasText(orderNo)) {
             return null;
         }
+        hotKeyDetector.record(HOT_KEY_ORDER_NO, orderNo);
         return orderMapper.selectByOrderNo(orderNo);
     }
     
@@ -203,20 +294,15 @@ public class OrderService extends ServiceImpl<OrderMapper, Order> {
     }
     
     /**
-     * 生成订单编号
+     * 计算订单总金额：单价 × 数量
      * 
-     * 格式：yyyyMMddHHmmss + 4位随机数
+     * BigDecimal.valueOf对0~10使用缓存实例，比new BigDecimal(int)少一次分配
      * 
-     * @return 订单编号
+     * @param price 单价
+     * @param quantity 数量
+     * @return 总金额
      */
-    private String generateOrderNo() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-        String timestamp = LocalDateTime.now().format(formatter);
-        
-        Random random = new Random();
-        // 生成4位随机数(1000-9999)作为订单号后缀
-        int randomNum = random.nextInt(9999) + 1000;
-        
-        return timestamp + randomNum;
+    public static BigDecimal calculateTotalAmount(BigDecimal price, int quantity) {
+        return price.multiply(BigDecimal.valueOf(quantity));
     }
 }
\ No newline at end of file
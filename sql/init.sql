@@ -40,9 +40,34 @@ CREATE TABLE IF NOT EXISTS `orders` (
   UNIQUE KEY `uk_order_no` (`order_no`),
   KEY `idx_user_id` (`user_id`),
   KEY `idx_status` (`status`),
-  KEY `idx_create_time` (`create_time`)
+  KEY `idx_create_time` (`create_time`),
+  KEY `idx_update_time` (`update_time`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单表';
 
+-- 创建订单读模型表（订单服务维护，订单详情和用户订单列表只查这一张表）
+-- 订单字段按orders.update_time增量同步，买家信息来自用户服务的变更流，都是异步写入
+CREATE TABLE IF NOT EXISTS `order_view` (
+  `id` bigint(20) NOT NULL COMMENT '订单ID，与orders.id相同',
+  `order_no` varchar(32) NOT NULL COMMENT '订单编号',
+  `user_id` bigint(20) NOT NULL COMMENT '用户ID',
+  `product_name` varchar(200) NOT NULL COMMENT '商品名称',
+  `quantity` int(11) NOT NULL COMMENT '商品数量',
+  `price` decimal(10,2) NOT NULL COMMENT '单价',
+  `total_amount` decimal(10,2) NOT NULL COMMENT '总金额',
+  `status` int(11) NOT NULL COMMENT '订单状态',
+  `create_time` datetime NOT NULL COMMENT '创建时间',
+  `update_time` datetime NOT NULL COMMENT '订单的更新时间，与orders.update_time相同',
+  `username` varchar(50) DEFAULT NULL COMMENT '买家用户名',
+  `email` varchar(100) DEFAULT NULL COMMENT '买家邮箱',
+  `phone` varchar(20) DEFAULT NULL COMMENT '买家手机号',
+  `user_update_time` datetime DEFAULT NULL COMMENT '买家信息对应的用户更新时间，较旧的用户信息不覆盖较新的',
+  `user_synced_at` datetime DEFAULT NULL COMMENT '买家信息同步时间，NULL表示还没有买家信息',
+  PRIMARY KEY (`id`),
+  KEY `idx_user_id` (`user_id`),
+  KEY `idx_update_time` (`update_time`),
+  KEY `idx_user_synced_at` (`user_synced_at`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='订单读模型表（订单 + 买家信息）';
+
 -- 插入测试数据
 
 -- 插入测试用户
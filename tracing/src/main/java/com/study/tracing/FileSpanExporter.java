@@ -0,0 +1,194 @@
+package com.study.tracing;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把Span写入本地文件，每行一个JSON：
+ * {"traceId":"...","spanId":"...","parentSpanId":"...","service":"order-service","name":"http post /order/create",
+ *  "kind":"SERVER","start":"2024-05-20T02:00:00.123456Z","durationMicros":8123,"status":"OK","attributes":{...}}
+ *
+ * 按traceId过滤（grep）即可得到一次请求在本服务中的全部Span；
+ * 各服务的文件合并后按start排序，就是完整的调用链
+ *
+ * 由BatchSpanProcessor的后台线程批量调用，不在请求线程中写文件
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+public class FileSpanExporter implements SpanExporter {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    private static final AttributeKey<String> EXCEPTION_TYPE = AttributeKey.stringKey("exception.type");
+
+    private static final AttributeKey<String> EXCEPTION_MESSAGE = AttributeKey.stringKey("exception.message");
+
+    private final Path file;
+
+    private final long maxBytes;
+
+    private OutputStream out;
+
+    private long written;
+
+    public FileSpanExporter(Path file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            OutputStream stream = open();
+            CountingOutput counting = new CountingOutput(stream);
+            try (JsonGenerator json = JSON.createGenerator(counting, JsonEncoding.UTF8)) {
+                json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+                for (SpanData span : spans) {
+                    write(json, span);
+                    json.writeRaw('\n');
+                }
+            }
+            stream.flush();
+            written += counting.count;
+            if (written >= maxBytes) {
+                rotate();
+            }
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.warn("写入链路文件失败：{}", e.getMessage());
+            closeQuietly();
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        closeQuietly();
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private static void write(JsonGenerator json, SpanData span) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("traceId", span.getTraceId());
+        json.writeStringField("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.writeStringField("parentSpanId", span.getParentSpanId());
+        }
+        String service = span.getResource().getAttribute(SERVICE_NAME);
+        if (service != null) {
+            json.writeStringField("service", service);
+        }
+        json.writeStringField("name", span.getName());
+        json.writeStringField("kind", span.getKind().name());
+        json.writeStringField("start", Instant.ofEpochSecond(0, span.getStartEpochNanos()).toString());
+        json.writeNumberField("durationMicros",
+                TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+        json.writeStringField("status", span.getStatus().getStatusCode().name());
+        if (!span.getStatus().getDescription().isEmpty()) {
+            json.writeStringField("statusDescription", span.getStatus().getDescription());
+        }
+        if (!span.getAttributes().isEmpty()) {
+            json.writeObjectFieldStart("attributes");
+            for (var entry : span.getAttributes().asMap().entrySet()) {
+                json.writeStringField(entry.getKey().getKey(), String.valueOf(entry.getValue()));
+            }
+            json.writeEndObject();
+        }
+        for (EventData event : span.getEvents()) {
+            // 只输出异常，其他事件（例如Micrometer记录的请求开始、结束）对定位耗时没有帮助
+            String message = event.getAttributes().get(EXCEPTION_MESSAGE);
+            String type = event.getAttributes().get(EXCEPTION_TYPE);
+            if (type != null) {
+                json.writeStringField("exception", message != null ? type + ": " + message : type);
+                break;
+            }
+        }
+        json.writeEndObject();
+    }
+
+    private OutputStream open() throws IOException {
+        if (out == null) {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            out = new BufferedOutputStream(Files.newOutputStream(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+            written = Files.size(file);
+        }
+        return out;
+    }
+
+    private void rotate() throws IOException {
+        closeQuietly();
+        Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void closeQuietly() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                // 关闭时忽略
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * 统计写入的字节数，用于判断是否需要切换文件
+     */
+    private static final class CountingOutput extends OutputStream {
+
+        private final OutputStream target;
+
+        private long count;
+
+        CountingOutput(OutputStream target) {
+            this.target = target;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+    }
+}
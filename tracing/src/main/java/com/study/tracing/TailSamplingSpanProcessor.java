@@ -0,0 +1,256 @@
+package com.study.tracing;
+
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.ReadWriteSpan;
+import io.opentelemetry.sdk.trace.ReadableSpan;
+import io.opentelemetry.sdk.trace.SpanProcessor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 尾部采样：请求结束后再决定这次请求的Span是否导出
+ *
+ * 为什么不用Spring Boot默认的按比例采样：
+ * 默认在请求开始时按比例决定是否记录，慢请求和普通请求被丢弃的概率一样，
+ * 真正需要排查的慢请求大多没有链路。这里所有请求都记录Span（记录本身只是内存中的几个对象），
+ * 等本服务内的请求结束、知道了耗时之后再决定：
+ * 1. traceId落在sample-ratio内：直接导出，不需要缓存。按traceId计算，各服务结果一致，链路完整
+ * 2. 其余Span先按traceId缓存，等本服务的入口Span（父Span在其他服务或没有父Span）结束：
+ *    耗时超过slow-threshold或出错则连同缓存的Span一起导出，否则丢弃
+ *
+ * 慢请求只在"慢的那一段"所在的服务中保留：例如订单服务调用用户服务很慢，
+ * 网关和订单服务的入口Span都超过阈值会被保留，用户服务本身如果不慢则不保留，
+ * 此时从订单服务的Feign调用Span可以看到耗时花在网络还是对方处理上
+ *
+ * 导出交给Spring Boot创建的BatchSpanProcessor，它再交给所有SpanExporter（本地文件、OTLP等）
+ *
+ * @author SpringCloud学习项目
+ */
+public class TailSamplingSpanProcessor implements SpanProcessor {
+
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+
+    private final SpanProcessor delegate;
+
+    /**
+     * traceId低64位右移一位后小于该值的链路按比例保留
+     */
+    private final long ratioBound;
+
+    private final long slowNanos;
+
+    private final boolean keepErrors;
+
+    private final int maxPendingSpans;
+
+    private final long pendingTimeoutNanos;
+
+    /**
+     * traceId -> 等待入口Span结束的Span
+     */
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pendingSpans = new AtomicInteger();
+
+    /**
+     * 因为慢或出错而保留的traceId -> 决定的时间，入口Span结束之后才结束的Span据此导出
+     */
+    private final Map<String, Long> keptTraces = new ConcurrentHashMap<>();
+
+    private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+    private final LongAdder keptByRatio = new LongAdder();
+    private final LongAdder keptSlow = new LongAdder();
+    private final LongAdder keptError = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder droppedSpans = new LongAdder();
+    private final LongAdder overflowSpans = new LongAdder();
+    private final LongAdder expiredSpans = new LongAdder();
+
+    public TailSamplingSpanProcessor(TracingProperties properties, SpanProcessor delegate) {
+        this.delegate = delegate;
+        double ratio = Math.max(0, Math.min(1, properties.getSampleRatio()));
+        this.ratioBound = ratio >= 1 ? Long.MAX_VALUE : (long) (ratio * Long.MAX_VALUE);
+        this.slowNanos = properties.getSlowThreshold().toNanos();
+        this.keepErrors = properties.isKeepErrors();
+        this.maxPendingSpans = properties.getMaxPendingSpans();
+        this.pendingTimeoutNanos = properties.getPendingTimeout().toNanos();
+    }
+
+    @Override
+    public void onStart(Context parentContext, ReadWriteSpan span) {
+    }
+
+    @Override
+    public boolean isStartRequired() {
+        return false;
+    }
+
+    @Override
+    public void onEnd(ReadableSpan span) {
+        SpanContext context = span.getSpanContext();
+        String traceId = context.getTraceId();
+        SpanContext parent = span.getParentSpanContext();
+        boolean localRoot = !parent.isValid() || parent.isRemote();
+
+        if (sampledByRatio(traceId)) {
+            if (localRoot) {
+                keptByRatio.increment();
+            }
+            delegate.onEnd(span);
+        } else if (localRoot) {
+            decide(traceId, span);
+        } else {
+            buffer(traceId, span);
+        }
+        sweepIfDue();
+    }
+
+    @Override
+    public boolean isEndRequired() {
+        return true;
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        pending.clear();
+        keptTraces.clear();
+        return delegate.shutdown();
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return delegate.forceFlush();
+    }
+
+    /**
+     * 采样统计
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("keptByRatio", keptByRatio.sum());
+        stats.put("keptSlow", keptSlow.sum());
+        stats.put("keptError", keptError.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("droppedSpans", droppedSpans.sum());
+        stats.put("pendingSpans", pendingSpans.get());
+        stats.put("overflowSpans", overflowSpans.sum());
+        stats.put("expiredSpans", expiredSpans.sum());
+        return stats;
+    }
+
+    /**
+     * 与OpenTelemetry的TraceIdRatioBased采样器相同的算法：取traceId低64位
+     */
+    private boolean sampledByRatio(String traceId) {
+        if (ratioBound == Long.MAX_VALUE) {
+            return true;
+        }
+        long random = Long.parseUnsignedLong(traceId, 16, 32, 16) >>> 1;
+        return random < ratioBound;
+    }
+
+    private void decide(String traceId, ReadableSpan root) {
+        Pending children = pending.remove(traceId);
+        List<ReadableSpan> spans = children != null ? children.close() : List.of();
+        pendingSpans.addAndGet(-spans.size());
+
+        boolean slow = root.getLatencyNanos() >= slowNanos;
+        boolean error = !slow && keepErrors && root.toSpanData().getStatus().getStatusCode() == StatusCode.ERROR;
+        if (!slow && !error) {
+            dropped.increment();
+            droppedSpans.add(spans.size() + 1L);
+            return;
+        }
+        (slow ? keptSlow : keptError).increment();
+        keptTraces.put(traceId, System.nanoTime());
+        for (ReadableSpan span : spans) {
+            delegate.onEnd(span);
+        }
+        delegate.onEnd(root);
+    }
+
+    private void buffer(String traceId, ReadableSpan span) {
+        while (true) {
+            if (keptTraces.containsKey(traceId)) {
+                // 入口Span已经结束并决定保留
+                delegate.onEnd(span);
+                return;
+            }
+            if (pendingSpans.incrementAndGet() > maxPendingSpans) {
+                pendingSpans.decrementAndGet();
+                overflowSpans.increment();
+                return;
+            }
+            Pending spans = pending.computeIfAbsent(traceId, key -> new Pending());
+            if (spans.add(span)) {
+                return;
+            }
+            // 刚好被入口Span取走，重新判断
+            pendingSpans.decrementAndGet();
+            if (!keptTraces.containsKey(traceId)) {
+                droppedSpans.increment();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 每秒最多清理一次：丢弃等待超时的Span，忘记过期的保留决定
+     */
+    private void sweepIfDue() {
+        long now = System.nanoTime();
+        long last = lastSweep.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep.compareAndSet(last, now)) {
+            return;
+        }
+        Iterator<Map.Entry<String, Pending>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Pending> entry = iterator.next();
+            if (now - entry.getValue().createdNanos > pendingTimeoutNanos && pending.remove(entry.getKey(), entry.getValue())) {
+                int size = entry.getValue().close().size();
+                pendingSpans.addAndGet(-size);
+                expiredSpans.add(size);
+            }
+        }
+        keptTraces.values().removeIf(decided -> now - decided > pendingTimeoutNanos);
+    }
+
+    /**
+     * 一个traceId下等待入口Span结束的Span
+     */
+    private static final class Pending {
+
+        private final long createdNanos = System.nanoTime();
+
+        private List<ReadableSpan> spans = new ArrayList<>(4);
+
+        synchronized boolean add(ReadableSpan span) {
+            if (spans == null) {
+                return false;
+            }
+            spans.add(span);
+            return true;
+        }
+
+        /**
+         * 取走全部Span，之后不能再加入
+         */
+        synchronized List<ReadableSpan> close() {
+            List<ReadableSpan> taken = spans != null ? spans : List.of();
+            spans = null;
+            return taken;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.study.tracing;
+
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.autoconfigure.tracing.ConditionalOnEnabledTracing;
+import org.springframework.boot.actuate.autoconfigure.tracing.OpenTelemetryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.tracing.SpanProcessors;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 链路追踪自动配置
+ *
+ * 引入tracing模块即生效：
+ * - 追踪上下文通过W3C traceparent请求头传递（Spring Boot默认），网关转发、WebClient、Feign都会自动带上
+ * - 所有请求都记录Span，由 {@link TailSamplingSpanProcessor} 在请求结束后决定是否导出
+ * - 保留的Span写入本地文件（tracing.file），也会交给其他SpanExporter，
+ *   例如引入opentelemetry-exporter-otlp并配置management.otlp.tracing.endpoint后同时发往OTLP收集器
+ * - 使用MyBatis的服务，每条语句生成一个Span
+ *
+ * tracing.enabled=false关闭采样和导出（恢复Spring Boot默认行为），
+ * management.tracing.enabled=false完全关闭追踪
+ *
+ * @author SpringCloud学习项目
+ */
+@AutoConfiguration(before = OpenTelemetryAutoConfiguration.class)
+@ConditionalOnClass(SdkTracerProvider.class)
+@ConditionalOnEnabledTracing
+@ConditionalOnProperty(prefix = "tracing", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(TracingProperties.class)
+public class TracingAutoConfiguration {
+
+    /**
+     * 全部记录，是否导出在请求结束后决定
+     */
+    @Bean
+    public Sampler tailSampler() {
+        return Sampler.alwaysOn();
+    }
+
+    @Bean
+    public TailSamplingSpanProcessor tailSamplingSpanProcessor(TracingProperties properties,
+                                                               BatchSpanProcessor otelSpanProcessor) {
+        return new TailSamplingSpanProcessor(properties, otelSpanProcessor);
+    }
+
+    /**
+     * Spring Boot的BatchSpanProcessor不直接注册到TracerProvider，只接收尾部采样保留下来的Span
+     */
+    @Bean
+    public SpanProcessors tailSamplingSpanProcessors(TailSamplingSpanProcessor tailSamplingSpanProcessor) {
+        return SpanProcessors.of(List.of(tailSamplingSpanProcessor));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "tracing.file", name = "enabled", matchIfMissing = true)
+    public FileSpanExporter fileSpanExporter(TracingProperties properties) {
+        TracingProperties.File file = properties.getFile();
+        return new FileSpanExporter(Path.of(file.getPath()), file.getMaxSize().toBytes());
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public TracingEndpoint tracingEndpoint(TracingProperties properties, TailSamplingSpanProcessor processor) {
+        return new TracingEndpoint(properties, processor);
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(Interceptor.class)
+    static class MybatisTracingConfiguration {
+
+        /**
+         * MyBatis-Plus自动配置会把容器中的Interceptor加入SqlSessionFactory
+         */
+        @Bean
+        public MybatisObservationInterceptor mybatisObservationInterceptor(ObservationRegistry registry) {
+            return new MybatisObservationInterceptor(registry);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.study.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 采样统计端点：GET /actuator/tracing（需要在management.endpoints.web.exposure.include中暴露）
+ *
+ * 返回当前的采样配置，以及按比例保留、因慢/出错保留、丢弃的请求数
+ *
+ * @author SpringCloud学习项目
+ */
+@Endpoint(id = "tracing")
+public class TracingEndpoint {
+
+    private final TracingProperties properties;
+
+    private final TailSamplingSpanProcessor processor;
+
+    public TracingEndpoint(TracingProperties properties, TailSamplingSpanProcessor processor) {
+        this.properties = properties;
+        this.processor = processor;
+    }
+
+    @ReadOperation
+    public Map<String, Object> tracing() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampleRatio", properties.getSampleRatio());
+        result.put("slowThreshold", properties.getSlowThreshold().toString());
+        result.put("keepErrors", properties.isKeepErrors());
+        result.put("file", properties.getFile().isEnabled() ? properties.getFile().getPath() : null);
+        result.putAll(processor.stats());
+        return result;
+    }
+}
@@ -0,0 +1,77 @@
+package com.study.tracing;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * 链路追踪配置
+ *
+ * 对应application.yml中的tracing配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    /**
+     * 是否启用链路采样和导出，关闭后恢复Spring Boot默认的采样方式
+     * （完全关闭追踪使用 management.tracing.enabled=false）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 按比例保留的链路，0~1
+     * 按traceId计算，同一条链路在各个服务中的结果一致，保留下来的链路是完整的
+     */
+    private double sampleRatio = 0.1;
+
+    /**
+     * 本服务内处理时间超过该值的请求，不论比例都保留
+     */
+    private Duration slowThreshold = Duration.ofMillis(500);
+
+    /**
+     * 出错的请求是否总是保留
+     */
+    private boolean keepErrors = true;
+
+    /**
+     * 等待请求结束时最多缓存的Span数，超过后新结束的Span直接丢弃
+     */
+    private int maxPendingSpans = 20000;
+
+    /**
+     * Span等待所属请求结束的最长时间，超过后丢弃
+     * 正常情况下请求结束时会一起处理，只有请求结束后才结束的异步Span会等到超时
+     */
+    private Duration pendingTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 写入本地文件
+     */
+    private File file = new File();
+
+    @Data
+    public static class File {
+
+        /**
+         * 是否把保留的Span写入本地文件
+         */
+        private boolean enabled = true;
+
+        /**
+         * 文件路径，每行一个Span（JSON）
+         * 同一台机器上部署多个实例时，每个实例需要使用不同的文件
+         */
+        private String path = "./data/traces.jsonl";
+
+        /**
+         * 文件超过该大小后改名为 .1 并重新开始写，只保留一个旧文件
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+    }
+}
@@ -0,0 +1,30 @@
+package com.study.tracing.hotkey;
+
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * 热点Key统计自动配置
+ *
+ * 引入tracing模块即注册HotKeyDetector，业务代码和缓存可以直接注入；
+ * hot-keys.enabled=false时Bean仍然存在，只是不记录、isHot总是false，运行时可以通过 POST /actuator/hotkeys 打开
+ *
+ * @author SpringCloud学习项目
+ */
+@AutoConfiguration
+@EnableConfigurationProperties(HotKeyProperties.class)
+public class HotKeyAutoConfiguration {
+
+    @Bean
+    public HotKeyDetector hotKeyDetector(HotKeyProperties properties) {
+        return new HotKeyDetector(properties);
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public HotKeyEndpoint hotKeyEndpoint(HotKeyDetector hotKeyDetector) {
+        return new HotKeyEndpoint(hotKeyDetector);
+    }
+}
@@ -0,0 +1,151 @@
+package com.study.tracing.hotkey;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 热点Key统计
+ *
+ * 为什么需要它：
+ * 少数用户、订单的访问量可能远高于其他（刷单、热门主播的订单、被反复轮询的订单号），
+ * 出问题时需要知道是哪些Key，缓存也应该优先保留它们；
+ * 按Key计数的Map会随Key的数量无限增长，所以用固定大小的 {@link HotKeySketch} 估计
+ *
+ * 用法：
+ * 1. 业务代码在读取时调用 record("user", userId)，分类名是代码中的常量，不能来自请求参数
+ * 2. 缓存在淘汰时调用 isHot 判断是否热点，优先淘汰非热点
+ * 3. 各分类的Top K在 /actuator/hotkeys 查看
+ *
+ * 每个分类的内存固定，分类数不超过max-categories，所以总内存与Key的数量无关
+ *
+ * @author SpringCloud学习项目
+ */
+public class HotKeyDetector {
+
+    private final HotKeyProperties properties;
+
+    private final Map<String, HotKeySketch> sketches = new ConcurrentHashMap<>();
+
+    private volatile boolean enabled;
+
+    public HotKeyDetector(HotKeyProperties properties) {
+        this.properties = properties;
+        this.enabled = properties.isEnabled();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param category 分类，例如user、order-no
+     * @param key Key，null忽略
+     */
+    public void record(String category, Object key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        HotKeySketch sketch = sketchOf(category);
+        if (sketch != null) {
+            sketch.add(key.toString(), System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * 是否热点Key，未启用时总是false
+     *
+     * @param category 分类
+     * @param key Key
+     */
+    public boolean isHot(String category, Object key) {
+        if (!enabled || key == null) {
+            return false;
+        }
+        HotKeySketch sketch = sketches.get(category);
+        return sketch != null && sketch.isHot(key.toString());
+    }
+
+    /**
+     * 各分类访问最多的Key
+     *
+     * @param limit 每个分类最多返回的个数
+     */
+    public Map<String, Object> snapshot(int limit) {
+        Map<String, Object> result = new TreeMap<>();
+        for (Map.Entry<String, HotKeySketch> entry : sketches.entrySet()) {
+            result.put(entry.getKey(), categoryStats(entry.getValue(), limit));
+        }
+        return result;
+    }
+
+    /**
+     * 一个分类访问最多的Key，分类不存在时返回null
+     *
+     * @param category 分类
+     * @param limit 最多返回的个数
+     */
+    public Map<String, Object> category(String category, int limit) {
+        HotKeySketch sketch = sketches.get(category);
+        return sketch != null ? categoryStats(sketch, limit) : null;
+    }
+
+    /**
+     * 修改运行时参数，传入null的参数不变
+     */
+    public void configure(Boolean enabled) {
+        if (enabled != null) {
+            this.enabled = enabled;
+        }
+    }
+
+    public Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("enabled", enabled);
+        settings.put("windowSeconds", properties.getWindow().toSeconds());
+        settings.put("slots", properties.getSlots());
+        settings.put("width", properties.getWidth());
+        settings.put("depth", properties.getDepth());
+        settings.put("topK", properties.getTopK());
+        settings.put("hotThreshold", properties.getHotThreshold());
+        long memory = 0;
+        for (HotKeySketch sketch : sketches.values()) {
+            memory += sketch.memoryBytes();
+        }
+        settings.put("memoryBytes", memory);
+        return settings;
+    }
+
+    /**
+     * 清空所有分类的统计
+     */
+    public void reset() {
+        for (HotKeySketch sketch : sketches.values()) {
+            sketch.reset();
+        }
+    }
+
+    private HotKeySketch sketchOf(String category) {
+        HotKeySketch sketch = sketches.get(category);
+        if (sketch != null || sketches.size() >= properties.getMaxCategories()) {
+            return sketch;
+        }
+        return sketches.computeIfAbsent(category, name -> new HotKeySketch(properties.getWindow(),
+                properties.getSlots(), properties.getWidth(), properties.getDepth(), properties.getTopK(),
+                properties.getHotThreshold()));
+    }
+
+    private static Map<String, Object> categoryStats(HotKeySketch sketch, int limit) {
+        List<Map<String, Object>> top = sketch.top(limit);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowTotal", sketch.windowTotal());
+        stats.put("hotKeys", sketch.hotCount());
+        stats.put("maxError", (long) Math.ceil(sketch.windowTotal() * sketch.errorRate()));
+        stats.put("top", top);
+        return stats;
+    }
+}
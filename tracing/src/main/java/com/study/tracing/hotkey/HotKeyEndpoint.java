@@ -0,0 +1,58 @@
+package com.study.tracing.hotkey;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 热点Key端点
+ *
+ * - GET /actuator/hotkeys?limit=20：各分类窗口内访问最多的Key（估计次数、占比、是否热点）
+ * - GET /actuator/hotkeys/{category}?limit=100：单个分类
+ * - POST /actuator/hotkeys：运行时开关，请求体 {"enabled":false}
+ * - DELETE /actuator/hotkeys：清空统计
+ *
+ * Key是用户ID、订单号等业务数据，端点只应暴露在内网
+ *
+ * @author SpringCloud学习项目
+ */
+@Endpoint(id = "hotkeys")
+public class HotKeyEndpoint {
+
+    private final HotKeyDetector detector;
+
+    public HotKeyEndpoint(HotKeyDetector detector) {
+        this.detector = detector;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys(@Nullable Integer limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", detector.settings());
+        result.put("categories", detector.snapshot(limit != null ? limit : 20));
+        return result;
+    }
+
+    @ReadOperation
+    public Map<String, Object> category(@Selector String category, @Nullable Integer limit) {
+        return detector.category(category, limit != null ? limit : 100);
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled) {
+        detector.configure(enabled);
+        return detector.settings();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> reset() {
+        detector.reset();
+        return detector.settings();
+    }
+}
@@ -0,0 +1,60 @@
+package com.study.tracing.hotkey;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 热点Key统计配置
+ *
+ * 对应application.yml中的hot-keys配置项。
+ * 每个分类占用的内存 = (slots + 1) × depth × width × 4字节，默认约224KB，与Key的数量无关
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@ConfigurationProperties(prefix = "hot-keys")
+public class HotKeyProperties {
+
+    /**
+     * 是否启用热点Key统计
+     */
+    private boolean enabled = true;
+
+    /**
+     * 滑动窗口长度，热度按最近这段时间内的访问次数计算
+     */
+    private Duration window = Duration.ofSeconds(60);
+
+    /**
+     * 窗口分成的段数，窗口每过window/slots向前滑动一段
+     */
+    private int slots = 6;
+
+    /**
+     * Count-Min Sketch每行的计数器个数，向上取整为2的幂
+     * 估计值最多偏大 窗口内总访问次数 × e / width（概率1 - e^-depth）
+     */
+    private int width = 2048;
+
+    /**
+     * Count-Min Sketch的行数（独立哈希函数个数）
+     */
+    private int depth = 4;
+
+    /**
+     * 每个分类保留访问最多的Key个数
+     */
+    private int topK = 100;
+
+    /**
+     * 窗口内访问次数达到该值、并且在Top K中的Key才算热点，缓存会优先保留热点Key
+     */
+    private long hotThreshold = 600;
+
+    /**
+     * 最多统计的分类数（user、order-no等），超过的分类忽略
+     */
+    private int maxCategories = 16;
+}
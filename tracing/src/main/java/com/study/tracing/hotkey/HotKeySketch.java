@@ -0,0 +1,349 @@
+package com.study.tracing.hotkey;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 一个分类（例如用户ID）的热点Key统计：滑动窗口Count-Min Sketch + Top K
+ *
+ * 1. Count-Min Sketch：depth行、每行width个计数器，Key按depth个哈希各落到一行中的一个计数器，
+ *    访问时这些计数器都加1，估计值取其中最小的。只会偏大不会偏小，内存与Key的数量无关
+ * 2. 滑动窗口：窗口分成slots段，每段一组计数器，环形数组多留一组（slots + 1）。
+ *    写入只写当前段，估计时累加除"下一段"以外的各段；进入新的一段时把"下一段"清零，
+ *    清零的这组计数器既没有人写也没有人读，不需要加锁
+ * 3. Top K：最多K个候选Key及其窗口内的估计值。已在候选中的Key更新计数不加锁；
+ *    新Key的估计值超过候选中的最小值时才加锁替换。K不大（默认100），替换时线性扫描找最小值，
+ *    比维护堆更简单，而且候选的计数随访问不断变大，堆的顺序本来也维持不住。
+ *    每进入新的一段，按窗口重新估计所有候选，访问量已经降下来的Key让出位置
+ *
+ * 线程安全，add可以在每次请求时调用
+ *
+ * @author SpringCloud学习项目
+ */
+public final class HotKeySketch {
+
+    private final int ring;
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final long slotMillis;
+    private final int topK;
+    private final long hotThreshold;
+
+    /**
+     * 布局：[行][列][段]，同一个计数器的各段相邻，一次估计只读depth个缓存行
+     */
+    private final AtomicIntegerArray counters;
+
+    /**
+     * 每一段的访问总数，用于计算热点Key的占比
+     */
+    private final AtomicLongArray slotTotals;
+
+    /**
+     * 当前段的编号（时间 / 每段时长），-1表示还没有写入过
+     */
+    private final AtomicLong epoch = new AtomicLong(-1);
+
+    private final Map<String, Candidate> candidates = new ConcurrentHashMap<>();
+
+    private final Object lock = new Object();
+
+    /**
+     * 候选已满时的最小估计值，估计值不超过它的新Key不必加锁。
+     * 候选的计数只增不减，所以这里可能偏小，偏小只会多加几次锁
+     */
+    private volatile long minCount;
+
+    public HotKeySketch(Duration window, int slots, int width, int depth, int topK, long hotThreshold) {
+        if (slots < 1 || depth < 1 || width < 1 || topK < 1) {
+            throw new IllegalArgumentException("hot-keys的slots、width、depth、top-k必须大于0");
+        }
+        this.ring = slots + 1;
+        this.depth = depth;
+        this.width = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.mask = this.width - 1;
+        this.slotMillis = Math.max(1, window.toMillis() / slots);
+        this.topK = topK;
+        this.hotThreshold = hotThreshold;
+        this.counters = new AtomicIntegerArray(ring * depth * this.width);
+        this.slotTotals = new AtomicLongArray(ring);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key Key
+     * @param nowMillis 当前时间（毫秒）
+     * @return 这个Key在窗口内的估计访问次数
+     */
+    public long add(String key, long nowMillis) {
+        long current = advance(nowMillis);
+        int slot = (int) (current % ring);
+        int next = (int) ((current + 1) % ring);
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (h1 + row * h2) & mask;
+            int base = offset(row, column);
+            counters.incrementAndGet(base + slot);
+            estimate = Math.min(estimate, windowSum(base, next));
+        }
+        slotTotals.incrementAndGet(slot);
+
+        Candidate candidate = candidates.get(key);
+        if (candidate != null) {
+            candidate.count = estimate;
+        } else if (estimate > minCount || candidates.size() < topK) {
+            offer(key, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * 窗口内的估计访问次数，不记录访问
+     *
+     * @param key Key
+     * @param nowMillis 当前时间（毫秒）
+     */
+    public long estimate(String key, long nowMillis) {
+        long current = advance(nowMillis);
+        int next = (int) ((current + 1) % ring);
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, windowSum(offset(row, (h1 + row * h2) & mask), next));
+        }
+        return estimate;
+    }
+
+    /**
+     * 是否热点：在Top K中，并且窗口内的访问次数达到hot-threshold
+     *
+     * @param key Key
+     */
+    public boolean isHot(String key) {
+        Candidate candidate = candidates.get(key);
+        return candidate != null && candidate.count >= hotThreshold;
+    }
+
+    /**
+     * 访问次数最多的Key，按估计值从大到小
+     *
+     * @param limit 最多返回的个数
+     * @return 每个Key的估计次数、占窗口内访问总数的比例、是否热点
+     */
+    public List<Map<String, Object>> top(int limit) {
+        List<Candidate> sorted = new ArrayList<>(candidates.values());
+        sorted.sort(Comparator.comparingLong((Candidate c) -> c.count).reversed());
+        long total = windowTotal();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Candidate candidate : sorted.subList(0, Math.min(Math.max(0, limit), sorted.size()))) {
+            long count = candidate.count;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", candidate.key);
+            item.put("count", count);
+            item.put("share", total > 0 ? Math.round(count * 10000d / total) / 10000d : 0);
+            item.put("hot", count >= hotThreshold);
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 窗口内的访问总数
+     */
+    public long windowTotal() {
+        long current = epoch.get();
+        if (current < 0) {
+            return 0;
+        }
+        int next = (int) ((current + 1) % ring);
+        long total = 0;
+        for (int slot = 0; slot < ring; slot++) {
+            if (slot != next) {
+                total += slotTotals.get(slot);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 热点Key个数
+     */
+    public int hotCount() {
+        int hot = 0;
+        for (Candidate candidate : candidates.values()) {
+            if (candidate.count >= hotThreshold) {
+                hot++;
+            }
+        }
+        return hot;
+    }
+
+    /**
+     * 计数器和候选占用的内存（字节，候选按每个100字节估算）
+     */
+    public long memoryBytes() {
+        return 16 + 4L * counters.length() + 16 + 8L * slotTotals.length() + 100L * topK;
+    }
+
+    /**
+     * 每个Key估计值的误差上限：窗口内访问总数 × e / width
+     */
+    public double errorRate() {
+        return Math.E / width;
+    }
+
+    /**
+     * 清空计数和候选
+     */
+    public void reset() {
+        synchronized (lock) {
+            for (int i = 0; i < counters.length(); i++) {
+                counters.set(i, 0);
+            }
+            for (int slot = 0; slot < ring; slot++) {
+                slotTotals.set(slot, 0);
+            }
+            candidates.clear();
+            minCount = 0;
+        }
+    }
+
+    /**
+     * 进入新的一段时由一个线程（CAS成功的线程）清零即将成为"下一段"的计数器，
+     * 长时间没有访问跳过了多段时，把跳过的段一起清零
+     */
+    private long advance(long nowMillis) {
+        long target = nowMillis / slotMillis;
+        long current = epoch.get();
+        if (target <= current) {
+            return current;
+        }
+        if (!epoch.compareAndSet(current, target)) {
+            return epoch.get();
+        }
+        long from = current < 0 ? target + 2 - ring : Math.max(current + 2, target + 2 - ring);
+        for (long e = from; e <= target + 1; e++) {
+            clearSlot(Math.floorMod(e, ring));
+        }
+        refreshCandidates(target);
+        return target;
+    }
+
+    private void clearSlot(int slot) {
+        for (int i = slot; i < counters.length(); i += ring) {
+            counters.set(i, 0);
+        }
+        slotTotals.set(slot, 0);
+    }
+
+    /**
+     * 窗口滑动后重新估计所有候选，估计值为0（整个窗口内没有访问）的移出
+     */
+    private void refreshCandidates(long current) {
+        int next = (int) ((current + 1) % ring);
+        synchronized (lock) {
+            candidates.values().removeIf(candidate -> {
+                long hash = hash(candidate.key);
+                int h1 = (int) hash;
+                int h2 = (int) (hash >>> 32) | 1;
+                long estimate = Long.MAX_VALUE;
+                for (int row = 0; row < depth; row++) {
+                    estimate = Math.min(estimate, windowSum(offset(row, (h1 + row * h2) & mask), next));
+                }
+                candidate.count = estimate;
+                return estimate == 0;
+            });
+            updateMinCount();
+        }
+    }
+
+    private void offer(String key, long estimate) {
+        synchronized (lock) {
+            if (candidates.containsKey(key)) {
+                return;
+            }
+            if (candidates.size() < topK) {
+                candidates.put(key, new Candidate(key, estimate));
+                updateMinCount();
+                return;
+            }
+            Candidate min = min();
+            if (estimate > min.count) {
+                candidates.remove(min.key);
+                candidates.put(key, new Candidate(key, estimate));
+            }
+            updateMinCount();
+        }
+    }
+
+    private void updateMinCount() {
+        minCount = candidates.size() < topK ? 0 : min().count;
+    }
+
+    private Candidate min() {
+        Candidate min = null;
+        for (Candidate candidate : candidates.values()) {
+            if (min == null || candidate.count < min.count) {
+                min = candidate;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * 一个计数器在窗口内各段的和
+     */
+    private long windowSum(int base, int next) {
+        long sum = 0;
+        for (int slot = 0; slot < ring; slot++) {
+            if (slot != next) {
+                sum += counters.get(base + slot);
+            }
+        }
+        return sum;
+    }
+
+    private int offset(int row, int column) {
+        return (row * width + column) * ring;
+    }
+
+    /**
+     * 64位哈希，高低32位作为两个独立的哈希，第row行取 h1 + row × h2
+     */
+    private static long hash(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L + key.length();
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Candidate {
+
+        private final String key;
+
+        private volatile long count;
+
+        private Candidate(String key, long count) {
+            this.key = key;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.study.tracing.sql;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * SQL分析器
+ *
+ * 为什么不用StdOutImpl：
+ * StdOutImpl把每条语句、参数和每一行结果同步打印到控制台，很多查询打印的耗时比执行本身还长，
+ * 而且大量输出中真正有用的只是少数慢SQL
+ *
+ * 这里的做法：
+ * 1. 每条语句只做几次原子累加：按语句ID统计次数、错误、耗时直方图、返回行数
+ * 2. 超过慢SQL阈值的语句，按sample-ratio抽样、按max-logs-per-second限速，
+ *    才去解析带参数的SQL，输出到SLOW_SQL日志并保存在内存中
+ * 3. 统计和最近的慢SQL通过 /actuator/sql 查看，阈值和比例可以在运行时修改，不需要重启
+ *
+ * @author SpringCloud学习项目
+ */
+public class SqlProfiler {
+
+    private static final Logger SLOW_SQL = LoggerFactory.getLogger("SLOW_SQL");
+
+    private final Map<String, StatementStats> statements = new ConcurrentHashMap<>();
+
+    private final AtomicReferenceArray<Map<String, Object>> slowLog;
+
+    private final AtomicLong slowLogSequence = new AtomicLong();
+
+    private final int maxParameterLength;
+
+    private volatile boolean enabled = true;
+
+    private volatile long slowNanos;
+
+    private volatile double sampleRatio;
+
+    private volatile int maxLogsPerSecond;
+
+    /**
+     * 当前秒（System.nanoTime()/1秒）和这一秒已经输出的日志条数
+     */
+    private final AtomicLong logSecond = new AtomicLong();
+    private final AtomicInteger logsThisSecond = new AtomicInteger();
+
+    public SqlProfiler(SqlProfilerProperties properties) {
+        this.slowLog = new AtomicReferenceArray<>(Math.max(1, properties.getSlowLogSize()));
+        this.maxParameterLength = properties.getMaxParameterLength();
+        configure(true, properties.getSlowThreshold(), properties.getSampleRatio(), properties.getMaxLogsPerSecond());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 记录一次执行
+     *
+     * @param statement 语句
+     * @param parameter 参数，只在需要输出慢SQL时才解析
+     * @param nanos 耗时
+     * @param rows 返回行数（查询）或影响行数（增删改）
+     * @param error 执行失败时的异常
+     */
+    public void record(MappedStatement statement, Object parameter, long nanos, long rows, Throwable error) {
+        boolean slow = nanos >= slowNanos;
+        StatementStats stats = statements.computeIfAbsent(statement.getId(),
+                id -> new StatementStats(id, statement.getSqlCommandType().name().toLowerCase(Locale.ROOT)));
+        if (error != null) {
+            stats.error();
+        } else {
+            stats.record(nanos, rows, slow);
+        }
+        if (slow && sampled() && acquireLogPermit()) {
+            logSlowQuery(statement, parameter, nanos, rows, error);
+        }
+    }
+
+    /**
+     * 修改运行时参数，传入null的参数不变
+     */
+    public synchronized void configure(Boolean enabled, Duration slowThreshold, Double sampleRatio,
+                                       Integer maxLogsPerSecond) {
+        if (enabled != null) {
+            this.enabled = enabled;
+        }
+        if (slowThreshold != null) {
+            this.slowNanos = slowThreshold.toNanos();
+        }
+        if (sampleRatio != null) {
+            this.sampleRatio = Math.max(0, Math.min(1, sampleRatio));
+        }
+        if (maxLogsPerSecond != null) {
+            this.maxLogsPerSecond = Math.max(0, maxLogsPerSecond);
+        }
+    }
+
+    public Map<String, Object> settings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("enabled", enabled);
+        settings.put("slowThresholdMillis", TimeUnit.NANOSECONDS.toMillis(slowNanos));
+        settings.put("sampleRatio", sampleRatio);
+        settings.put("maxLogsPerSecond", maxLogsPerSecond);
+        return settings;
+    }
+
+    /**
+     * 各语句的统计
+     *
+     * @param sort 排序方式：total（总耗时，默认）、count、p99、max、rows
+     * @param limit 最多返回的语句数
+     */
+    public List<Map<String, Object>> statements(String sort, int limit) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (StatementStats stats : statements.values()) {
+            result.add(stats.toMap());
+        }
+        result.sort(Comparator.comparingDouble((Map<String, Object> map) -> sortKey(map, sort)).reversed());
+        return result.size() > limit ? result.subList(0, limit) : result;
+    }
+
+    /**
+     * 最近的慢SQL，新的在前
+     */
+    public List<Map<String, Object>> slowQueries() {
+        long last = slowLogSequence.get();
+        int size = slowLog.length();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (long sequence = last - 1; sequence >= 0 && sequence >= last - size; sequence--) {
+            Map<String, Object> entry = slowLog.get((int) (sequence % size));
+            if (entry != null) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    public void reset() {
+        statements.clear();
+        for (int i = 0; i < slowLog.length(); i++) {
+            slowLog.set(i, null);
+        }
+        slowLogSequence.set(0);
+    }
+
+    private boolean sampled() {
+        double ratio = sampleRatio;
+        return ratio >= 1 || (ratio > 0 && ThreadLocalRandom.current().nextDouble() < ratio);
+    }
+
+    private boolean acquireLogPermit() {
+        long second = System.nanoTime() / 1_000_000_000L;
+        long current = logSecond.get();
+        if (second != current && logSecond.compareAndSet(current, second)) {
+            logsThisSecond.set(0);
+        }
+        return logsThisSecond.incrementAndGet() <= maxLogsPerSecond;
+    }
+
+    private void logSlowQuery(MappedStatement statement, Object parameter, long nanos, long rows, Throwable error) {
+        String sql;
+        List<String> parameters;
+        try {
+            BoundSql boundSql = statement.getBoundSql(parameter);
+            sql = boundSql.getSql().replaceAll("\\s+", " ").trim();
+            parameters = parameters(statement.getConfiguration(), boundSql, parameter);
+        } catch (RuntimeException e) {
+            sql = "(无法解析SQL: " + e.getMessage() + ")";
+            parameters = List.of();
+        }
+        double millis = Math.round(nanos / 10_000d) / 100d;
+
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("time", LocalDateTime.now().toString());
+        entry.put("statement", statement.getId());
+        entry.put("millis", millis);
+        entry.put("rows", rows);
+        entry.put("sql", sql);
+        entry.put("parameters", parameters);
+        if (error != null) {
+            entry.put("error", error.getClass().getSimpleName() + ": " + error.getMessage());
+        }
+        long sequence = slowLogSequence.getAndIncrement();
+        slowLog.set((int) (sequence % slowLog.length()), entry);
+
+        SLOW_SQL.warn("{}ms rows={} {} | {} | 参数: {}{}", millis, rows, statement.getId(), sql, parameters,
+                error != null ? " | 失败: " + entry.get("error") : "");
+    }
+
+    /**
+     * 与MyBatis的DefaultParameterHandler相同的取值方式
+     */
+    private List<String> parameters(Configuration configuration, BoundSql boundSql, Object parameter) {
+        TypeHandlerRegistry typeHandlers = configuration.getTypeHandlerRegistry();
+        List<String> values = new ArrayList<>();
+        MetaObject meta = null;
+        for (ParameterMapping mapping : boundSql.getParameterMappings()) {
+            if (mapping.getMode() == ParameterMode.OUT) {
+                continue;
+            }
+            String property = mapping.getProperty();
+            Object value;
+            if (boundSql.hasAdditionalParameter(property)) {
+                value = boundSql.getAdditionalParameter(property);
+            } else if (parameter == null) {
+                value = null;
+            } else if (typeHandlers.hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                if (meta == null) {
+                    meta = configuration.newMetaObject(parameter);
+                }
+                value = meta.getValue(property);
+            }
+            values.add(format(value));
+        }
+        return values;
+    }
+
+    private String format(Object value) {
+        String text = String.valueOf(value);
+        return text.length() > maxParameterLength ? text.substring(0, maxParameterLength) + "..." : text;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double sortKey(Map<String, Object> stats, String sort) {
+        Map<String, Object> latency = (Map<String, Object>) stats.get("latencyMillis");
+        Object value = switch (sort == null ? "total" : sort) {
+            case "count" -> stats.get("count");
+            case "p99" -> latency.get("p99");
+            case "max" -> latency.get("max");
+            case "rows" -> stats.get("rows");
+            default -> latency.get("total");
+        };
+        return ((Number) value).doubleValue();
+    }
+}
@@ -0,0 +1,40 @@
+package com.study.tracing.sql;
+
+import org.apache.ibatis.plugin.Interceptor;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * SQL分析自动配置
+ *
+ * 使用MyBatis的服务引入tracing模块即生效，sql-profiler.enabled=false可以关闭。
+ * 拦截器注册为Bean后由MyBatis-Plus自动配置加入SqlSessionFactory
+ *
+ * @author SpringCloud学习项目
+ */
+@AutoConfiguration
+@ConditionalOnClass(Interceptor.class)
+@ConditionalOnProperty(prefix = "sql-profiler", name = "enabled", matchIfMissing = true)
+@EnableConfigurationProperties(SqlProfilerProperties.class)
+public class SqlProfilerAutoConfiguration {
+
+    @Bean
+    public SqlProfiler sqlProfiler(SqlProfilerProperties properties) {
+        return new SqlProfiler(properties);
+    }
+
+    @Bean
+    public SqlProfilerInterceptor sqlProfilerInterceptor(SqlProfiler sqlProfiler) {
+        return new SqlProfilerInterceptor(sqlProfiler);
+    }
+
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    public SqlProfilerEndpoint sqlProfilerEndpoint(SqlProfiler sqlProfiler) {
+        return new SqlProfilerEndpoint(sqlProfiler);
+    }
+}
@@ -0,0 +1,55 @@
+package com.study.tracing.sql;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL分析端点
+ *
+ * - GET /actuator/sql?sort=total&limit=20：各语句统计（sort可选total、count、p99、max、rows）和最近的慢SQL
+ * - POST /actuator/sql：运行时修改参数，请求体 {"slowThresholdMillis":50,"sampleRatio":0.1,"maxLogsPerSecond":5,"enabled":true}
+ * - DELETE /actuator/sql：清空统计
+ *
+ * 慢SQL中包含参数值，端点只应暴露在内网
+ *
+ * @author SpringCloud学习项目
+ */
+@Endpoint(id = "sql")
+public class SqlProfilerEndpoint {
+
+    private final SqlProfiler profiler;
+
+    public SqlProfilerEndpoint(SqlProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @ReadOperation
+    public Map<String, Object> sql(@Nullable String sort, @Nullable Integer limit) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", profiler.settings());
+        result.put("statements", profiler.statements(sort, limit != null ? limit : 20));
+        result.put("slowQueries", profiler.slowQueries());
+        return result;
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean enabled, @Nullable Long slowThresholdMillis,
+                                         @Nullable Double sampleRatio, @Nullable Integer maxLogsPerSecond) {
+        profiler.configure(enabled, slowThresholdMillis != null ? Duration.ofMillis(slowThresholdMillis) : null,
+                sampleRatio, maxLogsPerSecond);
+        return profiler.settings();
+    }
+
+    @DeleteOperation
+    public Map<String, Object> reset() {
+        profiler.reset();
+        return profiler.settings();
+    }
+}
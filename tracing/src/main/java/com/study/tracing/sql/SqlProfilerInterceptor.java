@@ -0,0 +1,66 @@
+package com.study.tracing.sql;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.util.List;
+
+/**
+ * 把每次Mapper调用的耗时和行数交给 {@link SqlProfiler}
+ *
+ * 与 {@link com.study.tracing.MybatisObservationInterceptor} 一样拦截Executor，
+ * 耗时包含获取连接、执行SQL和结果映射
+ *
+ * @author SpringCloud学习项目
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+})
+public class SqlProfilerInterceptor implements Interceptor {
+
+    private final SqlProfiler profiler;
+
+    public SqlProfilerInterceptor(SqlProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        if (!profiler.isEnabled()) {
+            return invocation.proceed();
+        }
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        Object parameter = invocation.getArgs()[1];
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            profiler.record(statement, parameter, System.nanoTime() - start, 0, e);
+            throw e;
+        }
+        profiler.record(statement, parameter, System.nanoTime() - start, rows(result), null);
+        return result;
+    }
+
+    /**
+     * 查询返回List，增删改返回影响行数
+     */
+    private static long rows(Object result) {
+        if (result instanceof List<?> list) {
+            return list.size();
+        }
+        if (result instanceof Number number) {
+            return number.longValue();
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.study.tracing.sql;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * SQL分析配置
+ *
+ * 对应application.yml中的sql-profiler配置项，
+ * slow-threshold、sample-ratio、max-logs-per-second可以在运行时通过 POST /actuator/sql 修改
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@ConfigurationProperties(prefix = "sql-profiler")
+public class SqlProfilerProperties {
+
+    /**
+     * 是否启用SQL分析
+     */
+    private boolean enabled = true;
+
+    /**
+     * 超过该耗时的语句记为慢SQL
+     */
+    private Duration slowThreshold = Duration.ofMillis(100);
+
+    /**
+     * 慢SQL中输出日志（带参数）的比例，0~1
+     */
+    private double sampleRatio = 1.0;
+
+    /**
+     * 每秒最多输出的慢SQL日志条数，数据库整体变慢时避免日志本身成为负担
+     */
+    private int maxLogsPerSecond = 10;
+
+    /**
+     * 内存中保留的最近慢SQL条数，在 /actuator/sql 中查看
+     */
+    private int slowLogSize = 100;
+
+    /**
+     * 单个参数值的最大长度，超过的部分截断
+     */
+    private int maxParameterLength = 256;
+}
@@ -0,0 +1,87 @@
+package com.study.tracing.sql;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单条语句的累计统计：执行次数、错误次数、耗时直方图、返回（影响）行数
+ *
+ * 记录只是几次原子累加，可以在每次执行时调用
+ *
+ * @author SpringCloud学习项目
+ */
+class StatementStats {
+
+    /**
+     * 耗时以微秒记录，最大60秒，3位有效数字
+     */
+    private static final long MAX_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final String id;
+
+    private final String command;
+
+    private final Histogram latency = new ConcurrentHistogram(MAX_MICROS, 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAccumulator maxRows = new LongAccumulator(Math::max, 0);
+
+    private final LongAdder slow = new LongAdder();
+
+    StatementStats(String id, String command) {
+        this.id = id;
+        this.command = command;
+    }
+
+    void record(long nanos, long rowCount, boolean isSlow) {
+        latency.recordValue(Math.min(MAX_MICROS, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        rows.add(rowCount);
+        maxRows.accumulate(rowCount);
+        if (isSlow) {
+            slow.increment();
+        }
+    }
+
+    void error() {
+        errors.increment();
+    }
+
+    long totalMicros() {
+        return (long) (latency.getMean() * latency.getTotalCount());
+    }
+
+    Map<String, Object> toMap() {
+        long count = latency.getTotalCount();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("statement", id);
+        map.put("command", command);
+        map.put("count", count);
+        map.put("errors", errors.sum());
+        map.put("slow", slow.sum());
+        map.put("rows", rows.sum());
+        map.put("avgRows", count > 0 ? Math.round(rows.sum() * 100d / count) / 100d : 0);
+        map.put("maxRows", maxRows.get());
+        Map<String, Object> millis = new LinkedHashMap<>();
+        millis.put("mean", millis(latency.getMean()));
+        millis.put("p50", millis(latency.getValueAtPercentile(50)));
+        millis.put("p90", millis(latency.getValueAtPercentile(90)));
+        millis.put("p99", millis(latency.getValueAtPercentile(99)));
+        millis.put("max", millis(latency.getMaxValue()));
+        millis.put("total", millis(totalMicros()));
+        map.put("latencyMillis", millis);
+        return map;
+    }
+
+    private static double millis(double micros) {
+        return Math.round(micros / 10) / 100d;
+    }
+}
@@ -0,0 +1,259 @@
+package com.study.user.cache;
+
+import com.study.common.result.Result;
+import com.study.user.dto.UserChange;
+import com.study.user.dto.UserChangeBatch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订阅其他用户服务实例的变更流，使本实例堆外缓存中被修改的用户失效
+ *
+ * 为什么需要它：
+ * 修改、禁用用户时只有处理该请求的实例会使自己的缓存失效，
+ * 多实例部署时其他实例会一直返回旧数据（包括已经禁用的用户），直到缓存过期
+ *
+ * 实现方式（与订单服务订阅用户变更流的方式相同）：
+ * 1. 每隔peer-refresh-interval从注册中心读取用户服务的实例列表（不含本实例），每个实例一个长轮询线程，
+ *    各自保存该实例的纪元和版本号；实例下线后停止对应的线程
+ * 2. 收到的每条变更都使对应用户失效（包括首次订阅、对端重启时的快照），下次查询时从数据库重新加载；
+ *    失效会让正在查库的回填放弃写入，不会把修改前读到的数据写回缓存
+ * 3. 本实例停机期间其他实例上的修改不在变更流中（对端的快照只包含它自己启动以来的修改），
+ *    由缓存热启动时比对update_time处理
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class UserCachePeerSubscriber {
+
+    private static final String USER_SERVICE = "user-service";
+
+    /**
+     * 变更流每次最多拉取的条数
+     */
+    private static final int CHANGE_BATCH_SIZE = 1000;
+
+    /**
+     * 拉取变更失败后的重试间隔
+     */
+    private static final long CHANGE_RETRY_MILLIS = 5000;
+
+    private static final ParameterizedTypeReference<Result<UserChangeBatch>> BATCH_TYPE =
+            new ParameterizedTypeReference<>() { };
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "user-cache-peers");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final AtomicInteger pollerCount = new AtomicInteger();
+
+    private final ExecutorService pollers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "user-cache-peer-changes-" + pollerCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 实例地址 -> 订阅
+     */
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    private final UserOffHeapCache userCache;
+
+    private final UserCacheProperties properties;
+
+    private final DiscoveryClient discoveryClient;
+
+    private final ObjectProvider<Registration> registration;
+
+    private final RestClient restClient;
+
+    public UserCachePeerSubscriber(UserOffHeapCache userCache, UserCacheProperties properties,
+                                   DiscoveryClient discoveryClient, ObjectProvider<Registration> registration,
+                                   RestClient.Builder restClientBuilder) {
+        this.userCache = userCache;
+        this.properties = properties;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        // 长轮询最多挂起peer-poll-timeout，读超时再留出5秒
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(3))
+                .build());
+        requestFactory.setReadTimeout(properties.getPeerPollTimeout().plusSeconds(5));
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+    }
+
+    /**
+     * 应用启动完成后开始订阅，之后定期核对实例列表
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled() || !properties.isPeerSync()) {
+            return;
+        }
+        long interval = properties.getPeerRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::safeReconcile, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 订阅状态：每个实例的地址、纪元、版本号，以及收到的变更使缓存失效的次数
+     *
+     * @return 订阅状态
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("invalidations", invalidations.sum());
+        Map<String, Object> instances = new LinkedHashMap<>();
+        for (Subscription subscription : subscriptions.values()) {
+            Map<String, Object> instance = new LinkedHashMap<>();
+            instance.put("connected", subscription.connected);
+            instance.put("epoch", subscription.epoch);
+            instance.put("version", subscription.version);
+            instances.put(subscription.uri, instance);
+        }
+        stats.put("instances", instances);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pollers.shutdownNow();
+    }
+
+    private void safeReconcile() {
+        try {
+            reconcile();
+        } catch (Exception e) {
+            log.warn("读取用户服务实例列表失败，{}后重试: {}", properties.getPeerRefreshInterval(), e.getMessage());
+        }
+    }
+
+    /**
+     * 新出现的实例开始订阅，已经下线的实例停止订阅
+     */
+    private void reconcile() {
+        Registration self = registration.getIfAvailable();
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : discoveryClient.getInstances(USER_SERVICE)) {
+            if (self != null && self.getInstanceId() != null && self.getInstanceId().equals(instance.getInstanceId())) {
+                continue;
+            }
+            String uri = instance.getUri().toString();
+            current.add(uri);
+            subscriptions.computeIfAbsent(uri, this::subscribe);
+        }
+        subscriptions.values().removeIf(subscription -> {
+            if (current.contains(subscription.uri)) {
+                return false;
+            }
+            subscription.future.cancel(true);
+            log.info("用户服务实例已下线，停止订阅变更流：{}", subscription.uri);
+            return true;
+        });
+    }
+
+    private Subscription subscribe(String uri) {
+        Subscription subscription = new Subscription(uri);
+        subscription.future = pollers.submit(subscription);
+        return subscription;
+    }
+
+    /**
+     * 一个用户服务实例的订阅：长轮询该实例的变更流
+     */
+    private class Subscription implements Runnable {
+
+        private final String uri;
+
+        private volatile Future<?> future;
+
+        private volatile Long epoch;
+        private volatile long version;
+        private volatile boolean connected;
+
+        Subscription(String uri) {
+            this.uri = uri;
+        }
+
+        @Override
+        public void run() {
+            long timeoutMillis = properties.getPeerPollTimeout().toMillis();
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    String query = "since=" + version + "&timeout=" + timeoutMillis + "&limit=" + CHANGE_BATCH_SIZE
+                            + (epoch != null ? "&epoch=" + epoch : "");
+                    Result<UserChangeBatch> result = restClient.get()
+                            .uri(uri + "/user/changes?" + query)
+                            .retrieve()
+                            .body(BATCH_TYPE);
+                    if (result == null || !result.isSuccess() || result.getData() == null) {
+                        failed(result != null ? result.getMessage() : null);
+                        continue;
+                    }
+                    UserChangeBatch batch = result.getData();
+                    if (batch.getChanges() != null) {
+                        for (UserChange change : batch.getChanges()) {
+                            userCache.invalidate(change.getUserId());
+                        }
+                        invalidations.add(batch.getChanges().size());
+                    }
+                    epoch = batch.getEpoch();
+                    version = batch.getVersion();
+                    if (!connected) {
+                        connected = true;
+                        log.info("已订阅用户服务实例的变更流：实例={}，纪元={}，版本={}", uri, epoch, version);
+                    }
+                } catch (Exception e) {
+                    failed(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * 拉取失败时稍等再从同一个版本号继续，只在第一次失败时输出日志
+         */
+        private void failed(String message) {
+            if (connected || epoch == null) {
+                log.warn("拉取用户变更失败，{}ms后重试：实例={}，{}", CHANGE_RETRY_MILLIS, uri, message);
+            }
+            connected = false;
+            try {
+                Thread.sleep(CHANGE_RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
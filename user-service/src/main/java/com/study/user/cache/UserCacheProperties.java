@@ -0,0 +1,64 @@
+package com.study.user.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 堆外用户缓存配置
+ *
+ * 对应application.yml中的user.cache配置项
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user.cache")
+public class UserCacheProperties {
+
+    /**
+     * 是否启用堆外缓存
+     */
+    private boolean enabled = true;
+
+    /**
+     * 缓存文件路径
+     * 同一台机器上部署多个实例时，每个实例需要使用不同的文件
+     */
+    private String file = "./data/user-cache.dat";
+
+    /**
+     * 槽位数量（缓存最多能保存的用户数）
+     * 会向上取整为4的倍数，每4个槽位组成一个桶
+     */
+    private int capacity = 65536;
+
+    /**
+     * 每个槽位的字节数
+     * 序列化后超过该大小的用户不会被缓存
+     */
+    private int slotSize = 256;
+
+    /**
+     * 缓存有效期（秒）
+     * 兜底保证：没有通过变更流收到的修改（如对端实例在发布变更前崩溃），最多在该时间后可见
+     */
+    private long ttlSeconds = 600;
+
+    /**
+     * 是否订阅其他用户服务实例的变更流，使本实例缓存中被其他实例修改的用户失效
+     */
+    private boolean peerSync = true;
+
+    /**
+     * 长轮询其他实例的变更流时每次最长等待的时间
+     */
+    private Duration peerPollTimeout = Duration.ofSeconds(30);
+
+    /**
+     * 重新读取用户服务实例列表的间隔
+     */
+    private Duration peerRefreshInterval = Duration.ofSeconds(30);
+}
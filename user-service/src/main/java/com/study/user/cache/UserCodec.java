@@ -0,0 +1,130 @@
+package com.study.user.cache;
+
+import com.study.common.entity.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 用户紧凑二进制编解码器
+ *
+ * 堆外缓存只保存序列化后的字节，格式如下（ID保存在槽位头中，不重复写入）：
+ * status(int) + createTime(long秒 + int纳秒) + updateTime(long秒 + int纳秒)
+ * + username/email/phone（short长度 + UTF-8字节，长度-1表示null）
+ *
+ * 注意：密码不会写入缓存文件，解码出的用户password字段始终为null
+ *
+ * @author SpringCloud学习项目
+ */
+final class UserCodec {
+
+    private static final int NULL_STATUS = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private UserCodec() {}
+
+    /**
+     * 序列化用户
+     *
+     * @param user 用户信息
+     * @return 序列化后的字节，字段过长无法编码时返回null
+     */
+    static byte[] encode(User user) {
+        byte[] username = utf8(user.getUsername());
+        byte[] email = utf8(user.getEmail());
+        byte[] phone = utf8(user.getPhone());
+        if (tooLong(username) || tooLong(email) || tooLong(phone)) {
+            return null;
+        }
+
+        int length = 4 + 12 + 12 + sizeOf(username) + sizeOf(email) + sizeOf(phone);
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(user.getStatus() == null ? NULL_STATUS : user.getStatus());
+        putTime(buffer, user.getCreateTime());
+        putTime(buffer, user.getUpdateTime());
+        putString(buffer, username);
+        putString(buffer, email);
+        putString(buffer, phone);
+        return buffer.array();
+    }
+
+    /**
+     * 反序列化用户
+     *
+     * @param id 用户ID
+     * @param payload 序列化后的字节
+     * @return 用户信息
+     */
+    static User decode(long id, byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        User user = new User();
+        user.setId(id);
+        int status = buffer.getInt();
+        user.setStatus(status == NULL_STATUS ? null : status);
+        user.setCreateTime(getTime(buffer));
+        user.setUpdateTime(getTime(buffer));
+        user.setUsername(getString(buffer));
+        user.setEmail(getString(buffer));
+        user.setPhone(getString(buffer));
+        return user;
+    }
+
+    /**
+     * 只读取更新时间，热启动时与数据库比对
+     *
+     * @param payload 序列化后的字节
+     * @return 更新时间
+     */
+    static LocalDateTime updateTime(byte[] payload) {
+        return getTime(ByteBuffer.wrap(payload, 4 + 12, 12));
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static boolean tooLong(byte[] value) {
+        return value != null && value.length > Short.MAX_VALUE;
+    }
+
+    private static int sizeOf(byte[] value) {
+        return 2 + (value == null ? 0 : value.length);
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        if (time == null) {
+            buffer.putLong(NULL_TIME);
+            buffer.putInt(0);
+        } else {
+            buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == NULL_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
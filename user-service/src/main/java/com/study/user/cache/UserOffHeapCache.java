@@ -0,0 +1,524 @@
+package com.study.user.cache;
+
+import com.study.common.entity.User;
+import com.study.tracing.hotkey.HotKeyDetector;
+import com.study.user.mapper.UserMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32C;
+
+/**
+ * 堆外用户缓存（内存映射文件）
+ *
+ * 为什么需要它：
+ * getUserById是调用量最大的接口，每次都查询MySQL；
+ * 普通的堆内缓存在每次发布重启后都是空的，冷启动瞬间会把请求全部打到数据库
+ *
+ * 实现要点：
+ * 1. 数据保存在内存映射文件中，不占用Java堆，不增加GC压力
+ * 2. 进程重启后文件仍在，启动时只需校验一遍槽位即可"热启动"
+ * 3. 组相联结构：每个用户ID哈希到一个桶，每个桶4个定长槽位，桶满时淘汰最旧的槽位
+ * 4. 每个槽位带CRC校验，进程在写入过程中崩溃留下的半条数据会被丢弃
+ * 5. 按桶分段加锁，不同桶之间互不影响
+ * 6. 淘汰时跳过热点用户（{@link HotKeyDetector}统计的访问最多的用户），桶内全是热点时才淘汰最旧的热点
+ * 7. 每个锁分段有一个失效代数，invalidate时加一；回填前先取代数，查库期间代数变化说明读到的可能是旧数据，放弃回填
+ * 8. 多实例部署时，其他实例上的修改通过 {@link UserCachePeerSubscriber} 订阅的变更流失效；
+ *    热启动时按主键批量查询update_time，丢弃停机期间被修改或删除的用户。TTL只是兜底
+ *
+ * 槽位布局：id(long) + length(int) + crc(int) + cachedAt(long) + payload
+ * length为0表示空槽位
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class UserOffHeapCache {
+
+    /**
+     * 热点Key统计中用户ID的分类
+     */
+    public static final String HOT_KEY_CATEGORY = "user";
+
+    /**
+     * 文件头魔数，"USEC"
+     */
+    private static final int MAGIC = 0x55534543;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    /**
+     * 每个桶的槽位数
+     */
+    private static final int WAYS = 4;
+
+    private static final int SLOT_HEADER_SIZE = 24;
+
+    private static final int LOCK_STRIPES = 1024;
+
+    /**
+     * 热启动比对update_time时每次查询的用户数
+     */
+    private static final int VERIFY_BATCH_SIZE = 1000;
+
+    private final UserCacheProperties properties;
+
+    private final HotKeyDetector hotKeyDetector;
+
+    private final UserMapper userMapper;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * 每个锁分段的失效代数，只在持有该分段的锁时修改
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(LOCK_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hotKeysKept = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder staleFillsSkipped = new LongAdder();
+    private final LongAdder oversize = new LongAdder();
+    private final AtomicInteger entries = new AtomicInteger();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int buckets;
+    private int slotSize;
+    private long ttlMillis;
+    private volatile boolean available;
+    private volatile int warmEntries;
+    private volatile int warmStaleEntries;
+    private volatile long warmLoadMillis;
+
+    public UserOffHeapCache(UserCacheProperties properties, HotKeyDetector hotKeyDetector, UserMapper userMapper) {
+        this.properties = properties;
+        this.hotKeyDetector = hotKeyDetector;
+        this.userMapper = userMapper;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * 打开（或创建）缓存文件
+     * 文件格式与当前配置一致时保留已有数据，实现重启后的热启动；保留的数据先与数据库比对，再开始提供服务
+     */
+    @PostConstruct
+    public void open() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        slotSize = properties.getSlotSize();
+        if (slotSize < SLOT_HEADER_SIZE + 32) {
+            throw new IllegalArgumentException("user.cache.slot-size过小: " + slotSize);
+        }
+        buckets = Math.max(1, (properties.getCapacity() + WAYS - 1) / WAYS);
+        ttlMillis = properties.getTtlSeconds() * 1000L;
+        long fileSize = HEADER_SIZE + (long) buckets * WAYS * slotSize;
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("user.cache文件超过2GB，请调小capacity或slot-size");
+        }
+
+        long start = System.nanoTime();
+        try {
+            Path path = Paths.get(properties.getFile()).toAbsolutePath();
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean sameSize = channel.size() == fileSize;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+            if (sameSize && headerMatches()) {
+                warmEntries = recover();
+                dropStaleWarmEntries();
+            } else {
+                format();
+            }
+            entries.set(warmEntries);
+            available = true;
+        } catch (IOException e) {
+            // 缓存不可用不影响业务，直接查数据库即可
+            log.warn("用户缓存文件打开失败，堆外缓存已停用: {}", e.getMessage());
+            return;
+        }
+        warmLoadMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("用户堆外缓存就绪: 槽位={}, 热启动恢复={}条, 丢弃已修改={}条, 耗时={}ms",
+                buckets * WAYS, warmEntries, warmStaleEntries, warmLoadMillis);
+    }
+
+    /**
+     * 查询缓存
+     *
+     * @param id 用户ID
+     * @return 缓存的用户信息（不含密码），未命中返回null
+     */
+    public User get(Long id) {
+        if (!available || id == null) {
+            return null;
+        }
+        int bucket = bucketOf(id);
+        byte[] payload = null;
+        synchronized (lockOf(bucket)) {
+            for (int way = 0; way < WAYS; way++) {
+                int offset = slotOffset(bucket, way);
+                int length = buffer.getInt(offset + 8);
+                if (length == 0 || buffer.getLong(offset) != id) {
+                    continue;
+                }
+                if (length < 0 || length > slotSize - SLOT_HEADER_SIZE || expired(buffer.getLong(offset + 16))) {
+                    clearSlot(offset);
+                    break;
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(offset + SLOT_HEADER_SIZE, bytes);
+                if (crc(bytes) != buffer.getInt(offset + 12)) {
+                    clearSlot(offset);
+                    break;
+                }
+                payload = bytes;
+                break;
+            }
+        }
+        if (payload == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return UserCodec.decode(id, payload);
+    }
+
+    /**
+     * 查询数据库之前取得的失效代数，回填时传给 {@link #put(User, long)}
+     *
+     * @param id 用户ID
+     * @return 该用户所在分段的失效代数
+     */
+    public long generation(Long id) {
+        if (!available || id == null) {
+            return 0;
+        }
+        return generations.get(bucketOf(id) & (LOCK_STRIPES - 1));
+    }
+
+    /**
+     * 回填缓存
+     * 查询数据库期间该用户所在分段被invalidate过时不写入：读到的可能是更新前的数据，
+     * 写入后会在TTL内（重启后仍然）一直返回旧数据
+     *
+     * @param user 用户信息（密码不会被缓存）
+     * @param generation 查询数据库之前 {@link #generation(Long)} 的返回值
+     */
+    public void put(User user, long generation) {
+        if (!available || user == null || user.getId() == null) {
+            return;
+        }
+        byte[] payload = UserCodec.encode(user);
+        if (payload == null || payload.length > slotSize - SLOT_HEADER_SIZE) {
+            oversize.increment();
+            return;
+        }
+        long id = user.getId();
+        int crc = crc(payload);
+        int bucket = bucketOf(id);
+        synchronized (lockOf(bucket)) {
+            if (generations.get(bucket & (LOCK_STRIPES - 1)) != generation) {
+                staleFillsSkipped.increment();
+                return;
+            }
+            int target = -1;
+            int empty = -1;
+            int oldest = -1;
+            long oldestTime = Long.MAX_VALUE;
+            for (int way = 0; way < WAYS; way++) {
+                int offset = slotOffset(bucket, way);
+                int length = buffer.getInt(offset + 8);
+                if (length == 0) {
+                    if (empty < 0) {
+                        empty = offset;
+                    }
+                    continue;
+                }
+                if (buffer.getLong(offset) == id) {
+                    target = offset;
+                    break;
+                }
+                long cachedAt = buffer.getLong(offset + 16);
+                if (cachedAt < oldestTime) {
+                    oldestTime = cachedAt;
+                    oldest = offset;
+                }
+            }
+            if (target < 0 && empty >= 0) {
+                target = empty;
+                entries.incrementAndGet();
+            } else if (target < 0) {
+                target = oldestNotHot(bucket);
+                if (target < 0) {
+                    target = oldest;
+                } else if (target != oldest) {
+                    hotKeysKept.increment();
+                }
+                evictions.increment();
+            }
+            // 先把长度置0使槽位失效，写完数据后最后写长度
+            buffer.putInt(target + 8, 0);
+            buffer.putLong(target, id);
+            buffer.putInt(target + 12, crc);
+            buffer.putLong(target + 16, System.currentTimeMillis());
+            buffer.put(target + SLOT_HEADER_SIZE, payload);
+            buffer.putInt(target + 8, payload.length);
+        }
+        puts.increment();
+    }
+
+    /**
+     * 使缓存失效
+     * 在用户信息更新、禁用之后调用
+     *
+     * @param id 用户ID
+     */
+    public void invalidate(Long id) {
+        if (!available || id == null) {
+            return;
+        }
+        int bucket = bucketOf(id);
+        synchronized (lockOf(bucket)) {
+            // 无论是否命中都要加一，正在查库的回填据此放弃
+            generations.incrementAndGet(bucket & (LOCK_STRIPES - 1));
+            for (int way = 0; way < WAYS; way++) {
+                int offset = slotOffset(bucket, way);
+                if (buffer.getInt(offset + 8) != 0 && buffer.getLong(offset) == id) {
+                    clearSlot(offset);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 缓存统计信息：容量、命中率、热启动耗时等
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", available);
+        stats.put("file", properties.getFile());
+        stats.put("capacity", (long) buckets * WAYS);
+        stats.put("slotSize", slotSize);
+        stats.put("offHeapBytes", available ? (long) buffer.capacity() : 0L);
+        stats.put("entries", entries.get());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        stats.put("puts", puts.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("hotKeysKept", hotKeysKept.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("staleFillsSkipped", staleFillsSkipped.sum());
+        stats.put("oversize", oversize.sum());
+        stats.put("warmRestartEntries", warmEntries);
+        stats.put("warmRestartStale", warmStaleEntries);
+        stats.put("warmRestartMillis", warmLoadMillis);
+        return stats;
+    }
+
+    /**
+     * 关闭时把脏页刷回文件
+     */
+    @PreDestroy
+    public void close() {
+        if (!available) {
+            return;
+        }
+        available = false;
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            log.warn("用户缓存文件关闭失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 桶内最旧的非热点槽位，全是热点时返回-1
+     */
+    private int oldestNotHot(int bucket) {
+        int oldest = -1;
+        long oldestTime = Long.MAX_VALUE;
+        for (int way = 0; way < WAYS; way++) {
+            int offset = slotOffset(bucket, way);
+            long cachedAt = buffer.getLong(offset + 16);
+            if (cachedAt < oldestTime && !hotKeyDetector.isHot(HOT_KEY_CATEGORY, buffer.getLong(offset))) {
+                oldestTime = cachedAt;
+                oldest = offset;
+            }
+        }
+        return oldest;
+    }
+
+    private boolean headerMatches() {
+        return buffer.getInt(0) == MAGIC
+                && buffer.getInt(4) == VERSION
+                && buffer.getInt(8) == buckets
+                && buffer.getInt(12) == slotSize;
+    }
+
+    /**
+     * 重新格式化缓存文件：清空所有槽位并写入文件头
+     */
+    private void format() {
+        buffer.putInt(0, 0);
+        for (int i = 0; i < buckets * WAYS; i++) {
+            clearSlot(HEADER_SIZE + i * slotSize);
+        }
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, buckets);
+        buffer.putInt(12, slotSize);
+        buffer.putInt(0, MAGIC);
+        warmEntries = 0;
+    }
+
+    /**
+     * 热启动：校验所有槽位，丢弃已过期和校验失败的数据
+     *
+     * @return 恢复的有效条目数
+     */
+    private int recover() {
+        int valid = 0;
+        for (int i = 0; i < buckets * WAYS; i++) {
+            int offset = HEADER_SIZE + i * slotSize;
+            int length = buffer.getInt(offset + 8);
+            if (length == 0) {
+                continue;
+            }
+            if (length < 0 || length > slotSize - SLOT_HEADER_SIZE || expired(buffer.getLong(offset + 16))) {
+                clearSlot(offset);
+                continue;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(offset + SLOT_HEADER_SIZE, bytes);
+            if (crc(bytes) != buffer.getInt(offset + 12)) {
+                clearSlot(offset);
+                continue;
+            }
+            valid++;
+        }
+        return valid;
+    }
+
+    /**
+     * 热启动：按主键批量查询update_time，丢弃与数据库不一致（停机期间在其他实例上被修改、禁用）
+     * 或已经不存在的用户。数据库不可用时丢弃全部数据，不冒返回旧数据的风险
+     */
+    private void dropStaleWarmEntries() {
+        if (warmEntries == 0) {
+            return;
+        }
+        int stale = 0;
+        try {
+            List<Integer> offsets = new ArrayList<>(VERIFY_BATCH_SIZE);
+            for (int i = 0; i < buckets * WAYS; i++) {
+                int offset = HEADER_SIZE + i * slotSize;
+                if (buffer.getInt(offset + 8) == 0) {
+                    continue;
+                }
+                offsets.add(offset);
+                if (offsets.size() == VERIFY_BATCH_SIZE) {
+                    stale += dropStale(offsets);
+                    offsets.clear();
+                }
+            }
+            if (!offsets.isEmpty()) {
+                stale += dropStale(offsets);
+            }
+        } catch (RuntimeException e) {
+            log.warn("热启动比对用户更新时间失败，丢弃缓存文件中的数据: {}", e.getMessage());
+            warmStaleEntries = warmEntries;
+            format();
+            return;
+        }
+        warmStaleEntries = stale;
+        warmEntries -= stale;
+    }
+
+    private int dropStale(List<Integer> offsets) {
+        List<Long> ids = new ArrayList<>(offsets.size());
+        for (int offset : offsets) {
+            ids.add(buffer.getLong(offset));
+        }
+        Map<Long, LocalDateTime> current = new HashMap<>();
+        for (User user : userMapper.selectUpdateTimes(ids)) {
+            current.put(user.getId(), user.getUpdateTime());
+        }
+        int stale = 0;
+        for (int offset : offsets) {
+            long id = buffer.getLong(offset);
+            byte[] bytes = new byte[buffer.getInt(offset + 8)];
+            buffer.get(offset + SLOT_HEADER_SIZE, bytes);
+            if (!current.containsKey(id) || !Objects.equals(current.get(id), UserCodec.updateTime(bytes))) {
+                clearSlot(offset);
+                stale++;
+            }
+        }
+        return stale;
+    }
+
+    private void clearSlot(int offset) {
+        if (buffer.getInt(offset + 8) != 0 && available) {
+            entries.decrementAndGet();
+        }
+        buffer.putInt(offset + 8, 0);
+        buffer.putLong(offset, 0L);
+    }
+
+    private boolean expired(long cachedAt) {
+        return ttlMillis > 0 && System.currentTimeMillis() - cachedAt > ttlMillis;
+    }
+
+    private int bucketOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) ((hash & Long.MAX_VALUE) % buckets);
+    }
+
+    private Object lockOf(int bucket) {
+        return locks[bucket & (LOCK_STRIPES - 1)];
+    }
+
+    private int slotOffset(int bucket, int way) {
+        return HEADER_SIZE + (bucket * WAYS + way) * slotSize;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+}
@@ -2,11 +2,24 @@ package com.study.user.controller;
 
 import com.study.common.entity.User;
 import com.study.common.result.Result;
+import com.study.user.cache.UserCachePeerSubscriber;
+import com.study.user.cache.UserOffHeapCache;
+import com.study.user.dto.UserChangeBatch;
+import com.study.user.dto.UserImportReport;
+import com.study.user.dto.UserSearchPage;
+import com.study.user.feed.UserChangeFeed;
+import com.study.user.search.UserSearchIndex;
+import com.study.user.service.UserImportService;
 import com.study.user.service.UserService;
 import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.io.InputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * 用户控制器
@@ -34,6 +47,21 @@ public class UserController {
     @Resource
     private UserService userService;
     
+    @Resource
+    private UserOffHeapCache userCache;
+    
+    @Resource
+    private UserCachePeerSubscriber userCachePeerSubscriber;
+    
+    @Resource
+    private UserImportService userImportService;
+    
+    @Resource
+    private UserSearchIndex userSearchIndex;
+    
+    @Resource
+    private UserChangeFeed userChangeFeed;
+    
     /**
      * 测试接口
      * 用于验证服务是否正常运行
@@ -78,6 +106,35 @@ public class UserController {
         }
     }
     
+    /**
+     * 批量导入用户（流式）
+     * 
+     * 访问地址：POST http://localhost:8081/user/import?format=csv&resumeFrom=0
+     * 请求体：CSV（首行为表头，至少包含username、password列）或NDJSON（每行一个用户JSON）
+     * 
+     * 示例：
+     * curl -X POST -H "Content-Type: text/csv" --data-binary @users.csv "http://localhost:8081/user/import?format=csv"
+     * 
+     * 注意：不要使用application/x-www-form-urlencoded，否则请求体会被当作表单参数解析
+     * 
+     * 导入中断时，使用报告中的lastCommittedRow作为resumeFrom重新提交同一个文件即可继续
+     * 
+     * @param request HTTP请求，直接读取请求体输入流，不会把整个文件读入内存
+     * @param format 数据格式：csv 或 ndjson
+     * @param resumeFrom 跳过前多少行
+     * @return 导入报告
+     */
+    @PostMapping("/import")
+    public Result<UserImportReport> importUsers(HttpServletRequest request,
+                                                @RequestParam(defaultValue = "csv") String format,
+                                                @RequestParam(defaultValue = "0") long resumeFrom) {
+        try (InputStream input = request.getInputStream()) {
+            return Result.success(userImportService.importUsers(input, format, resumeFrom));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+    
     /**
      * 用户登录
      * 
@@ -133,6 +190,118 @@ public class UserController {
         }
     }
     
+    /**
+     * 根据ID批量查询用户信息
+     * 
+     * 访问地址：GET http://localhost:8081/user/batch?ids=1,2,3
+     * 
+     * 订单服务的订单读模型用它补齐买家信息，一次请求代替逐个调用 /user/{id}；
+     * 不存在的用户不出现在结果中
+     * 
+     * @param ids 用户ID，最多500个
+     * @return 用户信息列表（不含密码）
+     */
+    @GetMapping("/batch")
+    public Result<List<User>> getUsersByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > 500) {
+            return Result.error("一次最多查询500个用户");
+        }
+        try {
+            List<User> users = userService.getUsersByIds(ids);
+            users.forEach(user -> user.setPassword(null));
+            return Result.success(users);
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 按前缀搜索用户（输入联想）
+     * 
+     * 访问地址：GET http://localhost:8081/user/search?field=username&prefix=jo&page=1&size=20
+     * 请求参数：
+     * - field: 搜索字段，username / email / phone，默认username
+     * - prefix: 前缀，用户名和邮箱不区分大小写
+     * - page: 页码，从1开始
+     * - size: 每页条数，最大100
+     * - activeOnly: 是否只返回正常状态的用户
+     * 
+     * 查询走内存索引，不访问数据库
+     * 
+     * @return 分页搜索结果
+     */
+    @GetMapping("/search")
+    public Result<UserSearchPage> searchUsers(@RequestParam(defaultValue = "username") String field,
+                                              @RequestParam String prefix,
+                                              @RequestParam(defaultValue = "1") int page,
+                                              @RequestParam(defaultValue = "20") int size,
+                                              @RequestParam(defaultValue = "false") boolean activeOnly) {
+        try {
+            UserSearchIndex.Field searchField;
+            try {
+                searchField = UserSearchIndex.Field.valueOf(field.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                return Result.error(400, "不支持的搜索字段：" + field);
+            }
+            int pageNo = Math.max(1, page);
+            int pageSize = Math.min(100, Math.max(1, size));
+            return Result.success(userSearchIndex.search(searchField, prefix, pageNo, pageSize, activeOnly));
+        } catch (Exception e) {
+            return Result.error(e.getMessage());
+        }
+    }
+    
+    /**
+     * 查询用户搜索索引统计
+     * 
+     * 访问地址：GET http://localhost:8081/user/search/stats
+     * 
+     * @return 索引统计信息
+     */
+    @GetMapping("/search/stats")
+    public Result<Map<String, Object>> getSearchStats() {
+        return Result.success(userSearchIndex.stats());
+    }
+    
+    /**
+     * 拉取用户变更（长轮询）
+     * 
+     * 访问地址：GET http://localhost:8081/user/changes?epoch=...&since=0&timeout=30000
+     * 
+     * 订阅流程：
+     * 1. 首次订阅不传epoch，返回每个用户最新变更的压缩快照（snapshot=true）
+     * 2. 记录返回的epoch和version，之后带上epoch和since=version继续拉取
+     * 3. 没有新变更时请求挂起，直到有变更或超时（超时返回空列表）
+     * 4. 纪元变化（服务重启）时清空本地缓存，再应用快照；订阅方落后太多时返回since之后的快照，直接应用即可
+     * 5. 快照按limit分页，hasMore=true时立即带上返回的version继续拉取
+     * 
+     * @param epoch 订阅方记录的纪元
+     * @param since 已处理到的版本号
+     * @param timeout 最长等待时间（毫秒），最大60000，0表示不等待
+     * @param limit 最多返回多少条变更
+     * @return 变更批次
+     */
+    @GetMapping("/changes")
+    public DeferredResult<Result<UserChangeBatch>> getChanges(@RequestParam(required = false) Long epoch,
+                                                              @RequestParam(defaultValue = "0") long since,
+                                                              @RequestParam(defaultValue = "30000") long timeout,
+                                                              @RequestParam(defaultValue = "1000") int limit) {
+        long waitMillis = Math.min(60_000, Math.max(0, timeout));
+        int batchLimit = Math.min(10_000, Math.max(1, limit));
+        DeferredResult<Result<UserChangeBatch>> deferred = new DeferredResult<>(Math.max(1, waitMillis));
+        if (waitMillis == 0) {
+            deferred.setResult(Result.success(userChangeFeed.read(epoch, since, batchLimit)));
+            return deferred;
+        }
+        Runnable cancel = userChangeFeed.poll(epoch, since, batchLimit, batch -> deferred.setResult(Result.success(batch)));
+        deferred.onTimeout(() -> {
+            cancel.run();
+            deferred.setResult(Result.success(userChangeFeed.empty(since)));
+        });
+        deferred.onCompletion(cancel);
+        return deferred;
+    }
+    
     /**
      * 获取所有活跃用户
      * 
@@ -152,6 +321,21 @@ public class UserController {
         }
     }
     
+    /**
+     * 查询堆外用户缓存统计
+     * 
+     * 访问地址：GET http://localhost:8081/user/cache/stats
+     * 返回容量、命中率、热启动恢复条数和耗时，以及订阅其他实例变更流的状态
+     * 
+     * @return 缓存统计信息
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Object>> getCacheStats() {
+        Map<String, Object> stats = userCache.stats();
+        stats.put("peers", userCachePeerSubscriber.stats());
+        return Result.success(stats);
+    }
+    
     /**
      * 更新用户信息
      * 
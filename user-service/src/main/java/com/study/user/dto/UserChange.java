@@ -0,0 +1,57 @@
+package com.study.user.dto;
+
+import com.study.common.entity.User;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 用户变更事件
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange {
+
+    /**
+     * 变更类型：新注册
+     */
+    public static final String CREATE = "CREATE";
+
+    /**
+     * 变更类型：信息更新
+     */
+    public static final String UPDATE = "UPDATE";
+
+    /**
+     * 变更类型：被禁用
+     */
+    public static final String DISABLE = "DISABLE";
+
+    /**
+     * 变更版本号，单调递增
+     */
+    private long version;
+
+    /**
+     * 变更类型：CREATE / UPDATE / DISABLE
+     */
+    private String type;
+
+    /**
+     * 用户ID
+     */
+    private Long userId;
+
+    /**
+     * 变更后的用户信息（不含密码），可能为空，此时只用于失效缓存
+     */
+    private User user;
+
+    /**
+     * 变更时间（毫秒时间戳）
+     */
+    private long timestamp;
+}
@@ -0,0 +1,42 @@
+package com.study.user.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户变更拉取结果
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class UserChangeBatch {
+
+    /**
+     * 变更流纪元（服务启动时间）
+     * 纪元变化说明服务重启过，版本号重新开始，订阅方需要按快照重建本地缓存
+     */
+    private long epoch;
+
+    /**
+     * 是否为压缩快照
+     * true表示changes是版本号大于since的每个用户的最新一次变更（按版本号分页），
+     * 纪元变化时订阅方应清空本地缓存后再应用
+     */
+    private boolean snapshot;
+
+    /**
+     * 本批次包含的最大版本号，下次拉取时作为since参数
+     */
+    private long version;
+
+    /**
+     * 是否还有未返回的变更（达到limit上限），应立即再次拉取
+     */
+    private boolean hasMore;
+
+    /**
+     * 按版本号升序排列的变更
+     */
+    private List<UserChange> changes;
+}
@@ -0,0 +1,109 @@
+package com.study.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量导入用户结果报告
+ *
+ * 包含整体统计、逐行错误明细以及断点续传所需的行号
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class UserImportReport {
+
+    /**
+     * 数据格式：csv 或 ndjson
+     */
+    private String format;
+
+    /**
+     * 本次从哪一行之后开始导入（断点续传参数）
+     */
+    private long resumeFrom;
+
+    /**
+     * 读取到的数据行数（不含CSV表头）
+     */
+    private long totalRows;
+
+    /**
+     * 因断点续传而跳过的行数
+     */
+    private long skippedRows;
+
+    /**
+     * 成功导入的用户数
+     */
+    private long imported;
+
+    /**
+     * 失败的行数
+     */
+    private long failed;
+
+    /**
+     * 最后一个已提交批次的行号
+     * 导入中断时，使用该值作为resumeFrom重新提交即可继续导入
+     */
+    private long lastCommittedRow;
+
+    /**
+     * 是否因为异常（如数据库不可用）提前终止
+     */
+    private boolean aborted;
+
+    /**
+     * 终止原因
+     */
+    private String abortReason;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long elapsedMillis;
+
+    /**
+     * 导入速度（行/秒）
+     */
+    private long rowsPerSecond;
+
+    /**
+     * 错误明细是否因数量过多被截断
+     */
+    private boolean errorsTruncated;
+
+    /**
+     * 逐行错误明细
+     */
+    private List<RowError> errors = new ArrayList<>();
+
+    /**
+     * 单行错误
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        /**
+         * 行号（从1开始，不含CSV表头）
+         */
+        private long row;
+
+        /**
+         * 用户名（解析失败时可能为空）
+         */
+        private String username;
+
+        /**
+         * 失败原因
+         */
+        private String reason;
+    }
+}
@@ -0,0 +1,51 @@
+package com.study.user.dto;
+
+import com.study.common.entity.User;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 用户前缀搜索分页结果
+ *
+ * @author SpringCloud学习项目
+ */
+@Data
+public class UserSearchPage {
+
+    /**
+     * 搜索字段：username、email 或 phone
+     */
+    private String field;
+
+    /**
+     * 搜索前缀
+     */
+    private String prefix;
+
+    /**
+     * 页码（从1开始）
+     */
+    private int page;
+
+    /**
+     * 每页条数
+     */
+    private int size;
+
+    /**
+     * 是否还有下一页
+     * 为了保证查询速度，不统计匹配总数
+     */
+    private boolean hasMore;
+
+    /**
+     * 查询耗时（微秒）
+     */
+    private long tookMicros;
+
+    /**
+     * 匹配的用户（按字段值字典序排列，不含密码）
+     */
+    private List<User> items;
+}
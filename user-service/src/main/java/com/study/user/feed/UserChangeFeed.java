@@ -0,0 +1,295 @@
+package com.study.user.feed;
+
+import com.study.common.entity.User;
+import com.study.user.dto.UserChange;
+import com.study.user.dto.UserChangeBatch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 用户变更流
+ *
+ * 为什么需要它：
+ * 订单服务、网关等缓存了用户信息的服务无法得知用户何时被修改或禁用，
+ * 只能轮询或者把缓存过期时间设得很短，结果是大量的重复加载
+ *
+ * 实现要点：
+ * 1. 每次变更分配一个单调递增的版本号，最近的变更保存在环形缓冲区中
+ * 2. 同时维护每个用户的最新一次变更（压缩快照），按版本号排序，供新订阅者初始化
+ * 3. 订阅方通过长轮询拉取"某个版本之后"的变更，没有变更时挂起等待
+ * 4. 订阅方落后太多（环形缓冲区已被覆盖）或服务重启（纪元变化）时返回快照：
+ *    版本号大于since的每个用户的最新变更，按版本号分页，不持有发布变更的锁
+ * 5. 发布变更只写入内存，挂起的订阅方由通知线程唤醒，修改用户的请求不随订阅方数量变慢；
+ *    连续发布的多次变更合并为一次通知
+ *
+ * 注意：版本号只在单个实例内有意义，多实例部署时订阅方应直连各实例订阅
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class UserChangeFeed {
+
+    /**
+     * 纪元：服务启动时间，服务重启后版本号重新开始
+     */
+    private final long epoch = System.currentTimeMillis();
+
+    /**
+     * 最近变更的环形缓冲区，下标为 version % 长度
+     */
+    private final UserChange[] ring;
+
+    /**
+     * 用户ID -> 最新一次变更
+     */
+    private final Map<Long, UserChange> latest = new ConcurrentHashMap<>();
+
+    /**
+     * 版本号 -> 变更，只包含每个用户的最新一次变更（压缩快照），与latest一起在this锁内修改
+     */
+    private final NavigableMap<Long, UserChange> snapshot = new ConcurrentSkipListMap<>();
+
+    /**
+     * 正在长轮询等待的订阅方
+     */
+    private final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 唤醒订阅方的线程
+     */
+    private final ExecutorService notifier = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "user-change-notify");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 已经提交了通知任务，还没有开始执行
+     */
+    private final AtomicBoolean notifyScheduled = new AtomicBoolean();
+
+    /**
+     * 当前最大版本号，由this加锁保护
+     */
+    private long version;
+
+    public UserChangeFeed(@Value("${user.changes.buffer-size:10000}") int bufferSize) {
+        this.ring = new UserChange[Math.max(16, bufferSize)];
+    }
+
+    /**
+     * 发布一次用户变更
+     *
+     * @param type 变更类型
+     * @param userId 用户ID
+     * @param user 变更后的用户信息，可以为null
+     */
+    public void publish(String type, Long userId, User user) {
+        if (userId == null) {
+            return;
+        }
+        User copy = copyWithoutPassword(user);
+        synchronized (this) {
+            append(type, userId, copy);
+        }
+        scheduleNotify();
+    }
+
+    /**
+     * 发布一批用户变更（如批量导入），只加一次锁、唤醒一次订阅方
+     *
+     * @param type 变更类型
+     * @param users 变更后的用户信息，没有ID的忽略
+     */
+    public void publishAll(String type, List<User> users) {
+        List<User> copies = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user != null && user.getId() != null) {
+                copies.add(copyWithoutPassword(user));
+            }
+        }
+        if (copies.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (User copy : copies) {
+                append(type, copy.getId(), copy);
+            }
+        }
+        scheduleNotify();
+    }
+
+    /**
+     * 拉取变更，没有新变更时挂起等待，直到有变更或调用方取消
+     *
+     * @param clientEpoch 订阅方记录的纪元，首次订阅传null（返回快照）
+     * @param since 订阅方已经处理到的版本号
+     * @param limit 最多返回多少条
+     * @param callback 拿到结果后的回调（可能在通知线程中执行）
+     * @return 取消等待的操作，用于长轮询超时
+     */
+    public Runnable poll(Long clientEpoch, long since, int limit, Consumer<UserChangeBatch> callback) {
+        UserChangeBatch batch = read(clientEpoch, since, limit);
+        if (batch.isSnapshot() || !batch.getChanges().isEmpty()) {
+            callback.accept(batch);
+            return () -> { };
+        }
+        Waiter waiter = new Waiter(since, limit, callback);
+        waiters.add(waiter);
+        // 注册等待之前可能刚好有变更发布，这里再检查一次，避免错过通知
+        if (currentVersion() > since && waiters.remove(waiter)) {
+            callback.accept(read(epoch, since, limit));
+        }
+        return () -> waiters.remove(waiter);
+    }
+
+    /**
+     * 立即读取变更
+     *
+     * 纪元不同、首次订阅或since超出范围时从版本0开始读快照；since早于环形缓冲区时从since开始读快照。
+     * 快照每次最多返回limit条，hasMore为true时订阅方带上返回的version继续拉取，
+     * 追上环形缓冲区之后自动转为逐条返回
+     *
+     * @param clientEpoch 订阅方记录的纪元
+     * @param since 已经处理到的版本号
+     * @param limit 最多返回多少条
+     * @return 变更批次
+     */
+    public UserChangeBatch read(Long clientEpoch, long since, int limit) {
+        int max = Math.max(1, limit);
+        UserChangeBatch batch = new UserChangeBatch();
+        batch.setEpoch(epoch);
+        List<UserChange> changes = new ArrayList<>();
+        long current;
+        long from = since;
+        synchronized (this) {
+            current = version;
+            boolean restart = clientEpoch == null || clientEpoch != epoch || since > version;
+            long oldest = Math.max(1, version - ring.length + 1);
+            if (!restart && since >= oldest - 1) {
+                long end = Math.min(version, since + max);
+                for (long v = since + 1; v <= end; v++) {
+                    changes.add(ring[(int) (v % ring.length)]);
+                }
+                batch.setVersion(end);
+                batch.setHasMore(end < version);
+                batch.setChanges(changes);
+                return batch;
+            }
+            if (restart) {
+                from = 0;
+            }
+        }
+        // 快照在锁外读取：读取期间发布的变更版本号大于current，订阅方下次从current开始拉取时会收到
+        batch.setSnapshot(true);
+        for (UserChange change : snapshot.subMap(from, false, current, true).values()) {
+            if (changes.size() == max) {
+                break;
+            }
+            changes.add(change);
+        }
+        boolean full = changes.size() == max;
+        batch.setVersion(full ? changes.get(max - 1).getVersion() : current);
+        batch.setHasMore(full && batch.getVersion() < current);
+        batch.setChanges(changes);
+        return batch;
+    }
+
+    /**
+     * 长轮询超时时返回的空批次
+     *
+     * @param since 订阅方当前版本号
+     * @return 空批次
+     */
+    public UserChangeBatch empty(long since) {
+        UserChangeBatch batch = new UserChangeBatch();
+        batch.setEpoch(epoch);
+        batch.setVersion(since);
+        batch.setChanges(List.of());
+        return batch;
+    }
+
+    public synchronized long currentVersion() {
+        return version;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        notifier.shutdownNow();
+    }
+
+    /**
+     * 写入一条变更，调用方持有this锁
+     */
+    private void append(String type, Long userId, User copy) {
+        UserChange change = new UserChange(++version, type, userId, copy, System.currentTimeMillis());
+        ring[(int) (change.getVersion() % ring.length)] = change;
+        UserChange previous = latest.put(userId, change);
+        if (previous != null) {
+            snapshot.remove(previous.getVersion());
+        }
+        snapshot.put(change.getVersion(), change);
+    }
+
+    /**
+     * 有订阅方在等待时提交一次通知，已经提交但还没执行的通知会读到这次变更，不再重复提交
+     */
+    private void scheduleNotify() {
+        if (!waiters.isEmpty() && notifyScheduled.compareAndSet(false, true)) {
+            notifier.execute(this::notifyWaiters);
+        }
+    }
+
+    /**
+     * 唤醒版本号落后的订阅方（在通知线程中执行）
+     */
+    private void notifyWaiters() {
+        notifyScheduled.set(false);
+        long current = currentVersion();
+        for (Waiter waiter : waiters) {
+            if (waiter.since() < current && waiters.remove(waiter)) {
+                try {
+                    waiter.callback().accept(read(epoch, waiter.since(), waiter.limit()));
+                } catch (Exception e) {
+                    log.warn("通知用户变更订阅方失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static User copyWithoutPassword(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setUsername(user.getUsername());
+        copy.setEmail(user.getEmail());
+        copy.setPhone(user.getPhone());
+        copy.setStatus(user.getStatus());
+        copy.setCreateTime(user.getCreateTime());
+        copy.setUpdateTime(user.getUpdateTime());
+        return copy;
+    }
+
+    /**
+     * 长轮询等待者
+     */
+    private record Waiter(long since, int limit, Consumer<UserChangeBatch> callback) {
+    }
+}
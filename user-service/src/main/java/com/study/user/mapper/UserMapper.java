@@ -3,8 +3,10 @@ package com.study.user.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.study.common.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -66,4 +68,29 @@ public interface UserMapper extends BaseMapper<User> {
      */
     @Select("SELECT * FROM user WHERE phone = #{phone}")
     User selectByPhone(String phone);
-}
\ No newline at end of file
+    
+    /**
+     * 按ID顺序分页扫描用户（键集分页）
+     * 
+     * 用于构建内存索引，每次只读取一页，避免一次性加载全表
+     * 不查询密码字段
+     * 
+     * @param afterId 上一页最后一个用户ID，第一页传0
+     * @param limit 每页条数
+     * @return 用户列表
+     */
+    @Select("SELECT id, username, email, phone, status FROM user WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<User> selectPageAfterId(@Param("afterId") long afterId, @Param("limit") int limit);
+    
+    /**
+     * 按ID批量查询更新时间
+     * 
+     * 堆外缓存热启动时据此找出停机期间被修改的用户
+     * 
+     * @param ids 用户ID
+     * @return 用户列表（只有id和updateTime）
+     */
+    @Select("<script>SELECT id, update_time FROM user WHERE id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    List<User> selectUpdateTimes(@Param("ids") Collection<Long> ids);
+}
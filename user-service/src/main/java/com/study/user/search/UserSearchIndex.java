@@ -0,0 +1,504 @@
+package com.study.user.search;
+
+import com.study.common.entity.User;
+import com.study.user.dto.UserSearchPage;
+import com.study.user.mapper.UserMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 用户前缀搜索索引（内存）
+ *
+ * 为什么需要它：
+ * 客服工具需要按用户名、邮箱、手机号做输入联想，
+ * 如果直接在user表上执行LIKE 'x%'，会和登录请求争抢数据库
+ *
+ * 数据结构：每个字段一份"有序紧凑数组 + 增量跳表"
+ * 1. 基础部分：按(字段值, 用户ID)排序的String[]和long[]，二分查找定位前缀起点
+ * 2. 增量部分：启动后新增或修改的值写入ConcurrentSkipListSet
+ * 3. 增量超过阈值时在后台线程合并进新的有序数组（合并期间查询不受影响）
+ * 4. 旧值不做删除，查询时与用户当前值比对，不一致的旧值直接跳过
+ *
+ * 启动完成后从数据库分页加载全部用户构建索引，
+ * 注册、批量导入、更新、禁用用户时同步更新索引
+ *
+ * @author SpringCloud学习项目
+ */
+@Slf4j
+@Component
+public class UserSearchIndex {
+
+    /**
+     * 可搜索的字段
+     */
+    public enum Field {
+        USERNAME, EMAIL, PHONE
+    }
+
+    /**
+     * 深分页上限，超过后直接返回空结果
+     */
+    private static final int MAX_OFFSET = 10_000;
+
+    /**
+     * 用户ID -> 用户搜索信息（不含密码）
+     */
+    private final ConcurrentHashMap<Long, Entry> users = new ConcurrentHashMap<>();
+
+    private final Map<Field, FieldIndex> indexes = new EnumMap<>(Field.class);
+
+    /**
+     * 读锁：写入索引；写锁：合并时冻结增量部分
+     */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final AtomicInteger pendingDelta = new AtomicInteger();
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    private final AtomicBoolean compactScheduled = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "user-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Resource
+    private UserMapper userMapper;
+
+    /**
+     * 启动加载时每页读取的用户数
+     */
+    @Value("${user.search.load-page-size:5000}")
+    private int loadPageSize;
+
+    /**
+     * 增量部分超过多少条后触发合并
+     */
+    @Value("${user.search.compact-threshold:50000}")
+    private int compactThreshold;
+
+    private volatile boolean ready;
+    private volatile long lastBuildMillis;
+
+    public UserSearchIndex() {
+        for (Field field : Field.values()) {
+            indexes.put(field, new FieldIndex());
+        }
+    }
+
+    /**
+     * 应用启动完成后在后台构建索引，不阻塞启动
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        executor.execute(this::rebuild);
+    }
+
+    /**
+     * 新增或整体替换一个用户
+     *
+     * @param user 用户信息
+     */
+    public void upsert(User user) {
+        if (user == null || user.getId() == null) {
+            return;
+        }
+        Entry entry = new Entry(user.getId(), user.getUsername(), user.getEmail(), user.getPhone(), user.getStatus());
+        lock.readLock().lock();
+        try {
+            Entry old = users.put(entry.id(), entry);
+            for (Field field : Field.values()) {
+                String value = entry.normalized(field);
+                if (value != null && (old == null || !value.equals(old.normalized(field)))) {
+                    indexes.get(field).state.delta().add(new Key(value, entry.id()));
+                    pendingDelta.incrementAndGet();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // 批量导入时会连续写入很多用户，只提交一次合并任务
+        if (ready && pendingDelta.get() > compactThreshold && compactScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                compactScheduled.set(false);
+                compact();
+            });
+        }
+    }
+
+    /**
+     * 用户信息更新后调用
+     * updateUser是部分更新，这里只合并非空字段
+     *
+     * @param changed 更新的字段
+     */
+    public void onUpdate(User changed) {
+        if (changed == null || changed.getId() == null) {
+            return;
+        }
+        Entry old = users.get(changed.getId());
+        if (old == null) {
+            upsert(userMapper.selectById(changed.getId()));
+            return;
+        }
+        User merged = old.toUser();
+        if (changed.getUsername() != null) {
+            merged.setUsername(changed.getUsername());
+        }
+        if (changed.getEmail() != null) {
+            merged.setEmail(changed.getEmail());
+        }
+        if (changed.getPhone() != null) {
+            merged.setPhone(changed.getPhone());
+        }
+        if (changed.getStatus() != null) {
+            merged.setStatus(changed.getStatus());
+        }
+        upsert(merged);
+    }
+
+    /**
+     * 用户被禁用后调用
+     *
+     * @param userId 用户ID
+     */
+    public void onDisable(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        User disabled = new User();
+        disabled.setId(userId);
+        disabled.setStatus(0);
+        onUpdate(disabled);
+    }
+
+    /**
+     * 按ID读取索引中的用户信息（不含密码）
+     *
+     * @param userId 用户ID
+     * @return 用户信息，不在索引中返回null
+     */
+    public User find(Long userId) {
+        Entry entry = userId == null ? null : users.get(userId);
+        return entry == null ? null : entry.toUser();
+    }
+
+    /**
+     * 前缀搜索
+     *
+     * @param field 搜索字段
+     * @param prefix 前缀（用户名、邮箱不区分大小写）
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @param activeOnly 是否只返回正常状态的用户
+     * @return 分页结果
+     */
+    public UserSearchPage search(Field field, String prefix, int page, int size, boolean activeOnly) {
+        if (!ready) {
+            throw new RuntimeException("用户搜索索引正在构建中，请稍后重试");
+        }
+        String normalizedPrefix = normalize(field, prefix);
+        if (normalizedPrefix == null) {
+            throw new RuntimeException("搜索前缀不能为空");
+        }
+        long start = System.nanoTime();
+        int offset = (page - 1) * size;
+        List<User> items = new ArrayList<>(size);
+        boolean hasMore = false;
+
+        if (offset <= MAX_OFFSET) {
+            State state = indexes.get(field).state;
+            String[] values = state.values();
+            long[] ids = state.ids();
+            int base = lowerBound(values, normalizedPrefix);
+            Iterator<Key> frozen = state.frozen().tailSet(new Key(normalizedPrefix, Long.MIN_VALUE), true).iterator();
+            Iterator<Key> delta = state.delta().tailSet(new Key(normalizedPrefix, Long.MIN_VALUE), true).iterator();
+            Key nextFrozen = next(frozen, normalizedPrefix);
+            Key nextDelta = next(delta, normalizedPrefix);
+            Key last = null;
+            int skipped = 0;
+
+            // 三路归并：有序数组 + 冻结的增量 + 当前增量
+            while (true) {
+                Key nextBase = base < values.length && values[base].startsWith(normalizedPrefix)
+                        ? new Key(values[base], ids[base]) : null;
+                Key min = min(min(nextBase, nextFrozen), nextDelta);
+                if (min == null) {
+                    break;
+                }
+                if (min.equals(nextBase)) {
+                    base++;
+                }
+                if (min.equals(nextFrozen)) {
+                    nextFrozen = next(frozen, normalizedPrefix);
+                }
+                if (min.equals(nextDelta)) {
+                    nextDelta = next(delta, normalizedPrefix);
+                }
+                if (min.equals(last)) {
+                    continue;
+                }
+                last = min;
+
+                // 跳过已经被修改掉的旧值
+                Entry entry = users.get(min.id());
+                if (entry == null || !min.value().equals(entry.normalized(field))) {
+                    continue;
+                }
+                if (activeOnly && (entry.status() == null || entry.status() != 1)) {
+                    continue;
+                }
+                if (skipped < offset) {
+                    skipped++;
+                    continue;
+                }
+                if (items.size() == size) {
+                    hasMore = true;
+                    break;
+                }
+                items.add(entry.toUser());
+            }
+        }
+
+        UserSearchPage result = new UserSearchPage();
+        result.setField(field.name().toLowerCase(Locale.ROOT));
+        result.setPrefix(prefix);
+        result.setPage(page);
+        result.setSize(size);
+        result.setHasMore(hasMore);
+        result.setItems(items);
+        result.setTookMicros((System.nanoTime() - start) / 1000);
+        return result;
+    }
+
+    /**
+     * 索引统计信息
+     *
+     * @return 统计信息
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("users", users.size());
+        for (Field field : Field.values()) {
+            State state = indexes.get(field).state;
+            stats.put(field.name().toLowerCase(Locale.ROOT) + "Sorted", state.values().length);
+        }
+        stats.put("pendingDelta", pendingDelta.get());
+        stats.put("lastBuildMillis", lastBuildMillis);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 从数据库分页加载全部用户并合并索引
+     * 已经由注册、更新写入的用户以内存中的为准
+     */
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            long afterId = 0;
+            List<User> page;
+            do {
+                page = userMapper.selectPageAfterId(afterId, loadPageSize);
+                for (User user : page) {
+                    users.putIfAbsent(user.getId(), new Entry(user.getId(), user.getUsername(), user.getEmail(), user.getPhone(), user.getStatus()));
+                    afterId = user.getId();
+                }
+            } while (page.size() == loadPageSize);
+            compact();
+            ready = true;
+            lastBuildMillis = (System.nanoTime() - start) / 1_000_000;
+            log.info("用户搜索索引构建完成: 用户数={}, 耗时={}ms", users.size(), lastBuildMillis);
+        } catch (Exception e) {
+            log.warn("用户搜索索引构建失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 把增量部分合并进有序数组
+     */
+    private void compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // 1. 冻结当前增量，之后的写入进入新的增量集合
+            lock.writeLock().lock();
+            try {
+                for (FieldIndex index : indexes.values()) {
+                    index.freeze();
+                }
+                pendingDelta.set(0);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            // 2. 基于用户快照重建有序数组，期间查询仍然可以读到冻结的增量
+            for (Field field : Field.values()) {
+                List<Key> keys = new ArrayList<>(users.size());
+                for (Entry entry : users.values()) {
+                    String value = entry.normalized(field);
+                    if (value != null) {
+                        keys.add(new Key(value, entry.id()));
+                    }
+                }
+                Key[] sorted = keys.toArray(new Key[0]);
+                Arrays.parallelSort(sorted);
+                String[] values = new String[sorted.length];
+                long[] ids = new long[sorted.length];
+                for (int i = 0; i < sorted.length; i++) {
+                    values[i] = sorted[i].value();
+                    ids[i] = sorted[i].id();
+                }
+                indexes.get(field).install(values, ids);
+            }
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private static String normalize(Field field, String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            return null;
+        }
+        return field == Field.PHONE ? trimmed : trimmed.toLowerCase(Locale.ROOT);
+    }
+
+    private static int lowerBound(String[] values, String prefix) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static Key next(Iterator<Key> iterator, String prefix) {
+        if (!iterator.hasNext()) {
+            return null;
+        }
+        Key key = iterator.next();
+        return key.value().startsWith(prefix) ? key : null;
+    }
+
+    private static Key min(Key a, Key b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * 索引中保存的用户信息（不含密码）
+     */
+    record Entry(long id, String username, String email, String phone, Integer status) {
+
+        String normalized(Field field) {
+            return switch (field) {
+                case USERNAME -> normalize(field, username);
+                case EMAIL -> normalize(field, email);
+                case PHONE -> normalize(field, phone);
+            };
+        }
+
+        User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setUsername(username);
+            user.setEmail(email);
+            user.setPhone(phone);
+            user.setStatus(status);
+            return user;
+        }
+    }
+
+    /**
+     * 索引键：(规范化后的字段值, 用户ID)
+     */
+    record Key(String value, long id) implements Comparable<Key> {
+
+        @Override
+        public int compareTo(Key other) {
+            int result = value.compareTo(other.value);
+            return result != 0 ? result : Long.compare(id, other.id);
+        }
+    }
+
+    /**
+     * 某个字段的索引状态（不可变快照，整体替换）
+     */
+    record State(String[] values, long[] ids, NavigableSet<Key> frozen, NavigableSet<Key> delta) {
+    }
+
+    /**
+     * 单个字段的索引
+     */
+    private static final class FieldIndex {
+
+        private volatile State state = new State(new String[0], new long[0],
+                Collections.emptyNavigableSet(), new ConcurrentSkipListSet<>());
+
+        /**
+         * 冻结当前增量，换上新的空增量集合
+         */
+        void freeze() {
+            State current = state;
+            NavigableSet<Key> frozen = current.delta();
+            if (!current.frozen().isEmpty()) {
+                frozen = new TreeSet<>(current.frozen());
+                frozen.addAll(current.delta());
+            }
+            state = new State(current.values(), current.ids(), frozen, new ConcurrentSkipListSet<>());
+        }
+
+        /**
+         * 安装新的有序数组，丢弃已合并的冻结增量
+         */
+        void install(String[] values, long[] ids) {
+            State current = state;
+            state = new State(values, ids, Collections.emptyNavigableSet(), current.delta());
+        }
+    }
+}
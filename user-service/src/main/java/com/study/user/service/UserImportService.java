@@ -0,0 +1,523 @@
+package com.study.user.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.study.common.entity.User;
+import com.study.user.dto.UserChange;
+import com.study.user.dto.UserImportReport;
+import com.study.user.feed.UserChangeFeed;
+import com.study.user.search.UserSearchIndex;
+import jakarta.annotation.Resource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量导入用户业务逻辑
+ *
+ * 为什么不直接循环调用registerUser：
+ * 注册一个用户需要3条SQL（查用户名、查邮箱、插入），导入百万用户就是几百万次数据库往返
+ *
+ * 处理流程：
+ * 1. 流式逐行读取CSV或NDJSON，内存中只保留当前批次，内存占用与文件大小无关
+ * 2. 逐行校验，并在内存中对文件内的用户名、邮箱去重（只保存64位哈希值）
+ * 3. 每个批次用2条IN查询过滤掉数据库中已存在的用户名和邮箱
+ * 4. 每个批次在一个事务中用JDBC批量插入（配合rewriteBatchedStatements=true），同时取回自增ID
+ * 5. 批次提交后只把这一批新用户写入搜索索引（不重新加载整张表），并作为CREATE变更发布到用户变更流
+ * 6. 返回逐行错误报告和最后提交的行号，中断后可以从该行继续导入
+ *
+ * 与registerUser一致：新用户状态为正常，密码按原样保存（实际项目中应该加密）
+ *
+ * @author SpringCloud学习项目
+ */
+@Service
+public class UserImportService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO user (username, password, email, phone, status, create_time, update_time) VALUES (?, ?, ?, ?, 1, ?, ?)";
+
+    private static final String[] ID_COLUMN = {"id"};
+
+    @Resource
+    private JdbcTemplate jdbcTemplate;
+
+    @Resource
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private UserSearchIndex userSearchIndex;
+
+    @Resource
+    private UserChangeFeed userChangeFeed;
+
+    /**
+     * 每批插入的行数
+     */
+    @Value("${user.import.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 报告中最多保留的错误明细条数
+     */
+    @Value("${user.import.max-errors:1000}")
+    private int maxErrors;
+
+    /**
+     * 流式导入用户
+     *
+     * @param input 请求体输入流
+     * @param format 数据格式：csv（首行为表头）或 ndjson（每行一个JSON对象）
+     * @param resumeFrom 跳过前多少行（断点续传），0表示从头开始
+     * @return 导入报告
+     */
+    public UserImportReport importUsers(InputStream input, String format, long resumeFrom) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            throw new RuntimeException("不支持的导入格式：" + format + "，仅支持csv和ndjson");
+        }
+
+        long start = System.nanoTime();
+        UserImportReport report = new UserImportReport();
+        report.setFormat(csv ? "csv" : "ndjson");
+        report.setResumeFrom(resumeFrom);
+        report.setLastCommittedRow(resumeFrom);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 64 * 1024);
+        Map<String, Integer> columns = null;
+        if (csv) {
+            columns = readCsvHeader(reader);
+        }
+
+        LongHashSet seenUsernames = new LongHashSet();
+        LongHashSet seenEmails = new LongHashSet();
+        List<PendingRow> batch = new ArrayList<>(batchSize);
+        long row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            if (row <= resumeFrom) {
+                report.setSkippedRows(report.getSkippedRows() + 1);
+                continue;
+            }
+
+            User user;
+            try {
+                user = csv ? parseCsvRow(line, columns) : objectMapper.readValue(line, User.class);
+            } catch (Exception e) {
+                addError(report, row, null, "解析失败：" + e.getMessage());
+                continue;
+            }
+
+            String error = validate(user);
+            if (error != null) {
+                addError(report, row, user.getUsername(), error);
+                continue;
+            }
+            if (!seenUsernames.add(hash(user.getUsername()))) {
+                addError(report, row, user.getUsername(), "文件内用户名重复");
+                continue;
+            }
+            if (user.getEmail() != null && !seenEmails.add(hash(user.getEmail()))) {
+                addError(report, row, user.getUsername(), "文件内邮箱重复");
+                continue;
+            }
+
+            batch.add(new PendingRow(row, user));
+            if (batch.size() >= batchSize && !flush(batch, report, row)) {
+                break;
+            }
+        }
+        if (!report.isAborted()) {
+            flush(batch, report, row);
+        }
+
+        report.setTotalRows(row);
+        long elapsedNanos = System.nanoTime() - start;
+        report.setElapsedMillis(elapsedNanos / 1_000_000);
+        long processed = row - report.getSkippedRows();
+        report.setRowsPerSecond(elapsedNanos == 0 ? 0 : processed * 1_000_000_000L / elapsedNanos);
+        return report;
+    }
+
+    /**
+     * 提交一个批次
+     *
+     * @param batch 待插入的行
+     * @param report 导入报告
+     * @param currentRow 当前已读取到的行号
+     * @return 是否成功，false表示数据库异常导致导入终止
+     */
+    private boolean flush(List<PendingRow> batch, UserImportReport report, long currentRow) {
+        if (batch.isEmpty()) {
+            report.setLastCommittedRow(Math.max(report.getLastCommittedRow(), currentRow));
+            return true;
+        }
+        try {
+            // 1. 过滤数据库中已存在的用户名和邮箱
+            Set<String> existingUsernames = findExisting("username", batch, false);
+            Set<String> existingEmails = findExisting("email", batch, true);
+            List<PendingRow> insertable = new ArrayList<>(batch.size());
+            for (PendingRow pending : batch) {
+                User user = pending.user();
+                if (existingUsernames.contains(normalize(user.getUsername()))) {
+                    addError(report, pending.row(), user.getUsername(), "用户名已存在");
+                } else if (user.getEmail() != null && existingEmails.contains(normalize(user.getEmail()))) {
+                    addError(report, pending.row(), user.getUsername(), "邮箱已被注册");
+                } else {
+                    insertable.add(pending);
+                }
+            }
+
+            // 2. 批量插入，整个批次在一个事务中提交
+            List<User> inserted;
+            try {
+                inserted = transactionTemplate.execute(status -> batchInsert(insertable));
+            } catch (DuplicateKeyException e) {
+                // 与并发注册的用户冲突，退化为逐行插入以定位冲突行
+                inserted = insertOneByOne(insertable, report);
+            }
+            report.setImported(report.getImported() + inserted.size());
+
+            // 3. 提交后把这一批新用户写入搜索索引，发布变更（与registerUser一致）
+            for (User user : inserted) {
+                userSearchIndex.upsert(user);
+            }
+            userChangeFeed.publishAll(UserChange.CREATE, inserted);
+        } catch (DataAccessException e) {
+            report.setAborted(true);
+            report.setAbortReason("数据库异常：" + e.getMostSpecificCause().getMessage());
+            return false;
+        }
+        batch.clear();
+        report.setLastCommittedRow(currentRow);
+        return true;
+    }
+
+    /**
+     * 批量插入并取回自增ID
+     *
+     * @param rows 待插入的行
+     * @return 插入的用户（已设置ID、状态和时间）
+     */
+    private List<User> batchInsert(List<PendingRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_SQL, ID_COLUMN), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bind(ps, rows.get(i).user(), timestamp);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        }, keyHolder);
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        if (keys.size() != rows.size()) {
+            throw new IncorrectResultSizeDataAccessException("批量插入返回的自增ID数量不一致", rows.size(), keys.size());
+        }
+        List<User> inserted = new ArrayList<>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            inserted.add(inserted(rows.get(i).user(), keys.get(i), now));
+        }
+        return inserted;
+    }
+
+    private List<User> insertOneByOne(List<PendingRow> rows, UserImportReport report) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<User> inserted = new ArrayList<>(rows.size());
+        for (PendingRow pending : rows) {
+            User user = pending.user();
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+            try {
+                jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(INSERT_SQL, ID_COLUMN);
+                    bind(ps, user, timestamp);
+                    return ps;
+                }, keyHolder);
+                inserted.add(inserted(user, keyHolder.getKeys(), now));
+            } catch (DuplicateKeyException e) {
+                addError(report, pending.row(), user.getUsername(), "用户名或邮箱已存在");
+            }
+        }
+        return inserted;
+    }
+
+    private static void bind(PreparedStatement ps, User user, Timestamp now) throws SQLException {
+        ps.setString(1, user.getUsername());
+        ps.setString(2, user.getPassword());
+        ps.setString(3, user.getEmail());
+        ps.setString(4, user.getPhone());
+        ps.setTimestamp(5, now);
+        ps.setTimestamp(6, now);
+    }
+
+    /**
+     * 补上插入时生成的字段。自增ID的列名随驱动不同（MySQL为GENERATED_KEY），只取唯一的一列
+     */
+    private static User inserted(User user, Map<String, Object> keys, LocalDateTime now) {
+        user.setId(((Number) keys.values().iterator().next()).longValue());
+        user.setStatus(1);
+        user.setCreateTime(now);
+        user.setUpdateTime(now);
+        return user;
+    }
+
+    /**
+     * 查询本批次中已存在于数据库的用户名或邮箱
+     *
+     * @param column 列名：username 或 email
+     * @param batch 当前批次
+     * @param email 是否查询邮箱
+     * @return 已存在的值（统一转为小写）
+     */
+    private Set<String> findExisting(String column, List<PendingRow> batch, boolean email) {
+        List<String> values = new ArrayList<>(batch.size());
+        for (PendingRow pending : batch) {
+            String value = email ? pending.user().getEmail() : pending.user().getUsername();
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        Set<String> existing = new HashSet<>();
+        if (values.isEmpty()) {
+            return existing;
+        }
+        String sql = "SELECT " + column + " FROM user WHERE " + column + " IN (:values)";
+        for (String value : namedParameterJdbcTemplate.queryForList(sql, Map.of("values", values), String.class)) {
+            existing.add(normalize(value));
+        }
+        return existing;
+    }
+
+    /**
+     * 校验并规范化一行数据，规则与表结构保持一致
+     *
+     * @param user 用户信息
+     * @return 错误原因，校验通过返回null
+     */
+    private String validate(User user) {
+        if (user == null || !StringUtils.hasText(user.getUsername()) || !StringUtils.hasText(user.getPassword())) {
+            return "用户名和密码不能为空";
+        }
+        user.setId(null);
+        user.setUsername(user.getUsername().trim());
+        user.setEmail(StringUtils.hasText(user.getEmail()) ? user.getEmail().trim() : null);
+        user.setPhone(StringUtils.hasText(user.getPhone()) ? user.getPhone().trim() : null);
+        if (user.getUsername().length() > 50) {
+            return "用户名超过50个字符";
+        }
+        if (user.getPassword().length() > 100) {
+            return "密码超过100个字符";
+        }
+        if (user.getEmail() != null && user.getEmail().length() > 100) {
+            return "邮箱超过100个字符";
+        }
+        if (user.getPhone() != null && user.getPhone().length() > 20) {
+            return "手机号超过20个字符";
+        }
+        return null;
+    }
+
+    private void addError(UserImportReport report, long row, String username, String reason) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new UserImportReport.RowError(row, username, reason));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    /**
+     * 读取CSV表头，必须包含username和password列
+     *
+     * @param reader 输入
+     * @return 列名到列下标的映射
+     */
+    private Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+        } while (line != null && line.isBlank());
+        if (line == null) {
+            throw new RuntimeException("CSV内容为空");
+        }
+        List<String> names = parseCsvLine(line.startsWith("\uFEFF") ? line.substring(1) : line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("password")) {
+            throw new RuntimeException("CSV表头必须包含username和password列");
+        }
+        return columns;
+    }
+
+    private User parseCsvRow(String line, Map<String, Integer> columns) {
+        List<String> fields = parseCsvLine(line);
+        User user = new User();
+        user.setUsername(field(fields, columns, "username"));
+        user.setPassword(field(fields, columns, "password"));
+        user.setEmail(field(fields, columns, "email"));
+        user.setPhone(field(fields, columns, "phone"));
+        return user;
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        return index == null || index >= fields.size() ? null : fields.get(index);
+    }
+
+    /**
+     * 解析一行CSV，支持双引号包裹的字段和""转义（不支持跨行字段）
+     *
+     * @param line 一行文本
+     * @return 字段列表
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else if (c == '"' && current.length() == 0) {
+                quoted = true;
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("引号未闭合");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    /**
+     * 数据库使用不区分大小写的排序规则，去重时统一转为小写
+     */
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 64位FNV-1a哈希，用于文件内去重，只保存哈希值以节省内存
+     */
+    private static long hash(String value) {
+        String normalized = normalize(value);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 待插入的行
+     */
+    private record PendingRow(long row, User user) {
+    }
+
+    /**
+     * 基于开放寻址的long集合
+     * 每个元素只占8字节，百万级用户去重只需要十几MB内存
+     */
+    private static final class LongHashSet {
+
+        private long[] table = new long[1 << 16];
+        private boolean containsZero;
+        private int size;
+
+        boolean add(long value) {
+            if (value == 0) {
+                boolean added = !containsZero;
+                containsZero = true;
+                return added;
+            }
+            if ((size + 1) * 2 > table.length) {
+                resize();
+            }
+            int mask = table.length - 1;
+            int index = (int) (value ^ (value >>> 32)) & mask;
+            while (table[index] != 0) {
+                if (table[index] == value) {
+                    return false;
+                }
+                index = (index + 1) & mask;
+            }
+            table[index] = value;
+            size++;
+            return true;
+        }
+
+        private void resize() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            int mask = table.length - 1;
+            for (long value : old) {
+                if (value != 0) {
+                    int index = (int) (value ^ (value >>> 32)) & mask;
+                    while (table[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    table[index] = value;
+                }
+            }
+        }
+    }
+}
@@ -2,13 +2,23 @@ package com.study.user.service;
 
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.study.common.entity.User;
+import com.study.tracing.hotkey.HotKeyDetector;
+import com.study.user.cache.UserOffHeapCache;
+import com.study.user.dto.UserChange;
+import com.study.user.feed.UserChangeFeed;
 import com.study.user.mapper.UserMapper;
+import com.study.user.search.UserSearchIndex;
 import jakarta.annotation.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 用户业务逻辑层
@@ -30,6 +40,22 @@ public class UserService extends ServiceImpl<UserMapper, User> {
     @Resource
     private UserMapper userMapper;
     
+    // 堆外用户缓存，重启后仍然有效
+    @Resource
+    private UserOffHeapCache userCache;
+    
+    // 热点Key统计（tracing模块）
+    @Resource
+    private HotKeyDetector hotKeyDetector;
+    
+    // 用户前缀搜索索引
+    @Resource
+    private UserSearchIndex userSearchIndex;
+    
+    // 用户变更流，通知缓存了用户信息的下游服务
+    @Resource
+    private UserChangeFeed userChangeFeed;
+    
     /**
      * 用户注册
      * 
@@ -70,6 +96,11 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         
         // 5. 保存用户（实际项目中密码应该加密）
         int result = userMapper.insert(user);
+        if (result > 0) {
+            // 6. 加入搜索索引，发布变更
+            userSearchIndex.upsert(user);
+            userChangeFeed.publish(UserChange.CREATE, user.getId(), user);
+        }
         return result > 0;
     }
     
@@ -110,6 +141,10 @@ public class UserService extends ServiceImpl<UserMapper, User> {
     /**
      * 根据用户ID查询用户信息
      * 
+     * 优先读取堆外缓存，未命中再查询数据库并回填缓存；查库期间用户被更新、禁用时不回填，避免缓存旧数据
+     * 每次查询都计入热点Key统计，缓存据此优先保留热点用户
+     * 注意：缓存中不保存密码，命中缓存时返回的用户password为null
+     * 
      * @param userId 用户ID
      * @return 用户信息
      */
@@ -117,7 +152,47 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         if (userId == null) {
             return null;
         }
-        return userMapper.selectById(userId);
+        hotKeyDetector.record(UserOffHeapCache.HOT_KEY_CATEGORY, userId);
+        User cached = userCache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = userCache.generation(userId);
+        User user = userMapper.selectById(userId);
+        userCache.put(user, generation);
+        return user;
+    }
+    
+    /**
+     * 根据用户ID批量查询用户信息
+     * 
+     * 供订单服务等下游同步用户信息使用：先读堆外缓存，未命中的一次查询数据库并回填缓存。
+     * 不计入热点Key统计，批量同步不代表用户的访问量
+     * 
+     * @param userIds 用户ID
+     * @return 存在的用户（命中缓存的password为null），顺序不保证
+     */
+    public List<User> getUsersByIds(Collection<Long> userIds) {
+        List<User> users = new ArrayList<>();
+        Map<Long, Long> missing = new HashMap<>();
+        for (Long userId : new LinkedHashSet<>(userIds)) {
+            if (userId == null) {
+                continue;
+            }
+            User cached = userCache.get(userId);
+            if (cached != null) {
+                users.add(cached);
+            } else {
+                missing.put(userId, userCache.generation(userId));
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (User user : userMapper.selectBatchIds(missing.keySet())) {
+                userCache.put(user, missing.get(user.getId()));
+                users.add(user);
+            }
+        }
+        return users;
     }
     
     /**
@@ -135,6 +210,12 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         user.setUpdateTime(LocalDateTime.now());
         
         int result = userMapper.updateById(user);
+        // 更新后使缓存失效，下次查询重新加载
+        userCache.invalidate(user.getId());
+        if (result > 0) {
+            userSearchIndex.onUpdate(user);
+            userChangeFeed.publish(UserChange.UPDATE, user.getId(), changed(user.getId(), user.getUpdateTime()));
+        }
         return result > 0;
     }
     
@@ -165,6 +246,22 @@ public class UserService extends ServiceImpl<UserMapper, User> {
         user.setUpdateTime(LocalDateTime.now());
         
         int result = userMapper.updateById(user);
+        userCache.invalidate(userId);
+        if (result > 0) {
+            userSearchIndex.onDisable(userId);
+            userChangeFeed.publish(UserChange.DISABLE, userId, changed(userId, user.getUpdateTime()));
+        }
         return result > 0;
     }
+    
+    /**
+     * 变更后的完整用户信息（搜索索引中不含时间字段，补上这次修改的更新时间，订单服务据此丢弃较旧的用户信息）
+     */
+    private User changed(Long userId, LocalDateTime updateTime) {
+        User user = userSearchIndex.find(userId);
+        if (user != null) {
+            user.setUpdateTime(updateTime);
+        }
+        return user;
+    }
 }
\ No newline at end of file